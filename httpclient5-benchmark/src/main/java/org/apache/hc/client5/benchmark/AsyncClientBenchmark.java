@@ -0,0 +1,219 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.benchmark;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequests;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.testing.async.AsyncEchoHandler;
+import org.apache.hc.client5.testing.async.AsyncRandomHandler;
+import org.apache.hc.core5.function.Supplier;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.config.Http1Config;
+import org.apache.hc.core5.http.nio.AsyncServerExchangeHandler;
+import org.apache.hc.core5.http.nio.entity.NoopEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.testing.nio.H2TestServer;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the async execution chain of {@code InternalHttpAsyncClient}
+ * and {@code MinimalHttpAsyncClient} over HTTP/1.1 and HTTP/2 against
+ * an in-process loopback server.
+ * <p>
+ * With HTTP/2 the {@link #concurrentGet()} benchmark measures stream
+ * multiplexing over a single connection; with HTTP/1.1 it measures
+ * the pooling connection manager under concurrent load.
+ * </p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class AsyncClientBenchmark {
+
+    private static final Timeout TIMEOUT = Timeout.ofSeconds(30);
+
+    public enum ClientType { INTERNAL, MINIMAL }
+
+    @Param({"INTERNAL", "MINIMAL"})
+    ClientType clientType;
+
+    @Param({"FORCE_HTTP_1", "FORCE_HTTP_2"})
+    HttpVersionPolicy versionPolicy;
+
+    @Param({"128"})
+    int smallBodySize;
+
+    @Param({"1048576"})
+    int largeBodySize;
+
+    @Param({"16"})
+    int concurrency;
+
+    private H2TestServer server;
+    private CloseableHttpAsyncClient client;
+    private HttpHost target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setSoTimeout(TIMEOUT)
+                .build();
+        server = new H2TestServer(ioReactorConfig, null, null, null);
+        server.register("/echo/*", new Supplier<AsyncServerExchangeHandler>() {
+
+            @Override
+            public AsyncServerExchangeHandler get() {
+                return new AsyncEchoHandler();
+            }
+
+        });
+        server.register("/random/*", new Supplier<AsyncServerExchangeHandler>() {
+
+            @Override
+            public AsyncServerExchangeHandler get() {
+                return new AsyncRandomHandler();
+            }
+
+        });
+        final InetSocketAddress address;
+        if (versionPolicy == HttpVersionPolicy.FORCE_HTTP_2) {
+            address = server.start(H2Config.DEFAULT);
+        } else {
+            address = server.start(Http1Config.DEFAULT);
+        }
+        target = new HttpHost("localhost", address.getPort());
+
+        switch (clientType) {
+            case MINIMAL:
+                client = HttpAsyncClients.createMinimal(
+                        versionPolicy,
+                        H2Config.DEFAULT,
+                        Http1Config.DEFAULT,
+                        ioReactorConfig,
+                        PoolingAsyncClientConnectionManagerBuilder.create()
+                                .setMaxConnTotal(100)
+                                .setMaxConnPerRoute(100)
+                                .build());
+                break;
+            default:
+                client = HttpAsyncClients.custom()
+                        .setVersionPolicy(versionPolicy)
+                        .setIOReactorConfig(ioReactorConfig)
+                        .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                                .setMaxConnTotal(100)
+                                .setMaxConnPerRoute(100)
+                                .build())
+                        .setDefaultRequestConfig(RequestConfig.custom()
+                                .setConnectionRequestTimeout(TIMEOUT)
+                                .setConnectTimeout(TIMEOUT)
+                                .build())
+                        .build();
+        }
+        client.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (client != null) {
+            client.close(CloseMode.GRACEFUL);
+        }
+        if (server != null) {
+            server.shutdown(TimeValue.ofSeconds(5));
+        }
+    }
+
+    @Benchmark
+    public int smallGet() throws Exception {
+        final SimpleHttpRequest request = SimpleHttpRequests.get(target, "/random/" + smallBodySize);
+        final Future<SimpleHttpResponse> future = client.execute(request, null);
+        return future.get(TIMEOUT.getDuration(), TIMEOUT.getTimeUnit()).getCode();
+    }
+
+    @Benchmark
+    public int largeStreamedGet() throws Exception {
+        final SimpleHttpRequest request = SimpleHttpRequests.get(target, "/random/" + largeBodySize);
+        final Future<Message<HttpResponse, Void>> future = client.execute(
+                SimpleRequestProducer.create(request),
+                new BasicResponseConsumer<>(new NoopEntityConsumer()),
+                null);
+        return future.get(TIMEOUT.getDuration(), TIMEOUT.getTimeUnit()).getHead().getCode();
+    }
+
+    @Benchmark
+    public int concurrentGet() throws Exception {
+        final List<Future<SimpleHttpResponse>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            final SimpleHttpRequest request = SimpleHttpRequests.get(target, "/random/" + smallBodySize);
+            futures.add(client.execute(request, null));
+        }
+        int count = 0;
+        for (final Future<SimpleHttpResponse> future: futures) {
+            if (future.get(TIMEOUT.getDuration(), TIMEOUT.getTimeUnit()).getCode() == 200) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
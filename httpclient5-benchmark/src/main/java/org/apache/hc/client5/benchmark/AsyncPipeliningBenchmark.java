@@ -0,0 +1,169 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.benchmark;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequests;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.async.MinimalHttpAsyncClient;
+import org.apache.hc.client5.testing.async.AsyncRandomHandler;
+import org.apache.hc.core5.function.Supplier;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.config.Http1Config;
+import org.apache.hc.core5.http.nio.AsyncClientEndpoint;
+import org.apache.hc.core5.http.nio.AsyncServerExchangeHandler;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.testing.nio.H2TestServer;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks pipelined HTTP/1.1 message exchanges executed by
+ * {@link MinimalHttpAsyncClient} over a single leased endpoint per thread.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class AsyncPipeliningBenchmark {
+
+    private static final Timeout TIMEOUT = Timeout.ofSeconds(30);
+
+    @State(Scope.Benchmark)
+    public static class ClientState {
+
+        @Param({"128"})
+        int bodySize;
+
+        @Param({"8"})
+        int pipelineDepth;
+
+        private H2TestServer server;
+        private MinimalHttpAsyncClient client;
+        private HttpHost target;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            final IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                    .setSoTimeout(TIMEOUT)
+                    .build();
+            server = new H2TestServer(ioReactorConfig, null, null, null);
+            server.register("/random/*", new Supplier<AsyncServerExchangeHandler>() {
+
+                @Override
+                public AsyncServerExchangeHandler get() {
+                    return new AsyncRandomHandler();
+                }
+
+            });
+            final InetSocketAddress address = server.start(Http1Config.DEFAULT);
+            target = new HttpHost("localhost", address.getPort());
+            client = HttpAsyncClients.createMinimal(
+                    HttpVersionPolicy.FORCE_HTTP_1, H2Config.DEFAULT, Http1Config.DEFAULT, ioReactorConfig);
+            client.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (client != null) {
+                client.close(CloseMode.GRACEFUL);
+            }
+            if (server != null) {
+                server.shutdown(TimeValue.ofSeconds(5));
+            }
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class EndpointState {
+
+        private AsyncClientEndpoint endpoint;
+
+        @Setup(Level.Trial)
+        public void setUp(final ClientState clientState) throws Exception {
+            final Future<AsyncClientEndpoint> future = clientState.client.lease(clientState.target, null);
+            endpoint = future.get(TIMEOUT.getDuration(), TIMEOUT.getTimeUnit());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (endpoint != null) {
+                endpoint.releaseAndReuse();
+            }
+        }
+
+    }
+
+    @Benchmark
+    public int pipelinedGet(final ClientState clientState, final EndpointState endpointState) throws Exception {
+        final List<Future<SimpleHttpResponse>> futures = new ArrayList<>(clientState.pipelineDepth);
+        for (int i = 0; i < clientState.pipelineDepth; i++) {
+            final SimpleHttpRequest request = SimpleHttpRequests.get(clientState.target, "/random/" + clientState.bodySize);
+            futures.add(endpointState.endpoint.execute(
+                    SimpleRequestProducer.create(request),
+                    SimpleResponseConsumer.create(),
+                    null));
+        }
+        int count = 0;
+        for (final Future<SimpleHttpResponse> future: futures) {
+            if (future.get(TIMEOUT.getDuration(), TIMEOUT.getTimeUnit()).getCode() == 200) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
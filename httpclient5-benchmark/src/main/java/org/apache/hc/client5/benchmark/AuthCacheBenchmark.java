@@ -0,0 +1,123 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.auth.AuthCache;
+import org.apache.hc.client5.http.auth.AuthChallenge;
+import org.apache.hc.client5.http.auth.AuthScheme;
+import org.apache.hc.client5.http.auth.ChallengeType;
+import org.apache.hc.client5.http.auth.StandardAuthScheme;
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.client5.http.impl.auth.BasicAuthCache;
+import org.apache.hc.client5.http.impl.auth.BasicScheme;
+import org.apache.hc.client5.http.impl.auth.DigestScheme;
+import org.apache.hc.client5.http.impl.auth.SnapshotAuthCache;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost of the per-request {@link AuthCache} operations of
+ * {@link BasicAuthCache}, which serializes cached auth schemes, and
+ * {@link SnapshotAuthCache}, which copies them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class AuthCacheBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class CacheState {
+
+        @Param({"basic", "snapshot"})
+        String cache;
+
+        @Param({StandardAuthScheme.BASIC, StandardAuthScheme.DIGEST})
+        String scheme;
+
+        private AuthCache authCache;
+        private AuthScheme authScheme;
+        private HttpHost host;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            if ("basic".equals(cache)) {
+                authCache = new BasicAuthCache();
+            } else if ("snapshot".equals(cache)) {
+                authCache = new SnapshotAuthCache();
+            } else {
+                throw new IllegalStateException("Unknown cache: " + cache);
+            }
+            final UsernamePasswordCredentials credentials = new UsernamePasswordCredentials("user", "secret".toCharArray());
+            if (StandardAuthScheme.BASIC.equals(scheme)) {
+                final BasicScheme basicScheme = new BasicScheme();
+                basicScheme.initPreemptive(credentials);
+                authScheme = basicScheme;
+            } else {
+                final DigestScheme digestScheme = new DigestScheme();
+                digestScheme.processChallenge(new AuthChallenge(ChallengeType.TARGET, StandardAuthScheme.DIGEST,
+                        new BasicNameValuePair("realm", "realm1"),
+                        new BasicNameValuePair("nonce", "f2a3f18799759d4f1a1c068b92b573cb"),
+                        new BasicNameValuePair("qop", "auth")), null);
+                digestScheme.initPreemptive(credentials, "cnonce", "realm1");
+                authScheme = digestScheme;
+            }
+            host = new HttpHost("somehost", 8080);
+            authCache.put(host, authScheme);
+        }
+
+    }
+
+    @Benchmark
+    public AuthScheme get(final CacheState state) {
+        return state.authCache.get(state.host);
+    }
+
+    @Benchmark
+    public AuthScheme putAndGet(final CacheState state) {
+        state.authCache.put(state.host, state.authScheme);
+        return state.authCache.get(state.host);
+    }
+
+}
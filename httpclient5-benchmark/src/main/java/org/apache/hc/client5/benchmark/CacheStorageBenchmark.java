@@ -0,0 +1,138 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.benchmark;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.HttpCacheStorage;
+import org.apache.hc.client5.http.impl.cache.BasicHttpCacheStorage;
+import org.apache.hc.client5.http.impl.cache.CacheConfig;
+import org.apache.hc.client5.http.impl.cache.ConcurrentHttpCacheStorage;
+import org.apache.hc.client5.http.impl.cache.HeapResource;
+import org.apache.hc.client5.http.impl.cache.ManagedHttpCacheStorage;
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures contention of in-memory {@link HttpCacheStorage} implementations
+ * under a read-mostly workload executed by many threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(32)
+public class CacheStorageBenchmark {
+
+    public enum StorageType { BASIC, MANAGED, CONCURRENT }
+
+    @State(Scope.Benchmark)
+    public static class StorageState {
+
+        @Param({"BASIC", "MANAGED", "CONCURRENT"})
+        StorageType storageType;
+
+        @Param({"1000"})
+        int maxEntries;
+
+        @Param({"2000"})
+        int keyCount;
+
+        @Param({"5"})
+        int writePercent;
+
+        private HttpCacheStorage storage;
+        private String[] keys;
+        private HttpCacheEntry entry;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            final CacheConfig config = CacheConfig.custom()
+                    .setMaxCacheEntries(maxEntries)
+                    .build();
+            switch (storageType) {
+                case BASIC:
+                    storage = new BasicHttpCacheStorage(config);
+                    break;
+                case MANAGED:
+                    storage = new ManagedHttpCacheStorage(config);
+                    break;
+                default:
+                    storage = new ConcurrentHttpCacheStorage(config);
+            }
+            final Date now = new Date();
+            final byte[] body = new byte[1024];
+            new Random(0).nextBytes(body);
+            entry = new HttpCacheEntry(now, now, HttpStatus.SC_OK, new Header[] {
+                    new BasicHeader("Date", DateUtils.formatDate(now)),
+                    new BasicHeader("Cache-Control", "max-age=3600"),
+                    new BasicHeader("Content-Type", "application/octet-stream"),
+                    new BasicHeader("Content-Length", Integer.toString(body.length))
+            }, new HeapResource(body));
+            keys = new String[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                keys[i] = "http://localhost/resource/" + i;
+                if (i < maxEntries) {
+                    storage.putEntry(keys[i], entry);
+                }
+            }
+        }
+
+    }
+
+    @Benchmark
+    public Object readMostly(final StorageState state) throws Exception {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String key = state.keys[random.nextInt(state.keys.length)];
+        if (random.nextInt(100) < state.writePercent) {
+            state.storage.putEntry(key, state.entry);
+            return state.entry;
+        }
+        return state.storage.getEntry(key);
+    }
+
+}
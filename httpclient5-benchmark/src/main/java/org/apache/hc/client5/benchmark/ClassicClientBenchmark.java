@@ -0,0 +1,170 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.testing.classic.EchoHandler;
+import org.apache.hc.client5.testing.classic.RandomHandler;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.testing.classic.ClassicTestServer;
+import org.apache.hc.core5.util.Timeout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the classic execution chain ({@code InternalHttpClient} built
+ * by {@link HttpClientBuilder}) backed by {@link PoolingHttpClientConnectionManager}
+ * against an in-process loopback server.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ClassicClientBenchmark {
+
+    private static final Timeout TIMEOUT = Timeout.ofSeconds(30);
+
+    @Param({"128"})
+    int smallBodySize;
+
+    @Param({"1048576"})
+    int largeBodySize;
+
+    private ClassicTestServer server;
+    private PoolingHttpClientConnectionManager connManager;
+    private CloseableHttpClient client;
+    private HttpHost target;
+    private byte[] postContent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new ClassicTestServer(SocketConfig.custom()
+                .setSoTimeout(TIMEOUT)
+                .build());
+        server.registerHandler("/echo/*", new EchoHandler());
+        server.registerHandler("/random/*", new RandomHandler());
+        server.start();
+        target = new HttpHost("localhost", server.getPort());
+
+        connManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setDefaultSocketConfig(SocketConfig.custom()
+                        .setSoTimeout(TIMEOUT)
+                        .build())
+                .setMaxConnTotal(100)
+                .setMaxConnPerRoute(100)
+                .build();
+        client = HttpClientBuilder.create()
+                .setConnectionManager(connManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(TIMEOUT)
+                        .setConnectTimeout(TIMEOUT)
+                        .build())
+                .build();
+        postContent = new byte[smallBodySize];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (client != null) {
+            client.close(CloseMode.GRACEFUL);
+        }
+        if (server != null) {
+            server.shutdown(CloseMode.IMMEDIATE);
+        }
+    }
+
+    @Benchmark
+    public int smallGet() throws IOException {
+        final HttpGet httpget = new HttpGet("/random/" + smallBodySize);
+        try (final CloseableHttpResponse response = client.execute(target, httpget)) {
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        }
+    }
+
+    @Benchmark
+    public int smallPost() throws IOException {
+        final HttpPost httppost = new HttpPost("/echo/");
+        httppost.setEntity(new ByteArrayEntity(postContent, ContentType.APPLICATION_OCTET_STREAM));
+        try (final CloseableHttpResponse response = client.execute(target, httppost)) {
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        }
+    }
+
+    @Benchmark
+    public long largeStreamedGet(final Blackhole blackhole) throws IOException {
+        final HttpGet httpget = new HttpGet("/random/" + largeBodySize);
+        try (final CloseableHttpResponse response = client.execute(target, httpget)) {
+            final HttpEntity entity = response.getEntity();
+            final byte[] buffer = new byte[8192];
+            long total = 0;
+            try (final InputStream inStream = entity.getContent()) {
+                int l;
+                while ((l = inStream.read(buffer)) != -1) {
+                    total += l;
+                }
+            }
+            blackhole.consume(buffer);
+            return total;
+        }
+    }
+
+}
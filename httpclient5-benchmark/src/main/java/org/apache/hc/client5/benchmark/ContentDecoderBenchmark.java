@@ -0,0 +1,152 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.hc.client5.http.entity.ContentDecoderRegistry;
+import org.apache.hc.client5.http.entity.InputStreamFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures decompression throughput of content decoders registered with
+ * the default {@link ContentDecoderRegistry}.
+ * <p>
+ * Samples for {@code gzip} and {@code deflate} are generated at setup. Codecs
+ * provided by optional libraries, such as {@code br} or {@code zstd}, require
+ * a sample file compressed with that codec given with the {@code sampleFile}
+ * parameter, for instance {@code -p codec=br -p sampleFile=/tmp/sample.br}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ContentDecoderBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class DecoderState {
+
+        @Param({"gzip", "deflate"})
+        String codec;
+
+        @Param({"1048576"})
+        int contentLength;
+
+        @Param({""})
+        String sampleFile;
+
+        private InputStreamFactory decoder;
+        private byte[] compressed;
+        private byte[] buffer;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            final ContentDecoderRegistry registry = ContentDecoderRegistry.getDefault();
+            decoder = registry.lookup(codec);
+            if (decoder == null) {
+                throw new IllegalStateException("No decoder for '" + codec + "' available; registered: "
+                        + registry.getContentEncodings());
+            }
+            if (!sampleFile.isEmpty()) {
+                compressed = Files.readAllBytes(new File(sampleFile).toPath());
+            } else {
+                compressed = compress(codec, generateContent(contentLength));
+            }
+            buffer = new byte[8192];
+        }
+
+    }
+
+    static byte[] generateContent(final int length) {
+        // Text-like content with a realistic compression ratio
+        final String[] words = {"http", "client", "request", "response", "header", "entity", "content",
+                "encoding", "connection", "route", "cache", "stream", "async", "the", "of", "and"};
+        final Random random = new Random(0);
+        final StringBuilder buf = new StringBuilder(length + 16);
+        while (buf.length() < length) {
+            buf.append(words[random.nextInt(words.length)]);
+            buf.append(random.nextInt(8) == 0 ? '\n' : ' ');
+        }
+        buf.setLength(length);
+        return buf.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    static byte[] compress(final String codec, final byte[] content) throws IOException {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream(content.length / 2);
+        final OutputStream out;
+        if ("gzip".equals(codec) || "x-gzip".equals(codec)) {
+            out = new GZIPOutputStream(buf);
+        } else if ("deflate".equals(codec)) {
+            out = new DeflaterOutputStream(buf);
+        } else {
+            throw new IllegalStateException("No sample file given for '" + codec + "'");
+        }
+        out.write(content);
+        out.close();
+        return buf.toByteArray();
+    }
+
+    @Benchmark
+    public long decode(final DecoderState state) throws Exception {
+        long total = 0;
+        final InputStream in = state.decoder.create(new ByteArrayInputStream(state.compressed));
+        try {
+            int n;
+            while ((n = in.read(state.buffer)) != -1) {
+                total += n;
+            }
+        } finally {
+            in.close();
+        }
+        return total;
+    }
+
+}
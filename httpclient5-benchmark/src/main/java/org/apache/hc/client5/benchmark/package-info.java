@@ -0,0 +1,37 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+/**
+ * JMH micro-benchmarks of the classic and async client execution chains.
+ * <p>
+ * Build the self-contained benchmark jar with {@code mvn package} and run
+ * it with {@code java -jar httpclient5-benchmark/target/benchmarks.jar}.
+ * Standard JMH options apply; for instance {@code -p versionPolicy=FORCE_HTTP_2}
+ * narrows the parameter space and {@code -t 32} changes the thread count.
+ * </p>
+ */
+package org.apache.hc.client5.benchmark;
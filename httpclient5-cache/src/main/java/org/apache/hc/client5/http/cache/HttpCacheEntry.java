@@ -26,6 +26,8 @@
  */
 package org.apache.hc.client5.http.cache;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.Date;
@@ -33,11 +35,9 @@
 import java.util.Iterator;
 import java.util.Map;
 
-import org.apache.hc.client5.http.utils.DateUtils;
 import org.apache.hc.core5.annotation.Contract;
 import org.apache.hc.core5.annotation.ThreadingBehavior;
 import org.apache.hc.core5.http.Header;
-import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.MessageHeaders;
 import org.apache.hc.core5.http.ProtocolException;
@@ -66,6 +66,7 @@ public class HttpCacheEntry implements MessageHeaders, Serializable {
     private final Resource resource;
     private final Map<String, String> variantMap;
     private final Date date;
+    private transient HttpCacheEntryMetadata metadata;
 
     /**
      * Create a new {@link HttpCacheEntry} with variants.
@@ -104,7 +105,9 @@ public HttpCacheEntry(
         this.responseHeaders.setHeaders(responseHeaders);
         this.resource = resource;
         this.variantMap = variantMap != null ? new HashMap<>(variantMap) : null;
-        this.date = parseDate();
+        this.metadata = HttpCacheEntryMetadata.parse(this);
+        this.date = this.metadata.getDate() != HttpCacheEntryMetadata.UNKNOWN_DATE
+                ? new Date(this.metadata.getDate()) : null;
     }
 
     /**
@@ -127,14 +130,6 @@ public HttpCacheEntry(final Date requestDate, final Date responseDate, final int
         this(requestDate, responseDate, status, responseHeaders, resource, new HashMap<String,String>());
     }
 
-    /**
-     * Find the "Date" response header and parse it into a java.util.Date
-     * @return the Date value of the header or null if the header is not present
-     */
-    private Date parseDate() {
-        return DateUtils.parseDate(this, HttpHeaders.DATE);
-    }
-
     /**
      * Returns the status from the origin {@link org.apache.hc.core5.http.HttpResponse}.
      */
@@ -256,6 +251,16 @@ public Date getDate() {
         return date;
     }
 
+    /**
+     * Returns caching related attributes of the origin response parsed
+     * when this entry was created.
+     *
+     * @since 5.1
+     */
+    public HttpCacheEntryMetadata getMetadata() {
+        return metadata;
+    }
+
     /**
      * Returns the {@link Resource} containing the origin response body.
      */
@@ -283,7 +288,7 @@ public boolean hasVariants() {
      * the "parent" entry to hold this index of the other variants.
      */
     public Map<String, String> getVariantMap() {
-        return Collections.unmodifiableMap(variantMap);
+        return variantMap != null ? Collections.unmodifiableMap(variantMap) : Collections.<String, String>emptyMap();
     }
 
     /**
@@ -300,6 +305,11 @@ public String getRequestMethod() {
         return HeaderConstants.GET_METHOD;
     }
 
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.metadata = HttpCacheEntryMetadata.parse(this);
+    }
+
     /**
      * Provides a string representation of this instance suitable for
      * human consumption.
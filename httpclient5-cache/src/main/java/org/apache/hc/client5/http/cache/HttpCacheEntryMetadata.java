@@ -0,0 +1,314 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HeaderElement;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.MessageHeaders;
+import org.apache.hc.core5.http.message.MessageSupport;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * Caching related attributes of a cached response parsed from its
+ * {@code Cache-Control}, {@code Date}, {@code Expires}, {@code Age},
+ * {@code ETag}, {@code Last-Modified} and {@code Vary} headers.
+ * <p>
+ * Instances are created once per {@link HttpCacheEntry} so that cache
+ * policies can evaluate cache hits without re-parsing response headers.
+ * </p>
+ *
+ * @see HttpCacheEntry#getMetadata()
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE)
+public final class HttpCacheEntryMetadata {
+
+    /**
+     * Value of date attributes whose header is absent or cannot be parsed.
+     */
+    public static final long UNKNOWN_DATE = Long.MIN_VALUE;
+
+    /**
+     * Age in seconds assumed for responses with a malformed {@code Age} header.
+     */
+    public static final long MAX_AGE = Integer.MAX_VALUE + 1L;
+
+    private final long date;
+    private final long expires;
+    private final long lastModified;
+    private final String etag;
+    private final boolean revalidatable;
+    private final long age;
+    private final long maxAge;
+    private final boolean sharedMaxAge;
+    private final long freshnessLifetime;
+    private final boolean mustRevalidate;
+    private final boolean proxyRevalidate;
+    private final boolean noCache;
+    private final long staleWhileRevalidate;
+    private final long staleIfError;
+    private final List<String> variantHeaderNames;
+
+    private HttpCacheEntryMetadata(final MessageHeaders headers) {
+        this.date = DateUtils.parseEpochMillis(headers, HttpHeaders.DATE);
+        this.expires = DateUtils.parseEpochMillis(headers, HeaderConstants.EXPIRES);
+        final Header lastModifiedHeader = headers.getFirstHeader(HeaderConstants.LAST_MODIFIED);
+        this.lastModified = lastModifiedHeader != null
+                ? DateUtils.parseEpochMillis(lastModifiedHeader.getValue()) : UNKNOWN_DATE;
+        final Header etagHeader = headers.getFirstHeader(HeaderConstants.ETAG);
+        this.etag = etagHeader != null ? etagHeader.getValue() : null;
+        this.revalidatable = etagHeader != null || lastModifiedHeader != null;
+
+        long ageValue = 0;
+        for (final Header hdr : headers.getHeaders(HeaderConstants.AGE)) {
+            long hdrAge;
+            try {
+                hdrAge = Long.parseLong(hdr.getValue());
+                if (hdrAge < 0) {
+                    hdrAge = MAX_AGE;
+                }
+            } catch (final NumberFormatException nfe) {
+                hdrAge = MAX_AGE;
+            }
+            ageValue = Math.max(hdrAge, ageValue);
+        }
+        this.age = ageValue;
+
+        long maxAgeValue = -1;
+        boolean sharedMaxAgeValue = false;
+        boolean mustRevalidateValue = false;
+        boolean proxyRevalidateValue = false;
+        boolean noCacheValue = false;
+        long staleWhileRevalidateValue = -1;
+        long staleIfErrorValue = -1;
+        final Iterator<HeaderElement> it = MessageSupport.iterate(headers, HeaderConstants.CACHE_CONTROL);
+        while (it.hasNext()) {
+            final HeaderElement elt = it.next();
+            final String name = elt.getName();
+            if (HeaderConstants.CACHE_CONTROL_MAX_AGE.equals(name) || "s-maxage".equals(name)) {
+                try {
+                    final long currMaxAge = Long.parseLong(elt.getValue());
+                    if (maxAgeValue == -1 || currMaxAge < maxAgeValue) {
+                        maxAgeValue = currMaxAge;
+                    }
+                } catch (final NumberFormatException nfe) {
+                    // be conservative if can't parse
+                    maxAgeValue = 0;
+                }
+            }
+            if ("s-maxage".equalsIgnoreCase(name)) {
+                sharedMaxAgeValue = true;
+            } else if (HeaderConstants.CACHE_CONTROL_MUST_REVALIDATE.equalsIgnoreCase(name)) {
+                mustRevalidateValue = true;
+            } else if (HeaderConstants.CACHE_CONTROL_PROXY_REVALIDATE.equalsIgnoreCase(name)) {
+                proxyRevalidateValue = true;
+            } else if (HeaderConstants.CACHE_CONTROL_NO_CACHE.equalsIgnoreCase(name)) {
+                noCacheValue = true;
+            } else if (HeaderConstants.STALE_WHILE_REVALIDATE.equalsIgnoreCase(name)) {
+                staleWhileRevalidateValue = Math.max(staleWhileRevalidateValue, parseSeconds(elt.getValue()));
+            }
+            if (HeaderConstants.STALE_IF_ERROR.equals(name)) {
+                staleIfErrorValue = Math.max(staleIfErrorValue, parseSeconds(elt.getValue()));
+            }
+        }
+        this.maxAge = maxAgeValue;
+        this.sharedMaxAge = sharedMaxAgeValue;
+        this.mustRevalidate = mustRevalidateValue;
+        this.proxyRevalidate = proxyRevalidateValue;
+        this.noCache = noCacheValue;
+        this.staleWhileRevalidate = staleWhileRevalidateValue;
+        this.staleIfError = staleIfErrorValue;
+
+        if (this.maxAge > -1) {
+            this.freshnessLifetime = this.maxAge;
+        } else if (this.date == UNKNOWN_DATE || this.expires == UNKNOWN_DATE) {
+            this.freshnessLifetime = 0;
+        } else {
+            this.freshnessLifetime = (this.expires - this.date) / 1000;
+        }
+
+        final List<String> names = new ArrayList<>();
+        final Iterator<HeaderElement> varyIt = MessageSupport.iterate(headers, HeaderConstants.VARY);
+        while (varyIt.hasNext()) {
+            names.add(varyIt.next().getName());
+        }
+        Collections.sort(names);
+        this.variantHeaderNames = names.isEmpty()
+                ? Collections.<String>emptyList() : Collections.unmodifiableList(names);
+    }
+
+    private static long parseSeconds(final String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException nfe) {
+            // skip malformed directive
+            return -1;
+        }
+    }
+
+    /**
+     * Parses caching related attributes of the given response headers.
+     */
+    public static HttpCacheEntryMetadata parse(final MessageHeaders headers) {
+        Args.notNull(headers, "Headers");
+        return new HttpCacheEntryMetadata(headers);
+    }
+
+    /**
+     * Returns the value of the {@code Date} header in milliseconds since
+     * the epoch or {@link #UNKNOWN_DATE}.
+     */
+    public long getDate() {
+        return date;
+    }
+
+    /**
+     * Returns the value of the {@code Expires} header in milliseconds since
+     * the epoch or {@link #UNKNOWN_DATE}.
+     */
+    public long getExpires() {
+        return expires;
+    }
+
+    /**
+     * Returns the value of the {@code Last-Modified} header in milliseconds
+     * since the epoch or {@link #UNKNOWN_DATE}.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the value of the {@code ETag} header or {@code null}.
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * Returns {@code true} if the response has an {@code ETag} or
+     * a {@code Last-Modified} header.
+     */
+    public boolean isRevalidatable() {
+        return revalidatable;
+    }
+
+    /**
+     * Returns the largest {@code Age} header value in seconds, {@code 0} if
+     * absent, or {@link #MAX_AGE} if malformed.
+     */
+    public long getAge() {
+        return age;
+    }
+
+    /**
+     * Returns the smallest of the {@code max-age} and {@code s-maxage}
+     * directives in seconds, {@code 0} if any of them is malformed,
+     * or {@code -1} if none is present.
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Returns {@code true} if the response has the {@code s-maxage} directive.
+     */
+    public boolean isSharedMaxAge() {
+        return sharedMaxAge;
+    }
+
+    /**
+     * Returns the freshness lifetime in seconds derived from the {@code max-age}
+     * and {@code s-maxage} directives or, in their absence, from the difference
+     * between {@code Expires} and {@code Date} headers.
+     */
+    public long getFreshnessLifetime() {
+        return freshnessLifetime;
+    }
+
+    /**
+     * Returns {@code true} if the response has the {@code must-revalidate} directive.
+     */
+    public boolean isMustRevalidate() {
+        return mustRevalidate;
+    }
+
+    /**
+     * Returns {@code true} if the response has the {@code proxy-revalidate} directive.
+     */
+    public boolean isProxyRevalidate() {
+        return proxyRevalidate;
+    }
+
+    /**
+     * Returns {@code true} if the response has the {@code no-cache} directive.
+     */
+    public boolean isNoCache() {
+        return noCache;
+    }
+
+    /**
+     * Returns the largest {@code stale-while-revalidate} value in seconds
+     * or {@code -1} if absent.
+     */
+    public long getStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    /**
+     * Returns the largest {@code stale-if-error} value in seconds
+     * or {@code -1} if absent.
+     */
+    public long getStaleIfError() {
+        return staleIfError;
+    }
+
+    /**
+     * Returns names of the {@code Vary} header elements in their natural order.
+     */
+    public List<String> getVariantHeaderNames() {
+        return variantHeaderNames;
+    }
+
+    @Override
+    public String toString() {
+        return "[date=" + date + "; expires=" + expires + "; last-modified=" + lastModified
+                + "; etag=" + etag + "; age=" + age + "; max-age=" + maxAge
+                + "; freshness-lifetime=" + freshnessLifetime + "; vary=" + variantHeaderNames + "]";
+    }
+
+}
@@ -29,6 +29,7 @@
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 import org.apache.hc.core5.annotation.Contract;
 import org.apache.hc.core5.annotation.ThreadingBehavior;
@@ -69,6 +70,23 @@ public InputStream getInputStream() throws ResourceIOException {
      */
     public abstract byte[] get() throws ResourceIOException;
 
+    /**
+     * Returns resource content as a {@link ByteBuffer}. The default
+     * implementation wraps the array returned by {@link #get()}.
+     * <p>
+     * The returned buffer may share content with the resource and should be
+     * treated as read-only. It must not be used after the resource has been
+     * {@link #dispose() disposed of}.
+     * </p>
+     *
+     * @throws ResourceIOException
+     *
+     * @since 5.1
+     */
+    public ByteBuffer getByteBuffer() throws ResourceIOException {
+        return ByteBuffer.wrap(get());
+    }
+
     /**
      * Returns the length in bytes of the response body.
      */
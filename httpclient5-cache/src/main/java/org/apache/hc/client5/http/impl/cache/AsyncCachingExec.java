@@ -29,9 +29,11 @@
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -46,6 +48,7 @@
 import org.apache.hc.client5.http.cache.HeaderConstants;
 import org.apache.hc.client5.http.cache.HttpAsyncCacheStorage;
 import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.Resource;
 import org.apache.hc.client5.http.cache.ResourceFactory;
 import org.apache.hc.client5.http.cache.ResourceIOException;
 import org.apache.hc.client5.http.impl.ExecSupport;
@@ -93,15 +96,30 @@
 class AsyncCachingExec extends CachingExecBase implements AsyncExecChainHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(AsyncCachingExec.class);
+    private static final int CONTENT_CHUNK_SIZE = 8 * 1024;
     private final HttpAsyncCache responseCache;
     private final DefaultAsyncCacheRevalidator cacheRevalidator;
     private final ConditionalRequestBuilder<HttpRequest> conditionalRequestBuilder;
+    private final RequestCollapser requestCollapser;
 
-    AsyncCachingExec(final HttpAsyncCache cache, final DefaultAsyncCacheRevalidator cacheRevalidator, final CacheConfig config) {
+    /**
+     * @param collapserExecutor executor used to resume collapsed requests;
+     *  request collapsing is not used if {@code null}.
+     */
+    AsyncCachingExec(
+            final HttpAsyncCache cache,
+            final DefaultAsyncCacheRevalidator cacheRevalidator,
+            final ScheduledExecutorService collapserExecutor,
+            final CacheConfig config) {
         super(config);
         this.responseCache = Args.notNull(cache, "Response cache");
         this.cacheRevalidator = cacheRevalidator;
         this.conditionalRequestBuilder = new ConditionalRequestBuilder<>(RequestCopier.INSTANCE);
+        this.requestCollapser = collapserExecutor != null ? createRequestCollapser(this.cacheConfig, collapserExecutor) : null;
+    }
+
+    AsyncCachingExec(final HttpAsyncCache cache, final DefaultAsyncCacheRevalidator cacheRevalidator, final CacheConfig config) {
+        this(cache, cacheRevalidator, null, config);
     }
 
     AsyncCachingExec(
@@ -121,6 +139,7 @@ class AsyncCachingExec extends CachingExecBase implements AsyncExecChainHandler
         this.responseCache = responseCache;
         this.cacheRevalidator = cacheRevalidator;
         this.conditionalRequestBuilder = conditionalRequestBuilder;
+        this.requestCollapser = null;
     }
 
     AsyncCachingExec(
@@ -130,6 +149,7 @@ class AsyncCachingExec extends CachingExecBase implements AsyncExecChainHandler
             final CacheConfig config) {
         this(cache,
                 executorService != null ? new DefaultAsyncCacheRevalidator(executorService, schedulingStrategy) : null,
+                executorService,
                 config);
     }
 
@@ -146,19 +166,45 @@ private void triggerResponse(
             final SimpleHttpResponse cacheResponse,
             final AsyncExecChain.Scope scope,
             final AsyncExecCallback asyncExecCallback) {
+        final SimpleBody body = cacheResponse.getBody();
+        triggerResponse(
+                cacheResponse,
+                body != null ? new HeapResource(body.getBodyBytes()) : null,
+                body != null ? body.getContentType() : null,
+                scope,
+                asyncExecCallback);
+    }
+
+    private void triggerResponse(
+            final SimpleHttpResponse cacheResponse,
+            final Resource content,
+            final AsyncExecChain.Scope scope,
+            final AsyncExecCallback asyncExecCallback) {
+        final Header h = cacheResponse.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+        triggerResponse(
+                cacheResponse,
+                content,
+                content != null && h != null ? ContentType.parse(h.getValue()) : null,
+                scope,
+                asyncExecCallback);
+    }
+
+    private void triggerResponse(
+            final SimpleHttpResponse cacheResponse,
+            final Resource content,
+            final ContentType contentType,
+            final AsyncExecChain.Scope scope,
+            final AsyncExecCallback asyncExecCallback) {
         scope.clientContext.setAttribute(HttpCoreContext.HTTP_RESPONSE, cacheResponse);
         scope.execRuntime.releaseEndpoint();
 
-        final SimpleBody body = cacheResponse.getBody();
-        final byte[] content = body != null ? body.getBodyBytes() : null;
-        final ContentType contentType = body != null ? body.getContentType() : null;
         try {
             final AsyncDataConsumer dataConsumer = asyncExecCallback.handleResponse(
                     cacheResponse,
-                    content != null ? new BasicEntityDetails(content.length, contentType) : null);
+                    content != null ? new BasicEntityDetails(content.length(), contentType) : null);
             if (dataConsumer != null) {
                 if (content != null) {
-                    dataConsumer.consume(ByteBuffer.wrap(content));
+                    streamContent(content, dataConsumer);
                 }
                 dataConsumer.streamEnd(null);
             }
@@ -168,6 +214,21 @@ private void triggerResponse(
         }
     }
 
+    private static void streamContent(final Resource content, final AsyncDataConsumer dataConsumer) throws IOException {
+        if (content instanceof FileResource) {
+            try (final FileChannel channel = ((FileResource) content).openChannel()) {
+                final ByteBuffer buffer = ByteBuffer.allocate(CONTENT_CHUNK_SIZE);
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    dataConsumer.consume(buffer);
+                    buffer.clear();
+                }
+            }
+        } else {
+            dataConsumer.consume(ByteBuffer.wrap(content.get()));
+        }
+    }
+
     static class AsyncExecCallbackWrapper implements AsyncExecCallback {
 
         private final AsyncExecCallback asyncExecCallback;
@@ -267,7 +328,11 @@ public void cancelled() {
                 public void completed(final HttpCacheEntry entry) {
                     if (entry == null) {
                         LOG.debug("Cache miss");
-                        handleCacheMiss(target, request, entityProducer, scope, chain, asyncExecCallback);
+                        if (requestCollapser != null && mayCallBackend(request)) {
+                            handleCollapsedCacheMiss(target, request, entityProducer, scope, chain, asyncExecCallback);
+                        } else {
+                            handleCacheMiss(target, request, entityProducer, scope, chain, asyncExecCallback);
+                        }
                     } else {
                         handleCacheHit(target, request, entityProducer, scope, chain, asyncExecCallback, entry);
                     }
@@ -366,6 +431,7 @@ class CachingAsyncDataConsumer implements AsyncDataConsumer {
         private final AtomicBoolean writtenThrough;
         private final AtomicReference<ByteArrayBuffer> bufferRef;
         private final AtomicReference<AsyncDataConsumer> dataConsumerRef;
+        private final boolean teeing;
 
         CachingAsyncDataConsumer(
                 final AsyncExecCallback fallback,
@@ -377,6 +443,35 @@ class CachingAsyncDataConsumer implements AsyncDataConsumer {
             this.writtenThrough = new AtomicBoolean(false);
             this.bufferRef = new AtomicReference<>(entityDetails != null ? new ByteArrayBuffer(1024) : null);
             this.dataConsumerRef = new AtomicReference<>();
+            this.teeing = false;
+        }
+
+        /**
+         * Creates a consumer that passes content through to the given data consumer
+         * as it arrives while collecting a copy of it for the cache.
+         */
+        CachingAsyncDataConsumer(
+                final AsyncExecCallback fallback,
+                final HttpResponse backendResponse,
+                final EntityDetails entityDetails,
+                final AsyncDataConsumer dataConsumer) {
+            this.fallback = fallback;
+            this.backendResponse = backendResponse;
+            this.entityDetails = entityDetails;
+            this.writtenThrough = new AtomicBoolean(false);
+            this.bufferRef = new AtomicReference<>(new ByteArrayBuffer(1024));
+            this.dataConsumerRef = new AtomicReference<>(dataConsumer);
+            this.teeing = true;
+        }
+
+        private void append(final ByteArrayBuffer buffer, final ByteBuffer src) {
+            if (src.hasArray()) {
+                buffer.append(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            } else {
+                while (src.hasRemaining()) {
+                    buffer.append(src.get());
+                }
+            }
         }
 
         @Override
@@ -392,14 +487,20 @@ public final void updateCapacity(final CapacityChannel capacityChannel) throws I
         @Override
         public final void consume(final ByteBuffer src) throws IOException {
             final ByteArrayBuffer buffer = bufferRef.get();
-            if (buffer != null) {
-                if (src.hasArray()) {
-                    buffer.append(src.array(), src.arrayOffset() + src.position(), src.remaining());
-                } else {
-                    while (src.hasRemaining()) {
-                        buffer.append(src.get());
+            if (teeing) {
+                if (buffer != null) {
+                    append(buffer, src.duplicate());
+                    if (buffer.length() > cacheConfig.getMaxObjectSize()) {
+                        LOG.debug("Backend response content length exceeds maximum");
+                        bufferRef.set(null);
                     }
                 }
+                final AsyncDataConsumer dataConsumer = dataConsumerRef.get();
+                if (dataConsumer != null) {
+                    dataConsumer.consume(src);
+                }
+            } else if (buffer != null) {
+                append(buffer, src);
                 if (buffer.length() > cacheConfig.getMaxObjectSize()) {
                     LOG.debug("Backend response content length exceeds maximum");
                     // Over the max limit. Stop buffering and forward the response
@@ -490,6 +591,19 @@ public void cancelled() {
 
             });
             final boolean cacheable = responseCachingPolicy.isResponseCacheable(request, backendResponse);
+            if (cacheable && entityDetails != null && cacheConfig.isStreamingCacheFillEnabled()) {
+                storeRequestIfModifiedSinceFor304Response(request, backendResponse);
+                final AsyncDataConsumer dataConsumer = asyncExecCallback.handleResponse(backendResponse, entityDetails);
+                if (entityDetails.getContentLength() > cacheConfig.getMaxObjectSize()) {
+                    LOG.debug("Backend response content length exceeds maximum");
+                    return dataConsumer;
+                }
+                LOG.debug("Streaming and caching backend response");
+                final CachingAsyncDataConsumer cachingDataConsumer = new CachingAsyncDataConsumer(
+                        asyncExecCallback, backendResponse, entityDetails, dataConsumer);
+                cachingConsumerRef.set(cachingDataConsumer);
+                return cachingDataConsumer;
+            }
             if (cacheable) {
                 cachingConsumerRef.set(new CachingAsyncDataConsumer(asyncExecCallback, backendResponse, entityDetails));
                 storeRequestIfModifiedSinceFor304Response(request, backendResponse);
@@ -540,8 +654,12 @@ void triggerNewCacheEntryResponse(final HttpResponse backendResponse, final Date
                         public void completed(final HttpCacheEntry newEntry) {
                             LOG.debug("Backend response successfully cached");
                             try {
-                                final SimpleHttpResponse cacheResponse = responseGenerator.generateResponse(request, newEntry);
-                                triggerResponse(cacheResponse, scope, asyncExecCallback);
+                                final SimpleHttpResponse cacheResponse = responseGenerator.generateResponse(request, newEntry, false);
+                                triggerResponse(
+                                        cacheResponse,
+                                        getContent(responseGenerator.getResponseResource(request, newEntry)),
+                                        scope,
+                                        asyncExecCallback);
                             } catch (final ResourceIOException ex) {
                                 asyncExecCallback.failed(ex);
                             }
@@ -561,10 +679,74 @@ public void cancelled() {
 
         }
 
+        /**
+         * Stores the response streamed to the caller and completes the exchange
+         * once the new cache entry has been committed (or failed to be committed),
+         * so that requests collapsed onto this one find it in the cache.
+         */
+        void storeStreamedResponse(final HttpResponse backendResponse, final ByteArrayBuffer buffer) {
+            final FutureCallback<HttpCacheEntry> callback = new FutureCallback<HttpCacheEntry>() {
+
+                @Override
+                public void completed(final HttpCacheEntry newEntry) {
+                    LOG.debug("Backend response successfully cached");
+                    asyncExecCallback.completed();
+                }
+
+                @Override
+                public void failed(final Exception ex) {
+                    LOG.warn("Unable to cache backend response", ex);
+                    asyncExecCallback.completed();
+                }
+
+                @Override
+                public void cancelled() {
+                    asyncExecCallback.completed();
+                }
+
+            };
+            if (cacheConfig.isFreshnessCheckEnabled()) {
+                responseCache.getCacheEntry(target, request, new FutureCallback<HttpCacheEntry>() {
+
+                    @Override
+                    public void completed(final HttpCacheEntry existingEntry) {
+                        if (DateUtils.isAfter(existingEntry, backendResponse, HttpHeaders.DATE)) {
+                            LOG.debug("Backend already contains fresher cache entry");
+                            asyncExecCallback.completed();
+                        } else {
+                            responseCache.createCacheEntry(
+                                    target, request, backendResponse, buffer, requestDate, responseDate, callback);
+                        }
+                    }
+
+                    @Override
+                    public void failed(final Exception ex) {
+                        callback.failed(ex);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        callback.cancelled();
+                    }
+
+                });
+            } else {
+                responseCache.createCacheEntry(
+                        target, request, backendResponse, buffer, requestDate, responseDate, callback);
+            }
+        }
+
         @Override
         public void completed() {
             final CachingAsyncDataConsumer cachingDataConsumer = cachingConsumerRef.getAndSet(null);
-            if (cachingDataConsumer != null && !cachingDataConsumer.writtenThrough.get()) {
+            if (cachingDataConsumer != null && cachingDataConsumer.teeing) {
+                final ByteArrayBuffer buffer = cachingDataConsumer.bufferRef.getAndSet(null);
+                if (buffer != null) {
+                    storeStreamedResponse(cachingDataConsumer.backendResponse, buffer);
+                } else {
+                    asyncExecCallback.completed();
+                }
+            } else if (cachingDataConsumer != null && !cachingDataConsumer.writtenThrough.get()) {
                 final ByteArrayBuffer buffer = cachingDataConsumer.bufferRef.getAndSet(null);
                 final HttpResponse backendResponse = cachingDataConsumer.backendResponse;
                 if (cacheConfig.isFreshnessCheckEnabled()) {
@@ -576,8 +758,12 @@ public void completed(final HttpCacheEntry existingEntry) {
                             if (DateUtils.isAfter(existingEntry, backendResponse, HttpHeaders.DATE)) {
                                 LOG.debug("Backend already contains fresher cache entry");
                                 try {
-                                    final SimpleHttpResponse cacheResponse = responseGenerator.generateResponse(request, existingEntry);
-                                    triggerResponse(cacheResponse, scope, asyncExecCallback);
+                                    final SimpleHttpResponse cacheResponse = responseGenerator.generateResponse(request, existingEntry, false);
+                                    triggerResponse(
+                                            cacheResponse,
+                                            getContent(responseGenerator.getResponseResource(request, existingEntry)),
+                                            scope,
+                                            asyncExecCallback);
                                 } catch (final ResourceIOException ex) {
                                     asyncExecCallback.failed(ex);
                                 }
@@ -626,8 +812,12 @@ private void handleCacheHit(
         if (suitabilityChecker.canCachedResponseBeUsed(target, request, entry, now)) {
             LOG.debug("Cache hit");
             try {
-                final SimpleHttpResponse cacheResponse = generateCachedResponse(request, context, entry, now);
-                triggerResponse(cacheResponse, scope, asyncExecCallback);
+                final SimpleHttpResponse cacheResponse = generateCachedResponse(request, context, entry, now, false);
+                triggerResponse(
+                        cacheResponse,
+                        getContent(getCachedResponseResource(request, entry)),
+                        scope,
+                        asyncExecCallback);
             } catch (final ResourceIOException ex) {
                 recordCacheFailure(target, request);
                 if (!mayCallBackend(request)) {
@@ -653,7 +843,8 @@ private void handleCacheHit(
                     && validityPolicy.mayReturnStaleWhileRevalidating(entry, now)) {
                 LOG.debug("Serving stale with asynchronous revalidation");
                 try {
-                    final SimpleHttpResponse cacheResponse = generateCachedResponse(request, context, entry, now);
+                    final SimpleHttpResponse cacheResponse = generateCachedResponse(request, context, entry, now, false);
+                    final Resource content = getContent(getCachedResponseResource(request, entry));
                     final String exchangeId = ExecSupport.getNextExchangeId();
                     final AsyncExecChain.Scope fork = new AsyncExecChain.Scope(
                             exchangeId,
@@ -673,7 +864,7 @@ public void execute(final AsyncExecCallback asyncExecCallback) {
                                 }
 
                             });
-                    triggerResponse(cacheResponse, scope, asyncExecCallback);
+                    triggerResponse(cacheResponse, content, scope, asyncExecCallback);
                 } catch (final ResourceIOException ex) {
                     asyncExecCallback.failed(ex);
                 }
@@ -720,8 +911,12 @@ public void completed(final HttpCacheEntry updatedEntry) {
                                     triggerResponse(cacheResponse, scope, asyncExecCallback);
                                 } else {
                                     try {
-                                        final SimpleHttpResponse cacheResponse = responseGenerator.generateResponse(request, updatedEntry);
-                                        triggerResponse(cacheResponse, scope, asyncExecCallback);
+                                        final SimpleHttpResponse cacheResponse = responseGenerator.generateResponse(request, updatedEntry, false);
+                                        triggerResponse(
+                                                cacheResponse,
+                                                getContent(responseGenerator.getResponseResource(request, updatedEntry)),
+                                                scope,
+                                                asyncExecCallback);
                                     } catch (final ResourceIOException ex) {
                                         asyncExecCallback.failed(ex);
                                     }
@@ -743,9 +938,13 @@ public void cancelled() {
 
             void triggerResponseStaleCacheEntry() {
                 try {
-                    final SimpleHttpResponse cacheResponse = responseGenerator.generateResponse(request, cacheEntry);
+                    final SimpleHttpResponse cacheResponse = responseGenerator.generateResponse(request, cacheEntry, false);
                     cacheResponse.addHeader(HeaderConstants.WARNING, "110 localhost \"Response is stale\"");
-                    triggerResponse(cacheResponse, scope, asyncExecCallback);
+                    triggerResponse(
+                            cacheResponse,
+                            getContent(responseGenerator.getResponseResource(request, cacheEntry)),
+                            scope,
+                            asyncExecCallback);
                 } catch (final ResourceIOException ex) {
                     asyncExecCallback.failed(ex);
                 }
@@ -889,6 +1088,84 @@ public void failed(final Exception cause) {
 
     }
 
+    private void handleCollapsedCacheMiss(
+            final HttpHost target,
+            final HttpRequest request,
+            final AsyncEntityProducer entityProducer,
+            final AsyncExecChain.Scope scope,
+            final AsyncExecChain chain,
+            final AsyncExecCallback asyncExecCallback) {
+        final String cacheKey = responseCache.generateKey(target, request, null);
+        final RequestCollapser.InFlightRequest inFlightRequest = requestCollapser.lead(cacheKey);
+        if (inFlightRequest != null) {
+            handleCacheMiss(target, request, entityProducer, scope, chain, new AsyncExecCallback() {
+
+                @Override
+                public AsyncDataConsumer handleResponse(
+                        final HttpResponse response,
+                        final EntityDetails entityDetails) throws HttpException, IOException {
+                    return asyncExecCallback.handleResponse(response, entityDetails);
+                }
+
+                @Override
+                public void handleInformationResponse(final HttpResponse response) throws HttpException, IOException {
+                    asyncExecCallback.handleInformationResponse(response);
+                }
+
+                @Override
+                public void completed() {
+                    try {
+                        asyncExecCallback.completed();
+                    } finally {
+                        inFlightRequest.release();
+                    }
+                }
+
+                @Override
+                public void failed(final Exception cause) {
+                    try {
+                        asyncExecCallback.failed(cause);
+                    } finally {
+                        inFlightRequest.release();
+                    }
+                }
+
+            });
+            return;
+        }
+        LOG.debug("Waiting for in-flight request for the same resource");
+        requestCollapser.await(cacheKey, new Runnable() {
+
+            @Override
+            public void run() {
+                final CancellableDependency operation = scope.cancellableDependency;
+                operation.setDependency(responseCache.getCacheEntry(target, request, new FutureCallback<HttpCacheEntry>() {
+
+                    @Override
+                    public void completed(final HttpCacheEntry entry) {
+                        if (entry != null) {
+                            handleCacheHit(target, request, entityProducer, scope, chain, asyncExecCallback, entry);
+                        } else {
+                            handleCacheMiss(target, request, entityProducer, scope, chain, asyncExecCallback);
+                        }
+                    }
+
+                    @Override
+                    public void failed(final Exception cause) {
+                        asyncExecCallback.failed(cause);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        asyncExecCallback.failed(new CancellationException("Request execution cancelled"));
+                    }
+
+                }));
+            }
+
+        });
+    }
+
     private void handleCacheMiss(
             final HttpHost target,
             final HttpRequest request,
@@ -965,7 +1242,8 @@ public void completed(final HttpCacheEntry responseEntry) {
                                     triggerResponse(cacheResponse, scope, asyncExecCallback);
                                 } else {
                                     try {
-                                        final SimpleHttpResponse cacheResponse = responseGenerator.generateResponse(request, responseEntry);
+                                        final SimpleHttpResponse cacheResponse = responseGenerator.generateResponse(request, responseEntry, false);
+                                        final Resource content = getContent(responseGenerator.getResponseResource(request, responseEntry));
                                         operation.setDependency(responseCache.reuseVariantEntryFor(
                                                 target,
                                                 request,
@@ -974,7 +1252,7 @@ public void completed(final HttpCacheEntry responseEntry) {
 
                                                     @Override
                                                     public void completed(final Boolean result) {
-                                                        triggerResponse(cacheResponse, scope, asyncExecCallback);
+                                                        triggerResponse(cacheResponse, content, scope, asyncExecCallback);
                                                     }
 
                                                     @Override
@@ -43,8 +43,11 @@
  * {@link java.util.LinkedHashMap}. In other words, cache entries and
  * the cached response bodies are held in-memory. This cache does NOT
  * deallocate resources associated with the cache entries; it is intended
- * for use with {@link HeapResource} and similar. This is the default cache
- * storage backend used by {@link CachingHttpClients}.
+ * for use with {@link HeapResource} and similar. All operations are
+ * serialized by a single lock. This is the default in-memory cache storage
+ * backend used by {@link CachingHttpClients}; {@link ConcurrentHttpCacheStorage}
+ * scales better under concurrent access and can be enabled with
+ * {@link CachingHttpClientBuilder#setConcurrentCacheStorage(boolean)}.
  *
  * @since 4.1
  */
@@ -55,7 +58,7 @@ public class BasicHttpCacheStorage implements HttpCacheStorage {
 
     public BasicHttpCacheStorage(final CacheConfig config) {
         super();
-        this.entries = new CacheMap(config.getMaxCacheEntries());
+        this.entries = new CacheMap(config.getMaxCacheEntries(), config.getMaxCacheSize());
     }
 
     /**
@@ -115,4 +118,14 @@ public Map<String, HttpCacheEntry> getEntries(final Collection<String> keys) thr
         return resultMap;
     }
 
+    /**
+     * Returns the estimated total size in bytes of the entries currently
+     * held by this storage.
+     *
+     * @since 5.1
+     */
+    public synchronized long getWeight() {
+        return entries.getWeight();
+    }
+
 }
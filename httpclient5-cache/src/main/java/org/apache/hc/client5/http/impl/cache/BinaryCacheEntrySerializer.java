@@ -0,0 +1,368 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hc.client5.http.cache.HeaderConstants;
+import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.HttpCacheEntrySerializer;
+import org.apache.hc.client5.http.cache.HttpCacheStorageEntry;
+import org.apache.hc.client5.http.cache.Resource;
+import org.apache.hc.client5.http.cache.ResourceIOException;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * {@link HttpCacheEntrySerializer} implementation that uses a compact, versioned
+ * binary format.
+ * <p>
+ * Dates are represented as epoch milliseconds, the status code as an integer and
+ * commonly used header names as single byte references to a table of well-known
+ * names. The response body is appended to the end of the serialized entry as is.
+ * Entries can be encoded directly into a {@link ByteBuffer} provided by the caller
+ * with {@link #serialize(HttpCacheStorageEntry, ByteBuffer)} and decoded from one
+ * with {@link #deserialize(ByteBuffer)} without parsing HTTP messages.
+ * </p>
+ * <p>
+ * The format is not compatible with that of {@link ByteArrayCacheEntrySerializer}
+ * or {@link HttpByteArrayCacheEntrySerializer}.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.STATELESS)
+public final class BinaryCacheEntrySerializer implements HttpCacheEntrySerializer<byte[]> {
+
+    public static final BinaryCacheEntrySerializer INSTANCE = new BinaryCacheEntrySerializer();
+
+    static final int MAGIC = 0x48434345; // "HCCE"
+    static final byte VERSION = 1;
+
+    private static final int LITERAL_NAME = 0xff;
+    private static final int NO_RESOURCE = -1;
+    private static final String REQUEST_METHOD_HEADER_NAME = "Hc-Request-Method";
+
+    /**
+     * Header names encoded as table references. New names may only ever be
+     * appended to the table without changing the format version.
+     */
+    private static final String[] HEADER_NAMES = {
+            HttpHeaders.DATE,
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.CONTENT_LOCATION,
+            HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.ETAG,
+            HttpHeaders.EXPIRES,
+            HttpHeaders.LAST_MODIFIED,
+            HttpHeaders.VARY,
+            HttpHeaders.AGE,
+            HttpHeaders.VIA,
+            HttpHeaders.WARNING,
+            HttpHeaders.PRAGMA,
+            HttpHeaders.SERVER,
+            "Set-Cookie",
+            HttpHeaders.CONNECTION,
+            HttpHeaders.KEEP_ALIVE,
+            HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.ACCEPT_RANGES,
+            HttpHeaders.LOCATION,
+            HttpHeaders.ALLOW,
+            HttpHeaders.CONTENT_RANGE,
+            HttpHeaders.CONTENT_MD5,
+            HttpHeaders.WWW_AUTHENTICATE,
+            HttpHeaders.PROXY_AUTHENTICATE,
+            "Access-Control-Allow-Origin",
+            "Strict-Transport-Security",
+            "X-Content-Type-Options",
+            "X-Frame-Options",
+            "X-Cache"
+    };
+
+    private static final Map<String, Integer> HEADER_NAME_INDEX;
+
+    static {
+        HEADER_NAME_INDEX = new HashMap<>(HEADER_NAMES.length * 2);
+        for (int i = 0; i < HEADER_NAMES.length; i++) {
+            HEADER_NAME_INDEX.put(HEADER_NAMES[i], i);
+        }
+    }
+
+    /**
+     * Returns the exact number of bytes the given entry occupies when serialized.
+     */
+    public int getSerializedLength(final HttpCacheStorageEntry storageEntry) throws ResourceIOException {
+        Args.notNull(storageEntry, "Cache storage entry");
+        final HttpCacheEntry entry = storageEntry.getContent();
+        long len = 4 + 1;
+        len += stringLength(storageEntry.getKey());
+        len += 8 + 8 + 4;
+        len += stringLength(entry.getRequestMethod());
+        final Header[] headers = entry.getHeaders();
+        len += 4;
+        for (final Header header : headers) {
+            len += 1;
+            if (!HEADER_NAME_INDEX.containsKey(header.getName())) {
+                len += stringLength(header.getName());
+            }
+            len += stringLength(header.getValue());
+        }
+        final Map<String, String> variantMap = entry.getVariantMap();
+        len += 4;
+        for (final Map.Entry<String, String> variant : variantMap.entrySet()) {
+            len += stringLength(variant.getKey()) + stringLength(variant.getValue());
+        }
+        len += 4;
+        final Resource resource = entry.getResource();
+        if (resource != null) {
+            len += resource.length();
+        }
+        if (len > Integer.MAX_VALUE) {
+            throw new ResourceIOException("Cache entry too large to be serialized: " + len);
+        }
+        return (int) len;
+    }
+
+    @Override
+    public byte[] serialize(final HttpCacheStorageEntry storageEntry) throws ResourceIOException {
+        if (storageEntry == null) {
+            return null;
+        }
+        final byte[] bytes = new byte[getSerializedLength(storageEntry)];
+        serialize(storageEntry, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Serializes the given entry into the given buffer starting at its current position.
+     * The buffer must have at least {@link #getSerializedLength(HttpCacheStorageEntry)}
+     * bytes remaining.
+     */
+    public void serialize(final HttpCacheStorageEntry storageEntry, final ByteBuffer dst) throws ResourceIOException {
+        Args.notNull(storageEntry, "Cache storage entry");
+        Args.notNull(dst, "Buffer");
+        if (storageEntry.getKey() == null) {
+            throw new IllegalStateException("Cannot serialize cache object with null storage key");
+        }
+        final HttpCacheEntry entry = storageEntry.getContent();
+        try {
+            dst.putInt(MAGIC);
+            dst.put(VERSION);
+            putString(dst, storageEntry.getKey());
+            dst.putLong(entry.getRequestDate().getTime());
+            dst.putLong(entry.getResponseDate().getTime());
+            dst.putInt(entry.getStatus());
+            putString(dst, entry.getRequestMethod());
+            final Header[] headers = entry.getHeaders();
+            dst.putInt(headers.length);
+            for (final Header header : headers) {
+                final Integer index = HEADER_NAME_INDEX.get(header.getName());
+                if (index != null) {
+                    dst.put(index.byteValue());
+                } else {
+                    dst.put((byte) LITERAL_NAME);
+                    putString(dst, header.getName());
+                }
+                putString(dst, header.getValue());
+            }
+            final Map<String, String> variantMap = entry.getVariantMap();
+            dst.putInt(variantMap.size());
+            for (final Map.Entry<String, String> variant : variantMap.entrySet()) {
+                putString(dst, variant.getKey());
+                putString(dst, variant.getValue());
+            }
+            final Resource resource = entry.getResource();
+            if (resource != null) {
+                final ByteBuffer content = resource.getByteBuffer();
+                dst.putInt(content.remaining());
+                dst.put(content);
+            } else {
+                dst.putInt(NO_RESOURCE);
+            }
+        } catch (final BufferOverflowException ex) {
+            throw new ResourceIOException("Insufficient buffer space to serialize cache entry", ex);
+        }
+    }
+
+    @Override
+    public HttpCacheStorageEntry deserialize(final byte[] serializedObject) throws ResourceIOException {
+        if (serializedObject == null) {
+            return null;
+        }
+        return deserialize(ByteBuffer.wrap(serializedObject));
+    }
+
+    /**
+     * Deserializes a cache entry from the given buffer starting at its current position.
+     */
+    public HttpCacheStorageEntry deserialize(final ByteBuffer src) throws ResourceIOException {
+        Args.notNull(src, "Buffer");
+        try {
+            if (src.getInt() != MAGIC) {
+                throw new ResourceIOException("Unexpected cache entry format");
+            }
+            final byte version = src.get();
+            if (version != VERSION) {
+                throw new ResourceIOException("Unsupported cache entry format version: " + version);
+            }
+            final String key = getString(src);
+            final Date requestDate = new Date(src.getLong());
+            final Date responseDate = new Date(src.getLong());
+            final int status = src.getInt();
+            final String requestMethod = getString(src);
+            final int headerCount = getCount(src);
+            final boolean nonGet = requestMethod != null && !HeaderConstants.GET_METHOD.equals(requestMethod);
+            final Header[] headers = new Header[nonGet ? headerCount + 1 : headerCount];
+            for (int i = 0; i < headerCount; i++) {
+                final int index = src.get() & 0xff;
+                final String name;
+                if (index == LITERAL_NAME) {
+                    name = getString(src);
+                } else if (index < HEADER_NAMES.length) {
+                    name = HEADER_NAMES[index];
+                } else {
+                    throw new ResourceIOException("Invalid header name reference: " + index);
+                }
+                headers[i] = new BasicHeader(name, getString(src));
+            }
+            final int variantCount = getCount(src);
+            final Map<String, String> variantMap = variantCount > 0 ? new HashMap<String, String>(variantCount * 2) : null;
+            for (int i = 0; i < variantCount; i++) {
+                variantMap.put(getString(src), getString(src));
+            }
+            final int contentLength = src.getInt();
+            final Resource resource;
+            if (contentLength == NO_RESOURCE) {
+                resource = null;
+            } else {
+                if (contentLength < 0 || contentLength > src.remaining()) {
+                    throw new ResourceIOException("Invalid content length: " + contentLength);
+                }
+                final byte[] content = new byte[contentLength];
+                src.get(content);
+                resource = new HeapResource(content);
+            }
+            if (nonGet) {
+                headers[headerCount] = new BasicHeader(REQUEST_METHOD_HEADER_NAME, requestMethod);
+            }
+            final HttpCacheEntry entry = new HttpCacheEntry(requestDate, responseDate, status, headers, resource,
+                    variantMap);
+            return new HttpCacheStorageEntry(key, entry);
+        } catch (final BufferUnderflowException | IllegalArgumentException ex) {
+            throw new ResourceIOException("Malformed cache entry", ex);
+        }
+    }
+
+    private static int getCount(final ByteBuffer src) throws ResourceIOException {
+        final int count = src.getInt();
+        if (count < 0 || count > src.remaining()) {
+            throw new ResourceIOException("Invalid element count: " + count);
+        }
+        return count;
+    }
+
+    private static int utf8Length(final String s) {
+        int len = 0;
+        for (int i = 0; i < s.length(); i++) {
+            final char ch = s.charAt(i);
+            if (ch < 0x80) {
+                len++;
+            } else if (ch < 0x800) {
+                len += 2;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 4;
+                i++;
+            } else {
+                len += 3;
+            }
+        }
+        return len;
+    }
+
+    private static boolean isAscii(final String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int stringLength(final String s) {
+        return 4 + (s != null ? utf8Length(s) : 0);
+    }
+
+    private static void putString(final ByteBuffer dst, final String s) {
+        if (s == null) {
+            dst.putInt(-1);
+        } else if (isAscii(s)) {
+            dst.putInt(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                dst.put((byte) s.charAt(i));
+            }
+        } else {
+            final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            dst.putInt(bytes.length);
+            dst.put(bytes);
+        }
+    }
+
+    private static String getString(final ByteBuffer src) throws ResourceIOException {
+        final int len = src.getInt();
+        if (len == -1) {
+            return null;
+        }
+        if (len < 0 || len > src.remaining()) {
+            throw new ResourceIOException("Invalid string length: " + len);
+        }
+        final String s;
+        if (src.hasArray()) {
+            s = new String(src.array(), src.arrayOffset() + src.position(), len, StandardCharsets.UTF_8);
+            src.position(src.position() + len);
+        } else {
+            final byte[] bytes = new byte[len];
+            src.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+}
@@ -95,6 +95,16 @@
  * validation is enabled by default but it could be disabled by setting the number
  * of re-validation workers to {@code 0} with {@link CacheConfig#getAsynchronousWorkers()}
  * parameter</p>
+ *
+ * <p><b>Request collapsing</b>. Concurrent cache misses for the same resource
+ * can optionally be collapsed into a single backend request with
+ * {@link Builder#setRequestCollapsingEnabled(boolean)}. Requests arriving while
+ * another request for the same cache key is in flight wait up to
+ * {@link CacheConfig#getRequestCollapsingTimeout()} for the cache to be populated
+ * and then either get served from the cache or proceed to the backend.
+ * With streaming cache fill the cache key remains claimed until the caller has
+ * consumed the response content and the new entry has been stored, so callers
+ * that do not consume or close responses make waiting requests time out.</p>
  */
 public class CacheConfig implements Cloneable {
 
@@ -108,6 +118,14 @@ public class CacheConfig implements Cloneable {
      */
     public final static int DEFAULT_MAX_CACHE_ENTRIES = 1000;
 
+    /** Default setting for the maximum total size of cache entries
+     * that will be retained, in bytes. A non-positive value means
+     * the total size is not limited.
+     *
+     * @since 5.1
+     */
+    public final static long DEFAULT_MAX_CACHE_SIZE_BYTES = 0;
+
     /** Default setting for the number of retries on a failed
      * cache processChallenge
      */
@@ -140,10 +158,18 @@ public class CacheConfig implements Cloneable {
      */
     public static final int DEFAULT_ASYNCHRONOUS_WORKERS = 1;
 
+    /** Default maximum time a request waits for an in-flight request
+     * for the same resource when request collapsing is enabled.
+     *
+     * @since 5.1
+     */
+    public final static TimeValue DEFAULT_REQUEST_COLLAPSING_TIMEOUT = TimeValue.ofSeconds(5);
+
     public static final CacheConfig DEFAULT = new Builder().build();
 
     private final long maxObjectSize;
     private final int maxCacheEntries;
+    private final long maxCacheSize;
     private final int maxUpdateRetries;
     private final boolean allow303Caching;
     private final boolean weakETagOnPutDeleteAllowed;
@@ -152,12 +178,16 @@ public class CacheConfig implements Cloneable {
     private final TimeValue heuristicDefaultLifetime;
     private final boolean sharedCache;
     private final boolean freshnessCheckEnabled;
+    private final boolean streamingCacheFillEnabled;
+    private final boolean requestCollapsingEnabled;
+    private final TimeValue requestCollapsingTimeout;
     private final int asynchronousWorkers;
     private final boolean neverCacheHTTP10ResponsesWithQuery;
 
     CacheConfig(
             final long maxObjectSize,
             final int maxCacheEntries,
+            final long maxCacheSize,
             final int maxUpdateRetries,
             final boolean allow303Caching,
             final boolean weakETagOnPutDeleteAllowed,
@@ -166,11 +196,15 @@ public class CacheConfig implements Cloneable {
             final TimeValue heuristicDefaultLifetime,
             final boolean sharedCache,
             final boolean freshnessCheckEnabled,
+            final boolean streamingCacheFillEnabled,
+            final boolean requestCollapsingEnabled,
+            final TimeValue requestCollapsingTimeout,
             final int asynchronousWorkers,
             final boolean neverCacheHTTP10ResponsesWithQuery) {
         super();
         this.maxObjectSize = maxObjectSize;
         this.maxCacheEntries = maxCacheEntries;
+        this.maxCacheSize = maxCacheSize;
         this.maxUpdateRetries = maxUpdateRetries;
         this.allow303Caching = allow303Caching;
         this.weakETagOnPutDeleteAllowed = weakETagOnPutDeleteAllowed;
@@ -179,6 +213,9 @@ public class CacheConfig implements Cloneable {
         this.heuristicDefaultLifetime = heuristicDefaultLifetime;
         this.sharedCache = sharedCache;
         this.freshnessCheckEnabled = freshnessCheckEnabled;
+        this.streamingCacheFillEnabled = streamingCacheFillEnabled;
+        this.requestCollapsingEnabled = requestCollapsingEnabled;
+        this.requestCollapsingTimeout = requestCollapsingTimeout;
         this.asynchronousWorkers = asynchronousWorkers;
         this.neverCacheHTTP10ResponsesWithQuery = neverCacheHTTP10ResponsesWithQuery;
     }
@@ -209,6 +246,19 @@ public int getMaxCacheEntries() {
         return maxCacheEntries;
     }
 
+    /**
+     * Returns the maximum total size of cache entries the in-memory cache
+     * storages will retain. The size of an entry is estimated from its
+     * response headers and body. A non-positive value means the total
+     * size is not limited.
+     * @return size in bytes
+     *
+     * @since 5.1
+     */
+    public long getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
     /**
      * Returns the number of times to retry a cache processChallenge on failure
      */
@@ -274,6 +324,39 @@ public boolean isFreshnessCheckEnabled() {
         return freshnessCheckEnabled;
     }
 
+    /**
+     * Returns whether cacheable backend responses are streamed to the caller
+     * while their content is being collected for caching rather than buffered
+     * in full before being returned. The cache entry is created only once
+     * the caller has consumed the complete response body and its length has not
+     * exceeded {@link #getMaxObjectSize()}.
+     *
+     * @since 5.1
+     */
+    public boolean isStreamingCacheFillEnabled() {
+        return streamingCacheFillEnabled;
+    }
+
+    /**
+     * Returns whether concurrent cache misses for the same cache key are
+     * collapsed into a single backend request.
+     *
+     * @since 5.1
+     */
+    public boolean isRequestCollapsingEnabled() {
+        return requestCollapsingEnabled;
+    }
+
+    /**
+     * Returns the maximum time a request waits for an in-flight request
+     * for the same cache key before proceeding to the backend.
+     *
+     * @since 5.1
+     */
+    public TimeValue getRequestCollapsingTimeout() {
+        return requestCollapsingTimeout;
+    }
+
     /**
      * Returns the maximum number of threads to allow for background
      * revalidations due to the {@code stale-while-revalidate} directive. A
@@ -297,11 +380,15 @@ public static Builder copy(final CacheConfig config) {
         return new Builder()
             .setMaxObjectSize(config.getMaxObjectSize())
             .setMaxCacheEntries(config.getMaxCacheEntries())
+            .setMaxCacheSize(config.getMaxCacheSize())
             .setMaxUpdateRetries(config.getMaxUpdateRetries())
             .setHeuristicCachingEnabled(config.isHeuristicCachingEnabled())
             .setHeuristicCoefficient(config.getHeuristicCoefficient())
             .setHeuristicDefaultLifetime(config.getHeuristicDefaultLifetime())
             .setSharedCache(config.isSharedCache())
+            .setStreamingCacheFillEnabled(config.isStreamingCacheFillEnabled())
+            .setRequestCollapsingEnabled(config.isRequestCollapsingEnabled())
+            .setRequestCollapsingTimeout(config.getRequestCollapsingTimeout())
             .setAsynchronousWorkers(config.getAsynchronousWorkers())
             .setNeverCacheHTTP10ResponsesWithQueryString(config.isNeverCacheHTTP10ResponsesWithQuery());
     }
@@ -311,6 +398,7 @@ public static class Builder {
 
         private long maxObjectSize;
         private int maxCacheEntries;
+        private long maxCacheSize;
         private int maxUpdateRetries;
         private boolean allow303Caching;
         private boolean weakETagOnPutDeleteAllowed;
@@ -319,12 +407,16 @@ public static class Builder {
         private TimeValue heuristicDefaultLifetime;
         private boolean sharedCache;
         private boolean freshnessCheckEnabled;
+        private boolean streamingCacheFillEnabled;
+        private boolean requestCollapsingEnabled;
+        private TimeValue requestCollapsingTimeout;
         private int asynchronousWorkers;
         private boolean neverCacheHTTP10ResponsesWithQuery;
 
         Builder() {
             this.maxObjectSize = DEFAULT_MAX_OBJECT_SIZE_BYTES;
             this.maxCacheEntries = DEFAULT_MAX_CACHE_ENTRIES;
+            this.maxCacheSize = DEFAULT_MAX_CACHE_SIZE_BYTES;
             this.maxUpdateRetries = DEFAULT_MAX_UPDATE_RETRIES;
             this.allow303Caching = DEFAULT_303_CACHING_ENABLED;
             this.weakETagOnPutDeleteAllowed = DEFAULT_WEAK_ETAG_ON_PUTDELETE_ALLOWED;
@@ -334,6 +426,7 @@ public static class Builder {
             this.sharedCache = true;
             this.freshnessCheckEnabled = true;
             this.asynchronousWorkers = DEFAULT_ASYNCHRONOUS_WORKERS;
+            this.requestCollapsingTimeout = DEFAULT_REQUEST_COLLAPSING_TIMEOUT;
         }
 
         /**
@@ -353,6 +446,20 @@ public Builder setMaxCacheEntries(final int maxCacheEntries) {
             return this;
         }
 
+        /**
+         * Sets the maximum total size of cache entries the in-memory cache
+         * storages will retain. Least recently used entries are evicted
+         * once the estimated size of all entries exceeds this limit.
+         * @param maxCacheSize size in bytes; a non-positive value means
+         *   the total size is not limited.
+         *
+         * @since 5.1
+         */
+        public Builder setMaxCacheSize(final long maxCacheSize) {
+            this.maxCacheSize = maxCacheSize;
+            return this;
+        }
+
         /**
          * Sets the number of times to retry a cache processChallenge on failure
          */
@@ -459,10 +566,45 @@ public Builder setFreshnessCheckEnabled(final boolean freshnessCheckEnabled) {
             return this;
         }
 
+        /**
+         * Enables streaming of cacheable backend responses to the caller while their
+         * content is being collected for caching. If disabled the response content
+         * is fully buffered before the response is returned.
+         *
+         * @since 5.1
+         */
+        public Builder setStreamingCacheFillEnabled(final boolean streamingCacheFillEnabled) {
+            this.streamingCacheFillEnabled = streamingCacheFillEnabled;
+            return this;
+        }
+
+        /**
+         * Enables collapsing of concurrent cache misses for the same cache key
+         * into a single backend request.
+         *
+         * @since 5.1
+         */
+        public Builder setRequestCollapsingEnabled(final boolean requestCollapsingEnabled) {
+            this.requestCollapsingEnabled = requestCollapsingEnabled;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time a request waits for an in-flight request for
+         * the same cache key before proceeding to the backend.
+         *
+         * @since 5.1
+         */
+        public Builder setRequestCollapsingTimeout(final TimeValue requestCollapsingTimeout) {
+            this.requestCollapsingTimeout = requestCollapsingTimeout;
+            return this;
+        }
+
         public CacheConfig build() {
             return new CacheConfig(
                     maxObjectSize,
                     maxCacheEntries,
+                    maxCacheSize,
                     maxUpdateRetries,
                     allow303Caching,
                     weakETagOnPutDeleteAllowed,
@@ -471,6 +613,9 @@ public CacheConfig build() {
                     heuristicDefaultLifetime,
                     sharedCache,
                     freshnessCheckEnabled,
+                    streamingCacheFillEnabled,
+                    requestCollapsingEnabled,
+                    requestCollapsingTimeout != null ? requestCollapsingTimeout : DEFAULT_REQUEST_COLLAPSING_TIMEOUT,
                     asynchronousWorkers,
                     neverCacheHTTP10ResponsesWithQuery);
         }
@@ -482,6 +627,7 @@ public String toString() {
         final StringBuilder builder = new StringBuilder();
         builder.append("[maxObjectSize=").append(this.maxObjectSize)
                 .append(", maxCacheEntries=").append(this.maxCacheEntries)
+                .append(", maxCacheSize=").append(this.maxCacheSize)
                 .append(", maxUpdateRetries=").append(this.maxUpdateRetries)
                 .append(", 303CachingEnabled=").append(this.allow303Caching)
                 .append(", weakETagOnPutDeleteAllowed=").append(this.weakETagOnPutDeleteAllowed)
@@ -490,6 +636,9 @@ public String toString() {
                 .append(", heuristicDefaultLifetime=").append(this.heuristicDefaultLifetime)
                 .append(", sharedCache=").append(this.sharedCache)
                 .append(", freshnessCheckEnabled=").append(this.freshnessCheckEnabled)
+                .append(", streamingCacheFillEnabled=").append(this.streamingCacheFillEnabled)
+                .append(", requestCollapsingEnabled=").append(this.requestCollapsingEnabled)
+                .append(", requestCollapsingTimeout=").append(this.requestCollapsingTimeout)
                 .append(", asynchronousWorkers=").append(this.asynchronousWorkers)
                 .append(", neverCacheHTTP10ResponsesWithQuery=").append(this.neverCacheHTTP10ResponsesWithQuery)
                 .append("]");
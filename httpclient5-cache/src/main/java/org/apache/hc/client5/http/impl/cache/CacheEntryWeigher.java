@@ -0,0 +1,67 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.Resource;
+import org.apache.hc.core5.http.Header;
+
+/**
+ * Estimates the amount of memory retained by cache entries held in-memory.
+ * The estimate accounts for the response body, the response headers and
+ * the variant map, with strings counted at two bytes per character.
+ */
+final class CacheEntryWeigher {
+
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int HEADER_OVERHEAD = 48;
+
+    private CacheEntryWeigher() {
+    }
+
+    static long weigh(final String key, final HttpCacheEntry entry) {
+        long weight = ENTRY_OVERHEAD + 2L * key.length();
+        final Iterator<Header> it = entry.headerIterator();
+        while (it.hasNext()) {
+            final Header header = it.next();
+            final String value = header.getValue();
+            weight += HEADER_OVERHEAD + 2L * (header.getName().length() + (value != null ? value.length() : 0));
+        }
+        for (final Map.Entry<String, String> variant: entry.getVariantMap().entrySet()) {
+            weight += HEADER_OVERHEAD + 2L * (variant.getKey().length() + variant.getValue().length());
+        }
+        final Resource resource = entry.getResource();
+        if (resource != null) {
+            weight += resource.length();
+        }
+        return weight;
+    }
+
+}
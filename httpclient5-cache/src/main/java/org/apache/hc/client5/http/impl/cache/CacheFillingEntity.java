@@ -0,0 +1,223 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hc.client5.http.cache.ResourceIOException;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.ByteArrayBuffer;
+
+/**
+ * Entity that passes backend content through to the caller while collecting
+ * a copy of it for the cache. The callback is completed with the collected
+ * content once the caller reaches the end of the content stream, failed if
+ * the content exceeds the maximum object size or cannot be read, and
+ * cancelled if the stream is closed before it has been fully consumed.
+ * An optional completion action is executed after the callback has been
+ * notified of the outcome, whatever it is.
+ */
+class CacheFillingEntity extends HttpEntityWrapper {
+
+    private final long maxObjectSize;
+    private final FutureCallback<ByteArrayBuffer> callback;
+    private final AtomicBoolean consumed;
+    private final AtomicReference<Runnable> completionActionRef;
+
+    CacheFillingEntity(
+            final HttpEntity entity,
+            final long maxObjectSize,
+            final FutureCallback<ByteArrayBuffer> callback) {
+        super(entity);
+        this.maxObjectSize = maxObjectSize;
+        this.callback = Args.notNull(callback, "Callback");
+        this.consumed = new AtomicBoolean(false);
+        this.completionActionRef = new AtomicReference<>();
+    }
+
+    void setCompletionAction(final Runnable completionAction) {
+        this.completionActionRef.set(completionAction);
+    }
+
+    private void runCompletionAction() {
+        final Runnable action = this.completionActionRef.getAndSet(null);
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        if (consumed.getAndSet(true)) {
+            throw new IllegalStateException("Content has already been consumed");
+        }
+        return new TeeInputStream(super.getContent());
+    }
+
+    @Override
+    public void writeTo(final OutputStream outStream) throws IOException {
+        Args.notNull(outStream, "Output stream");
+        try (final InputStream inStream = getContent()) {
+            int l;
+            final byte[] tmp = new byte[2048];
+            while ((l = inStream.read(tmp)) != -1) {
+                outStream.write(tmp, 0, l);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (!consumed.getAndSet(true)) {
+                try {
+                    callback.cancelled();
+                } finally {
+                    runCompletionAction();
+                }
+            }
+        }
+    }
+
+    class TeeInputStream extends FilterInputStream {
+
+        private ByteArrayBuffer buffer;
+        private boolean done;
+
+        TeeInputStream(final InputStream inStream) {
+            super(inStream);
+            this.buffer = new ByteArrayBuffer(1024);
+        }
+
+        private void append(final byte[] b, final int off, final int len) {
+            if (buffer != null) {
+                if (buffer.length() + len > maxObjectSize) {
+                    buffer = null;
+                    complete(new ResourceIOException("Response content length exceeds maximum"));
+                } else {
+                    buffer.append(b, off, len);
+                }
+            }
+        }
+
+        private void complete(final Exception ex) {
+            if (done) {
+                return;
+            }
+            done = true;
+            try {
+                if (ex != null) {
+                    callback.failed(ex);
+                } else {
+                    callback.completed(buffer);
+                }
+            } finally {
+                runCompletionAction();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b;
+            try {
+                b = super.read();
+            } catch (final IOException ex) {
+                complete(ex);
+                throw ex;
+            }
+            if (b == -1) {
+                complete(null);
+            } else {
+                append(new byte[] {(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int l;
+            try {
+                l = super.read(b, off, len);
+            } catch (final IOException ex) {
+                complete(ex);
+                throw ex;
+            }
+            if (l == -1) {
+                complete(null);
+            } else {
+                append(b, off, l);
+            }
+            return l;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final byte[] tmp = new byte[(int) Math.min(n, 2048)];
+            final int l = read(tmp, 0, tmp.length);
+            return l > 0 ? l : 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!done) {
+                    done = true;
+                    buffer = null;
+                    try {
+                        callback.cancelled();
+                    } finally {
+                        runCompletionAction();
+                    }
+                }
+            }
+        }
+
+    }
+
+}
@@ -31,21 +31,15 @@
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
-import org.apache.hc.client5.http.cache.HeaderConstants;
 import org.apache.hc.client5.http.cache.HttpCacheEntry;
 import org.apache.hc.core5.annotation.Contract;
 import org.apache.hc.core5.annotation.ThreadingBehavior;
 import org.apache.hc.core5.function.Resolver;
 import org.apache.hc.core5.http.Header;
-import org.apache.hc.core5.http.HeaderElement;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.HttpRequest;
-import org.apache.hc.core5.http.message.MessageSupport;
 
 /**
  * @since 4.1
@@ -136,13 +130,7 @@ public String generateKey(final HttpHost host, final HttpRequest request, final
      * @return variant key
      */
     public String generateVariantKey(final HttpRequest req, final HttpCacheEntry entry) {
-        final List<String> variantHeaderNames = new ArrayList<>();
-        final Iterator<HeaderElement> it = MessageSupport.iterate(entry, HeaderConstants.VARY);
-        while (it.hasNext()) {
-            final HeaderElement elt = it.next();
-            variantHeaderNames.add(elt.getName());
-        }
-        Collections.sort(variantHeaderNames);
+        final List<String> variantHeaderNames = entry.getMetadata().getVariantHeaderNames();
 
         final StringBuilder buf;
         try {
@@ -26,25 +26,114 @@
  */
 package org.apache.hc.client5.http.impl.cache;
 
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.Map;
 
 import org.apache.hc.client5.http.cache.HttpCacheEntry;
 
-final class CacheMap extends LinkedHashMap<String, HttpCacheEntry> {
-
-    private static final long serialVersionUID = -7750025207539768511L;
+/**
+ * Access ordered map of cache entries bounded by the number of entries
+ * and their total weight as estimated by {@link CacheEntryWeigher}.
+ * Least recently used entries are evicted first. This class is not
+ * thread-safe.
+ */
+final class CacheMap {
 
     private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<String, Node> map;
+    private long weight;
 
-    CacheMap(final int maxEntries) {
-        super(20, 0.75f, true);
+    /**
+     * @param maxEntries the maximum number of entries.
+     * @param maxWeight the maximum total weight of entries in bytes.
+     *                  A non-positive value means the weight is not bounded.
+     */
+    CacheMap(final int maxEntries, final long maxWeight) {
         this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight > 0 ? maxWeight : Long.MAX_VALUE;
+        this.map = new LinkedHashMap<>(20, 0.75f, true);
+    }
+
+    CacheMap(final int maxEntries) {
+        this(maxEntries, 0);
+    }
+
+    HttpCacheEntry get(final String key) {
+        final Node node = map.get(key);
+        return node != null ? node.entry : null;
+    }
+
+    void put(final String key, final HttpCacheEntry entry) {
+        if (entry == null) {
+            remove(key);
+            return;
+        }
+        final Node node = new Node(entry, CacheEntryWeigher.weigh(key, entry));
+        final Node previous = map.put(key, node);
+        weight += node.weight;
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        if (map.size() > maxEntries || weight > maxWeight) {
+            final Iterator<Node> it = map.values().iterator();
+            while (it.hasNext() && (map.size() > maxEntries || weight > maxWeight)) {
+                final Node eldest = it.next();
+                it.remove();
+                weight -= eldest.weight;
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used entry.
+     *
+     * @return the weight of the removed entry or {@code -1} if the map is empty.
+     */
+    long evictEldest() {
+        final Iterator<Node> it = map.values().iterator();
+        if (!it.hasNext()) {
+            return -1;
+        }
+        final Node eldest = it.next();
+        it.remove();
+        weight -= eldest.weight;
+        return eldest.weight;
     }
 
-    @Override
-    protected boolean removeEldestEntry(final Map.Entry<String, HttpCacheEntry> eldest) {
-        return size() > this.maxEntries;
+    void remove(final String key) {
+        final Node node = map.remove(key);
+        if (node != null) {
+            weight -= node.weight;
+        }
+    }
+
+    void clear() {
+        map.clear();
+        weight = 0;
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns the estimated total size of all entries in bytes.
+     */
+    long getWeight() {
+        return weight;
+    }
+
+    static final class Node {
+
+        final HttpCacheEntry entry;
+        final long weight;
+
+        Node(final HttpCacheEntry entry, final long weight) {
+            this.entry = entry;
+            this.weight = weight;
+        }
+
     }
 
 }
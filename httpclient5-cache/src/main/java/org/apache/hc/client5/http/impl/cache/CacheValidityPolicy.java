@@ -31,8 +31,8 @@
 
 import org.apache.hc.client5.http.cache.HeaderConstants;
 import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.HttpCacheEntryMetadata;
 import org.apache.hc.client5.http.cache.Resource;
-import org.apache.hc.client5.http.utils.DateUtils;
 import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HeaderElement;
 import org.apache.hc.core5.http.HttpHeaders;
@@ -43,7 +43,7 @@
 
 class CacheValidityPolicy {
 
-    public static final TimeValue MAX_AGE = TimeValue.ofSeconds(Integer.MAX_VALUE + 1L);
+    public static final TimeValue MAX_AGE = TimeValue.ofSeconds(HttpCacheEntryMetadata.MAX_AGE);
 
     CacheValidityPolicy() {
         super();
@@ -54,22 +54,7 @@ public TimeValue getCurrentAge(final HttpCacheEntry entry, final Date now) {
     }
 
     public TimeValue getFreshnessLifetime(final HttpCacheEntry entry) {
-        final long maxAge = getMaxAge(entry);
-        if (maxAge > -1) {
-            return TimeValue.ofSeconds(maxAge);
-        }
-
-        final Date dateValue = entry.getDate();
-        if (dateValue == null) {
-            return TimeValue.ZERO_MILLISECONDS;
-        }
-
-        final Date expiry = DateUtils.parseDate(entry, HeaderConstants.EXPIRES);
-        if (expiry == null) {
-            return TimeValue.ZERO_MILLISECONDS;
-        }
-        final long diff = expiry.getTime() - dateValue.getTime();
-        return TimeValue.ofSeconds(diff / 1000);
+        return TimeValue.ofSeconds(entry.getMetadata().getFreshnessLifetime());
     }
 
     public boolean isResponseFresh(final HttpCacheEntry entry, final Date now) {
@@ -97,11 +82,12 @@ public boolean isResponseHeuristicallyFresh(final HttpCacheEntry entry,
 
     public TimeValue getHeuristicFreshnessLifetime(final HttpCacheEntry entry,
             final float coefficient, final TimeValue defaultLifetime) {
-        final Date dateValue = entry.getDate();
-        final Date lastModifiedValue = DateUtils.parseDate(entry, HeaderConstants.LAST_MODIFIED);
+        final HttpCacheEntryMetadata metadata = entry.getMetadata();
+        final long dateValue = metadata.getDate();
+        final long lastModifiedValue = metadata.getLastModified();
 
-        if (dateValue != null && lastModifiedValue != null) {
-            final long diff = dateValue.getTime() - lastModifiedValue.getTime();
+        if (dateValue != HttpCacheEntryMetadata.UNKNOWN_DATE && lastModifiedValue != HttpCacheEntryMetadata.UNKNOWN_DATE) {
+            final long diff = dateValue - lastModifiedValue;
             if (diff < 0) {
                 return TimeValue.ZERO_MILLISECONDS;
             }
@@ -112,42 +98,32 @@ public TimeValue getHeuristicFreshnessLifetime(final HttpCacheEntry entry,
     }
 
     public boolean isRevalidatable(final HttpCacheEntry entry) {
-        return entry.getFirstHeader(HeaderConstants.ETAG) != null
-                || entry.getFirstHeader(HeaderConstants.LAST_MODIFIED) != null;
+        return entry.getMetadata().isRevalidatable();
     }
 
     public boolean mustRevalidate(final HttpCacheEntry entry) {
-        return hasCacheControlDirective(entry, HeaderConstants.CACHE_CONTROL_MUST_REVALIDATE);
+        return entry.getMetadata().isMustRevalidate();
     }
 
     public boolean proxyRevalidate(final HttpCacheEntry entry) {
-        return hasCacheControlDirective(entry, HeaderConstants.CACHE_CONTROL_PROXY_REVALIDATE);
+        return entry.getMetadata().isProxyRevalidate();
     }
 
     public boolean mayReturnStaleWhileRevalidating(final HttpCacheEntry entry, final Date now) {
-        final Iterator<HeaderElement> it = MessageSupport.iterate(entry, HeaderConstants.CACHE_CONTROL);
-        while (it.hasNext()) {
-            final HeaderElement elt = it.next();
-            if (HeaderConstants.STALE_WHILE_REVALIDATE.equalsIgnoreCase(elt.getName())) {
-                try {
-                    // in seconds
-                    final int allowedStalenessLifetime = Integer.parseInt(elt.getValue());
-                    if (getStaleness(entry, now).compareTo(TimeValue.ofSeconds(allowedStalenessLifetime)) <= 0) {
-                        return true;
-                    }
-                } catch (final NumberFormatException nfe) {
-                    // skip malformed directive
-                }
-            }
-        }
-
-        return false;
+        // in seconds
+        final long allowedStalenessLifetime = entry.getMetadata().getStaleWhileRevalidate();
+        return allowedStalenessLifetime >= 0
+                && getStaleness(entry, now).compareTo(TimeValue.ofSeconds(allowedStalenessLifetime)) <= 0;
     }
 
     public boolean mayReturnStaleIfError(final HttpRequest request, final HttpCacheEntry entry, final Date now) {
         final TimeValue staleness = getStaleness(entry, now);
-        return mayReturnStaleIfError(request, HeaderConstants.CACHE_CONTROL, staleness)
-                || mayReturnStaleIfError(entry, HeaderConstants.CACHE_CONTROL, staleness);
+        if (mayReturnStaleIfError(request, HeaderConstants.CACHE_CONTROL, staleness)) {
+            return true;
+        }
+        // in seconds
+        final long staleIfError = entry.getMetadata().getStaleIfError();
+        return staleIfError >= 0 && staleness.compareTo(TimeValue.ofSeconds(staleIfError)) <= 0;
     }
 
     private boolean mayReturnStaleIfError(final MessageHeaders headers, final String name, final TimeValue staleness) {
@@ -197,11 +173,11 @@ protected boolean contentLengthHeaderMatchesActualLength(final HttpCacheEntry en
     }
 
     protected TimeValue getApparentAge(final HttpCacheEntry entry) {
-        final Date dateValue = entry.getDate();
-        if (dateValue == null) {
+        final long dateValue = entry.getMetadata().getDate();
+        if (dateValue == HttpCacheEntryMetadata.UNKNOWN_DATE) {
             return MAX_AGE;
         }
-        final long diff = entry.getResponseDate().getTime() - dateValue.getTime();
+        final long diff = entry.getResponseDate().getTime() - dateValue;
         if (diff < 0L) {
             return TimeValue.ZERO_MILLISECONDS;
         }
@@ -210,20 +186,7 @@ protected TimeValue getApparentAge(final HttpCacheEntry entry) {
 
     protected long getAgeValue(final HttpCacheEntry entry) {
         // This is a header value, we leave as-is
-        long ageValue = 0;
-        for (final Header hdr : entry.getHeaders(HeaderConstants.AGE)) {
-            long hdrAge;
-            try {
-                hdrAge = Long.parseLong(hdr.getValue());
-                if (hdrAge < 0) {
-                    hdrAge = MAX_AGE.toSeconds();
-                }
-            } catch (final NumberFormatException nfe) {
-                hdrAge = MAX_AGE.toSeconds();
-            }
-            ageValue = (hdrAge > ageValue) ? hdrAge : ageValue;
-        }
-        return ageValue;
+        return entry.getMetadata().getAge();
     }
 
     protected TimeValue getCorrectedReceivedAge(final HttpCacheEntry entry) {
@@ -248,23 +211,7 @@ protected TimeValue getResidentTime(final HttpCacheEntry entry, final Date now)
 
     protected long getMaxAge(final HttpCacheEntry entry) {
         // This is a header value, we leave as-is
-        long maxAge = -1;
-        final Iterator<HeaderElement> it = MessageSupport.iterate(entry, HeaderConstants.CACHE_CONTROL);
-        while (it.hasNext()) {
-            final HeaderElement elt = it.next();
-            if (HeaderConstants.CACHE_CONTROL_MAX_AGE.equals(elt.getName()) || "s-maxage".equals(elt.getName())) {
-                try {
-                    final long currMaxAge = Long.parseLong(elt.getValue());
-                    if (maxAge == -1 || currMaxAge < maxAge) {
-                        maxAge = currMaxAge;
-                    }
-                } catch (final NumberFormatException nfe) {
-                    // be conservative if can't parse
-                    maxAge = 0;
-                }
-            }
-        }
-        return maxAge;
+        return entry.getMetadata().getMaxAge();
     }
 
     public boolean hasCacheControlDirective(final HttpCacheEntry entry, final String directive) {
@@ -64,6 +64,23 @@ class CachedHttpResponseGenerator {
      * @return {@link SimpleHttpResponse} constructed response
      */
     SimpleHttpResponse generateResponse(final HttpRequest request, final HttpCacheEntry entry) throws ResourceIOException {
+        return generateResponse(request, entry, true);
+    }
+
+    /**
+     * Generates an {@link HttpResponse} based on {@link HttpCacheEntry} optionally leaving
+     * out the response body. If the body is left out the caller is expected to stream
+     * content of the resource returned by {@link #getResponseResource(HttpRequest, HttpCacheEntry)},
+     * which avoids copying large cached bodies into a byte array.
+     * @param request {@link HttpRequest} to generate the response for
+     * @param entry {@link HttpCacheEntry} to transform into an {@link HttpResponse}
+     * @param includeBody whether the cached body should be set as the response body
+     * @return {@link SimpleHttpResponse} constructed response
+     */
+    SimpleHttpResponse generateResponse(
+            final HttpRequest request,
+            final HttpCacheEntry entry,
+            final boolean includeBody) throws ResourceIOException {
         final Date now = new Date();
         final SimpleHttpResponse response = new SimpleHttpResponse(entry.getStatus());
         response.setVersion(HttpVersion.DEFAULT);
@@ -72,11 +89,15 @@ SimpleHttpResponse generateResponse(final HttpRequest request, final HttpCacheEn
 
         if (responseShouldContainEntity(request, entry)) {
             final Resource resource = entry.getResource();
-            final Header h = entry.getFirstHeader(HttpHeaders.CONTENT_TYPE);
-            final ContentType contentType = h != null ? ContentType.parse(h.getValue()) : null;
-            final byte[] content = resource.get();
-            addMissingContentLengthHeader(response, content);
-            response.setBody(content, contentType);
+            if (includeBody) {
+                final Header h = entry.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+                final ContentType contentType = h != null ? ContentType.parse(h.getValue()) : null;
+                final byte[] content = resource.get();
+                addMissingContentLengthHeader(response, content.length);
+                response.setBody(content, contentType);
+            } else {
+                addMissingContentLengthHeader(response, resource.length());
+            }
         }
 
         final TimeValue age = this.validityStrategy.getCurrentAge(entry, now);
@@ -105,7 +126,7 @@ SimpleHttpResponse generateNotModifiedResponse(final HttpCacheEntry entry) {
         // - Date, unless its omission is required by section 14.8.1
         Header dateHeader = entry.getFirstHeader(HttpHeaders.DATE);
         if (dateHeader == null) {
-            dateHeader = new BasicHeader(HttpHeaders.DATE, DateUtils.formatDate(new Date()));
+            dateHeader = new BasicHeader(HttpHeaders.DATE, DateUtils.formatEpochMillis(System.currentTimeMillis()));
         }
         response.addHeader(dateHeader);
 
@@ -142,13 +163,21 @@ SimpleHttpResponse generateNotModifiedResponse(final HttpCacheEntry entry) {
         return response;
     }
 
-    private void addMissingContentLengthHeader(final HttpResponse response, final byte[] body) {
+    /**
+     * Returns the cached resource to be used as the body of a response to the given
+     * request or {@code null} if the response should not contain a body.
+     */
+    Resource getResponseResource(final HttpRequest request, final HttpCacheEntry entry) {
+        return responseShouldContainEntity(request, entry) ? entry.getResource() : null;
+    }
+
+    private void addMissingContentLengthHeader(final HttpResponse response, final long contentLength) {
         if (transferEncodingIsPresent(response)) {
             return;
         }
         // Some well known proxies respond with Content-Length=0, when returning 304. For robustness, always
         // use the cached entity's content length, as modern browsers do.
-        response.setHeader(HttpHeaders.CONTENT_LENGTH, Integer.toString(body.length));
+        response.setHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(contentLength));
     }
 
     private boolean transferEncodingIsPresent(final HttpResponse response) {
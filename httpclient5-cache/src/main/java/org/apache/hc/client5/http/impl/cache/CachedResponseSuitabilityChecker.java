@@ -31,6 +31,7 @@
 
 import org.apache.hc.client5.http.cache.HeaderConstants;
 import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.HttpCacheEntryMetadata;
 import org.apache.hc.client5.http.utils.DateUtils;
 import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HeaderElement;
@@ -95,8 +96,7 @@ private boolean originInsistsOnFreshness(final HttpCacheEntry entry) {
         if (!sharedCache) {
             return false;
         }
-        return validityStrategy.proxyRevalidate(entry) ||
-            validityStrategy.hasCacheControlDirective(entry, "s-maxage");
+        return validityStrategy.proxyRevalidate(entry) || entry.getMetadata().isSharedMaxAge();
     }
 
     private long getMaxStale(final HttpRequest request) {
@@ -314,8 +314,7 @@ private boolean hasSupportedLastModifiedValidator(final HttpRequest request) {
      * @return boolean does the etag validator match
      */
     private boolean etagValidatorMatches(final HttpRequest request, final HttpCacheEntry entry) {
-        final Header etagHeader = entry.getFirstHeader(HeaderConstants.ETAG);
-        final String etag = (etagHeader != null) ? etagHeader.getValue() : null;
+        final String etag = entry.getMetadata().getETag();
         final Iterator<HeaderElement> it = MessageSupport.iterate(request, HeaderConstants.IF_NONE_MATCH);
         while (it.hasNext()) {
             final HeaderElement elt = it.next();
@@ -336,15 +335,15 @@ private boolean etagValidatorMatches(final HttpRequest request, final HttpCacheE
      * @return  boolean Does the last modified header match
      */
     private boolean lastModifiedValidatorMatches(final HttpRequest request, final HttpCacheEntry entry, final Date now) {
-        final Date lastModified = DateUtils.parseDate(entry, HeaderConstants.LAST_MODIFIED);
-        if (lastModified == null) {
+        final long lastModified = entry.getMetadata().getLastModified();
+        if (lastModified == HttpCacheEntryMetadata.UNKNOWN_DATE) {
             return false;
         }
 
         for (final Header h : request.getHeaders(HeaderConstants.IF_MODIFIED_SINCE)) {
-            final Date ifModifiedSince = DateUtils.parseDate(h.getValue());
-            if (ifModifiedSince != null) {
-                if (ifModifiedSince.after(now) || lastModified.after(ifModifiedSince)) {
+            final long ifModifiedSince = DateUtils.parseEpochMillis(h.getValue());
+            if (ifModifiedSince != Long.MIN_VALUE) {
+                if (ifModifiedSince > now.getTime() || lastModified > ifModifiedSince) {
                     return false;
                 }
             }
@@ -354,8 +353,7 @@ private boolean lastModifiedValidatorMatches(final HttpRequest request, final Ht
 
     private boolean hasValidDateField(final HttpRequest request, final String headerName) {
         for(final Header h : request.getHeaders(headerName)) {
-            final Date date = DateUtils.parseDate(h.getValue());
-            return date != null;
+            return DateUtils.parseEpochMillis(h.getValue()) != Long.MIN_VALUE;
         }
         return false;
     }
@@ -40,6 +40,7 @@
 import org.apache.hc.client5.http.cache.HeaderConstants;
 import org.apache.hc.client5.http.cache.HttpCacheEntry;
 import org.apache.hc.client5.http.cache.HttpCacheStorage;
+import org.apache.hc.client5.http.cache.Resource;
 import org.apache.hc.client5.http.cache.ResourceFactory;
 import org.apache.hc.client5.http.cache.ResourceIOException;
 import org.apache.hc.client5.http.classic.ExecChain;
@@ -49,6 +50,7 @@
 import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.schedule.SchedulingStrategy;
 import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.Header;
@@ -57,6 +59,7 @@
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.HttpVersion;
 import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
@@ -103,6 +106,7 @@ class CachingExec extends CachingExecBase implements ExecChainHandler {
     private final HttpCache responseCache;
     private final DefaultCacheRevalidator cacheRevalidator;
     private final ConditionalRequestBuilder<ClassicHttpRequest> conditionalRequestBuilder;
+    private final RequestCollapser requestCollapser;
 
     private static final Logger LOG = LoggerFactory.getLogger(CachingExec.class);
 
@@ -111,6 +115,7 @@ class CachingExec extends CachingExecBase implements ExecChainHandler {
         this.responseCache = Args.notNull(cache, "Response cache");
         this.cacheRevalidator = cacheRevalidator;
         this.conditionalRequestBuilder = new ConditionalRequestBuilder<>(ClassicRequestCopier.INSTANCE);
+        this.requestCollapser = createRequestCollapser(this.cacheConfig, null);
     }
 
     CachingExec(
@@ -130,6 +135,7 @@ class CachingExec extends CachingExecBase implements ExecChainHandler {
         this.responseCache = responseCache;
         this.cacheRevalidator = cacheRevalidator;
         this.conditionalRequestBuilder = conditionalRequestBuilder;
+        this.requestCollapser = createRequestCollapser(this.cacheConfig, null);
     }
 
     CachingExec(
@@ -194,12 +200,58 @@ public ClassicHttpResponse execute(
         final HttpCacheEntry entry = responseCache.getCacheEntry(target, request);
         if (entry == null) {
             LOG.debug("Cache miss");
+            if (requestCollapser != null && mayCallBackend(request)) {
+                return handleCollapsedCacheMiss(target, request, scope, chain);
+            }
             return handleCacheMiss(target, request, scope, chain);
         } else {
             return handleCacheHit(target, request, scope, chain, entry);
         }
     }
 
+    private ClassicHttpResponse handleCollapsedCacheMiss(
+            final HttpHost target,
+            final ClassicHttpRequest request,
+            final ExecChain.Scope scope,
+            final ExecChain chain) throws IOException, HttpException {
+        final String cacheKey = responseCache.generateKey(target, request, null);
+        final RequestCollapser.InFlightRequest inFlightRequest = requestCollapser.lead(cacheKey);
+        if (inFlightRequest != null) {
+            boolean releaseNow = true;
+            try {
+                final ClassicHttpResponse response = handleCacheMiss(target, request, scope, chain);
+                final HttpEntity entity = response.getEntity();
+                if (entity instanceof CacheFillingEntity) {
+                    // The response is being cached while the caller consumes it.
+                    // Keep the key claimed until the entry has been committed.
+                    ((CacheFillingEntity) entity).setCompletionAction(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            inFlightRequest.release();
+                        }
+
+                    });
+                    releaseNow = false;
+                }
+                return response;
+            } finally {
+                if (releaseNow) {
+                    inFlightRequest.release();
+                }
+            }
+        }
+        LOG.debug("Waiting for in-flight request for the same resource");
+        if (!requestCollapser.await(cacheKey)) {
+            LOG.debug("Timed out waiting for in-flight request for the same resource");
+        }
+        final HttpCacheEntry entry = responseCache.getCacheEntry(target, request);
+        if (entry != null) {
+            return handleCacheHit(target, request, scope, chain, entry);
+        }
+        return handleCacheMiss(target, request, scope, chain);
+    }
+
     private static ClassicHttpResponse convert(final SimpleHttpResponse cacheResponse, final ExecChain.Scope scope) {
         if (cacheResponse == null) {
             return null;
@@ -221,6 +273,18 @@ private static ClassicHttpResponse convert(final SimpleHttpResponse cacheRespons
         return response;
     }
 
+    private static ClassicHttpResponse convert(
+            final SimpleHttpResponse cacheResponse,
+            final Resource content,
+            final ExecChain.Scope scope) {
+        final ClassicHttpResponse response = convert(cacheResponse, scope);
+        if (response != null && content != null) {
+            final Header h = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+            response.setEntity(new ResourceEntity(content, h != null ? h.getValue() : null));
+        }
+        return response;
+    }
+
     ClassicHttpResponse callBackend(
             final HttpHost target,
             final ClassicHttpRequest request,
@@ -253,7 +317,10 @@ private ClassicHttpResponse handleCacheHit(
         if (suitabilityChecker.canCachedResponseBeUsed(target, request, entry, now)) {
             LOG.debug("Cache hit");
             try {
-                return convert(generateCachedResponse(request, context, entry, now), scope);
+                return convert(
+                        generateCachedResponse(request, context, entry, now, false),
+                        getContent(getCachedResponseResource(request, entry)),
+                        scope);
             } catch (final ResourceIOException ex) {
                 recordCacheFailure(target, request);
                 if (!mayCallBackend(request)) {
@@ -279,7 +346,8 @@ private ClassicHttpResponse handleCacheHit(
                             scope.originalRequest,
                             scope.execRuntime.fork(null),
                             HttpClientContext.create());
-                    final SimpleHttpResponse response = generateCachedResponse(request, context, entry, now);
+                    final SimpleHttpResponse response = generateCachedResponse(request, context, entry, now, false);
+                    final Resource content = getContent(getCachedResponseResource(request, entry));
                     cacheRevalidator.revalidateCacheEntry(
                             responseCache.generateKey(target, request, entry),
                             new DefaultCacheRevalidator.RevalidationCall() {
@@ -290,7 +358,7 @@ public ClassicHttpResponse execute() throws HttpException, IOException {
                         }
 
                     });
-                    return convert(response, scope);
+                    return convert(response, content, scope);
                 }
                 return revalidateCacheEntry(target, request, scope, chain, entry);
             } catch (final IOException ioex) {
@@ -339,16 +407,19 @@ ClassicHttpResponse revalidateCacheEntry(
                         && suitabilityChecker.allConditionalsMatch(request, updatedEntry, new Date())) {
                     return convert(responseGenerator.generateNotModifiedResponse(updatedEntry), scope);
                 }
-                return convert(responseGenerator.generateResponse(request, updatedEntry), scope);
+                return convert(
+                        responseGenerator.generateResponse(request, updatedEntry, false),
+                        getContent(responseGenerator.getResponseResource(request, updatedEntry)),
+                        scope);
             }
 
             if (staleIfErrorAppliesTo(statusCode)
                     && !staleResponseNotAllowed(request, cacheEntry, getCurrentDate())
                     && validityPolicy.mayReturnStaleIfError(request, cacheEntry, responseDate)) {
                 try {
-                    final SimpleHttpResponse cachedResponse = responseGenerator.generateResponse(request, cacheEntry);
+                    final SimpleHttpResponse cachedResponse = responseGenerator.generateResponse(request, cacheEntry, false);
                     cachedResponse.addHeader(HeaderConstants.WARNING, "110 localhost \"Response is stale\"");
-                    return convert(cachedResponse, scope);
+                    return convert(cachedResponse, getContent(responseGenerator.getResponseResource(request, cacheEntry)), scope);
                 } finally {
                     backendResponse.close();
                 }
@@ -391,6 +462,9 @@ ClassicHttpResponse cacheAndReturnResponse(
         LOG.debug("Caching backend response");
         final ByteArrayBuffer buf;
         final HttpEntity entity = backendResponse.getEntity();
+        if (entity != null && cacheConfig.isStreamingCacheFillEnabled()) {
+            return streamAndCacheResponse(target, request, backendResponse, requestSent, responseReceived);
+        }
         if (entity != null) {
             buf = new ByteArrayBuffer(1024);
             final InputStream inStream = entity.getContent();
@@ -411,6 +485,63 @@ ClassicHttpResponse cacheAndReturnResponse(
         }
         backendResponse.close();
 
+        final HttpCacheEntry cacheEntry = storeResponse(target, request, backendResponse, buf, requestSent, responseReceived);
+        return convert(
+                responseGenerator.generateResponse(request, cacheEntry, false),
+                getContent(responseGenerator.getResponseResource(request, cacheEntry)),
+                scope);
+    }
+
+    private ClassicHttpResponse streamAndCacheResponse(
+            final HttpHost target,
+            final HttpRequest request,
+            final ClassicHttpResponse backendResponse,
+            final Date requestSent,
+            final Date responseReceived) {
+        final HttpEntity entity = backendResponse.getEntity();
+        if (entity.getContentLength() > cacheConfig.getMaxObjectSize()) {
+            LOG.debug("Backend response content length exceeds maximum");
+            return backendResponse;
+        }
+        backendResponse.setEntity(new CacheFillingEntity(
+                entity,
+                cacheConfig.getMaxObjectSize(),
+                new FutureCallback<ByteArrayBuffer>() {
+
+                    @Override
+                    public void completed(final ByteArrayBuffer buf) {
+                        try {
+                            storeResponse(target, request, backendResponse, buf, requestSent, responseReceived);
+                        } catch (final ResourceIOException ex) {
+                            if (LOG.isDebugEnabled()) {
+                                LOG.debug("Failed to cache backend response: " + ex.getMessage());
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void failed(final Exception ex) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Backend response not cached: " + ex.getMessage());
+                        }
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        LOG.debug("Backend response content not fully consumed; response not cached");
+                    }
+
+                }));
+        return backendResponse;
+    }
+
+    private HttpCacheEntry storeResponse(
+            final HttpHost target,
+            final HttpRequest request,
+            final HttpResponse backendResponse,
+            final ByteArrayBuffer buf,
+            final Date requestSent,
+            final Date responseReceived) throws ResourceIOException {
         final HttpCacheEntry cacheEntry;
         if (cacheConfig.isFreshnessCheckEnabled()) {
             final HttpCacheEntry existingEntry = responseCache.getCacheEntry(target, request);
@@ -425,7 +556,7 @@ ClassicHttpResponse cacheAndReturnResponse(
             cacheEntry = responseCache.createCacheEntry(target, request, backendResponse, buf, requestSent, responseReceived);
             LOG.debug("Backend response successfully cached (freshness check skipped)");
         }
-        return convert(responseGenerator.generateResponse(request, cacheEntry), scope);
+        return cacheEntry;
     }
 
     private ClassicHttpResponse handleCacheMiss(
@@ -499,9 +630,9 @@ ClassicHttpResponse negotiateResponseFromVariants(
             if (shouldSendNotModifiedResponse(request, responseEntry)) {
                 return convert(responseGenerator.generateNotModifiedResponse(responseEntry), scope);
             }
-            final SimpleHttpResponse response = responseGenerator.generateResponse(request, responseEntry);
+            final SimpleHttpResponse response = responseGenerator.generateResponse(request, responseEntry, false);
             responseCache.reuseVariantEntryFor(target, request, matchingVariant);
-            return convert(response, scope);
+            return convert(response, getContent(responseGenerator.getResponseResource(request, responseEntry)), scope);
         } catch (final IOException | RuntimeException ex) {
             backendResponse.close();
             throw ex;
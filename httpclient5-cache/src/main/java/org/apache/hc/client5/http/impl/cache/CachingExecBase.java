@@ -32,6 +32,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
@@ -39,6 +40,7 @@
 import org.apache.hc.client5.http.cache.HeaderConstants;
 import org.apache.hc.client5.http.cache.HttpCacheContext;
 import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.Resource;
 import org.apache.hc.client5.http.cache.ResourceIOException;
 import org.apache.hc.client5.http.utils.DateUtils;
 import org.apache.hc.core5.http.Header;
@@ -113,6 +115,10 @@ public class CachingExecBase {
                 this.cacheConfig.isNeverCacheHTTP10ResponsesWithQuery(), this.cacheConfig.is303CachingEnabled());
     }
 
+    static RequestCollapser createRequestCollapser(final CacheConfig config, final ScheduledExecutorService executor) {
+        return config.isRequestCollapsingEnabled() ? new RequestCollapser(config.getRequestCollapsingTimeout(), executor) : null;
+    }
+
     /**
      * Reports the number of times that the cache successfully responded
      * to an {@link HttpRequest} without contacting the origin server.
@@ -182,12 +188,25 @@ SimpleHttpResponse generateCachedResponse(
             final HttpContext context,
             final HttpCacheEntry entry,
             final Date now) throws ResourceIOException {
+        return generateCachedResponse(request, context, entry, now, true);
+    }
+
+    /**
+     * Generates a response from the cache entry. If {@code includeBody} is {@code false}
+     * the body is left out and is expected to be streamed from the resource returned
+     * by {@link #getCachedResponseResource(HttpRequest, HttpCacheEntry)}.
+     */
+    SimpleHttpResponse generateCachedResponse(
+            final HttpRequest request,
+            final HttpContext context,
+            final HttpCacheEntry entry,
+            final Date now,
+            final boolean includeBody) throws ResourceIOException {
         final SimpleHttpResponse cachedResponse;
-        if (request.containsHeader(HeaderConstants.IF_NONE_MATCH)
-                || request.containsHeader(HeaderConstants.IF_MODIFIED_SINCE)) {
+        if (isConditionalCacheHit(request)) {
             cachedResponse = responseGenerator.generateNotModifiedResponse(entry);
         } else {
-            cachedResponse = responseGenerator.generateResponse(request, entry);
+            cachedResponse = responseGenerator.generateResponse(request, entry, includeBody);
         }
         setResponseStatus(context, CacheResponseStatus.CACHE_HIT);
         if (TimeValue.isPositive(validityPolicy.getStaleness(entry, now))) {
@@ -196,6 +215,32 @@ SimpleHttpResponse generateCachedResponse(
         return cachedResponse;
     }
 
+    Resource getCachedResponseResource(final HttpRequest request, final HttpCacheEntry entry) {
+        return isConditionalCacheHit(request) ? null : responseGenerator.getResponseResource(request, entry);
+    }
+
+    /**
+     * Makes sure the content of the given resource can still be served, so that
+     * a disposed resource results in a cache failure rather than a broken
+     * response. File content is only checked for presence and is streamed
+     * later on; the content of other resources is held in memory.
+     */
+    static Resource getContent(final Resource resource) throws ResourceIOException {
+        if (resource instanceof FileResource) {
+            if (!((FileResource) resource).getExistingFile().isFile()) {
+                throw new ResourceIOException("Resource content no longer available");
+            }
+        } else if (resource != null) {
+            resource.get();
+        }
+        return resource;
+    }
+
+    private boolean isConditionalCacheHit(final HttpRequest request) {
+        return request.containsHeader(HeaderConstants.IF_NONE_MATCH)
+                || request.containsHeader(HeaderConstants.IF_MODIFIED_SINCE);
+    }
+
     SimpleHttpResponse handleRevalidationFailure(
             final HttpRequest request,
             final HttpContext context,
@@ -61,6 +61,7 @@ public class CachingH2AsyncClientBuilder extends H2AsyncClientBuilder {
     private CacheConfig cacheConfig;
     private HttpAsyncCacheInvalidator httpCacheInvalidator;
     private boolean deleteCache;
+    private boolean concurrentStorage;
 
     public static CachingH2AsyncClientBuilder create() {
         return new CachingH2AsyncClientBuilder();
@@ -111,6 +112,19 @@ public CachingH2AsyncClientBuilder setDeleteCache(final boolean deleteCache) {
         return this;
     }
 
+    /**
+     * Enables {@link ConcurrentHttpCacheStorage} as the default in-memory cache storage
+     * in place of {@link BasicHttpCacheStorage}. It avoids lock contention on cache
+     * reads at the expense of approximate LRU eviction. This setting has no effect if
+     * a cache storage or a cache directory has been set explicitly.
+     *
+     * @since 5.1
+     */
+    public CachingH2AsyncClientBuilder setConcurrentCacheStorage(final boolean concurrentStorage) {
+        this.concurrentStorage = concurrentStorage;
+        return this;
+    }
+
     @Override
     protected void customizeExecChain(final NamedElementChain<AsyncExecChainHandler> execChainDefinition) {
         final CacheConfig config = this.cacheConfig != null ? this.cacheConfig : CacheConfig.DEFAULT;
@@ -126,7 +140,9 @@ protected void customizeExecChain(final NamedElementChain<AsyncExecChainHandler>
         HttpAsyncCacheStorage storageCopy = this.storage;
         if (storageCopy == null) {
             if (this.cacheDir == null) {
-                storageCopy = new HttpAsyncCacheStorageAdaptor(new BasicHttpCacheStorage(config));
+                storageCopy = this.concurrentStorage
+                        ? new ConcurrentHttpCacheStorage(config)
+                        : new HttpAsyncCacheStorageAdaptor(new BasicHttpCacheStorage(config));
             } else {
                 final ManagedHttpCacheStorage managedStorage = new ManagedHttpCacheStorage(config);
                 if (this.deleteCache) {
@@ -150,17 +166,23 @@ public void close() throws IOException {
                 CacheKeyGenerator.INSTANCE,
                 this.httpCacheInvalidator != null ? this.httpCacheInvalidator : new DefaultAsyncCacheInvalidator());
 
-        DefaultAsyncCacheRevalidator cacheRevalidator = null;
-        if (config.getAsynchronousWorkers() > 0) {
-            final ScheduledExecutorService executorService = new ScheduledThreadPoolExecutor(config.getAsynchronousWorkers());
+        ScheduledExecutorService executorService = null;
+        if (config.getAsynchronousWorkers() > 0 || config.isRequestCollapsingEnabled()) {
+            final ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(
+                    Math.max(config.getAsynchronousWorkers(), 1));
+            scheduledExecutor.setRemoveOnCancelPolicy(true);
             addCloseable(new Closeable() {
 
                 @Override
                 public void close() throws IOException {
-                    executorService.shutdownNow();
+                    scheduledExecutor.shutdownNow();
                 }
 
             });
+            executorService = scheduledExecutor;
+        }
+        DefaultAsyncCacheRevalidator cacheRevalidator = null;
+        if (config.getAsynchronousWorkers() > 0) {
             cacheRevalidator = new DefaultAsyncCacheRevalidator(
                     executorService,
                     this.schedulingStrategy != null ? this.schedulingStrategy : ImmediateSchedulingStrategy.INSTANCE);
@@ -169,6 +191,7 @@ public void close() throws IOException {
         final AsyncCachingExec cachingExec = new AsyncCachingExec(
                 httpCache,
                 cacheRevalidator,
+                config.isRequestCollapsingEnabled() ? executorService : null,
                 config);
         execChainDefinition.addBefore(ChainElement.PROTOCOL.name(), cachingExec, ChainElement.CACHING.name());
     }
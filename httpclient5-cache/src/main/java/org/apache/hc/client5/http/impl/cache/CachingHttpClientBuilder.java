@@ -57,6 +57,7 @@ public class CachingHttpClientBuilder extends HttpClientBuilder {
     private CacheConfig cacheConfig;
     private HttpCacheInvalidator httpCacheInvalidator;
     private boolean deleteCache;
+    private boolean concurrentStorage;
 
     public static CachingHttpClientBuilder create() {
         return new CachingHttpClientBuilder();
@@ -103,6 +104,19 @@ public final CachingHttpClientBuilder setDeleteCache(final boolean deleteCache)
         return this;
     }
 
+    /**
+     * Enables {@link ConcurrentHttpCacheStorage} as the default in-memory cache storage
+     * in place of {@link BasicHttpCacheStorage}. It avoids lock contention on cache
+     * reads at the expense of approximate LRU eviction. This setting has no effect if
+     * a cache storage or a cache directory has been set explicitly.
+     *
+     * @since 5.1
+     */
+    public final CachingHttpClientBuilder setConcurrentCacheStorage(final boolean concurrentStorage) {
+        this.concurrentStorage = concurrentStorage;
+        return this;
+    }
+
     @Override
     protected void customizeExecChain(final NamedElementChain<ExecChainHandler> execChainDefinition) {
         final CacheConfig config = this.cacheConfig != null ? this.cacheConfig : CacheConfig.DEFAULT;
@@ -118,7 +132,9 @@ protected void customizeExecChain(final NamedElementChain<ExecChainHandler> exec
         HttpCacheStorage storageCopy = this.storage;
         if (storageCopy == null) {
             if (this.cacheDir == null) {
-                storageCopy = new BasicHttpCacheStorage(config);
+                storageCopy = this.concurrentStorage
+                        ? new ConcurrentHttpCacheStorage(config)
+                        : new BasicHttpCacheStorage(config);
             } else {
                 final ManagedHttpCacheStorage managedStorage = new ManagedHttpCacheStorage(config);
                 if (this.deleteCache) {
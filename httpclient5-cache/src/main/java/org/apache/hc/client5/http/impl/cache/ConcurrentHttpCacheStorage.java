@@ -0,0 +1,329 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hc.client5.http.cache.HttpAsyncCacheStorage;
+import org.apache.hc.client5.http.cache.HttpCacheCASOperation;
+import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.HttpCacheStorage;
+import org.apache.hc.client5.http.cache.ResourceIOException;
+import org.apache.hc.client5.http.impl.Operations;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * In-memory {@link HttpCacheStorage} and {@link HttpAsyncCacheStorage}
+ * implementation optimized for concurrent access.
+ * <p>
+ * Cache entries are distributed by key across a number of segments, each
+ * guarded by its own lock and maintaining its own least recently used order.
+ * Threads accessing different segments never contend with one another.
+ * The maximum number of entries is divided evenly among segments; least
+ * recently used entries of a segment are evicted once the segment exceeds
+ * its share. The total weight of entries (an estimate of the memory
+ * retained by their headers and bodies) is tracked globally; once it
+ * exceeds the limit, least recently used entries are evicted from
+ * segments in turn. Eviction order is therefore an approximation of
+ * the global least recently used order.
+ * </p>
+ * <p>
+ * Like {@link BasicHttpCacheStorage} this storage does NOT deallocate
+ * resources associated with the cache entries; it is intended for use
+ * with {@link HeapResource} and similar.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class ConcurrentHttpCacheStorage implements HttpCacheStorage, HttpAsyncCacheStorage {
+
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * Minimum number of entries held by a segment. Small caches use fewer
+     * segments in order to keep eviction close to exact LRU.
+     */
+    private static final int MIN_SEGMENT_CAPACITY = 32;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final long maxWeight;
+    private final AtomicLong weight;
+    private final AtomicInteger evictionCursor;
+
+    /**
+     * Creates a new storage.
+     *
+     * @param maxEntries the maximum number of cache entries.
+     * @param maxWeight the maximum total weight of cache entries in bytes.
+     *                  A non-positive value means the weight is not bounded.
+     * @param concurrencyLevel the expected number of concurrently accessing threads.
+     */
+    public ConcurrentHttpCacheStorage(final int maxEntries, final long maxWeight, final int concurrencyLevel) {
+        Args.positive(maxEntries, "Max entries");
+        Args.positive(concurrencyLevel, "Concurrency level");
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && (segmentCount << 1) * MIN_SEGMENT_CAPACITY <= maxEntries) {
+            segmentCount <<= 1;
+        }
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; i++) {
+            final int segmentMaxEntries = maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0);
+            this.segments[i] = new Segment(segmentMaxEntries);
+        }
+        this.maxWeight = maxWeight > 0 ? maxWeight : Long.MAX_VALUE;
+        this.weight = new AtomicLong(0);
+        this.evictionCursor = new AtomicInteger(0);
+    }
+
+    public ConcurrentHttpCacheStorage(final CacheConfig config) {
+        this(config.getMaxCacheEntries(), config.getMaxCacheSize(), DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    private Segment segmentFor(final String key) {
+        int h = key.hashCode();
+        // Spread higher bits downwards as keys of the same origin share long prefixes
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return segments[h & segmentMask];
+    }
+
+    @Override
+    public void putEntry(final String key, final HttpCacheEntry entry) throws ResourceIOException {
+        Args.notNull(key, "Key");
+        Args.notNull(entry, "Cache entry");
+        adjustWeight(segmentFor(key).put(key, entry));
+    }
+
+    private void adjustWeight(final long delta) {
+        if (weight.addAndGet(delta) > maxWeight) {
+            int emptySegments = 0;
+            while (weight.get() > maxWeight && emptySegments < segments.length) {
+                final int index = evictionCursor.getAndIncrement() & segmentMask;
+                final long evicted = segments[index].evictEldest();
+                if (evicted >= 0) {
+                    weight.addAndGet(-evicted);
+                    emptySegments = 0;
+                } else {
+                    emptySegments++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public HttpCacheEntry getEntry(final String key) throws ResourceIOException {
+        Args.notNull(key, "Key");
+        return segmentFor(key).get(key);
+    }
+
+    @Override
+    public void removeEntry(final String key) throws ResourceIOException {
+        Args.notNull(key, "Key");
+        adjustWeight(segmentFor(key).remove(key));
+    }
+
+    @Override
+    public void updateEntry(final String key, final HttpCacheCASOperation casOperation) throws ResourceIOException {
+        Args.notNull(key, "Key");
+        Args.notNull(casOperation, "CAS operation");
+        adjustWeight(segmentFor(key).update(key, casOperation));
+    }
+
+    @Override
+    public Map<String, HttpCacheEntry> getEntries(final Collection<String> keys) throws ResourceIOException {
+        Args.notNull(keys, "Key");
+        final Map<String, HttpCacheEntry> resultMap = new HashMap<>(keys.size());
+        for (final String key: keys) {
+            final HttpCacheEntry entry = getEntry(key);
+            if (entry != null) {
+                resultMap.put(key, entry);
+            }
+        }
+        return resultMap;
+    }
+
+    @Override
+    public Cancellable putEntry(final String key, final HttpCacheEntry entry, final FutureCallback<Boolean> callback) {
+        Args.notNull(key, "Key");
+        Args.notNull(entry, "Cache entry");
+        Args.notNull(callback, "Callback");
+        try {
+            putEntry(key, entry);
+            callback.completed(Boolean.TRUE);
+        } catch (final Exception ex) {
+            callback.failed(ex);
+        }
+        return Operations.nonCancellable();
+    }
+
+    @Override
+    public Cancellable getEntry(final String key, final FutureCallback<HttpCacheEntry> callback) {
+        Args.notNull(key, "Key");
+        Args.notNull(callback, "Callback");
+        try {
+            callback.completed(getEntry(key));
+        } catch (final Exception ex) {
+            callback.failed(ex);
+        }
+        return Operations.nonCancellable();
+    }
+
+    @Override
+    public Cancellable removeEntry(final String key, final FutureCallback<Boolean> callback) {
+        Args.notNull(key, "Key");
+        Args.notNull(callback, "Callback");
+        try {
+            removeEntry(key);
+            callback.completed(Boolean.TRUE);
+        } catch (final Exception ex) {
+            callback.failed(ex);
+        }
+        return Operations.nonCancellable();
+    }
+
+    @Override
+    public Cancellable updateEntry(
+            final String key, final HttpCacheCASOperation casOperation, final FutureCallback<Boolean> callback) {
+        Args.notNull(key, "Key");
+        Args.notNull(casOperation, "CAS operation");
+        Args.notNull(callback, "Callback");
+        try {
+            updateEntry(key, casOperation);
+            callback.completed(Boolean.TRUE);
+        } catch (final Exception ex) {
+            callback.failed(ex);
+        }
+        return Operations.nonCancellable();
+    }
+
+    @Override
+    public Cancellable getEntries(final Collection<String> keys, final FutureCallback<Map<String, HttpCacheEntry>> callback) {
+        Args.notNull(keys, "Key");
+        Args.notNull(callback, "Callback");
+        try {
+            callback.completed(getEntries(keys));
+        } catch (final Exception ex) {
+            callback.failed(ex);
+        }
+        return Operations.nonCancellable();
+    }
+
+    /**
+     * Returns the number of entries currently held by this storage.
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment: segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the estimated total size in bytes of the entries currently
+     * held by this storage.
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    /**
+     * Removes all entries from this storage.
+     */
+    public void clear() {
+        for (final Segment segment: segments) {
+            adjustWeight(segment.clear());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentHttpCacheStorage [segments=" + segments.length + ", size=" + size() + ", weight=" + getWeight() + "]";
+    }
+
+    /**
+     * Segment of entries guarded by its own lock. Mutating operations
+     * return the resulting change in the total weight of the segment.
+     */
+    static final class Segment {
+
+        private final CacheMap entries;
+
+        Segment(final int maxEntries) {
+            this.entries = new CacheMap(maxEntries);
+        }
+
+        synchronized HttpCacheEntry get(final String key) {
+            return entries.get(key);
+        }
+
+        synchronized long put(final String key, final HttpCacheEntry entry) {
+            final long before = entries.getWeight();
+            entries.put(key, entry);
+            return entries.getWeight() - before;
+        }
+
+        synchronized long remove(final String key) {
+            final long before = entries.getWeight();
+            entries.remove(key);
+            return entries.getWeight() - before;
+        }
+
+        synchronized long update(final String key, final HttpCacheCASOperation casOperation) throws ResourceIOException {
+            final long before = entries.getWeight();
+            entries.put(key, casOperation.execute(entries.get(key)));
+            return entries.getWeight() - before;
+        }
+
+        synchronized long evictEldest() {
+            return entries.evictEldest();
+        }
+
+        synchronized long clear() {
+            final long before = entries.getWeight();
+            entries.clear();
+            return -before;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+    }
+
+}
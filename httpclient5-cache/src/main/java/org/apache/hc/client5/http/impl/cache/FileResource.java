@@ -31,6 +31,9 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.hc.client5.http.cache.Resource;
@@ -38,10 +41,16 @@
 import org.apache.hc.core5.annotation.Contract;
 import org.apache.hc.core5.annotation.ThreadingBehavior;
 import org.apache.hc.core5.util.Args;
-import org.apache.hc.core5.util.ByteArrayBuffer;
 
 /**
  * Cache resource backed by a file.
+ * <p>
+ * Cached response bodies are streamed from the file; {@link #get()} reads
+ * the file through a {@link FileChannel} into an array of the exact file size.
+ * Files are deliberately not memory-mapped: a mapping cannot be released
+ * deterministically and would keep the file pinned long after the resource
+ * has been disposed of.
+ * </p>
  *
  * @since 4.1
  */
@@ -64,25 +73,54 @@ File getFile() {
         return this.fileRef.get();
     }
 
-    @Override
-    public byte[] get() throws ResourceIOException {
+    File getExistingFile() throws ResourceIOException {
         final File file = this.fileRef.get();
         if (file == null) {
             throw new ResourceIOException("Resouce already dispoased");
         }
-        try (final InputStream in = new FileInputStream(file)) {
-            final ByteArrayBuffer buf = new ByteArrayBuffer(1024);
-            final byte[] tmp = new byte[2048];
-            int len;
-            while ((len = in.read(tmp)) != -1) {
-                buf.append(tmp, 0, len);
+        return file;
+    }
+
+    @Override
+    public byte[] get() throws ResourceIOException {
+        final File file = getExistingFile();
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "r");
+             final FileChannel channel = raf.getChannel()) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ResourceIOException("Resource too large to be held in a byte array: " + size);
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    break;
+                }
             }
-            return buf.toByteArray();
+            return buffer.position() == buffer.capacity() ? buffer.array() : copyOf(buffer);
         } catch (final IOException ex) {
             throw new ResourceIOException(ex.getMessage(), ex);
         }
     }
 
+    private static byte[] copyOf(final ByteBuffer buffer) {
+        final byte[] content = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, content, 0, content.length);
+        return content;
+    }
+
+    /**
+     * Opens a read-only channel over the file content. The caller is expected
+     * to close the channel once the content has been read.
+     */
+    FileChannel openChannel() throws ResourceIOException {
+        final File file = getExistingFile();
+        try {
+            return new FileInputStream(file).getChannel();
+        } catch (final FileNotFoundException ex) {
+            throw new ResourceIOException(ex.getMessage(), ex);
+        }
+    }
+
     @Override
     public InputStream getInputStream() throws ResourceIOException {
         final File file = this.fileRef.get();
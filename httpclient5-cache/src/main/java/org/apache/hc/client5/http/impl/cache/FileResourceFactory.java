@@ -29,8 +29,8 @@
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
 import org.apache.hc.client5.http.cache.Resource;
@@ -106,15 +106,18 @@ public Resource copy(
                      final RandomAccessFile dstFile = new RandomAccessFile(file, "rw");
                      final FileChannel src = srcFile.getChannel();
                      final FileChannel dst = dstFile.getChannel()) {
-                    src.transferTo(0, srcFile.length(), dst);
+                    final long size = src.size();
+                    long pos = 0;
+                    while (pos < size) {
+                        pos += src.transferTo(pos, size - pos, dst);
+                    }
                 }
             } else {
-                try (final FileOutputStream out = new FileOutputStream(file);
-                     final InputStream in = resource.getInputStream()) {
-                    final byte[] buf = new byte[2048];
-                    int len;
-                    while ((len = in.read(buf)) != -1) {
-                        out.write(buf, 0, len);
+                try (final RandomAccessFile dstFile = new RandomAccessFile(file, "rw");
+                     final FileChannel dst = dstFile.getChannel()) {
+                    final ByteBuffer buffer = resource.getByteBuffer();
+                    while (buffer.hasRemaining()) {
+                        dst.write(buffer);
                     }
                 }
             }
@@ -84,7 +84,7 @@ public class ManagedHttpCacheStorage implements HttpCacheStorage, Closeable {
 
     public ManagedHttpCacheStorage(final CacheConfig config) {
         super();
-        this.entries = new CacheMap(config.getMaxCacheEntries());
+        this.entries = new CacheMap(config.getMaxCacheEntries(), config.getMaxCacheSize());
         this.morque = new ReferenceQueue<>();
         this.resources = new HashSet<>();
         this.active = new AtomicBoolean(true);
@@ -166,6 +166,18 @@ public Map<String, HttpCacheEntry> getEntries(final Collection<String> keys) thr
         return resultMap;
     }
 
+    /**
+     * Returns the estimated total size in bytes of the entries currently
+     * held by this storage.
+     *
+     * @since 5.1
+     */
+    public long getWeight() {
+        synchronized (this) {
+            return this.entries.getWeight();
+        }
+    }
+
     public void cleanResources() {
         if (this.active.get()) {
             ResourceReference ref;
@@ -0,0 +1,237 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.Asserts;
+import org.apache.hc.core5.util.TimeValue;
+
+/**
+ * Keeps track of in-flight backend requests per cache key so that concurrent
+ * cache misses for the same resource can wait for a single backend request
+ * to populate the cache instead of each going to the backend.
+ * <p>
+ * The first request to {@link #lead(String) claim} a key is expected to
+ * {@link InFlightRequest#release() release} it once its response has been
+ * processed. Waits by other requests are bounded by the configured timeout.
+ * A claim that has not been released within the timeout may be taken over
+ * by another request.
+ * </p>
+ * <p>
+ * Non-blocking waits require an executor, which is used to time out waits
+ * and to resume waiting requests off the thread that released the claim.
+ * The executor is owned by the caller.
+ * </p>
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+class RequestCollapser {
+
+    private final ConcurrentMap<String, InFlightRequest> inFlightRequests;
+    private final TimeValue timeout;
+    private final ScheduledExecutorService executor;
+
+    RequestCollapser(final TimeValue timeout, final ScheduledExecutorService executor) {
+        this.timeout = Args.notNull(timeout, "Timeout");
+        this.executor = executor;
+        this.inFlightRequests = new ConcurrentHashMap<>();
+    }
+
+    RequestCollapser(final TimeValue timeout) {
+        this(timeout, null);
+    }
+
+    /**
+     * Attempts to claim the given cache key.
+     *
+     * @return the in-flight request the caller must {@link InFlightRequest#release()
+     *  release} once done or {@code null} if another request for the same key
+     *  is already in flight.
+     */
+    InFlightRequest lead(final String key) {
+        final InFlightRequest inFlightRequest = new InFlightRequest(key);
+        for (;;) {
+            final InFlightRequest existing = inFlightRequests.putIfAbsent(key, inFlightRequest);
+            if (existing == null) {
+                return inFlightRequest;
+            }
+            if (!existing.isExpired()) {
+                return null;
+            }
+            existing.release();
+        }
+    }
+
+    /**
+     * Blocks until the in-flight request for the given key has been released
+     * or the timeout elapses.
+     *
+     * @return {@code true} if the in-flight request has been released,
+     *  {@code false} if the timeout elapsed.
+     */
+    boolean await(final String key) throws InterruptedIOException {
+        final InFlightRequest inFlightRequest = inFlightRequests.get(key);
+        if (inFlightRequest == null) {
+            return true;
+        }
+        try {
+            return inFlightRequest.latch.await(timeout.getDuration(), timeout.getTimeUnit());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Executes the callback once the in-flight request for the given key has
+     * been released or the timeout elapses, whichever comes first. The callback
+     * is executed immediately if there is no request in flight, otherwise it is
+     * executed by the executor of this collapser.
+     */
+    void await(final String key, final Runnable callback) {
+        Asserts.check(executor != null, "Request collapser has no executor");
+        final InFlightRequest inFlightRequest = inFlightRequests.get(key);
+        final Waiter waiter = new Waiter(callback);
+        if (inFlightRequest == null || !inFlightRequest.addWaiter(waiter)) {
+            waiter.run();
+            return;
+        }
+        try {
+            waiter.timeoutFuture = executor.schedule(waiter, timeout.getDuration(), timeout.getTimeUnit());
+        } catch (final RejectedExecutionException ex) {
+            // The executor has been shut down; stop waiting rather than strand the request
+            waiter.run();
+            return;
+        }
+        if (waiter.done.get()) {
+            waiter.timeoutFuture.cancel(false);
+        }
+    }
+
+    private void resume(final Waiter waiter) {
+        try {
+            executor.execute(waiter);
+        } catch (final RejectedExecutionException ex) {
+            waiter.run();
+        }
+    }
+
+    int getInFlightCount() {
+        return inFlightRequests.size();
+    }
+
+    class InFlightRequest {
+
+        private final String key;
+        private final long expiry;
+        final CountDownLatch latch;
+        private List<Waiter> waiters;
+        private boolean completed;
+
+        InFlightRequest(final String key) {
+            this.key = key;
+            this.expiry = System.currentTimeMillis() + timeout.toMilliseconds();
+            this.latch = new CountDownLatch(1);
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiry;
+        }
+
+        /**
+         * Releases the cache key, resuming all requests waiting for it.
+         */
+        void release() {
+            inFlightRequests.remove(key, this);
+            complete();
+        }
+
+        synchronized boolean addWaiter(final Waiter waiter) {
+            if (completed) {
+                return false;
+            }
+            if (waiters == null) {
+                waiters = new ArrayList<>();
+            }
+            waiters.add(waiter);
+            return true;
+        }
+
+        void complete() {
+            final List<Waiter> pending;
+            synchronized (this) {
+                completed = true;
+                pending = waiters;
+                waiters = null;
+            }
+            latch.countDown();
+            if (pending != null) {
+                for (final Waiter waiter : pending) {
+                    resume(waiter);
+                }
+            }
+        }
+
+    }
+
+    static class Waiter implements Runnable {
+
+        final Runnable callback;
+        final AtomicBoolean done;
+        volatile Future<?> timeoutFuture;
+
+        Waiter(final Runnable callback) {
+            this.callback = callback;
+            this.done = new AtomicBoolean(false);
+        }
+
+        @Override
+        public void run() {
+            if (done.compareAndSet(false, true)) {
+                final Future<?> future = timeoutFuture;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                callback.run();
+            }
+        }
+
+    }
+
+}
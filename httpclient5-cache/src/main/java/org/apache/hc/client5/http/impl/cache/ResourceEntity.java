@@ -0,0 +1,100 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.hc.client5.http.cache.Resource;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * Repeatable entity that streams content of a cached {@link Resource}.
+ * Content of {@link FileResource}s is transferred from the file channel
+ * without being copied into a byte array.
+ */
+class ResourceEntity extends AbstractHttpEntity {
+
+    private final Resource resource;
+
+    ResourceEntity(final Resource resource, final String contentType) {
+        super(contentType, null);
+        this.resource = Args.notNull(resource, "Resource");
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return resource.length();
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return resource.getInputStream();
+    }
+
+    @Override
+    public void writeTo(final OutputStream outStream) throws IOException {
+        Args.notNull(outStream, "Output stream");
+        if (resource instanceof FileResource) {
+            try (final FileChannel channel = ((FileResource) resource).openChannel()) {
+                final WritableByteChannel target = Channels.newChannel(outStream);
+                final long size = channel.size();
+                long pos = 0;
+                while (pos < size) {
+                    final long transferred = channel.transferTo(pos, size - pos, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    pos += transferred;
+                }
+            }
+        } else {
+            outStream.write(resource.get());
+        }
+        outStream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+}
@@ -27,7 +27,6 @@
 package org.apache.hc.client5.http.impl.cache;
 
 import java.util.Arrays;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -153,8 +152,8 @@ public boolean isResponseCacheable(final String httpMethod, final HttpResponse r
             return false;
         }
 
-        final Date date = DateUtils.parseDate(response, HttpHeaders.DATE);
-        if (date == null) {
+        final long date = DateUtils.parseEpochMillis(response, HttpHeaders.DATE);
+        if (date == Long.MIN_VALUE) {
             LOG.debug("Invalid / missing Date header");
             return false;
         }
@@ -294,12 +293,12 @@ private boolean expiresHeaderLessOrEqualToDateHeaderAndNoCacheControl(final Http
         if (expiresHdr == null || dateHdr == null) {
             return false;
         }
-        final Date expires = DateUtils.parseDate(expiresHdr.getValue());
-        final Date date = DateUtils.parseDate(dateHdr.getValue());
-        if (expires == null || date == null) {
+        final long expires = DateUtils.parseEpochMillis(expiresHdr.getValue());
+        final long date = DateUtils.parseEpochMillis(dateHdr.getValue());
+        if (expires == Long.MIN_VALUE || date == Long.MIN_VALUE) {
             return false;
         }
-        return expires.equals(date) || expires.before(date);
+        return expires <= date;
     }
 
     private boolean from1_0Origin(final HttpResponse response) {
@@ -153,7 +153,7 @@ private void identityIsNotUsedInContentEncoding(final HttpResponse response) {
 
     private void ensure206ContainsDateHeader(final HttpResponse response) {
         if (response.getFirstHeader(HttpHeaders.DATE) == null) {
-            response.addHeader(HttpHeaders.DATE, DateUtils.formatDate(new Date()));
+            response.addHeader(HttpHeaders.DATE, DateUtils.formatEpochMillis(System.currentTimeMillis()));
         }
 
     }
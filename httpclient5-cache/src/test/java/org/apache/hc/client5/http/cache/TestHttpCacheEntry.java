@@ -35,6 +35,11 @@
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -301,4 +306,77 @@ public void testGetMethodReturnsCorrectRequestMethod() {
         entry = makeEntry(headers);
         assertEquals(HeaderConstants.GET_METHOD, entry.getRequestMethod());
     }
+
+    @Test
+    public void testMetadataIsParsedFromHeaders() {
+        final Header[] headers = {
+                new BasicHeader("Date", "Sun, 06 Nov 1994 08:49:37 GMT"),
+                new BasicHeader("Expires", "Sun, 06 Nov 1994 08:59:37 GMT"),
+                new BasicHeader("Last-Modified", "Sun, 06 Nov 1994 07:49:37 GMT"),
+                new BasicHeader("ETag", "\"etag\""),
+                new BasicHeader("Age", "5"),
+                new BasicHeader("Age", "10"),
+                new BasicHeader("Cache-Control", "must-revalidate, stale-while-revalidate=20, stale-if-error=30"),
+                new BasicHeader("Vary", "User-Agent, Accept-Encoding")
+        };
+        entry = makeEntry(headers);
+        final HttpCacheEntryMetadata metadata = entry.getMetadata();
+        assertEquals(entry.getDate().getTime(), metadata.getDate());
+        assertEquals(metadata.getDate() + 600000L, metadata.getExpires());
+        assertEquals(metadata.getDate() - 3600000L, metadata.getLastModified());
+        assertEquals("\"etag\"", metadata.getETag());
+        assertTrue(metadata.isRevalidatable());
+        assertEquals(10, metadata.getAge());
+        assertEquals(-1, metadata.getMaxAge());
+        assertEquals(600, metadata.getFreshnessLifetime());
+        assertTrue(metadata.isMustRevalidate());
+        assertFalse(metadata.isProxyRevalidate());
+        assertFalse(metadata.isNoCache());
+        assertFalse(metadata.isSharedMaxAge());
+        assertEquals(20, metadata.getStaleWhileRevalidate());
+        assertEquals(30, metadata.getStaleIfError());
+        assertEquals(Arrays.asList("Accept-Encoding", "User-Agent"), metadata.getVariantHeaderNames());
+    }
+
+    @Test
+    public void testMetadataOfEmptyHeaders() {
+        entry = makeEntry(new Header[] { new BasicHeader("Cache-Control", "no-cache, max-age=60, s-maxage=30") });
+        final HttpCacheEntryMetadata metadata = entry.getMetadata();
+        assertEquals(HttpCacheEntryMetadata.UNKNOWN_DATE, metadata.getDate());
+        assertEquals(HttpCacheEntryMetadata.UNKNOWN_DATE, metadata.getExpires());
+        assertEquals(HttpCacheEntryMetadata.UNKNOWN_DATE, metadata.getLastModified());
+        assertNull(metadata.getETag());
+        assertFalse(metadata.isRevalidatable());
+        assertEquals(0, metadata.getAge());
+        assertEquals(30, metadata.getMaxAge());
+        assertEquals(30, metadata.getFreshnessLifetime());
+        assertTrue(metadata.isSharedMaxAge());
+        assertTrue(metadata.isNoCache());
+        assertEquals(-1, metadata.getStaleWhileRevalidate());
+        assertEquals(-1, metadata.getStaleIfError());
+        assertTrue(metadata.getVariantHeaderNames().isEmpty());
+    }
+
+    @Test
+    public void testMetadataIsRestoredOnDeserialization() throws Exception {
+        final Header[] headers = {
+                new BasicHeader("Date", "Sun, 06 Nov 1994 08:49:37 GMT"),
+                new BasicHeader("Cache-Control", "max-age=60"),
+                new BasicHeader("Vary", "Accept-Encoding")
+        };
+        entry = new HttpCacheEntry(elevenSecondsAgo, nineSecondsAgo, HttpStatus.SC_OK, headers, null);
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(buf)) {
+            out.writeObject(entry);
+        }
+        final HttpCacheEntry copy;
+        try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buf.toByteArray()))) {
+            copy = (HttpCacheEntry) in.readObject();
+        }
+        assertNotNull(copy.getMetadata());
+        assertEquals(entry.getMetadata().getDate(), copy.getMetadata().getDate());
+        assertEquals(60, copy.getMetadata().getFreshnessLifetime());
+        assertEquals(Arrays.asList("Accept-Encoding"), copy.getMetadata().getVariantHeaderNames());
+    }
+
 }
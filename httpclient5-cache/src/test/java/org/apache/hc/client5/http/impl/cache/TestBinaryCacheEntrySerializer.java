@@ -0,0 +1,176 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.HttpCacheStorageEntry;
+import org.apache.hc.client5.http.cache.ResourceIOException;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestBinaryCacheEntrySerializer {
+
+    private BinaryCacheEntrySerializer impl;
+
+    @Before
+    public void setUp() {
+        impl = BinaryCacheEntrySerializer.INSTANCE;
+    }
+
+    @Test
+    public void canSerializeEntriesWithVariantMaps() throws Exception {
+        final Map<String, String> variantMap = new HashMap<>();
+        variantMap.put("{Accept-Encoding=gzip}", "key1");
+        variantMap.put("{Accept-Encoding=br}", "key2");
+        readWriteVerify(makeCacheEntry("somekey", variantMap,
+                new HeapResource("Lorem ipsum dolor sit amet".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void canSerializeEntriesWithoutBody() throws Exception {
+        final HttpCacheStorageEntry writeEntry = makeCacheEntry("somekey", null, null);
+        final HttpCacheStorageEntry readEntry = readWriteVerify(writeEntry);
+        assertNull(readEntry.getContent().getResource());
+    }
+
+    @Test
+    public void canSerializeNonAsciiValues() throws Exception {
+        final HttpCacheEntry entry = new HttpCacheEntry(new Date(), new Date(), HttpStatus.SC_OK,
+                new Header[] {
+                        new BasicHeader("Content-Disposition", "attachment; filename=\"naïve € 😀.txt\""),
+                        new BasicHeader("X-Custom", "über")
+                },
+                new HeapResource(new byte[] { 1, 2, 3 }));
+        final HttpCacheStorageEntry readEntry = readWriteVerify(new HttpCacheStorageEntry("kéy", entry));
+        assertEquals("attachment; filename=\"naïve € 😀.txt\"",
+                readEntry.getContent().getFirstHeader("Content-Disposition").getValue());
+    }
+
+    @Test
+    public void preservesRequestMethod() throws Exception {
+        final HttpCacheEntry entry = new HttpCacheEntry(new Date(), new Date(), HttpStatus.SC_OK,
+                new Header[] {
+                        new BasicHeader("Content-Type", "text/plain"),
+                        new BasicHeader("Hc-Request-Method", "HEAD")
+                },
+                null);
+        final HttpCacheStorageEntry readEntry = readWriteVerify(new HttpCacheStorageEntry("somekey", entry));
+        assertEquals("HEAD", readEntry.getContent().getRequestMethod());
+        assertEquals(1, readEntry.getContent().getHeaders().length);
+    }
+
+    @Test
+    public void canSerializeIntoProvidedBuffer() throws Exception {
+        final HttpCacheStorageEntry writeEntry = makeCacheEntry("somekey", null,
+                new HeapResource("stuff".getBytes(StandardCharsets.US_ASCII)));
+        final int len = impl.getSerializedLength(writeEntry);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(len + 16);
+        buffer.position(8);
+        impl.serialize(writeEntry, buffer);
+        assertEquals(8 + len, buffer.position());
+        buffer.flip();
+        buffer.position(8);
+        final HttpCacheStorageEntry readEntry = impl.deserialize(buffer);
+        assertEquals(writeEntry.getKey(), readEntry.getKey());
+        assertThat(readEntry.getContent(), HttpCacheEntryMatcher.equivalent(writeEntry.getContent()));
+        assertEquals(0, buffer.remaining());
+        assertArrayEquals(impl.serialize(writeEntry), impl.serialize(readEntry));
+    }
+
+    @Test
+    public void serializedLengthMatchesOutput() throws Exception {
+        final HttpCacheStorageEntry writeEntry = makeCacheEntry("somekey", null,
+                new HeapResource(new byte[1024]));
+        assertEquals(impl.getSerializedLength(writeEntry), impl.serialize(writeEntry).length);
+    }
+
+    @Test(expected = ResourceIOException.class)
+    public void throwsOnInsufficientBufferSpace() throws Exception {
+        final HttpCacheStorageEntry writeEntry = makeCacheEntry("somekey", null,
+                new HeapResource(new byte[128]));
+        impl.serialize(writeEntry, ByteBuffer.allocate(impl.getSerializedLength(writeEntry) - 1));
+    }
+
+    @Test(expected = ResourceIOException.class)
+    public void throwsOnUnknownVersion() throws Exception {
+        final byte[] bytes = impl.serialize(makeCacheEntry("somekey", null, null));
+        bytes[4] = (byte) (BinaryCacheEntrySerializer.VERSION + 1);
+        impl.deserialize(bytes);
+    }
+
+    @Test(expected = ResourceIOException.class)
+    public void throwsOnTruncatedInput() throws Exception {
+        final byte[] bytes = impl.serialize(makeCacheEntry("somekey", null,
+                new HeapResource(new byte[128])));
+        final byte[] truncated = new byte[bytes.length - 10];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        impl.deserialize(truncated);
+    }
+
+    private HttpCacheStorageEntry readWriteVerify(final HttpCacheStorageEntry writeEntry) throws Exception {
+        final byte[] bytes = impl.serialize(writeEntry);
+        final HttpCacheStorageEntry readEntry = impl.deserialize(bytes);
+        assertEquals(writeEntry.getKey(), readEntry.getKey());
+        assertThat(readEntry.getContent(), HttpCacheEntryMatcher.equivalent(writeEntry.getContent()));
+        assertEquals(writeEntry.getContent().getVariantMap(), readEntry.getContent().getVariantMap());
+        return readEntry;
+    }
+
+    private HttpCacheStorageEntry makeCacheEntry(
+            final String key, final Map<String, String> variantMap, final HeapResource resource) {
+        final Header[] headers = new Header[] {
+                new BasicHeader("Date", "Tue, 15 Nov 1994 08:12:31 GMT"),
+                new BasicHeader("Content-Type", "text/plain"),
+                new BasicHeader("Cache-Control", "max-age=3600"),
+                new BasicHeader("ETag", "\"etag\""),
+                new BasicHeader("X-Header", "value")
+        };
+        final HttpCacheEntry cacheEntry = new HttpCacheEntry(
+                new Date(),
+                new Date(),
+                HttpStatus.SC_OK,
+                headers,
+                resource,
+                variantMap);
+        return new HttpCacheStorageEntry(key, cacheEntry);
+    }
+
+}
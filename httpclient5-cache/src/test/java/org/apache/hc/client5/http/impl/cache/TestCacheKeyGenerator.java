@@ -31,13 +31,14 @@
 import static org.mockito.Mockito.when;
 
 import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.HttpCacheEntryMetadata;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.message.BasicHeader;
-import org.apache.hc.core5.http.message.BasicHeaderIterator;
 import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.message.HeaderGroup;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -62,6 +63,12 @@ public void setUp() throws Exception {
         extractor = CacheKeyGenerator.INSTANCE;
     }
 
+    private static HttpCacheEntryMetadata metadata(final Header[] headers) {
+        final HeaderGroup headerGroup = new HeaderGroup();
+        headerGroup.setHeaders(headers);
+        return HttpCacheEntryMetadata.parse(headerGroup);
+    }
+
     @Test
     public void testExtractsUriFromAbsoluteUriInRequest() {
         final HttpHost host = new HttpHost("bar.example.com");
@@ -147,13 +154,13 @@ public String generateKey(final HttpHost h, final HttpRequest request) {
             }
         };
         when(mockEntry.hasVariants()).thenReturn(true);
-        when(mockEntry.headerIterator("Vary")).thenReturn(new BasicHeaderIterator(varyHeaders, "Vary"));
+        when(mockEntry.getMetadata()).thenReturn(metadata(varyHeaders));
         when(mockRequest.getHeaders("Accept-Encoding")).thenReturn(encHeaders);
 
         final String result = extractor.generateKey(defaultHost, mockRequest, mockEntry);
 
         verify(mockEntry).hasVariants();
-        verify(mockEntry).headerIterator("Vary");
+        verify(mockEntry).getMetadata();
         verify(mockRequest).getHeaders("Accept-Encoding");
         Assert.assertEquals("{Accept-Encoding=gzip}" + theURI, result);
     }
@@ -172,14 +179,14 @@ public String generateKey(final HttpHost h, final HttpRequest request) {
             }
         };
         when(mockEntry.hasVariants()).thenReturn(true);
-        when(mockEntry.headerIterator("Vary")).thenReturn(new BasicHeaderIterator(varyHeaders, "Vary"));
+        when(mockEntry.getMetadata()).thenReturn(metadata(varyHeaders));
         when(mockRequest.getHeaders("Accept-Encoding"))
                 .thenReturn(noHeaders);
 
         final String result = extractor.generateKey(defaultHost, mockRequest, mockEntry);
 
         verify(mockEntry).hasVariants();
-        verify(mockEntry).headerIterator("Vary");
+        verify(mockEntry).getMetadata();
         verify(mockRequest).getHeaders("Accept-Encoding");
         Assert.assertEquals("{Accept-Encoding=}" + theURI, result);
     }
@@ -199,14 +206,14 @@ public String generateKey(final HttpHost h, final HttpRequest request) {
             }
         };
         when(mockEntry.hasVariants()).thenReturn(true);
-        when(mockEntry.headerIterator("Vary")).thenReturn(new BasicHeaderIterator(varyHeaders, "Vary"));
+        when(mockEntry.getMetadata()).thenReturn(metadata(varyHeaders));
         when(mockRequest.getHeaders("Accept-Encoding")).thenReturn(encHeaders);
         when(mockRequest.getHeaders("User-Agent")).thenReturn(uaHeaders);
 
         final String result = extractor.generateKey(defaultHost, mockRequest, mockEntry);
 
         verify(mockEntry).hasVariants();
-        verify(mockEntry).headerIterator("Vary");
+        verify(mockEntry).getMetadata();
         verify(mockRequest).getHeaders("Accept-Encoding");
         verify(mockRequest).getHeaders("User-Agent");
         Assert.assertEquals("{Accept-Encoding=gzip&User-Agent=browser}" + theURI, result);
@@ -228,14 +235,14 @@ public String generateKey(final HttpHost h, final HttpRequest request) {
             }
         };
         when(mockEntry.hasVariants()).thenReturn(true);
-        when(mockEntry.headerIterator("Vary")).thenReturn(new BasicHeaderIterator(varyHeaders, "Vary"));
+        when(mockEntry.getMetadata()).thenReturn(metadata(varyHeaders));
         when(mockRequest.getHeaders("Accept-Encoding")).thenReturn(encHeaders);
         when(mockRequest.getHeaders("User-Agent")).thenReturn(uaHeaders);
 
         final String result = extractor.generateKey(defaultHost, mockRequest, mockEntry);
 
         verify(mockEntry).hasVariants();
-        verify(mockEntry).headerIterator("Vary");
+        verify(mockEntry).getMetadata();
         verify(mockRequest).getHeaders("Accept-Encoding");
         verify(mockRequest).getHeaders("User-Agent");
         Assert.assertEquals("{Accept-Encoding=gzip&User-Agent=browser}" + theURI, result);
@@ -257,14 +264,14 @@ public String generateKey(final HttpHost h, final HttpRequest request) {
             }
         };
         when(mockEntry.hasVariants()).thenReturn(true);
-        when(mockEntry.headerIterator("Vary")).thenReturn(new BasicHeaderIterator(varyHeaders, "Vary"));
+        when(mockEntry.getMetadata()).thenReturn(metadata(varyHeaders));
         when(mockRequest.getHeaders("Accept-Encoding")).thenReturn(encHeaders);
         when(mockRequest.getHeaders("User-Agent")).thenReturn(uaHeaders);
 
         final String result = extractor.generateKey(defaultHost, mockRequest, mockEntry);
 
         verify(mockEntry).hasVariants();
-        verify(mockEntry).headerIterator("Vary");
+        verify(mockEntry).getMetadata();
         verify(mockRequest).getHeaders("Accept-Encoding");
         verify(mockRequest).getHeaders("User-Agent");
         Assert.assertEquals("{Accept-Encoding=gzip%2C+deflate&User-Agent=browser}" + theURI, result);
@@ -0,0 +1,91 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCacheMap {
+
+    @Test
+    public void testWeightTracking() throws Exception {
+        final CacheMap cacheMap = new CacheMap(10);
+        final HttpCacheEntry entry1 = HttpTestUtils.makeCacheEntry(new byte[100]);
+        final HttpCacheEntry entry2 = HttpTestUtils.makeCacheEntry(new byte[200]);
+        final long weight1 = CacheEntryWeigher.weigh("a", entry1);
+        final long weight2 = CacheEntryWeigher.weigh("a", entry2);
+        Assert.assertEquals(weight1 + 100, weight2);
+
+        cacheMap.put("a", entry1);
+        Assert.assertEquals(weight1, cacheMap.getWeight());
+        cacheMap.put("a", entry2);
+        Assert.assertEquals(weight2, cacheMap.getWeight());
+        cacheMap.put("b", entry1);
+        Assert.assertEquals(weight1 + weight2, cacheMap.getWeight());
+        cacheMap.remove("a");
+        Assert.assertEquals(weight1, cacheMap.getWeight());
+        cacheMap.clear();
+        Assert.assertEquals(0, cacheMap.getWeight());
+    }
+
+    @Test
+    public void testEvictionByWeight() throws Exception {
+        final HttpCacheEntry entry = HttpTestUtils.makeCacheEntry(new byte[4096]);
+        final long weight = CacheEntryWeigher.weigh("a", entry);
+        final CacheMap cacheMap = new CacheMap(100, weight * 3);
+        cacheMap.put("a", entry);
+        cacheMap.put("b", entry);
+        cacheMap.put("c", entry);
+        cacheMap.get("a");
+        cacheMap.put("d", entry);
+        Assert.assertEquals(3, cacheMap.size());
+        Assert.assertTrue(cacheMap.getWeight() <= weight * 3);
+        Assert.assertNotNull(cacheMap.get("a"));
+        Assert.assertNull(cacheMap.get("b"));
+    }
+
+    @Test
+    public void testOversizedEntryNotRetained() throws Exception {
+        final CacheMap cacheMap = new CacheMap(100, 1024);
+        cacheMap.put("a", HttpTestUtils.makeCacheEntry(new byte[2048]));
+        Assert.assertEquals(0, cacheMap.size());
+        Assert.assertEquals(0, cacheMap.getWeight());
+    }
+
+    @Test
+    public void testEvictionByEntryCount() throws Exception {
+        final CacheMap cacheMap = new CacheMap(2);
+        final HttpCacheEntry entry = HttpTestUtils.makeCacheEntry();
+        cacheMap.put("a", entry);
+        cacheMap.put("b", entry);
+        cacheMap.put("c", entry);
+        Assert.assertEquals(2, cacheMap.size());
+        Assert.assertNull(cacheMap.get("a"));
+    }
+
+}
@@ -47,6 +47,8 @@
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
@@ -82,6 +84,7 @@
 import org.apache.hc.core5.util.TimeValue;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.easymock.IExpectationSetters;
 import org.junit.Assert;
 import org.junit.Before;
@@ -478,6 +481,192 @@ public void testSetsCacheHitContextIfRequestServedFromCache() throws Exception {
         Assert.assertEquals(CacheResponseStatus.CACHE_HIT, context.getCacheResponseStatus());
     }
 
+    @Test
+    public void testStreamingCacheFillCachesResponseOnceContentConsumed() throws Exception {
+        impl = createCachingExecChain(new BasicHttpCache(), CacheConfig.custom()
+                .setStreamingCacheFillEnabled(true)
+                .build());
+        final ClassicHttpRequest req1 = new HttpGet("http://foo.example.com/");
+        final ClassicHttpRequest req2 = new HttpGet("http://foo.example.com/");
+        final ClassicHttpResponse resp1 = new BasicClassicHttpResponse(HttpStatus.SC_OK, "OK");
+        resp1.setEntity(HttpTestUtils.makeBody(128));
+        resp1.setHeader("Content-Length", "128");
+        resp1.setHeader("ETag", "\"etag\"");
+        resp1.setHeader("Date", DateUtils.formatDate(new Date()));
+        resp1.setHeader("Cache-Control", "public, max-age=3600");
+
+        backendExpectsAnyRequestAndReturn(resp1);
+
+        replayMocks();
+        final ClassicHttpResponse result1 = execute(req1);
+        Assert.assertSame(resp1, result1);
+        final byte[] content = EntityUtils.toByteArray(result1.getEntity());
+        Assert.assertEquals(128, content.length);
+        final ClassicHttpResponse result2 = execute(req2);
+        verifyMocks();
+        Assert.assertEquals(CacheResponseStatus.CACHE_HIT, context.getCacheResponseStatus());
+        Assert.assertArrayEquals(content, EntityUtils.toByteArray(result2.getEntity()));
+    }
+
+    @Test
+    public void testStreamingCacheFillDoesNotCachePartiallyConsumedResponse() throws Exception {
+        impl = createCachingExecChain(new BasicHttpCache(), CacheConfig.custom()
+                .setStreamingCacheFillEnabled(true)
+                .build());
+        final ClassicHttpRequest req1 = new HttpGet("http://foo.example.com/");
+        final ClassicHttpRequest req2 = new HttpGet("http://foo.example.com/");
+        final ClassicHttpResponse resp1 = new BasicClassicHttpResponse(HttpStatus.SC_OK, "OK");
+        resp1.setEntity(HttpTestUtils.makeBody(128));
+        resp1.setHeader("Content-Length", "128");
+        resp1.setHeader("ETag", "\"etag\"");
+        resp1.setHeader("Date", DateUtils.formatDate(new Date()));
+        resp1.setHeader("Cache-Control", "public, max-age=3600");
+        final ClassicHttpResponse resp2 = new BasicClassicHttpResponse(HttpStatus.SC_OK, "OK");
+        resp2.setEntity(HttpTestUtils.makeBody(128));
+        resp2.setHeader("Content-Length", "128");
+        resp2.setHeader("ETag", "\"etag\"");
+        resp2.setHeader("Date", DateUtils.formatDate(new Date()));
+        resp2.setHeader("Cache-Control", "public, max-age=3600");
+
+        backendExpectsAnyRequestAndReturn(resp1);
+        backendExpectsAnyRequestAndReturn(resp2);
+
+        replayMocks();
+        final ClassicHttpResponse result1 = execute(req1);
+        final InputStream inStream = result1.getEntity().getContent();
+        Assert.assertTrue(inStream.read(new byte[16]) > 0);
+        inStream.close();
+        execute(req2);
+        verifyMocks();
+        Assert.assertEquals(CacheResponseStatus.CACHE_MISS, context.getCacheResponseStatus());
+    }
+
+    @Test
+    public void testRequestCollapsingSendsSingleBackendRequestForConcurrentMisses() throws Exception {
+        impl = createCachingExecChain(new BasicHttpCache(), CacheConfig.custom()
+                .setRequestCollapsingEnabled(true)
+                .build());
+        final ClassicHttpResponse resp1 = new BasicClassicHttpResponse(HttpStatus.SC_OK, "OK");
+        resp1.setEntity(HttpTestUtils.makeBody(128));
+        resp1.setHeader("Content-Length", "128");
+        resp1.setHeader("ETag", "\"etag\"");
+        resp1.setHeader("Date", DateUtils.formatDate(new Date()));
+        resp1.setHeader("Cache-Control", "public, max-age=3600");
+
+        final CountDownLatch backendCalled = new CountDownLatch(1);
+        final CountDownLatch backendResponds = new CountDownLatch(1);
+        mockExecChain.proceed(EasyMock.isA(ClassicHttpRequest.class), EasyMock.isA(ExecChain.Scope.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<ClassicHttpResponse>() {
+
+            @Override
+            public ClassicHttpResponse answer() throws Throwable {
+                backendCalled.countDown();
+                backendResponds.await(5, TimeUnit.SECONDS);
+                return resp1;
+            }
+
+        }).once();
+
+        replayMocks();
+        final HttpCacheContext context1 = HttpCacheContext.create();
+        final HttpCacheContext context2 = HttpCacheContext.create();
+        final Thread thread1 = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    impl.execute(new HttpGet("http://foo.example.com/"), new ExecChain.Scope(
+                            "test1", route, request, mockEndpoint, context1), mockExecChain);
+                } catch (final Exception ignore) {
+                }
+            }
+
+        });
+        final Thread thread2 = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    impl.execute(new HttpGet("http://foo.example.com/"), new ExecChain.Scope(
+                            "test2", route, request, mockEndpoint, context2), mockExecChain);
+                } catch (final Exception ignore) {
+                }
+            }
+
+        });
+        thread1.start();
+        Assert.assertTrue(backendCalled.await(5, TimeUnit.SECONDS));
+        thread2.start();
+        Thread.sleep(100);
+        backendResponds.countDown();
+        thread1.join(5000);
+        thread2.join(5000);
+        verifyMocks();
+        Assert.assertEquals(CacheResponseStatus.CACHE_MISS, context1.getCacheResponseStatus());
+        Assert.assertEquals(CacheResponseStatus.CACHE_HIT, context2.getCacheResponseStatus());
+    }
+
+    @Test
+    public void testRequestCollapsingWithStreamingCacheFillSendsSingleBackendRequest() throws Exception {
+        impl = createCachingExecChain(new BasicHttpCache(), CacheConfig.custom()
+                .setStreamingCacheFillEnabled(true)
+                .setRequestCollapsingEnabled(true)
+                .build());
+        final ClassicHttpResponse resp1 = new BasicClassicHttpResponse(HttpStatus.SC_OK, "OK");
+        resp1.setEntity(HttpTestUtils.makeBody(128));
+        resp1.setHeader("Content-Length", "128");
+        resp1.setHeader("ETag", "\"etag\"");
+        resp1.setHeader("Date", DateUtils.formatDate(new Date()));
+        resp1.setHeader("Cache-Control", "public, max-age=3600");
+
+        backendExpectsAnyRequestAndReturn(resp1).once();
+
+        replayMocks();
+        final HttpCacheContext context1 = HttpCacheContext.create();
+        final HttpCacheContext context2 = HttpCacheContext.create();
+        final CountDownLatch responseReceived = new CountDownLatch(1);
+        final CountDownLatch consumeContent = new CountDownLatch(1);
+        final Thread thread1 = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    final ClassicHttpResponse response = impl.execute(new HttpGet("http://foo.example.com/"),
+                            new ExecChain.Scope("test1", route, request, mockEndpoint, context1), mockExecChain);
+                    responseReceived.countDown();
+                    consumeContent.await(5, TimeUnit.SECONDS);
+                    EntityUtils.toByteArray(response.getEntity());
+                } catch (final Exception ignore) {
+                }
+            }
+
+        });
+        final Thread thread2 = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    final ClassicHttpResponse response = impl.execute(new HttpGet("http://foo.example.com/"),
+                            new ExecChain.Scope("test2", route, request, mockEndpoint, context2), mockExecChain);
+                    EntityUtils.toByteArray(response.getEntity());
+                } catch (final Exception ignore) {
+                }
+            }
+
+        });
+        thread1.start();
+        Assert.assertTrue(responseReceived.await(5, TimeUnit.SECONDS));
+        thread2.start();
+        // The second request must wait for the content of the first one to be stored
+        Thread.sleep(100);
+        consumeContent.countDown();
+        thread1.join(5000);
+        thread2.join(5000);
+        verifyMocks();
+        Assert.assertEquals(CacheResponseStatus.CACHE_MISS, context1.getCacheResponseStatus());
+        Assert.assertEquals(CacheResponseStatus.CACHE_HIT, context2.getCacheResponseStatus());
+    }
+
     @Test
     public void testSetsViaHeaderOnResponseIfRequestServedFromCache() throws Exception {
         impl = createCachingExecChain(new BasicHttpCache(), CacheConfig.DEFAULT);
@@ -1299,7 +1488,8 @@ public void testSmallEnoughResponsesAreCached() throws Exception {
                 eq(responseReceived))).andReturn(httpCacheEntry).once();
         EasyMock.expect(mockResponseGenerator.generateResponse(
                 same(request),
-                same(httpCacheEntry))).andReturn(response).once();
+                same(httpCacheEntry),
+                eq(false))).andReturn(response).once();
         replayMocks();
 
         final ExecChain.Scope scope = new ExecChain.Scope("test", route, request, mockEndpoint, context);
@@ -1686,7 +1876,8 @@ protected void responseIsGeneratedFromCache(final SimpleHttpResponse cachedRespo
         expect(
             mockResponseGenerator.generateResponse(
                     (ClassicHttpRequest) anyObject(),
-                    (HttpCacheEntry) anyObject())).andReturn(cachedResponse);
+                    (HttpCacheEntry) anyObject(),
+                    EasyMock.anyBoolean())).andReturn(cachedResponse);
     }
 
     protected void doesNotFlushCache() throws IOException {
@@ -0,0 +1,193 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.cache.HttpCacheCASOperation;
+import org.apache.hc.client5.http.cache.HttpCacheEntry;
+import org.apache.hc.client5.http.cache.ResourceIOException;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestConcurrentHttpCacheStorage {
+
+    @Test
+    public void testPutGetRemove() throws Exception {
+        final ConcurrentHttpCacheStorage storage = new ConcurrentHttpCacheStorage(CacheConfig.DEFAULT);
+        final HttpCacheEntry entry = HttpTestUtils.makeCacheEntry();
+        storage.putEntry("key", entry);
+        Assert.assertSame(entry, storage.getEntry("key"));
+        Assert.assertNull(storage.getEntry("other"));
+        Assert.assertEquals(1, storage.size());
+        storage.removeEntry("key");
+        Assert.assertNull(storage.getEntry("key"));
+        Assert.assertEquals(0, storage.size());
+    }
+
+    @Test
+    public void testLruEviction() throws Exception {
+        final ConcurrentHttpCacheStorage storage = new ConcurrentHttpCacheStorage(3, 0, 16);
+        final HttpCacheEntry entry = HttpTestUtils.makeCacheEntry();
+        storage.putEntry("a", entry);
+        storage.putEntry("b", entry);
+        storage.putEntry("c", entry);
+        storage.getEntry("a");
+        storage.putEntry("d", entry);
+        Assert.assertEquals(3, storage.size());
+        Assert.assertNotNull(storage.getEntry("a"));
+        Assert.assertNull(storage.getEntry("b"));
+        Assert.assertNotNull(storage.getEntry("c"));
+        Assert.assertNotNull(storage.getEntry("d"));
+    }
+
+    @Test
+    public void testEntryCountBoundedAcrossSegments() throws Exception {
+        final ConcurrentHttpCacheStorage storage = new ConcurrentHttpCacheStorage(1000, 0, 16);
+        final HttpCacheEntry entry = HttpTestUtils.makeCacheEntry();
+        for (int i = 0; i < 5000; i++) {
+            storage.putEntry("key" + i, entry);
+        }
+        Assert.assertTrue(storage.size() <= 1000);
+        Assert.assertNotNull(storage.getEntry("key4999"));
+    }
+
+    @Test
+    public void testWeightBound() throws Exception {
+        final HttpCacheEntry entry = HttpTestUtils.makeCacheEntry(new byte[1024]);
+        final long weight = CacheEntryWeigher.weigh("a", entry);
+        final ConcurrentHttpCacheStorage storage = new ConcurrentHttpCacheStorage(100, weight * 2, 1);
+        storage.putEntry("a", entry);
+        storage.putEntry("b", entry);
+        Assert.assertEquals(2, storage.size());
+        storage.putEntry("c", entry);
+        Assert.assertEquals(2, storage.size());
+        Assert.assertNull(storage.getEntry("a"));
+    }
+
+    @Test
+    public void testMaxCacheSizeFromConfig() throws Exception {
+        final HttpCacheEntry entry = HttpTestUtils.makeCacheEntry(new byte[8192]);
+        final CacheConfig config = CacheConfig.custom()
+                .setMaxCacheSize(64 * 1024)
+                .build();
+        final ConcurrentHttpCacheStorage storage = new ConcurrentHttpCacheStorage(config);
+        for (int i = 0; i < 100; i++) {
+            storage.putEntry("key" + i, entry);
+        }
+        Assert.assertTrue(storage.getWeight() <= 64 * 1024);
+        Assert.assertTrue(storage.size() > 0);
+        Assert.assertTrue(storage.size() < 8);
+    }
+
+    @Test
+    public void testUpdateEntry() throws Exception {
+        final ConcurrentHttpCacheStorage storage = new ConcurrentHttpCacheStorage(CacheConfig.DEFAULT);
+        final HttpCacheEntry entry1 = HttpTestUtils.makeCacheEntry();
+        final HttpCacheEntry entry2 = HttpTestUtils.makeCacheEntry();
+        storage.putEntry("key", entry1);
+        storage.updateEntry("key", new HttpCacheCASOperation() {
+
+            @Override
+            public HttpCacheEntry execute(final HttpCacheEntry existing) throws ResourceIOException {
+                Assert.assertSame(entry1, existing);
+                return entry2;
+            }
+
+        });
+        Assert.assertSame(entry2, storage.getEntry("key"));
+    }
+
+    @Test
+    public void testGetEntries() throws Exception {
+        final ConcurrentHttpCacheStorage storage = new ConcurrentHttpCacheStorage(CacheConfig.DEFAULT);
+        final HttpCacheEntry entry = HttpTestUtils.makeCacheEntry();
+        storage.putEntry("a", entry);
+        storage.putEntry("b", entry);
+        final Map<String, HttpCacheEntry> entries = storage.getEntries(Arrays.asList("a", "b", "c"));
+        Assert.assertEquals(2, entries.size());
+        Assert.assertSame(entry, entries.get("a"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAsyncGetEntry() throws Exception {
+        final ConcurrentHttpCacheStorage storage = new ConcurrentHttpCacheStorage(CacheConfig.DEFAULT);
+        final HttpCacheEntry entry = HttpTestUtils.makeCacheEntry();
+        final FutureCallback<Boolean> putCallback = Mockito.mock(FutureCallback.class);
+        storage.putEntry("key", entry, putCallback);
+        Mockito.verify(putCallback).completed(Boolean.TRUE);
+        final FutureCallback<HttpCacheEntry> getCallback = Mockito.mock(FutureCallback.class);
+        storage.getEntry("key", getCallback);
+        Mockito.verify(getCallback).completed(entry);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final ConcurrentHttpCacheStorage storage = new ConcurrentHttpCacheStorage(500, 0, 16);
+        final HttpCacheEntry entry = HttpTestUtils.makeCacheEntry();
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            @SuppressWarnings("unchecked")
+            final Future<?>[] futures = new Future[8];
+            for (int i = 0; i < futures.length; i++) {
+                final int n = i;
+                futures[i] = executorService.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            for (int j = 0; j < 10000; j++) {
+                                final String key = "key" + ((j * 31 + n) % 2000);
+                                if (storage.getEntry(key) == null) {
+                                    storage.putEntry(key, entry);
+                                }
+                            }
+                        } catch (final ResourceIOException ex) {
+                            throw new IllegalStateException(ex);
+                        }
+                    }
+
+                });
+            }
+            for (final Future<?> future: futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        Assert.assertTrue(storage.size() <= 500);
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.apache.hc.client5.http.cache.Resource;
+import org.apache.hc.client5.http.cache.ResourceIOException;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFileResource {
+
+    private static final int LARGE_CONTENT_LEN = 128 * 1024;
+
+    private File cacheDir;
+    private FileResourceFactory resourceFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDir = File.createTempFile("cachedir", "");
+        if (cacheDir.exists()) {
+            cacheDir.delete();
+        }
+        cacheDir.mkdir();
+        resourceFactory = new FileResourceFactory(cacheDir);
+    }
+
+    @After
+    public void cleanUp() {
+        final File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (final File cacheFile : files) {
+                cacheFile.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    private static byte[] makeContent(final int len) {
+        final byte[] content = new byte[len];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    private static byte[] toArray(final ByteBuffer buffer) {
+        final byte[] content = new byte[buffer.remaining()];
+        buffer.get(content);
+        return content;
+    }
+
+    @Test
+    public void testSmallResourceContent() throws Exception {
+        final byte[] content = makeContent(128);
+        final Resource resource = resourceFactory.generate("small", content);
+        Assert.assertEquals(content.length, resource.length());
+        Assert.assertArrayEquals(content, resource.get());
+        final ByteBuffer buffer = resource.getByteBuffer();
+        Assert.assertFalse(buffer.isDirect());
+        Assert.assertArrayEquals(content, toArray(buffer));
+    }
+
+    @Test
+    public void testLargeResourceContent() throws Exception {
+        final byte[] content = makeContent(LARGE_CONTENT_LEN * 2 + 17);
+        final Resource resource = resourceFactory.generate("large", content);
+        Assert.assertEquals(content.length, resource.length());
+        Assert.assertArrayEquals(content, resource.get());
+
+        final ByteBuffer buffer1 = resource.getByteBuffer();
+        Assert.assertFalse(buffer1.isDirect());
+        Assert.assertArrayEquals(content, toArray(buffer1));
+        // Each call returns an independent view
+        final ByteBuffer buffer2 = resource.getByteBuffer();
+        Assert.assertEquals(0, buffer2.position());
+        Assert.assertArrayEquals(content, toArray(buffer2));
+    }
+
+    @Test
+    public void testCopyLargeResource() throws Exception {
+        final byte[] content = makeContent(LARGE_CONTENT_LEN + 1);
+        final Resource resource = resourceFactory.generate("large", content);
+        final Resource copy = resourceFactory.copy("copy", resource);
+        Assert.assertArrayEquals(content, copy.get());
+        final Resource heapCopy = resourceFactory.copy("heap-copy", new HeapResource(content));
+        Assert.assertArrayEquals(content, heapCopy.get());
+    }
+
+    @Test
+    public void testResourceEntityWritesContent() throws Exception {
+        final byte[] content = makeContent(LARGE_CONTENT_LEN + 5);
+        final Resource resource = resourceFactory.generate("large", content);
+        final ResourceEntity entity = new ResourceEntity(resource, "application/octet-stream");
+        Assert.assertEquals(content.length, entity.getContentLength());
+        Assert.assertTrue(entity.isRepeatable());
+        for (int i = 0; i < 2; i++) {
+            final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+            entity.writeTo(outStream);
+            Assert.assertArrayEquals(content, outStream.toByteArray());
+        }
+        Assert.assertArrayEquals(content, EntityUtils.toByteArray(entity));
+    }
+
+    @Test(expected = ResourceIOException.class)
+    public void testDisposedResourceContent() throws Exception {
+        final Resource resource = resourceFactory.generate("large", makeContent(LARGE_CONTENT_LEN));
+        Assert.assertSame(resource, CachingExecBase.getContent(resource));
+        resource.dispose();
+        CachingExecBase.getContent(resource);
+    }
+
+    @Test(expected = ResourceIOException.class)
+    public void testDisposedResource() throws Exception {
+        final Resource resource = resourceFactory.generate("large", makeContent(LARGE_CONTENT_LEN));
+        resource.getByteBuffer();
+        resource.dispose();
+        resource.getByteBuffer();
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRequestCollapser {
+
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLeadAndRelease() throws Exception {
+        final RequestCollapser collapser = new RequestCollapser(TimeValue.ofSeconds(5));
+        final RequestCollapser.InFlightRequest inFlightRequest = collapser.lead("key");
+        Assert.assertNotNull(inFlightRequest);
+        Assert.assertNull(collapser.lead("key"));
+        Assert.assertNotNull(collapser.lead("other-key"));
+        Assert.assertEquals(2, collapser.getInFlightCount());
+        inFlightRequest.release();
+        Assert.assertEquals(1, collapser.getInFlightCount());
+        Assert.assertTrue(collapser.await("key"));
+        Assert.assertNotNull(collapser.lead("key"));
+    }
+
+    @Test
+    public void testAwaitReleased() throws Exception {
+        final RequestCollapser collapser = new RequestCollapser(TimeValue.ofSeconds(5));
+        final RequestCollapser.InFlightRequest inFlightRequest = collapser.lead("key");
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                inFlightRequest.release();
+            }
+
+        });
+        thread.start();
+        Assert.assertTrue(collapser.await("key"));
+        thread.join();
+    }
+
+    @Test
+    public void testAwaitTimeout() throws Exception {
+        final RequestCollapser collapser = new RequestCollapser(TimeValue.ofMilliseconds(50));
+        Assert.assertNotNull(collapser.lead("key"));
+        Assert.assertFalse(collapser.await("key"));
+    }
+
+    @Test
+    public void testExpiredRequestTakenOver() throws Exception {
+        final RequestCollapser collapser = new RequestCollapser(TimeValue.ofMilliseconds(10));
+        final RequestCollapser.InFlightRequest inFlightRequest1 = collapser.lead("key");
+        Assert.assertNotNull(inFlightRequest1);
+        Thread.sleep(50);
+        final RequestCollapser.InFlightRequest inFlightRequest2 = collapser.lead("key");
+        Assert.assertNotNull(inFlightRequest2);
+        // Late release of the expired request must not affect its successor
+        inFlightRequest1.release();
+        Assert.assertEquals(1, collapser.getInFlightCount());
+        inFlightRequest2.release();
+        Assert.assertEquals(0, collapser.getInFlightCount());
+    }
+
+    @Test
+    public void testAsyncAwaitCallbackOnRelease() throws Exception {
+        final RequestCollapser collapser = new RequestCollapser(TimeValue.ofSeconds(5), executor);
+        final RequestCollapser.InFlightRequest inFlightRequest = collapser.lead("key");
+        final CountDownLatch latch = new CountDownLatch(2);
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicInteger releasingThreadCount = new AtomicInteger();
+        final Thread releasingThread = Thread.currentThread();
+        final Runnable callback = new Runnable() {
+
+            @Override
+            public void run() {
+                count.incrementAndGet();
+                if (Thread.currentThread() == releasingThread) {
+                    releasingThreadCount.incrementAndGet();
+                }
+                latch.countDown();
+            }
+
+        };
+        collapser.await("key", callback);
+        collapser.await("key", callback);
+        Assert.assertEquals(0, count.get());
+        inFlightRequest.release();
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, count.get());
+        Assert.assertEquals(0, releasingThreadCount.get());
+        collapser.await("key", callback);
+        Assert.assertEquals(3, count.get());
+    }
+
+    @Test
+    public void testAsyncAwaitCallbackOnTimeout() throws Exception {
+        final RequestCollapser collapser = new RequestCollapser(TimeValue.ofMilliseconds(50), executor);
+        final RequestCollapser.InFlightRequest inFlightRequest = collapser.lead("key");
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+        collapser.await("key", new Runnable() {
+
+            @Override
+            public void run() {
+                count.incrementAndGet();
+                latch.countDown();
+            }
+
+        });
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        inFlightRequest.release();
+        Assert.assertEquals(1, count.get());
+    }
+
+}
@@ -36,9 +36,9 @@
 import org.apache.hc.client5.http.auth.NTCredentials;
 import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
 import org.apache.hc.client5.http.cookie.CookieStore;
-import org.apache.hc.client5.http.impl.auth.BasicAuthCache;
 import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
 import org.apache.hc.client5.http.impl.auth.BasicScheme;
+import org.apache.hc.client5.http.impl.auth.SnapshotAuthCache;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
@@ -88,7 +88,7 @@ public static Executor newInstance(final CloseableHttpClient httpclient) {
     Executor(final CloseableHttpClient httpclient) {
         super();
         this.httpclient = httpclient;
-        this.authCache = new BasicAuthCache();
+        this.authCache = new SnapshotAuthCache();
     }
 
     /**
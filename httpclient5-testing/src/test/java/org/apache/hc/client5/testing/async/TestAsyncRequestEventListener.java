@@ -0,0 +1,327 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.testing.async;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequests;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.testing.OldPathRedirectResolver;
+import org.apache.hc.core5.function.Decorator;
+import org.apache.hc.core5.function.Supplier;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.HttpVersion;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.config.Http1Config;
+import org.apache.hc.core5.http.nio.AsyncServerExchangeHandler;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class TestAsyncRequestEventListener extends AbstractIntegrationTestBase<CloseableHttpAsyncClient> {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> protocols() {
+        return Arrays.asList(new Object[][]{
+                { HttpVersion.HTTP_1_1 },
+                { HttpVersion.HTTP_2 }
+        });
+    }
+
+    static class RecordingEventListener extends RequestEventListener {
+
+        private final List<String> events = new ArrayList<>();
+
+        synchronized List<String> getEvents() {
+            return new ArrayList<>(events);
+        }
+
+        private synchronized void record(final String event) {
+            events.add(event);
+        }
+
+        @Override
+        public void callStart(final HttpRequest request, final HttpContext context) {
+            record("callStart");
+        }
+
+        @Override
+        public void callEnd(final HttpResponse response, final HttpContext context) {
+            record("callEnd");
+        }
+
+        @Override
+        public void callFailed(final Exception cause, final HttpContext context) {
+            record("callFailed");
+        }
+
+        @Override
+        public void leaseStart(final HttpRoute route, final HttpContext context) {
+            record("leaseStart");
+        }
+
+        @Override
+        public void leaseEnd(final HttpRoute route, final HttpContext context) {
+            record("leaseEnd");
+        }
+
+        @Override
+        public void connectStart(final HttpRoute route, final HttpContext context) {
+            record("connectStart");
+        }
+
+        @Override
+        public void connectEnd(final HttpRoute route, final HttpContext context) {
+            record("connectEnd");
+        }
+
+        @Override
+        public void connectFailed(final HttpRoute route, final Exception cause, final HttpContext context) {
+            record("connectFailed");
+        }
+
+        @Override
+        public void requestStart(final HttpRequest request, final HttpContext context) {
+            record("requestStart");
+        }
+
+        @Override
+        public void responseStart(final HttpResponse response, final HttpContext context) {
+            record("responseStart");
+        }
+
+        @Override
+        public void responseEnd(final HttpContext context) {
+            record("responseEnd");
+        }
+
+        @Override
+        public void retry(final HttpRequest request, final int execCount, final HttpContext context) {
+            record("retry");
+        }
+
+        @Override
+        public void redirect(final HttpRequest request, final URI redirectUri, final HttpContext context) {
+            record("redirect");
+        }
+
+    }
+
+    private final HttpVersion version;
+    private final RecordingEventListener listener;
+
+    public TestAsyncRequestEventListener(final HttpVersion version) {
+        super(URIScheme.HTTP);
+        this.version = version;
+        this.listener = new RecordingEventListener();
+    }
+
+    @Override
+    protected CloseableHttpAsyncClient createClient() {
+        final RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(TIMEOUT)
+                .setConnectTimeout(TIMEOUT)
+                .build();
+        final DefaultHttpRequestRetryStrategy retryStrategy = new DefaultHttpRequestRetryStrategy(
+                1, TimeValue.ofMilliseconds(10));
+        if (version.greaterEquals(HttpVersion.HTTP_2)) {
+            return H2AsyncClientBuilder.create()
+                    .setDefaultRequestConfig(requestConfig)
+                    .setRetryStrategy(retryStrategy)
+                    .setRequestEventListener(listener)
+                    .build();
+        } else {
+            return HttpAsyncClientBuilder.create()
+                    .setDefaultRequestConfig(requestConfig)
+                    .setRetryStrategy(retryStrategy)
+                    .setRequestEventListener(listener)
+                    .build();
+        }
+    }
+
+    @Override
+    public HttpHost start() throws Exception {
+        return start(null);
+    }
+
+    private HttpHost start(final Decorator<AsyncServerExchangeHandler> exchangeHandlerDecorator) throws Exception {
+        if (version.greaterEquals(HttpVersion.HTTP_2)) {
+            return super.start(null, exchangeHandlerDecorator, H2Config.DEFAULT);
+        } else {
+            return super.start(null, exchangeHandlerDecorator, Http1Config.DEFAULT);
+        }
+    }
+
+    private SimpleHttpResponse execute(final SimpleHttpRequest request) throws Exception {
+        final Future<SimpleHttpResponse> future = httpclient.execute(request, null);
+        return future.get(TIMEOUT.getDuration(), TIMEOUT.getTimeUnit());
+    }
+
+    @Test
+    public void testRequestEvents() throws Exception {
+        final HttpHost target = start();
+
+        final SimpleHttpResponse response1 = execute(SimpleHttpRequests.get(target, "/random/2000"));
+        Assert.assertEquals(HttpStatus.SC_OK, response1.getCode());
+        Assert.assertEquals(Arrays.asList(
+                "callStart",
+                "leaseStart", "leaseEnd",
+                "requestStart", "responseStart", "callEnd", "responseEnd"), withoutConnectEvents(listener.getEvents()));
+    }
+
+    @Test
+    public void testRetryEvents() throws Exception {
+        final AtomicInteger count = new AtomicInteger(0);
+        server.register("/unavailable", new Supplier<AsyncServerExchangeHandler>() {
+
+            @Override
+            public AsyncServerExchangeHandler get() {
+                return new AbstractSimpleServerExchangeHandler() {
+
+                    @Override
+                    protected SimpleHttpResponse handle(
+                            final SimpleHttpRequest request,
+                            final HttpCoreContext context) throws HttpException {
+                        if (count.incrementAndGet() == 1) {
+                            return SimpleHttpResponse.create(HttpStatus.SC_SERVICE_UNAVAILABLE, "Busy", ContentType.TEXT_PLAIN);
+                        }
+                        return SimpleHttpResponse.create(HttpStatus.SC_OK, "Done", ContentType.TEXT_PLAIN);
+                    }
+
+                };
+            }
+
+        });
+        final HttpHost target = start();
+
+        final SimpleHttpResponse response = execute(SimpleHttpRequests.get(target, "/unavailable"));
+        Assert.assertEquals(HttpStatus.SC_OK, response.getCode());
+        Assert.assertEquals(Arrays.asList(
+                "callStart",
+                "leaseStart", "leaseEnd",
+                "requestStart", "responseStart", "responseEnd",
+                "retry",
+                "requestStart", "responseStart", "callEnd", "responseEnd"), withoutConnectEvents(listener.getEvents()));
+    }
+
+    @Test
+    public void testRedirectEvents() throws Exception {
+        final HttpHost target = start(new Decorator<AsyncServerExchangeHandler>() {
+
+            @Override
+            public AsyncServerExchangeHandler decorate(final AsyncServerExchangeHandler exchangeHandler) {
+                return new RedirectingAsyncDecorator(
+                        exchangeHandler,
+                        new OldPathRedirectResolver("/oldlocation", "/random", HttpStatus.SC_MOVED_TEMPORARILY));
+            }
+
+        });
+
+        final SimpleHttpResponse response = execute(SimpleHttpRequests.get(target, "/oldlocation/100"));
+        Assert.assertEquals(HttpStatus.SC_OK, response.getCode());
+        Assert.assertEquals(Arrays.asList(
+                "callStart",
+                "leaseStart", "leaseEnd",
+                // Redirects are followed as soon as the response head has been received
+                "requestStart", "responseStart", "redirect", "responseEnd",
+                "requestStart", "responseStart", "callEnd", "responseEnd"), withoutConnectEvents(listener.getEvents()));
+    }
+
+    @Test
+    public void testFailureEvents() throws Exception {
+        start();
+        final int port;
+        try (final ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+        final HttpHost unreachable = new HttpHost("http", "localhost", port);
+        try {
+            execute(SimpleHttpRequests.get(unreachable, "/random/100"));
+            Assert.fail("ExecutionException expected");
+        } catch (final ExecutionException expected) {
+        }
+        final List<String> events = listener.getEvents();
+        Assert.assertEquals("callStart", events.get(0));
+        Assert.assertEquals("callFailed", events.get(events.size() - 1));
+        Assert.assertFalse(events.contains("callEnd"));
+        Assert.assertFalse(events.contains("requestStart"));
+        Assert.assertEquals(1, count(events, "callFailed"));
+    }
+
+    /**
+     * Connections are established by different components depending on the protocol
+     * version, so connect events are verified to be well-formed and then removed.
+     */
+    private static List<String> withoutConnectEvents(final List<String> events) {
+        final List<String> result = new ArrayList<>(events.size());
+        for (final String event: events) {
+            if (!event.startsWith("connect")) {
+                result.add(event);
+            }
+        }
+        Assert.assertEquals(count(events, "connectStart"), count(events, "connectEnd"));
+        return result;
+    }
+
+    private static int count(final List<String> events, final String event) {
+        int n = 0;
+        for (final String e: events) {
+            if (e.equals(event)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+}
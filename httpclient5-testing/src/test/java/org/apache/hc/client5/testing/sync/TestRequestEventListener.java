@@ -0,0 +1,157 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.testing.sync;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRequestEventListener extends LocalServerTestBase {
+
+    static class RecordingEventListener extends RequestEventListener {
+
+        private final List<String> events = new ArrayList<>();
+
+        synchronized List<String> getEvents() {
+            return new ArrayList<>(events);
+        }
+
+        synchronized void clear() {
+            events.clear();
+        }
+
+        private synchronized void record(final String event) {
+            events.add(event);
+        }
+
+        @Override
+        public void callStart(final HttpRequest request, final HttpContext context) {
+            record("callStart");
+        }
+
+        @Override
+        public void callEnd(final HttpResponse response, final HttpContext context) {
+            record("callEnd");
+        }
+
+        @Override
+        public void callFailed(final Exception cause, final HttpContext context) {
+            record("callFailed");
+        }
+
+        @Override
+        public void dnsStart(final String host, final HttpContext context) {
+            record("dnsStart");
+        }
+
+        @Override
+        public void dnsEnd(final String host, final InetAddress[] addresses, final HttpContext context) {
+            record("dnsEnd");
+        }
+
+        @Override
+        public void leaseStart(final HttpRoute route, final HttpContext context) {
+            record("leaseStart");
+        }
+
+        @Override
+        public void leaseEnd(final HttpRoute route, final HttpContext context) {
+            record("leaseEnd");
+        }
+
+        @Override
+        public void connectStart(final HttpRoute route, final HttpContext context) {
+            record("connectStart");
+        }
+
+        @Override
+        public void connectEnd(final HttpRoute route, final HttpContext context) {
+            record("connectEnd");
+        }
+
+        @Override
+        public void requestStart(final HttpRequest request, final HttpContext context) {
+            record("requestStart");
+        }
+
+        @Override
+        public void responseStart(final HttpResponse response, final HttpContext context) {
+            record("responseStart");
+        }
+
+        @Override
+        public void responseEnd(final HttpContext context) {
+            record("responseEnd");
+        }
+
+    }
+
+    @Test
+    public void testRequestEvents() throws Exception {
+        final RecordingEventListener listener = new RecordingEventListener();
+        this.clientBuilder.setRequestEventListener(listener);
+        final HttpHost target = start();
+
+        try (final CloseableHttpResponse response = this.httpclient.execute(target, new HttpGet("/random/2000"))) {
+            Assert.assertEquals(200, response.getCode());
+            EntityUtils.consume(response.getEntity());
+        }
+        Assert.assertEquals(Arrays.asList(
+                "callStart",
+                "leaseStart", "leaseEnd",
+                "connectStart", "dnsStart", "dnsEnd", "connectEnd",
+                "requestStart", "responseStart",
+                "callEnd",
+                "responseEnd"), listener.getEvents());
+
+        listener.clear();
+        try (final CloseableHttpResponse response = this.httpclient.execute(target, new HttpGet("/random/2000"))) {
+            Assert.assertEquals(200, response.getCode());
+            EntityUtils.consume(response.getEntity());
+        }
+        Assert.assertEquals(Arrays.asList(
+                "callStart",
+                "leaseStart", "leaseEnd",
+                "requestStart", "responseStart",
+                "callEnd",
+                "responseEnd"), listener.getEvents());
+    }
+
+}
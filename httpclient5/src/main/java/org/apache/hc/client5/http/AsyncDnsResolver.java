@@ -0,0 +1,60 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http;
+
+import java.net.InetAddress;
+import java.util.concurrent.Future;
+
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.concurrent.FutureCallback;
+
+/**
+ * Non-blocking counterpart of {@link DnsResolver} used by the asynchronous
+ * connection management code. Implementations must not block the calling
+ * thread while the host name is being resolved, since it can be an I/O
+ * reactor thread.
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.STATELESS)
+public interface AsyncDnsResolver {
+
+    /**
+     * Resolves the IP addresses of the given host name.
+     * <p>
+     * The operation fails with {@link java.net.UnknownHostException} if
+     * the host name cannot be resolved.
+     * </p>
+     *
+     * @param host the host name to be resolved.
+     * @param callback the callback to be notified of the outcome. May be {@code null}.
+     * @return the future representing the outcome of the operation.
+     */
+    Future<InetAddress[]> resolve(String host, FutureCallback<InetAddress[]> callback);
+
+}
@@ -0,0 +1,55 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Signals that a request has been rejected because the number of requests
+ * in flight on its route reached the current concurrency limit.
+ *
+ * @since 5.1
+ */
+public class ConcurrencyLimitExceededException extends InterruptedIOException {
+
+    private static final long serialVersionUID = -2318416425783459211L;
+
+    private final HttpRoute route;
+
+    public ConcurrencyLimitExceededException(final String message, final HttpRoute route) {
+        super(message);
+        this.route = route;
+    }
+
+    /**
+     * Returns the saturated route.
+     */
+    public HttpRoute getRoute() {
+        return route;
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http;
+
+import java.net.InetAddress;
+import java.net.URI;
+
+import javax.net.ssl.SSLSession;
+
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Experimental;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Listener of request execution events that can be used to measure the time
+ * spent in individual phases of request execution.
+ * <p>
+ * Callbacks are invoked synchronously at the moment the respective event
+ * occurs, so a timestamp taken by the listener (for instance with
+ * {@link System#nanoTime()}) accurately reflects the time of the event.
+ * Events of the same request execution can be correlated by the execution
+ * context passed to each callback. Events of concurrent request executions
+ * may be reported concurrently from multiple threads, including I/O dispatch
+ * threads of asynchronous clients, so implementations must be thread-safe
+ * and should not block.
+ * </p>
+ * <p>
+ * All callbacks of this class do nothing by default. No event objects are
+ * created and no callbacks are invoked unless a listener is installed.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+@Experimental
+public abstract class RequestEventListener {
+
+    /**
+     * Invoked when a request is submitted for execution.
+     */
+    public void callStart(final HttpRequest request, final HttpContext context) {
+    }
+
+    /**
+     * Invoked when the request execution chain produces the final response.
+     * The response content, if any, may still be streamed afterwards.
+     */
+    public void callEnd(final HttpResponse response, final HttpContext context) {
+    }
+
+    /**
+     * Invoked when request execution fails.
+     */
+    public void callFailed(final Exception cause, final HttpContext context) {
+    }
+
+    /**
+     * Invoked before the host name is resolved.
+     */
+    public void dnsStart(final String host, final HttpContext context) {
+    }
+
+    /**
+     * Invoked after the host name has been resolved.
+     */
+    public void dnsEnd(final String host, final InetAddress[] addresses, final HttpContext context) {
+    }
+
+    /**
+     * Invoked before a connection endpoint is leased from the connection manager.
+     */
+    public void leaseStart(final HttpRoute route, final HttpContext context) {
+    }
+
+    /**
+     * Invoked after a connection endpoint has been leased from the connection manager.
+     */
+    public void leaseEnd(final HttpRoute route, final HttpContext context) {
+    }
+
+    /**
+     * Invoked before a new connection is established.
+     */
+    public void connectStart(final HttpRoute route, final HttpContext context) {
+    }
+
+    /**
+     * Invoked after a new connection has been established.
+     */
+    public void connectEnd(final HttpRoute route, final HttpContext context) {
+    }
+
+    /**
+     * Invoked when a new connection could not be established.
+     */
+    public void connectFailed(final HttpRoute route, final Exception cause, final HttpContext context) {
+    }
+
+    /**
+     * Invoked before a TLS handshake with the given host.
+     */
+    public void secureConnectStart(final String host, final HttpContext context) {
+    }
+
+    /**
+     * Invoked after a TLS handshake has been completed.
+     */
+    public void secureConnectEnd(final SSLSession session, final HttpContext context) {
+    }
+
+    /**
+     * Invoked before a request message is written to a connection.
+     */
+    public void requestStart(final HttpRequest request, final HttpContext context) {
+    }
+
+    /**
+     * Invoked when the head of a response message has been received.
+     */
+    public void responseStart(final HttpResponse response, final HttpContext context) {
+    }
+
+    /**
+     * Invoked when the response message has been fully received.
+     */
+    public void responseEnd(final HttpContext context) {
+    }
+
+    /**
+     * Invoked when a request is about to be re-executed.
+     *
+     * @param execCount the number of times the request has been executed so far.
+     */
+    public void retry(final HttpRequest request, final int execCount, final HttpContext context) {
+    }
+
+    /**
+     * Invoked when a request is about to be redirected.
+     */
+    public void redirect(final HttpRequest request, final URI redirectUri, final HttpContext context) {
+    }
+
+}
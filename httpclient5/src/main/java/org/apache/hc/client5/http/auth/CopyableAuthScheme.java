@@ -0,0 +1,47 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.auth;
+
+/**
+ * {@link AuthScheme} that can create an independent copy of its state.
+ * <p>
+ * {@link AuthCache} implementations can use copies to isolate cached
+ * authentication state from requests that make use of it without having
+ * to serialize the auth scheme.
+ * </p>
+ *
+ * @since 5.1
+ */
+public interface CopyableAuthScheme extends AuthScheme {
+
+    /**
+     * Creates a new instance of this auth scheme with the same state that
+     * shares no mutable state with this instance.
+     */
+    CopyableAuthScheme copy();
+
+}
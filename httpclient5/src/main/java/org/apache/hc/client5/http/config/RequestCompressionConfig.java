@@ -0,0 +1,195 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.config;
+
+import java.util.zip.Deflater;
+
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
+
+/**
+ * Immutable class encapsulating request content compression configuration items.
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE)
+public class RequestCompressionConfig {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final long DEFAULT_THRESHOLD = 4096;
+    private static final TimeValue DEFAULT_REJECTION_EXPIRY = TimeValue.ofHours(1);
+
+    public static final RequestCompressionConfig DEFAULT = new Builder().build();
+
+    private final long threshold;
+    private final String contentEncoding;
+    private final int compressionLevel;
+    private final TimeValue rejectionExpiry;
+
+    protected RequestCompressionConfig(
+            final long threshold,
+            final String contentEncoding,
+            final int compressionLevel,
+            final TimeValue rejectionExpiry) {
+        super();
+        this.threshold = threshold;
+        this.contentEncoding = contentEncoding;
+        this.compressionLevel = compressionLevel;
+        this.rejectionExpiry = rejectionExpiry;
+    }
+
+    /**
+     * @see Builder#setThreshold(long)
+     */
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @see Builder#setContentEncoding(String)
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * @see Builder#setCompressionLevel(int)
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @see Builder#setRejectionExpiry(TimeValue)
+     */
+    public TimeValue getRejectionExpiry() {
+        return rejectionExpiry;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("[");
+        builder.append("threshold=").append(threshold);
+        builder.append(", contentEncoding=").append(contentEncoding);
+        builder.append(", compressionLevel=").append(compressionLevel);
+        builder.append(", rejectionExpiry=").append(rejectionExpiry);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    public static RequestCompressionConfig.Builder custom() {
+        return new Builder();
+    }
+
+    public static RequestCompressionConfig.Builder copy(final RequestCompressionConfig config) {
+        return new Builder()
+            .setThreshold(config.getThreshold())
+            .setContentEncoding(config.getContentEncoding())
+            .setCompressionLevel(config.getCompressionLevel())
+            .setRejectionExpiry(config.getRejectionExpiry());
+    }
+
+    public static class Builder {
+
+        private long threshold;
+        private String contentEncoding;
+        private int compressionLevel;
+        private TimeValue rejectionExpiry;
+
+        Builder() {
+            super();
+            this.threshold = DEFAULT_THRESHOLD;
+            this.contentEncoding = GZIP;
+            this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+            this.rejectionExpiry = DEFAULT_REJECTION_EXPIRY;
+        }
+
+        /**
+         * Determines the minimum length of request content in bytes for it to be
+         * compressed. Content of unknown length is always compressed.
+         * <p>
+         * Default: {@code 4096}
+         * </p>
+         */
+        public Builder setThreshold(final long threshold) {
+            this.threshold = Args.notNegative(threshold, "Threshold");
+            return this;
+        }
+
+        /**
+         * Determines the content coding used to compress request content,
+         * either {@link #GZIP} or {@link #DEFLATE}.
+         * <p>
+         * Default: {@code gzip}
+         * </p>
+         */
+        public Builder setContentEncoding(final String contentEncoding) {
+            Args.check(GZIP.equalsIgnoreCase(contentEncoding) || DEFLATE.equalsIgnoreCase(contentEncoding),
+                    "Unsupported content encoding: " + contentEncoding);
+            this.contentEncoding = GZIP.equalsIgnoreCase(contentEncoding) ? GZIP : DEFLATE;
+            return this;
+        }
+
+        /**
+         * Determines the compression level from {@code 0} (no compression) to {@code 9}
+         * (best compression) or {@code -1} for the default level.
+         * <p>
+         * Default: {@code -1}
+         * </p>
+         */
+        public Builder setCompressionLevel(final int compressionLevel) {
+            Args.check(compressionLevel >= Deflater.DEFAULT_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION,
+                    "Invalid compression level: " + compressionLevel);
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * Determines for how long request content sent to a host that rejected
+         * compressed content with status {@code 415 Unsupported Media Type} is
+         * no longer compressed.
+         * <p>
+         * Default: 1 hour
+         * </p>
+         */
+        public Builder setRejectionExpiry(final TimeValue rejectionExpiry) {
+            this.rejectionExpiry = Args.notNull(rejectionExpiry, "Rejection expiry");
+            return this;
+        }
+
+        public RequestCompressionConfig build() {
+            return new RequestCompressionConfig(threshold, contentEncoding, compressionLevel, rejectionExpiry);
+        }
+
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.cookie;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Extension of {@link CookieStore} capable of looking up cookies relevant
+ * to a particular origin without iterating over all cookies in the store.
+ *
+ * @since 5.1
+ */
+public interface CookieLookup extends CookieStore {
+
+    /**
+     * Returns cookies that may match the given origin and have not expired
+     * by the given date. The result is a superset of the cookies matching the
+     * origin and is expected to be further filtered with
+     * {@link CookieSpec#match(Cookie, CookieOrigin)}.
+     *
+     * @param origin the origin.
+     * @param date the date against which cookie expiration is checked.
+     * @return cookies that may match the origin.
+     */
+    List<Cookie> getCookies(CookieOrigin origin, Date date);
+
+}
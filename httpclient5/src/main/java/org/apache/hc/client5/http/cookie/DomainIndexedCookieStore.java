@@ -0,0 +1,305 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.cookie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hc.client5.http.psl.PublicSuffixMatcher;
+import org.apache.hc.client5.http.psl.PublicSuffixMatcherLoader;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.net.InetAddressUtils;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * {@link CookieStore} implementation that indexes cookies by the registrable
+ * domain of their domain attribute as determined by {@link PublicSuffixMatcher}.
+ * <p>
+ * Cookies relevant to an origin can be looked up with {@link #getCookies(CookieOrigin, Date)}
+ * by examining only those cookies whose domain is related to the origin host
+ * instead of the entire content of the store. Each domain bucket is updated
+ * atomically in a copy-on-write fashion, so lookups never block. Expired cookies
+ * are evicted lazily from the buckets visited by lookups. Buckets that become empty
+ * are retired and removed from the index; cookies added concurrently are never
+ * lost to a retired bucket.
+ * </p>
+ * <p>
+ * This implementation is intended for stores containing a large number of cookies
+ * for many different domains.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class DomainIndexedCookieStore implements CookieLookup {
+
+    private static final Cookie[] EMPTY = new Cookie[0];
+    /**
+     * Marks buckets that have been removed from the index and must not be updated.
+     */
+    private static final Cookie[] RETIRED = new Cookie[0];
+
+    private final PublicSuffixMatcher publicSuffixMatcher;
+    private final CookieIdentityComparator identityComparator;
+    private final ConcurrentMap<String, AtomicReference<Cookie[]>> buckets;
+
+    public DomainIndexedCookieStore(final PublicSuffixMatcher publicSuffixMatcher) {
+        super();
+        this.publicSuffixMatcher = Args.notNull(publicSuffixMatcher, "Public suffix matcher");
+        this.identityComparator = new CookieIdentityComparator();
+        this.buckets = new ConcurrentHashMap<>();
+    }
+
+    public DomainIndexedCookieStore() {
+        this(PublicSuffixMatcherLoader.getDefault());
+    }
+
+    static String normalizeDomain(final String domain) {
+        if (domain == null) {
+            return "";
+        }
+        final String s = domain.startsWith(".") ? domain.substring(1) : domain;
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    String getIndexKey(final String domain) {
+        if (domain.isEmpty()
+                || InetAddressUtils.isIPv4Address(domain)
+                || InetAddressUtils.isIPv6Address(domain)) {
+            return domain;
+        }
+        final String root = publicSuffixMatcher.getDomainRoot(domain);
+        return root != null ? root : domain;
+    }
+
+    private AtomicReference<Cookie[]> getBucket(final String key) {
+        AtomicReference<Cookie[]> bucket = buckets.get(key);
+        if (bucket == null) {
+            final AtomicReference<Cookie[]> newBucket = new AtomicReference<>(EMPTY);
+            bucket = buckets.putIfAbsent(key, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * Retires the bucket if it contains no cookies and removes it from the index.
+     */
+    private void removeIfEmpty(final String key, final AtomicReference<Cookie[]> bucket) {
+        final Cookie[] current = bucket.get();
+        if (current.length == 0 && (current == RETIRED || bucket.compareAndSet(current, RETIRED))) {
+            buckets.remove(key, bucket);
+        }
+    }
+
+    /**
+     * Adds an {@link Cookie HTTP cookie}, replacing any existing equivalent cookies.
+     * If the given cookie has already expired it will not be added, but existing
+     * values will still be removed.
+     *
+     * @param cookie the {@link Cookie cookie} to be added
+     */
+    @Override
+    public void addCookie(final Cookie cookie) {
+        if (cookie == null) {
+            return;
+        }
+        final boolean expired = cookie.isExpired(new Date());
+        final String key = getIndexKey(normalizeDomain(cookie.getDomain()));
+        AtomicReference<Cookie[]> bucket = getBucket(key);
+        for (;;) {
+            final Cookie[] current = bucket.get();
+            if (current == RETIRED) {
+                // The bucket has been concurrently retired; continue with a fresh one
+                buckets.remove(key, bucket);
+                bucket = getBucket(key);
+                continue;
+            }
+            final List<Cookie> update = new ArrayList<>(current.length + 1);
+            for (final Cookie existing : current) {
+                if (identityComparator.compare(existing, cookie) != 0) {
+                    update.add(existing);
+                }
+            }
+            if (!expired) {
+                update.add(cookie);
+            }
+            if (bucket.compareAndSet(current, update.toArray(new Cookie[update.size()]))) {
+                if (update.isEmpty()) {
+                    removeIfEmpty(key, bucket);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds an array of {@link Cookie HTTP cookies}. Cookies are added individually and
+     * in the given array order.
+     *
+     * @param cookies the {@link Cookie cookies} to be added
+     */
+    public void addCookies(final Cookie[] cookies) {
+        if (cookies != null) {
+            for (final Cookie cookie : cookies) {
+                addCookie(cookie);
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of all cookies contained in the store.
+     */
+    @Override
+    public List<Cookie> getCookies() {
+        final List<Cookie> cookies = new ArrayList<>();
+        for (final AtomicReference<Cookie[]> bucket : buckets.values()) {
+            cookies.addAll(Arrays.asList(bucket.get()));
+        }
+        return cookies;
+    }
+
+    /**
+     * Returns cookies that may match the given origin and have not expired by the given
+     * date. Only cookies indexed under the registrable domain of the origin host or its
+     * parent domains are examined. Expired cookies encountered in the process are evicted
+     * from the store.
+     */
+    @Override
+    public List<Cookie> getCookies(final CookieOrigin origin, final Date date) {
+        Args.notNull(origin, "Cookie origin");
+        Args.notNull(date, "Date");
+        final String host = normalizeDomain(origin.getHost());
+        final String path = origin.getPath();
+        final List<Cookie> cookies = new ArrayList<>();
+        String key = getIndexKey(host);
+        while (key != null && !key.isEmpty()) {
+            final AtomicReference<Cookie[]> bucket = buckets.get(key);
+            if (bucket != null) {
+                lookup(key, bucket, path, date, cookies);
+            }
+            if (InetAddressUtils.isIPv4Address(key) || InetAddressUtils.isIPv6Address(key)) {
+                break;
+            }
+            final int dot = key.indexOf('.');
+            key = dot != -1 ? key.substring(dot + 1) : null;
+        }
+        return cookies;
+    }
+
+    private void lookup(
+            final String key,
+            final AtomicReference<Cookie[]> bucket,
+            final String path,
+            final Date date,
+            final List<Cookie> result) {
+        boolean expired = false;
+        for (final Cookie cookie : bucket.get()) {
+            if (cookie.isExpired(date)) {
+                expired = true;
+            } else if (pathMatches(cookie.getPath(), path)) {
+                result.add(cookie);
+            }
+        }
+        if (expired) {
+            purgeExpired(key, bucket, date);
+        }
+    }
+
+    private static boolean pathMatches(final String cookiePath, final String path) {
+        return cookiePath == null || path == null || path.startsWith(cookiePath);
+    }
+
+    private boolean purgeExpired(final String key, final AtomicReference<Cookie[]> bucket, final Date date) {
+        for (;;) {
+            final Cookie[] current = bucket.get();
+            final List<Cookie> update = new ArrayList<>(current.length);
+            for (final Cookie cookie : current) {
+                if (!cookie.isExpired(date)) {
+                    update.add(cookie);
+                }
+            }
+            if (update.size() == current.length) {
+                return false;
+            }
+            if (bucket.compareAndSet(current, update.toArray(new Cookie[update.size()]))) {
+                if (update.isEmpty()) {
+                    removeIfEmpty(key, bucket);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes all of {@link Cookie cookies} in this store that have expired
+     * by the specified {@link java.util.Date date}.
+     *
+     * @return true if any cookies were purged.
+     */
+    @Override
+    public boolean clearExpired(final Date date) {
+        if (date == null) {
+            return false;
+        }
+        boolean removed = false;
+        for (final Map.Entry<String, AtomicReference<Cookie[]>> entry : buckets.entrySet()) {
+            if (purgeExpired(entry.getKey(), entry.getValue(), date)) {
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Clears all cookies.
+     */
+    @Override
+    public void clear() {
+        for (final Map.Entry<String, AtomicReference<Cookie[]>> entry : buckets.entrySet()) {
+            final AtomicReference<Cookie[]> bucket = entry.getValue();
+            bucket.set(RETIRED);
+            buckets.remove(entry.getKey(), bucket);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getCookies().toString();
+    }
+
+}
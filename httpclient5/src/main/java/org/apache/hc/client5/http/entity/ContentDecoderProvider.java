@@ -0,0 +1,60 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.entity;
+
+/**
+ * Service provider of an {@link InputStreamFactory} for a particular content coding.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader} by
+ * {@link ContentDecoderRegistry} when listed in
+ * {@code META-INF/services/org.apache.hc.client5.http.entity.ContentDecoderProvider}.
+ * This allows decoders that depend on optional libraries, such as Brotli or
+ * Zstandard, to be enabled simply by adding them to the classpath.
+ * </p>
+ *
+ * @since 5.1
+ */
+public interface ContentDecoderProvider {
+
+    /**
+     * Returns the name of the content coding handled by this provider, for instance
+     * {@code br} or {@code zstd}.
+     */
+    String getContentEncoding();
+
+    /**
+     * Returns the factory of decoding input streams.
+     */
+    InputStreamFactory getInputStreamFactory();
+
+    /**
+     * Returns the default preference of the content coding in the range {@code 0.0}
+     * to {@code 1.0} as advertised with the {@code Accept-Encoding} request header.
+     */
+    float getQuality();
+
+}
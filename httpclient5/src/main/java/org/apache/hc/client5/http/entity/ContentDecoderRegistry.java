@@ -0,0 +1,257 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.http.config.Lookup;
+import org.apache.hc.core5.util.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of {@link InputStreamFactory} instances by content coding along with
+ * their preference advertised in the {@code Accept-Encoding} request header.
+ * <p>
+ * The default registry contains decoders for {@code gzip}, {@code x-gzip} and
+ * {@code deflate} as well as decoders of all {@link ContentDecoderProvider}s
+ * present on the classpath.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE)
+public final class ContentDecoderRegistry implements Lookup<InputStreamFactory> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentDecoderRegistry.class);
+
+    private static volatile ContentDecoderRegistry defaultRegistry;
+
+    /**
+     * Returns the default registry, discovering available {@link ContentDecoderProvider}s
+     * on first use.
+     */
+    public static ContentDecoderRegistry getDefault() {
+        ContentDecoderRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (ContentDecoderRegistry.class) {
+                registry = defaultRegistry;
+                if (registry == null) {
+                    registry = custom().registerDefaults().build();
+                    defaultRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    private final Map<String, InputStreamFactory> decoders;
+    private final Map<String, Float> qualities;
+    private final List<String> acceptEncoding;
+
+    private ContentDecoderRegistry(
+            final Map<String, InputStreamFactory> decoders,
+            final Map<String, Float> qualities) {
+        this.decoders = Collections.unmodifiableMap(new LinkedHashMap<>(decoders));
+        this.qualities = Collections.unmodifiableMap(new LinkedHashMap<>(qualities));
+        final List<String> tokens = new ArrayList<>(decoders.size());
+        for (final String encoding : decoders.keySet()) {
+            final float quality = getQuality(encoding);
+            if (Math.round(quality * 1000) > 0) {
+                tokens.add(formatToken(encoding, quality));
+            }
+        }
+        this.acceptEncoding = Collections.unmodifiableList(tokens);
+    }
+
+    @Override
+    public InputStreamFactory lookup(final String name) {
+        return name != null ? decoders.get(name.toLowerCase(Locale.ROOT)) : null;
+    }
+
+    /**
+     * Returns the names of registered content codings in the order of registration.
+     */
+    public Set<String> getContentEncodings() {
+        return decoders.keySet();
+    }
+
+    /**
+     * Returns the preference of the given content coding or {@code 0} if not registered.
+     */
+    public float getQuality(final String encoding) {
+        final Float quality = encoding != null ? qualities.get(encoding.toLowerCase(Locale.ROOT)) : null;
+        return quality != null ? quality : 0f;
+    }
+
+    /**
+     * Returns elements of the {@code Accept-Encoding} header value advertising all
+     * registered content codings with a non-zero preference.
+     */
+    public List<String> getAcceptEncoding() {
+        return acceptEncoding;
+    }
+
+    static String formatToken(final String encoding, final float quality) {
+        final int millis = Math.round(quality * 1000);
+        if (millis >= 1000) {
+            return encoding;
+        }
+        final StringBuilder buf = new StringBuilder(encoding.length() + 8);
+        buf.append(encoding).append(";q=0.");
+        final String digits = Integer.toString(1000 + millis).substring(1);
+        int end = digits.length();
+        while (end > 1 && digits.charAt(end - 1) == '0') {
+            end--;
+        }
+        buf.append(digits, 0, end);
+        return buf.toString();
+    }
+
+    @Override
+    public String toString() {
+        return acceptEncoding.toString();
+    }
+
+    public static final class Builder {
+
+        private final Map<String, InputStreamFactory> decoders;
+        private final Map<String, Float> qualities;
+
+        Builder() {
+            this.decoders = new LinkedHashMap<>();
+            this.qualities = new LinkedHashMap<>();
+        }
+
+        /**
+         * Registers a decoder of the given content coding with the given preference.
+         */
+        public Builder register(final String encoding, final InputStreamFactory factory, final float quality) {
+            Args.notBlank(encoding, "Content encoding");
+            Args.notNull(factory, "Input stream factory");
+            checkQuality(quality);
+            final String key = encoding.toLowerCase(Locale.ROOT);
+            decoders.put(key, factory);
+            qualities.put(key, quality);
+            return this;
+        }
+
+        /**
+         * Registers a decoder of the given content coding with the maximum preference.
+         */
+        public Builder register(final String encoding, final InputStreamFactory factory) {
+            return register(encoding, factory, 1.0f);
+        }
+
+        /**
+         * Registers decoders for {@code gzip}, {@code x-gzip} and {@code deflate}.
+         */
+        public Builder registerBuiltIns() {
+            register("gzip", GZIPInputStreamFactory.getInstance());
+            register("x-gzip", GZIPInputStreamFactory.getInstance());
+            register("deflate", DeflateInputStreamFactory.getInstance());
+            return this;
+        }
+
+        /**
+         * Registers decoders of all {@link ContentDecoderProvider}s visible to the given
+         * class loader. Providers that cannot be loaded, for instance due to a missing
+         * optional dependency, are skipped.
+         */
+        public Builder loadProviders(final ClassLoader classLoader) {
+            final ServiceLoader<ContentDecoderProvider> serviceLoader =
+                    ServiceLoader.load(ContentDecoderProvider.class, classLoader);
+            final Iterator<ContentDecoderProvider> it = serviceLoader.iterator();
+            for (;;) {
+                try {
+                    if (!it.hasNext()) {
+                        break;
+                    }
+                    final ContentDecoderProvider provider = it.next();
+                    final String encoding = provider.getContentEncoding();
+                    register(encoding, provider.getInputStreamFactory(), provider.getQuality());
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Registered content decoder for '{}'", encoding);
+                    }
+                } catch (final ServiceConfigurationError | LinkageError | IllegalArgumentException ex) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Content decoder provider could not be loaded: {}", ex.toString());
+                    }
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Registers built-in decoders and decoders of all {@link ContentDecoderProvider}s
+         * visible to the class loader of this class.
+         */
+        public Builder registerDefaults() {
+            registerBuiltIns();
+            return loadProviders(ContentDecoderRegistry.class.getClassLoader());
+        }
+
+        /**
+         * Overrides the preference of an already registered content coding. A preference
+         * of {@code 0} keeps the decoder registered but stops advertising the coding.
+         */
+        public Builder setQuality(final String encoding, final float quality) {
+            Args.notBlank(encoding, "Content encoding");
+            checkQuality(quality);
+            final String key = encoding.toLowerCase(Locale.ROOT);
+            if (decoders.containsKey(key)) {
+                qualities.put(key, quality);
+            }
+            return this;
+        }
+
+        private static void checkQuality(final float quality) {
+            Args.check(quality >= 0f && quality <= 1f, "Quality must be in range [0.0, 1.0]");
+        }
+
+        public ContentDecoderRegistry build() {
+            return new ContentDecoderRegistry(decoders, qualities);
+        }
+
+    }
+
+}
@@ -0,0 +1,605 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.BackoffManager;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Experimental;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * Adaptive per-route concurrency limiter driven by observed round trip times.
+ * <p>
+ * For each route the limiter keeps track of the number of requests in flight
+ * and an estimate of the number of concurrent requests the route can sustain.
+ * The estimate follows a gradient algorithm: the ratio of the long term average
+ * round trip time to the latest sample scales the limit down as latency grows
+ * due to queuing at the opposite endpoint, while a queue allowance proportional
+ * to the square root of the limit lets it grow while latency stays flat.
+ * Back-off signals such as {@code 503} responses or connection failures reduce
+ * the limit multiplicatively. The limit is only raised while the route is
+ * actually utilized.
+ * </p>
+ * <p>
+ * Per-route state is updated with atomic compare-and-set operations only.
+ * If a {@link ConnPoolControl} is given, its per-route maximum is adjusted
+ * whenever the integral value of the limit changes. Adjustments of the same
+ * route are serialized so that they reach the pool in order.
+ * </p>
+ * <p>
+ * This class also implements {@link BackoffManager} and can therefore be used
+ * in place of {@link org.apache.hc.client5.http.impl.classic.AIMDBackoffManager}.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+@Experimental
+public class AdaptiveConcurrencyLimiter implements BackoffManager {
+
+    private final ConnPoolControl<HttpRoute> connPerRoute;
+    private final ConcurrentMap<HttpRoute, RouteLimit> routeLimits;
+
+    private volatile int initialLimit = 4;
+    private volatile int minLimit = 1;
+    private volatile int maxLimit = 200;
+    private volatile double backoffRatio = 0.75;
+    private volatile double rttTolerance = 1.5;
+    private volatile double smoothing = 0.2;
+    private volatile int rttWindow = 600;
+
+    /**
+     * Creates an {@code AdaptiveConcurrencyLimiter} that manages per-route
+     * maximums of the given {@link ConnPoolControl}.
+     *
+     * @param connPerRoute per-route maximums to be managed. May be {@code null}.
+     */
+    public AdaptiveConcurrencyLimiter(final ConnPoolControl<HttpRoute> connPerRoute) {
+        this.connPerRoute = connPerRoute;
+        this.routeLimits = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates an {@code AdaptiveConcurrencyLimiter} that limits requests in flight
+     * without adjusting connection pool maximums.
+     */
+    public AdaptiveConcurrencyLimiter() {
+        this(null);
+    }
+
+    /**
+     * Sets the limit of newly seen routes. Defaults to 4.
+     */
+    public void setInitialLimit(final int initialLimit) {
+        Args.positive(initialLimit, "Initial limit");
+        this.initialLimit = initialLimit;
+    }
+
+    /**
+     * Sets the lower bound of route limits. Defaults to 1.
+     */
+    public void setMinLimit(final int minLimit) {
+        Args.positive(minLimit, "Min limit");
+        this.minLimit = minLimit;
+    }
+
+    /**
+     * Sets the upper bound of route limits. Defaults to 200.
+     */
+    public void setMaxLimit(final int maxLimit) {
+        Args.positive(maxLimit, "Max limit");
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Sets the factor applied to the limit of a route upon a back-off signal.
+     * Defaults to 0.75.
+     *
+     * @param backoffRatio must be between 0.0 and 1.0, exclusive.
+     */
+    public void setBackoffRatio(final double backoffRatio) {
+        Args.check(backoffRatio > 0.0 && backoffRatio < 1.0, "Backoff ratio must be 0.0 < f < 1.0");
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * Sets the ratio of the latest round trip time to the long term average
+     * that is tolerated before the limit gets reduced. Defaults to 1.5.
+     *
+     * @param rttTolerance must be at least 1.0.
+     */
+    public void setRttTolerance(final double rttTolerance) {
+        Args.check(rttTolerance >= 1.0, "RTT tolerance must be >= 1.0");
+        this.rttTolerance = rttTolerance;
+    }
+
+    /**
+     * Sets the weight of a new limit estimate relative to the current limit.
+     * Defaults to 0.2.
+     *
+     * @param smoothing must be between 0.0 exclusive and 1.0 inclusive.
+     */
+    public void setSmoothing(final double smoothing) {
+        Args.check(smoothing > 0.0 && smoothing <= 1.0, "Smoothing must be 0.0 < f <= 1.0");
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Sets the number of samples the long term average round trip time is
+     * computed over. Defaults to 600.
+     */
+    public void setRttWindow(final int rttWindow) {
+        Args.positive(rttWindow, "RTT window");
+        this.rttWindow = rttWindow;
+    }
+
+    RouteLimit getRouteLimit(final HttpRoute route) {
+        RouteLimit routeLimit = routeLimits.get(route);
+        if (routeLimit == null) {
+            final RouteLimit newRouteLimit = new RouteLimit(clamp(initialLimit));
+            routeLimit = routeLimits.putIfAbsent(route, newRouteLimit);
+            if (routeLimit == null) {
+                routeLimit = newRouteLimit;
+                applyLimit(route, routeLimit);
+            }
+        }
+        return routeLimit;
+    }
+
+    private double clamp(final double limit) {
+        return Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+
+    /**
+     * Attempts to acquire a permit to execute a request on the given route
+     * without waiting.
+     *
+     * @return {@code true} if a permit has been acquired, {@code false} if the
+     *  route is saturated.
+     */
+    public boolean tryAcquire(final HttpRoute route) {
+        Args.notNull(route, "Route");
+        return getRouteLimit(route).tryAcquire();
+    }
+
+    /**
+     * Acquires a permit to execute a request on the given route waiting up to
+     * the given timeout for one to become available. A {@code null} or
+     * non-positive timeout means no waiting.
+     *
+     * @return {@code true} if a permit has been acquired, {@code false} if the
+     *  route remained saturated until the timeout expired.
+     */
+    public boolean acquire(final HttpRoute route, final Timeout timeout) throws InterruptedException {
+        Args.notNull(route, "Route");
+        final RouteLimit routeLimit = getRouteLimit(route);
+        if (routeLimit.tryAcquire()) {
+            return true;
+        }
+        if (!TimeValue.isPositive(timeout)) {
+            return false;
+        }
+        return routeLimit.await(timeout.toMilliseconds());
+    }
+
+    /**
+     * Acquires a permit to execute a request on the given route without blocking.
+     * The callback is completed with {@code true} as soon as a permit has been
+     * acquired, or with {@code false} if the route remained saturated until
+     * the timeout expired. A {@code null} or non-positive timeout means no waiting.
+     * Waiting requests are granted permits in the order they arrived.
+     * <p>
+     * The given executor is used to expire waiting requests and to complete
+     * the callbacks of waiting requests granted a permit, so that they are not
+     * run by the thread releasing the permit. The executor remains owned by
+     * the caller.
+     * </p>
+     *
+     * @return the waiting request, which can be cancelled to withdraw it.
+     *
+     * @since 5.1
+     */
+    public Cancellable acquire(
+            final HttpRoute route,
+            final Timeout timeout,
+            final ScheduledExecutorService executor,
+            final FutureCallback<Boolean> callback) {
+        Args.notNull(route, "Route");
+        Args.notNull(executor, "Executor");
+        Args.notNull(callback, "Callback");
+        final RouteLimit routeLimit = getRouteLimit(route);
+        final AsyncWaiter waiter = new AsyncWaiter(routeLimit, executor, callback);
+        if (routeLimit.asyncWaiters.isEmpty() && routeLimit.tryAcquire()) {
+            waiter.grant();
+            return waiter;
+        }
+        if (!TimeValue.isPositive(timeout)) {
+            waiter.expire();
+            return waiter;
+        }
+        routeLimit.asyncWaiters.add(waiter);
+        try {
+            waiter.timeoutFuture = executor.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    waiter.expire();
+                }
+
+            }, timeout.toMilliseconds(), TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException ex) {
+            waiter.expire();
+        }
+        // A permit may have been released before the waiter got queued
+        routeLimit.dispatchAsyncWaiters();
+        return waiter;
+    }
+
+    /**
+     * Releases a permit of a request that completed successfully after the given
+     * round trip time.
+     */
+    public void onSuccess(final HttpRoute route, final long rtt, final TimeUnit timeUnit) {
+        Args.notNull(route, "Route");
+        final RouteLimit routeLimit = getRouteLimit(route);
+        final int inFlight = routeLimit.release();
+        final long rttNanos = timeUnit.toNanos(rtt);
+        if (rttNanos > 0) {
+            routeLimit.update(rttNanos, inFlight + 1);
+            applyLimit(route, routeLimit);
+        }
+    }
+
+    /**
+     * Releases a permit of a request that failed in a way that signals
+     * overload of the opposite endpoint and reduces the limit of the route.
+     */
+    public void onDropped(final HttpRoute route) {
+        Args.notNull(route, "Route");
+        getRouteLimit(route).release();
+        backOff(route);
+    }
+
+    /**
+     * Releases a permit of a request whose outcome should not affect the limit.
+     */
+    public void onIgnored(final HttpRoute route) {
+        Args.notNull(route, "Route");
+        getRouteLimit(route).release();
+    }
+
+    @Override
+    public void backOff(final HttpRoute route) {
+        final RouteLimit routeLimit = getRouteLimit(route);
+        routeLimit.backOff();
+        applyLimit(route, routeLimit);
+    }
+
+    /**
+     * Does nothing. Limits grow based on observed round trip times reported with
+     * {@link #onSuccess(HttpRoute, long, TimeUnit)}.
+     */
+    @Override
+    public void probe(final HttpRoute route) {
+    }
+
+    /**
+     * Returns the current limit of the given route.
+     */
+    public int getLimit(final HttpRoute route) {
+        return getRouteLimit(route).getLimit();
+    }
+
+    /**
+     * Returns the number of requests currently in flight on the given route.
+     */
+    public int getInFlight(final HttpRoute route) {
+        final RouteLimit routeLimit = routeLimits.get(route);
+        return routeLimit != null ? routeLimit.inFlight.get() : 0;
+    }
+
+    private void applyLimit(final HttpRoute route, final RouteLimit routeLimit) {
+        if (connPerRoute == null) {
+            return;
+        }
+        // The limit is read under the lock so that the latest value is the last one applied
+        synchronized (routeLimit.applyLock) {
+            final int limit = routeLimit.getLimit();
+            if (routeLimit.appliedLimit != limit) {
+                routeLimit.appliedLimit = limit;
+                connPerRoute.setMaxPerRoute(route, limit);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveConcurrencyLimiter [routes=" + routeLimits.size() + "]";
+    }
+
+    final class RouteLimit {
+
+        final AtomicInteger inFlight;
+        final Object applyLock;
+        int appliedLimit;
+        private final AtomicLong limitBits;
+        private final AtomicLong longRttBits;
+        private final AtomicInteger waiters;
+        final Queue<AsyncWaiter> asyncWaiters;
+
+        RouteLimit(final double limit) {
+            this.inFlight = new AtomicInteger(0);
+            this.applyLock = new Object();
+            this.appliedLimit = -1;
+            this.limitBits = new AtomicLong(Double.doubleToRawLongBits(limit));
+            this.longRttBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+            this.waiters = new AtomicInteger(0);
+            this.asyncWaiters = new ConcurrentLinkedQueue<>();
+        }
+
+        double getEstimate() {
+            return Double.longBitsToDouble(limitBits.get());
+        }
+
+        int getLimit() {
+            return (int) getEstimate();
+        }
+
+        boolean tryAcquire() {
+            for (;;) {
+                final int current = inFlight.get();
+                if (current >= getLimit()) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        int release() {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current == 0) {
+                    break;
+                }
+            } while (!inFlight.compareAndSet(current, current - 1));
+            signalWaiters();
+            return Math.max(current - 1, 0);
+        }
+
+        private void signalWaiters() {
+            if (waiters.get() > 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+            dispatchAsyncWaiters();
+        }
+
+        void dispatchAsyncWaiters() {
+            for (;;) {
+                final AsyncWaiter waiter = asyncWaiters.peek();
+                if (waiter == null) {
+                    return;
+                }
+                if (waiter.isDone()) {
+                    asyncWaiters.remove(waiter);
+                    continue;
+                }
+                if (!tryAcquire()) {
+                    return;
+                }
+                asyncWaiters.remove(waiter);
+                if (!waiter.dispatch()) {
+                    // The waiter expired or got cancelled in the meantime
+                    giveBack();
+                }
+            }
+        }
+
+        private void giveBack() {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current == 0) {
+                    return;
+                }
+            } while (!inFlight.compareAndSet(current, current - 1));
+        }
+
+        boolean await(final long timeoutMillis) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + timeoutMillis;
+            waiters.incrementAndGet();
+            try {
+                synchronized (this) {
+                    for (;;) {
+                        if (tryAcquire()) {
+                            return true;
+                        }
+                        final long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        wait(remaining);
+                    }
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+
+        void update(final long rttNanos, final int inFlightAtCompletion) {
+            final double sample = rttNanos;
+            final int window = rttWindow;
+            double longRtt;
+            for (;;) {
+                final long bits = longRttBits.get();
+                final double current = Double.longBitsToDouble(bits);
+                longRtt = current == 0.0 ? sample : current + (sample - current) / window;
+                if (longRttBits.compareAndSet(bits, Double.doubleToRawLongBits(longRtt))) {
+                    break;
+                }
+            }
+            for (;;) {
+                final long bits = limitBits.get();
+                final double limit = Double.longBitsToDouble(bits);
+                final double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / sample));
+                // Do not grow the limit unless the route is actually utilized
+                if (gradient >= 1.0 && inFlightAtCompletion < limit / 2) {
+                    return;
+                }
+                final double queueSize = Math.sqrt(limit);
+                double newLimit = limit * gradient + queueSize;
+                newLimit = clamp(limit * (1 - smoothing) + newLimit * smoothing);
+                if (limitBits.compareAndSet(bits, Double.doubleToRawLongBits(newLimit))) {
+                    if (newLimit > limit) {
+                        signalWaiters();
+                    }
+                    return;
+                }
+            }
+        }
+
+        void backOff() {
+            for (;;) {
+                final long bits = limitBits.get();
+                final double limit = Double.longBitsToDouble(bits);
+                final double newLimit = clamp(limit * backoffRatio);
+                if (limitBits.compareAndSet(bits, Double.doubleToRawLongBits(newLimit))) {
+                    return;
+                }
+            }
+        }
+
+    }
+
+    static final class AsyncWaiter implements Cancellable {
+
+        private final RouteLimit routeLimit;
+        private final ScheduledExecutorService executor;
+        private final FutureCallback<Boolean> callback;
+        private final AtomicBoolean done;
+        volatile Future<?> timeoutFuture;
+
+        AsyncWaiter(
+                final RouteLimit routeLimit,
+                final ScheduledExecutorService executor,
+                final FutureCallback<Boolean> callback) {
+            this.routeLimit = routeLimit;
+            this.executor = executor;
+            this.callback = callback;
+            this.done = new AtomicBoolean(false);
+        }
+
+        boolean isDone() {
+            return done.get();
+        }
+
+        private boolean complete() {
+            if (done.compareAndSet(false, true)) {
+                final Future<?> future = timeoutFuture;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        boolean grant() {
+            if (complete()) {
+                callback.completed(Boolean.TRUE);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Grants the permit released by another request, completing the callback
+         * with the executor.
+         */
+        boolean dispatch() {
+            if (complete()) {
+                final Runnable command = new Runnable() {
+
+                    @Override
+                    public void run() {
+                        callback.completed(Boolean.TRUE);
+                    }
+
+                };
+                try {
+                    executor.execute(command);
+                } catch (final RejectedExecutionException ex) {
+                    command.run();
+                }
+                return true;
+            }
+            return false;
+        }
+
+        void expire() {
+            if (complete()) {
+                routeLimit.asyncWaiters.remove(this);
+                callback.completed(Boolean.FALSE);
+            }
+        }
+
+        @Override
+        public boolean cancel() {
+            if (complete()) {
+                routeLimit.asyncWaiters.remove(this);
+                callback.cancelled();
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
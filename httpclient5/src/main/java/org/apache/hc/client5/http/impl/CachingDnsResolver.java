@@ -0,0 +1,485 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.io.ModalCloseable;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link DnsResolver} decorator that caches the outcome of host name lookups.
+ * <p>
+ * Resolved addresses are retained for a fixed time to live and failed lookups
+ * for a (usually shorter) negative time to live. The number of cached hosts
+ * is bounded; expired and then least recently used entries are evicted first.
+ * Cache hits never block: their recency is only recorded while no other thread
+ * updates the cache, which makes the eviction order approximate. Concurrent
+ * lookups of the same host are coalesced into a single call to the underlying
+ * resolver. Entries that are being used shortly before their expiry are
+ * refreshed in the background, so that hosts in active use do not cause
+ * the connect path to block on name resolution.
+ * </p>
+ * <p>
+ * Unless an executor is given explicitly, background refreshes are run by
+ * a small bounded pool of daemon threads owned by the resolver, which gets
+ * released by {@link #close(CloseMode)}. The resolver may be shared by
+ * several connection managers; the caller owns it and is responsible for
+ * closing it. Should the pool be shut down or saturated, entries are no
+ * longer refreshed ahead of their expiry but resolved again on the next lookup.
+ * </p>
+ * <p>
+ * {@link #resolveCanonicalHostname(String)} is not cached and is always
+ * delegated to the underlying resolver.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class CachingDnsResolver implements DnsResolver, ModalCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingDnsResolver.class);
+
+    public static final TimeValue DEFAULT_TIME_TO_LIVE = TimeValue.ofSeconds(60);
+    public static final TimeValue DEFAULT_NEGATIVE_TIME_TO_LIVE = TimeValue.ofSeconds(10);
+    public static final TimeValue DEFAULT_REFRESH_AHEAD = TimeValue.ofSeconds(10);
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private static final int REFRESH_THREADS = 2;
+    private static final int REFRESH_QUEUE_SIZE = 64;
+
+    private final DnsResolver dnsResolver;
+    private final long timeToLiveNanos;
+    private final long negativeTimeToLiveNanos;
+    private final long refreshAheadNanos;
+    private final int maxEntries;
+    private final Executor refreshExecutor;
+    private final ExecutorService ownedExecutor;
+    private final ConcurrentMap<String, CacheEntry> cache;
+    private final ReentrantLock evictionLock;
+    private final LinkedHashMap<String, CacheEntry> accessOrder;
+    private final LinkedHashMap<String, CacheEntry> positiveExpiryOrder;
+    private final LinkedHashMap<String, CacheEntry> negativeExpiryOrder;
+    private final ConcurrentMap<String, Lookup> lookups;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong refreshCount;
+
+    /**
+     * Creates a new caching resolver.
+     *
+     * @param dnsResolver the resolver to delegate to. If {@code null}
+     *                    {@link SystemDefaultDnsResolver#INSTANCE} is used.
+     * @param timeToLive how long resolved addresses are retained.
+     * @param negativeTimeToLive how long failed lookups are retained. A non-positive value
+     *                           disables negative caching.
+     * @param refreshAhead how long before expiry an entry in use gets refreshed in the
+     *                     background. A non-positive value disables refresh-ahead.
+     * @param maxEntries the maximum number of hosts to retain.
+     * @param refreshExecutor the executor used for background refreshes. If {@code null}
+     *                        a bounded daemon thread pool owned by the resolver is used.
+     */
+    public CachingDnsResolver(
+            final DnsResolver dnsResolver,
+            final TimeValue timeToLive,
+            final TimeValue negativeTimeToLive,
+            final TimeValue refreshAhead,
+            final int maxEntries,
+            final Executor refreshExecutor) {
+        Args.positive(maxEntries, "Max entries");
+        this.dnsResolver = dnsResolver != null ? dnsResolver : SystemDefaultDnsResolver.INSTANCE;
+        this.timeToLiveNanos = toNanos(Args.notNull(timeToLive, "Time to live"));
+        this.negativeTimeToLiveNanos = toNanos(negativeTimeToLive);
+        this.refreshAheadNanos = Math.min(toNanos(refreshAhead), this.timeToLiveNanos);
+        this.maxEntries = maxEntries;
+        if (refreshExecutor != null) {
+            this.refreshExecutor = refreshExecutor;
+            this.ownedExecutor = null;
+        } else {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    REFRESH_THREADS, REFRESH_THREADS,
+                    1, TimeUnit.MINUTES,
+                    new ArrayBlockingQueue<Runnable>(REFRESH_QUEUE_SIZE),
+                    new DefaultThreadFactory("httpclient-dns-refresh", true));
+            executor.allowCoreThreadTimeOut(true);
+            this.refreshExecutor = executor;
+            this.ownedExecutor = executor;
+        }
+        this.cache = new ConcurrentHashMap<>();
+        this.evictionLock = new ReentrantLock();
+        this.accessOrder = new LinkedHashMap<>(16, 0.75f, true);
+        this.positiveExpiryOrder = new LinkedHashMap<>();
+        this.negativeExpiryOrder = new LinkedHashMap<>();
+        this.lookups = new ConcurrentHashMap<>();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.refreshCount = new AtomicLong();
+    }
+
+    /**
+     * Creates a new caching resolver with default settings.
+     *
+     * @param dnsResolver the resolver to delegate to. If {@code null}
+     *                    {@link SystemDefaultDnsResolver#INSTANCE} is used.
+     */
+    public CachingDnsResolver(final DnsResolver dnsResolver) {
+        this(dnsResolver, DEFAULT_TIME_TO_LIVE, DEFAULT_NEGATIVE_TIME_TO_LIVE, DEFAULT_REFRESH_AHEAD,
+                DEFAULT_MAX_ENTRIES, null);
+    }
+
+    public CachingDnsResolver() {
+        this(null);
+    }
+
+    private static long toNanos(final TimeValue timeValue) {
+        return TimeValue.isPositive(timeValue) ? timeValue.getTimeUnit().toNanos(timeValue.getDuration()) : 0;
+    }
+
+    private void putEntry(final String host, final CacheEntry entry) {
+        evictionLock.lock();
+        try {
+            cache.put(host, entry);
+            accessOrder.put(host, entry);
+            positiveExpiryOrder.remove(host);
+            negativeExpiryOrder.remove(host);
+            (entry.isPositive() ? positiveExpiryOrder : negativeExpiryOrder).put(host, entry);
+            if (cache.size() > maxEntries) {
+                evict();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Evicts expired entries and, should the cache still exceed its capacity,
+     * the entries that have not been accessed for the longest time. Eviction
+     * only happens on insertion of new entries and does not block lookups.
+     * Entries of the same kind share the same time to live, so the insertion
+     * order of each kind is also its expiry order.
+     */
+    private void evict() {
+        final long now = System.nanoTime();
+        evictExpired(positiveExpiryOrder, now);
+        evictExpired(negativeExpiryOrder, now);
+        for (final Iterator<String> it = accessOrder.keySet().iterator(); cache.size() > maxEntries && it.hasNext(); ) {
+            final String host = it.next();
+            it.remove();
+            cache.remove(host);
+            positiveExpiryOrder.remove(host);
+            negativeExpiryOrder.remove(host);
+        }
+    }
+
+    private void evictExpired(final Map<String, CacheEntry> expiryOrder, final long now) {
+        for (final Iterator<Map.Entry<String, CacheEntry>> it = expiryOrder.entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<String, CacheEntry> eldest = it.next();
+            if (!eldest.getValue().isExpired(now)) {
+                break;
+            }
+            it.remove();
+            cache.remove(eldest.getKey());
+            accessOrder.remove(eldest.getKey());
+        }
+    }
+
+    private void touch(final String host) {
+        // Recency is only recorded when the lock is free so that hits never block
+        if (evictionLock.tryLock()) {
+            try {
+                accessOrder.get(host);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public InetAddress[] resolve(final String host) throws UnknownHostException {
+        Args.notNull(host, "Host");
+        final long now = System.nanoTime();
+        final CacheEntry entry = cache.get(host);
+        if (entry != null && !entry.isExpired(now)) {
+            touch(host);
+            hitCount.incrementAndGet();
+            if (entry.isPositive() && refreshAheadNanos > 0
+                    && entry.expiry - now <= refreshAheadNanos
+                    && entry.refreshing.compareAndSet(false, true)) {
+                scheduleRefresh(host, entry);
+            }
+            return entry.getAddresses();
+        }
+        missCount.incrementAndGet();
+        return lookup(host).getAddresses();
+    }
+
+    private CacheEntry lookup(final String host) throws UnknownHostException {
+        final Lookup lookup = new Lookup();
+        final Lookup pending = lookups.putIfAbsent(host, lookup);
+        if (pending != null) {
+            return pending.await(host);
+        }
+        try {
+            final CacheEntry entry = doResolve(host);
+            if (entry.isPositive() || negativeTimeToLiveNanos > 0) {
+                putEntry(host, entry);
+            }
+            lookup.complete(entry);
+            return entry;
+        } catch (final RuntimeException ex) {
+            lookup.complete(new CacheEntry(null, new UnknownHostException(host + ": " + ex.getMessage()), 0));
+            throw ex;
+        } finally {
+            lookups.remove(host, lookup);
+        }
+    }
+
+    private CacheEntry doResolve(final String host) {
+        try {
+            final InetAddress[] addresses = dnsResolver.resolve(host);
+            if (addresses != null && addresses.length > 0) {
+                return new CacheEntry(addresses.clone(), null, System.nanoTime() + timeToLiveNanos);
+            }
+            return new CacheEntry(null, new UnknownHostException(host + " cannot be resolved"),
+                    System.nanoTime() + negativeTimeToLiveNanos);
+        } catch (final UnknownHostException ex) {
+            return new CacheEntry(null, ex, System.nanoTime() + negativeTimeToLiveNanos);
+        }
+    }
+
+    private void scheduleRefresh(final String host, final CacheEntry entry) {
+        try {
+            refreshExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    refresh(host, entry);
+                }
+
+            });
+        } catch (final RejectedExecutionException ex) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void refresh(final String host, final CacheEntry entry) {
+        try {
+            final CacheEntry fresh = doResolve(host);
+            refreshCount.incrementAndGet();
+            if (fresh.isPositive()) {
+                putEntry(host, fresh);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Refreshed {}", host);
+                }
+            } else {
+                // Keep serving the current addresses until they expire
+                entry.refreshing.set(false);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Refresh of {} failed: {}", host, fresh.failure.getMessage());
+                }
+            }
+        } catch (final RuntimeException ex) {
+            entry.refreshing.set(false);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Refresh of {} failed", host, ex);
+            }
+        }
+    }
+
+    @Override
+    public String resolveCanonicalHostname(final String host) throws UnknownHostException {
+        return dnsResolver.resolveCanonicalHostname(host);
+    }
+
+    /**
+     * Removes the given host from the cache.
+     *
+     * @param host the host name.
+     */
+    public void invalidate(final String host) {
+        evictionLock.lock();
+        try {
+            cache.remove(host);
+            accessOrder.remove(host);
+            positiveExpiryOrder.remove(host);
+            negativeExpiryOrder.remove(host);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all hosts from the cache.
+     */
+    public void clear() {
+        evictionLock.lock();
+        try {
+            cache.clear();
+            accessOrder.clear();
+            positiveExpiryOrder.clear();
+            negativeExpiryOrder.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of hosts currently in the cache.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the number of lookups served from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups that could not be served from the cache.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of background refreshes performed.
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * Shuts down the background refresh thread pool owned by this resolver, if any.
+     * The resolver remains usable but no longer refreshes entries ahead of their expiry.
+     */
+    @Override
+    public void close(final CloseMode closeMode) {
+        if (ownedExecutor != null) {
+            if (closeMode == CloseMode.IMMEDIATE) {
+                ownedExecutor.shutdownNow();
+            } else {
+                ownedExecutor.shutdown();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        close(CloseMode.GRACEFUL);
+    }
+
+    @Override
+    public String toString() {
+        return "CachingDnsResolver [hits=" + hitCount + ", misses=" + missCount + ", refreshes=" + refreshCount + "]";
+    }
+
+    static final class CacheEntry {
+
+        final InetAddress[] addresses;
+        final UnknownHostException failure;
+        final long expiry;
+        final AtomicBoolean refreshing;
+
+        CacheEntry(final InetAddress[] addresses, final UnknownHostException failure, final long expiry) {
+            this.addresses = addresses;
+            this.failure = failure;
+            this.expiry = expiry;
+            this.refreshing = new AtomicBoolean(false);
+        }
+
+        boolean isPositive() {
+            return addresses != null;
+        }
+
+        boolean isExpired(final long now) {
+            return now - expiry >= 0;
+        }
+
+        InetAddress[] getAddresses() throws UnknownHostException {
+            if (addresses != null) {
+                return addresses.clone();
+            }
+            final UnknownHostException ex = new UnknownHostException(failure.getMessage());
+            ex.initCause(failure);
+            throw ex;
+        }
+
+    }
+
+    static final class Lookup {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile CacheEntry entry;
+
+        void complete(final CacheEntry entry) {
+            this.entry = entry;
+            latch.countDown();
+        }
+
+        CacheEntry await(final String host) throws UnknownHostException {
+            try {
+                latch.await();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                final UnknownHostException uhe = new UnknownHostException("Interrupted while resolving " + host);
+                uhe.initCause(ex);
+                throw uhe;
+            }
+            return entry;
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Internal;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * Permit of a request in flight acquired from an {@link AdaptiveConcurrencyLimiter},
+ * released exactly once with the outcome recorded for the request.
+ * Shared by the classic and the async concurrency limiting handlers.
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+@Internal
+public final class ConcurrencyLimitPermit {
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final HttpRoute route;
+    private final AtomicBoolean released;
+    private volatile boolean dropped;
+    private volatile long rtt;
+
+    public ConcurrencyLimitPermit(final AdaptiveConcurrencyLimiter concurrencyLimiter, final HttpRoute route) {
+        this.concurrencyLimiter = Args.notNull(concurrencyLimiter, "Concurrency limiter");
+        this.route = Args.notNull(route, "Route");
+        this.released = new AtomicBoolean(false);
+        this.rtt = -1;
+    }
+
+    /**
+     * Records the round trip time of a request that completed successfully.
+     */
+    public void succeeded(final long rttNanos) {
+        this.rtt = rttNanos;
+    }
+
+    /**
+     * Records that the request failed in a way that signals overload.
+     */
+    public void dropped() {
+        this.dropped = true;
+    }
+
+    /**
+     * Releases the permit reporting the recorded outcome to the limiter.
+     * Subsequent calls have no effect.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            if (dropped) {
+                concurrencyLimiter.onDropped(route);
+            } else if (rtt >= 0) {
+                concurrencyLimiter.onSuccess(route, rtt, TimeUnit.NANOSECONDS);
+            } else {
+                concurrencyLimiter.onIgnored(route);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Experimental;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * Latency metrics of a connection pool recorded per {@link HttpRoute} and
+ * for the pool as a whole.
+ * <p>
+ * Connection managers that support metrics record the following phases of
+ * the connection life cycle:
+ * </p>
+ * <ul>
+ *     <li>{@link Phase#LEASE_WAIT}: time from a lease request to the pool
+ *     entry being allocated, including time spent waiting for the per-route
+ *     or total limit.</li>
+ *     <li>{@link Phase#CONNECT}: time taken to establish a new connection.</li>
+ *     <li>{@link Phase#HANDSHAKE}: time taken by TLS handshakes performed
+ *     separately from connection establishment.</li>
+ *     <li>{@link Phase#IDLE}: time a persistent connection spent idle in
+ *     the pool before being leased again.</li>
+ * </ul>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+@Experimental
+public final class ConnPoolMetrics {
+
+    /**
+     * Phases of the connection life cycle.
+     */
+    public enum Phase { LEASE_WAIT, CONNECT, HANDSHAKE, IDLE }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final ConcurrentMap<HttpRoute, LatencyHistogram[]> routeHistograms;
+    private final LatencyHistogram[] totalHistograms;
+
+    public ConnPoolMetrics() {
+        super();
+        this.routeHistograms = new ConcurrentHashMap<>();
+        this.totalHistograms = createHistograms();
+    }
+
+    private static LatencyHistogram[] createHistograms() {
+        final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    private LatencyHistogram[] getHistograms(final HttpRoute route) {
+        LatencyHistogram[] histograms = routeHistograms.get(route);
+        if (histograms == null) {
+            final LatencyHistogram[] newHistograms = createHistograms();
+            histograms = routeHistograms.putIfAbsent(route, newHistograms);
+            if (histograms == null) {
+                histograms = newHistograms;
+            }
+        }
+        return histograms;
+    }
+
+    /**
+     * Records the duration of the given phase for the given route.
+     */
+    public void record(final HttpRoute route, final Phase phase, final long duration, final TimeUnit timeUnit) {
+        Args.notNull(route, "Route");
+        Args.notNull(phase, "Phase");
+        getHistograms(route)[phase.ordinal()].record(duration, timeUnit);
+        totalHistograms[phase.ordinal()].record(duration, timeUnit);
+    }
+
+    /**
+     * Returns the routes metrics have been recorded for.
+     */
+    public Set<HttpRoute> getRoutes() {
+        return Collections.unmodifiableSet(routeHistograms.keySet());
+    }
+
+    /**
+     * Returns a snapshot of metrics recorded for the given route.
+     */
+    public Snapshot getSnapshot(final HttpRoute route) {
+        Args.notNull(route, "Route");
+        final LatencyHistogram[] histograms = routeHistograms.get(route);
+        return histograms != null ? new Snapshot(histograms) : new Snapshot(createHistograms());
+    }
+
+    /**
+     * Returns a snapshot of metrics recorded for all routes.
+     */
+    public Snapshot getTotalSnapshot() {
+        return new Snapshot(totalHistograms);
+    }
+
+    /**
+     * Discards all recorded metrics.
+     */
+    public void reset() {
+        routeHistograms.clear();
+        for (final LatencyHistogram histogram : totalHistograms) {
+            histogram.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getTotalSnapshot().toString();
+    }
+
+    /**
+     * Point-in-time copy of metrics recorded for a route or the whole pool.
+     *
+     * @since 5.1
+     */
+    public static final class Snapshot {
+
+        private final Map<Phase, LatencyHistogram.Snapshot> snapshots;
+
+        Snapshot(final LatencyHistogram[] histograms) {
+            this.snapshots = new EnumMap<>(Phase.class);
+            for (final Phase phase : PHASES) {
+                this.snapshots.put(phase, histograms[phase.ordinal()].getSnapshot());
+            }
+        }
+
+        public LatencyHistogram.Snapshot get(final Phase phase) {
+            Args.notNull(phase, "Phase");
+            return snapshots.get(phase);
+        }
+
+        public LatencyHistogram.Snapshot getLeaseWait() {
+            return get(Phase.LEASE_WAIT);
+        }
+
+        public LatencyHistogram.Snapshot getConnect() {
+            return get(Phase.CONNECT);
+        }
+
+        public LatencyHistogram.Snapshot getHandshake() {
+            return get(Phase.HANDSHAKE);
+        }
+
+        public LatencyHistogram.Snapshot getIdle() {
+            return get(Phase.IDLE);
+        }
+
+        @Override
+        public String toString() {
+            return snapshots.toString();
+        }
+
+    }
+
+}
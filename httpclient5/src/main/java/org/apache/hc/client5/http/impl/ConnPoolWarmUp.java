@@ -0,0 +1,58 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.concurrent.Future;
+
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * Interface to pre-establish persistent connections in a connection pool.
+ *
+ * @param <T> route type
+ *
+ * @since 5.1
+ */
+public interface ConnPoolWarmUp<T> {
+
+    /**
+     * Ensures that up to the given number of connections to the given route are
+     * established and kept idle in the pool. Connections are established in parallel
+     * and include TLS handshakes where applicable. Idle connections already in the
+     * pool count towards the number.
+     *
+     * @param route the route.
+     * @param connections the number of connections.
+     * @param timeout the timeout for leasing and connecting each connection.
+     * @param callback the future callback. May be {@code null}.
+     * @return future reporting the number of connections available after the
+     *  warm-up.
+     */
+    Future<Integer> warmUp(T route, int connections, Timeout timeout, FutureCallback<Integer> callback);
+
+}
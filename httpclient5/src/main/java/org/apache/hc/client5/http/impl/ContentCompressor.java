@@ -0,0 +1,175 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.hc.core5.annotation.Internal;
+
+/**
+ * Non-blocking request content compressor producing {@code gzip} or {@code deflate}
+ * (zlib) encoded output. Input is supplied with {@link #update(byte[], int, int)} and
+ * encoded output is retrieved with {@link #drain(byte[], int, int)} until
+ * {@link #needsInput()} returns {@code true}.
+ * <p>
+ * Instances of this class are not thread safe.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Internal
+public final class ContentCompressor {
+
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final RequestCompressionSupport support;
+    private final boolean gzip;
+    private final CRC32 crc;
+    private final byte[] trailer;
+
+    private Deflater deflater;
+    private int headerPos;
+    private int trailerPos;
+    private boolean finishing;
+
+    ContentCompressor(final RequestCompressionSupport support, final Deflater deflater, final boolean gzip) {
+        this.support = support;
+        this.deflater = deflater;
+        this.gzip = gzip;
+        this.crc = gzip ? new CRC32() : null;
+        this.trailer = gzip ? new byte[8] : null;
+        this.headerPos = gzip ? 0 : GZIP_HEADER.length;
+        this.trailerPos = -1;
+    }
+
+    private Deflater ensureDeflater() {
+        if (deflater == null) {
+            throw new IllegalStateException("Compressor already released");
+        }
+        return deflater;
+    }
+
+    /**
+     * Supplies the next chunk of input. The input array must not be modified
+     * until {@link #needsInput()} returns {@code true}.
+     */
+    public void update(final byte[] b, final int off, final int len) {
+        if (finishing) {
+            throw new IllegalStateException("Compressor already finished");
+        }
+        ensureDeflater().setInput(b, off, len);
+        if (crc != null) {
+            crc.update(b, off, len);
+        }
+    }
+
+    /**
+     * Signals the end of input.
+     */
+    public void finish() {
+        finishing = true;
+        ensureDeflater().finish();
+    }
+
+    /**
+     * Returns {@code true} if all supplied input has been encoded and
+     * more input can be accepted.
+     */
+    public boolean needsInput() {
+        return !finishing && headerPos == GZIP_HEADER.length && ensureDeflater().needsInput();
+    }
+
+    /**
+     * Returns {@code true} once the end of input has been signalled and all
+     * encoded output has been drained.
+     */
+    public boolean isDone() {
+        if (!finishing || !ensureDeflater().finished()) {
+            return false;
+        }
+        return !gzip || trailerPos == trailer.length;
+    }
+
+    /**
+     * Retrieves encoded output.
+     *
+     * @return the number of bytes written to the output array.
+     */
+    public int drain(final byte[] b, final int off, final int len) {
+        final Deflater current = ensureDeflater();
+        int pos = off;
+        int remaining = len;
+        if (headerPos < GZIP_HEADER.length) {
+            final int n = Math.min(remaining, GZIP_HEADER.length - headerPos);
+            System.arraycopy(GZIP_HEADER, headerPos, b, pos, n);
+            headerPos += n;
+            pos += n;
+            remaining -= n;
+        }
+        while (remaining > 0 && !current.finished()) {
+            final int n = current.deflate(b, pos, remaining);
+            if (n == 0) {
+                break;
+            }
+            pos += n;
+            remaining -= n;
+        }
+        if (gzip && remaining > 0 && current.finished()) {
+            if (trailerPos < 0) {
+                writeInt(trailer, 0, crc.getValue());
+                writeInt(trailer, 4, current.getBytesRead());
+                trailerPos = 0;
+            }
+            final int n = Math.min(remaining, trailer.length - trailerPos);
+            System.arraycopy(trailer, trailerPos, b, pos, n);
+            trailerPos += n;
+            pos += n;
+        }
+        return pos - off;
+    }
+
+    private static void writeInt(final byte[] b, final int off, final long value) {
+        b[off] = (byte) value;
+        b[off + 1] = (byte) (value >> 8);
+        b[off + 2] = (byte) (value >> 16);
+        b[off + 3] = (byte) (value >> 24);
+    }
+
+    /**
+     * Returns the underlying {@link Deflater} to the pool.
+     */
+    public void release() {
+        final Deflater current = deflater;
+        if (current != null) {
+            deflater = null;
+            support.releaseDeflater(current);
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.AsyncDnsResolver;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.concurrent.BasicFuture;
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.io.ModalCloseable;
+import org.apache.hc.core5.net.InetAddressUtils;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * Default {@link AsyncDnsResolver} implementation that executes a blocking
+ * {@link DnsResolver} on a dedicated executor. IP address literals are
+ * converted without leaving the calling thread.
+ * <p>
+ * Unless an executor is given explicitly, lookups are executed by a small
+ * pool of daemon threads owned by the resolver, which gets released by
+ * {@link #close(CloseMode)}. Lookups in excess of the pool's queue capacity
+ * fail with {@link RejectedExecutionException}.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE_CONDITIONAL)
+public class DefaultAsyncDnsResolver implements AsyncDnsResolver, ModalCloseable {
+
+    public static final int DEFAULT_MAX_THREADS = 4;
+
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 256;
+
+    private final DnsResolver dnsResolver;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * @param dnsResolver the blocking resolver to delegate to. If {@code null}
+     *                    {@link SystemDefaultDnsResolver#INSTANCE} is used.
+     * @param executor the executor to run lookups on. If {@code null}
+     *                 a bounded pool of daemon threads owned by the resolver is used.
+     */
+    public DefaultAsyncDnsResolver(final DnsResolver dnsResolver, final Executor executor) {
+        this.dnsResolver = dnsResolver != null ? dnsResolver : SystemDefaultDnsResolver.INSTANCE;
+        if (executor != null) {
+            this.executor = executor;
+            this.ownedExecutor = null;
+        } else {
+            final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(
+                    DEFAULT_MAX_THREADS, DEFAULT_MAX_THREADS,
+                    60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(DEFAULT_MAX_QUEUE_SIZE),
+                    new DefaultThreadFactory("httpclient-dns", true));
+            threadPool.allowCoreThreadTimeOut(true);
+            this.executor = threadPool;
+            this.ownedExecutor = threadPool;
+        }
+    }
+
+    public DefaultAsyncDnsResolver(final DnsResolver dnsResolver) {
+        this(dnsResolver, null);
+    }
+
+    @Override
+    public Future<InetAddress[]> resolve(final String host, final FutureCallback<InetAddress[]> callback) {
+        Args.notNull(host, "Host");
+        final BasicFuture<InetAddress[]> future = new BasicFuture<>(callback);
+        if (InetAddressUtils.isIPv4Address(host) || InetAddressUtils.isIPv6Address(host)) {
+            try {
+                future.completed(new InetAddress[] { InetAddress.getByName(host) });
+            } catch (final UnknownHostException ex) {
+                future.failed(ex);
+            }
+            return future;
+        }
+        try {
+            executor.execute(new Lookup(host, future));
+        } catch (final RejectedExecutionException ex) {
+            future.failed(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Shuts down the thread pool owned by this resolver, if any. Subsequent lookups
+     * of host names fail.
+     */
+    @Override
+    public void close(final CloseMode closeMode) {
+        if (ownedExecutor != null) {
+            if (closeMode == CloseMode.IMMEDIATE) {
+                for (final Runnable pending: ownedExecutor.shutdownNow()) {
+                    if (pending instanceof Lookup) {
+                        ((Lookup) pending).future.cancel();
+                    }
+                }
+            } else {
+                ownedExecutor.shutdown();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        close(CloseMode.GRACEFUL);
+    }
+
+    @Override
+    public String toString() {
+        return "DefaultAsyncDnsResolver [" + dnsResolver + "]";
+    }
+
+    final class Lookup implements Runnable {
+
+        private final String host;
+        private final BasicFuture<InetAddress[]> future;
+
+        Lookup(final String host, final BasicFuture<InetAddress[]> future) {
+            this.host = host;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                final InetAddress[] addresses = dnsResolver.resolve(host);
+                if (addresses != null && addresses.length > 0) {
+                    future.completed(addresses);
+                } else {
+                    future.failed(new UnknownHostException(host + " cannot be resolved"));
+                }
+            } catch (final UnknownHostException | RuntimeException ex) {
+                future.failed(ex);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.annotation.Internal;
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+import org.apache.hc.core5.util.TimeValue;
+
+/**
+ * Support methods for the Happy Eyeballs (RFC 8305) connection establishment
+ * algorithm used by the multi-home aware connection operators.
+ *
+ * @since 5.1
+ */
+@Internal
+public final class HappyEyeballsSupport {
+
+    /**
+     * Connection attempt delay recommended by RFC 8305, section 5.
+     */
+    public static final TimeValue DEFAULT_CONNECTION_ATTEMPT_DELAY = TimeValue.ofMilliseconds(250);
+
+    /**
+     * Default maximum number of threads used to run concurrent blocking connection attempts.
+     */
+    public static final int DEFAULT_MAX_CONNECT_THREADS = 16;
+
+    /**
+     * Determines whether concurrent connection attempts are enabled
+     * for the given connection attempt delay.
+     */
+    public static boolean isEnabled(final TimeValue attemptDelay) {
+        return TimeValue.isPositive(attemptDelay);
+    }
+
+    /**
+     * Re-orders resolved addresses so that address families alternate,
+     * starting with the family of the first (preferred) address as
+     * described in RFC 8305, section 4. The relative order of addresses
+     * within each family is preserved.
+     */
+    public static InetAddress[] interleave(final InetAddress[] addresses) {
+        if (addresses == null || addresses.length < 2) {
+            return addresses;
+        }
+        final boolean preferIPv6 = addresses[0] instanceof Inet6Address;
+        final List<InetAddress> preferred = new ArrayList<>(addresses.length);
+        final List<InetAddress> other = new ArrayList<>(addresses.length);
+        for (final InetAddress address : addresses) {
+            if ((address instanceof Inet6Address) == preferIPv6) {
+                preferred.add(address);
+            } else {
+                other.add(address);
+            }
+        }
+        if (other.isEmpty()) {
+            return addresses;
+        }
+        final InetAddress[] result = new InetAddress[addresses.length];
+        int i = 0;
+        int p = 0;
+        int o = 0;
+        while (p < preferred.size() || o < other.size()) {
+            if (p < preferred.size()) {
+                result[i++] = preferred.get(p++);
+            }
+            if (o < other.size()) {
+                result[i++] = other.get(o++);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a scheduler used to stagger non-blocking connection attempts.
+     * The scheduler is backed by a single daemon thread created on first use.
+     * The caller owns the scheduler and is responsible for shutting it down.
+     */
+    public static ScheduledExecutorService createScheduler() {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(
+                1, new DefaultThreadFactory("httpclient-connect-scheduler", true));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Creates an executor used to run concurrent blocking connection attempts.
+     * The executor is backed by at most {@code maxThreads} daemon threads that
+     * are created on demand and terminate after one minute of inactivity.
+     * Attempts in excess of the thread limit are queued. The caller owns
+     * the executor and is responsible for shutting it down.
+     */
+    public static ExecutorService createExecutor(final int maxThreads) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxThreads, maxThreads,
+                1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(),
+                new DefaultThreadFactory("httpclient-connect", true));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
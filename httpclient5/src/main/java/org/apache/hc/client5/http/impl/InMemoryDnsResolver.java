@@ -86,8 +86,8 @@ public void add(final String host, final InetAddress... ips) {
     @Override
     public InetAddress[] resolve(final String host) throws UnknownHostException {
         final InetAddress[] resolvedAddresses = dnsMap.get(host);
-        if (LOG.isInfoEnabled()) {
-            LOG.info("Resolving {} to {}", host, Arrays.deepToString(resolvedAddresses));
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Resolving {} to {}", host, Arrays.deepToString(resolvedAddresses));
         }
         if(resolvedAddresses == null){
             throw new UnknownHostException(host + " cannot be resolved");
@@ -0,0 +1,222 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Experimental;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets.
+ * <p>
+ * Durations are recorded with microsecond resolution. Values below 16
+ * microseconds are counted exactly, larger values are counted in buckets
+ * eight per power of two, which bounds the relative error of reported
+ * percentiles to 12.5%. Durations longer than 2<sup>41</sup> microseconds
+ * (about 25 days) are counted in the last bucket. Recording a value takes
+ * a few atomic increments and never allocates.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+@Experimental
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKETS = SUB_BUCKETS << 1;
+    private static final int LINEAR_BITS = SUB_BUCKET_BITS + 1;
+    private static final int MAX_EXPONENT = 40;
+
+    static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        super();
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    static int bucketIndex(final long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        final int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(final int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        final int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + LINEAR_BITS;
+        final int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBound(final int index) {
+        return index < BUCKET_COUNT - 1 ? lowerBound(index + 1) - 1 : Long.MAX_VALUE;
+    }
+
+    /**
+     * Records the given duration. Negative durations are recorded as zero.
+     */
+    public void record(final long duration, final TimeUnit timeUnit) {
+        Args.notNull(timeUnit, "Time unit");
+        final long micros = Math.max(timeUnit.toMicros(duration), 0);
+        buckets.incrementAndGet(bucketIndex(micros));
+        total.addAndGet(micros);
+        for (;;) {
+            final long current = max.get();
+            if (micros <= current || max.compareAndSet(current, micros)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Resets all counters to zero.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Returns a point-in-time copy of the histogram. Values recorded while the
+     * snapshot is being taken may or may not be included.
+     */
+    public Snapshot getSnapshot() {
+        final long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        return new Snapshot(counts, count, total.get(), max.get());
+    }
+
+    @Override
+    public String toString() {
+        return getSnapshot().toString();
+    }
+
+    /**
+     * Immutable copy of a {@link LatencyHistogram}.
+     *
+     * @since 5.1
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        Snapshot(final long[] counts, final long count, final long total, final long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of recorded durations.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the longest recorded duration.
+         */
+        public TimeValue getMax() {
+            return TimeValue.ofMicroseconds(max);
+        }
+
+        /**
+         * Returns the mean of recorded durations.
+         */
+        public TimeValue getMean() {
+            return TimeValue.ofMicroseconds(count > 0 ? total / count : 0);
+        }
+
+        /**
+         * Returns the duration not exceeded by the given percentage of recorded
+         * durations, for instance {@code 99.0} for the 99th percentile.
+         *
+         * @param percentile the percentile in the range 0 to 100.
+         */
+        public TimeValue getPercentile(final double percentile) {
+            Args.check(percentile >= 0.0 && percentile <= 100.0, "Percentile must be in the range 0 to 100");
+            if (count == 0) {
+                return TimeValue.ZERO_MILLISECONDS;
+            }
+            final long rank = Math.max((long) Math.ceil(percentile / 100.0 * count), 1);
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank) {
+                    return TimeValue.ofMicroseconds(Math.min(upperBound(i), max));
+                }
+            }
+            return TimeValue.ofMicroseconds(max);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder buffer = new StringBuilder();
+            buffer.append("[count: ").append(count);
+            buffer.append("; mean: ").append(getMean());
+            buffer.append("; p50: ").append(getPercentile(50.0));
+            buffer.append("; p99: ").append(getPercentile(99.0));
+            buffer.append("; max: ").append(getMax());
+            buffer.append("]");
+            return buffer.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class maintains a background thread that keeps a minimum number of idle
+ * persistent connections per route in the connection pool. If a collection of
+ * routes is given, connections to those routes are established as soon as the
+ * thread starts and other routes are left alone. Otherwise all routes known to
+ * the pool are maintained.
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE_CONDITIONAL)
+public final class MinIdleConnectionMaintainer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MinIdleConnectionMaintainer.class);
+
+    private final ConnPoolControl<HttpRoute> connPoolControl;
+    private final ConnPoolWarmUp<HttpRoute> connPoolWarmUp;
+    private final Set<HttpRoute> routes;
+    private final int minIdlePerRoute;
+    private final Timeout connectTimeout;
+    private final Thread thread;
+
+    public MinIdleConnectionMaintainer(
+            final ConnPoolControl<HttpRoute> connPoolControl,
+            final ConnPoolWarmUp<HttpRoute> connPoolWarmUp,
+            final Collection<HttpRoute> routes,
+            final int minIdlePerRoute,
+            final Timeout connectTimeout,
+            final ThreadFactory threadFactory,
+            final TimeValue sleepTime) {
+        this.connPoolControl = Args.notNull(connPoolControl, "Connection pool control");
+        this.connPoolWarmUp = Args.notNull(connPoolWarmUp, "Connection pool warm-up");
+        this.routes = routes != null && !routes.isEmpty() ? new LinkedHashSet<>(routes) : null;
+        this.minIdlePerRoute = Args.positive(minIdlePerRoute, "Min idle connections per route");
+        this.connectTimeout = connectTimeout != null ? connectTimeout : Timeout.ofMinutes(3);
+        final ThreadFactory localThreadFactory = threadFactory != null ? threadFactory :
+                new DefaultThreadFactory("min-idle-connection-maintainer", true);
+        final TimeValue localSleepTime = sleepTime != null ? sleepTime : TimeValue.ofSeconds(5);
+        this.thread = localThreadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        maintain();
+                        localSleepTime.sleep();
+                    }
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (final Exception ex) {
+                }
+
+            }
+        });
+    }
+
+    public MinIdleConnectionMaintainer(
+            final ConnPoolControl<HttpRoute> connPoolControl,
+            final ConnPoolWarmUp<HttpRoute> connPoolWarmUp,
+            final Collection<HttpRoute> routes,
+            final int minIdlePerRoute,
+            final Timeout connectTimeout) {
+        this(connPoolControl, connPoolWarmUp, routes, minIdlePerRoute, connectTimeout, null, null);
+    }
+
+    /**
+     * Tops up idle connections of all routes that have fewer than the minimum.
+     * Routes are only topped up as far as their per-route and the total
+     * connection limits permit without waiting for leased connections.
+     */
+    void maintain() throws InterruptedException {
+        final Set<HttpRoute> allRoutes = routes != null ? routes : connPoolControl.getRoutes();
+        final List<Future<Integer>> futures = new ArrayList<>(allRoutes.size());
+        final PoolStats totalStats = connPoolControl.getTotalStats();
+        int totalFree = totalStats.getMax() - totalStats.getLeased() - totalStats.getAvailable();
+        for (final HttpRoute route: allRoutes) {
+            final PoolStats stats = connPoolControl.getStats(route);
+            final int available = stats.getAvailable();
+            if (available >= minIdlePerRoute) {
+                continue;
+            }
+            final int free = Math.min(stats.getMax() - stats.getLeased() - available, totalFree);
+            final int missing = Math.min(minIdlePerRoute - available, free);
+            if (missing <= 0) {
+                continue;
+            }
+            totalFree -= missing;
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Warming up {} connection(s) to {}", missing, route);
+            }
+            futures.add(connPoolWarmUp.warmUp(route, available + missing, connectTimeout, null));
+        }
+        for (final Future<Integer> future: futures) {
+            try {
+                future.get();
+            } catch (final ExecutionException ex) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Connection warm-up failed", ex.getCause());
+                }
+            }
+        }
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void shutdown() {
+        thread.interrupt();
+    }
+
+    public boolean isRunning() {
+        return thread.isAlive();
+    }
+
+    public void awaitTermination(final Timeout timeout) throws InterruptedException {
+        thread.join(timeout != null ? timeout.toMilliseconds() : Long.MAX_VALUE);
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import org.apache.hc.client5.http.config.RequestCompressionConfig;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Internal;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.http.HeaderElement;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.message.MessageSupport;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * Request content compression support shared by the classic and the async
+ * request compression handlers.
+ * <p>
+ * Maintains a pool of {@link Deflater} instances configured with the compression
+ * level of the {@link RequestCompressionConfig} and keeps track of hosts that
+ * rejected compressed request content. The number of rejecting hosts kept
+ * track of is bounded; once the bound is exceeded expired entries and then
+ * the entries closest to expiry are dropped.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+@Internal
+public final class RequestCompressionSupport {
+
+    private static final int MAX_IDLE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int MAX_REJECTING_HOSTS = 1024;
+
+    private final RequestCompressionConfig config;
+    private final boolean gzip;
+    private final Queue<Deflater> idleDeflaters;
+    private final AtomicInteger idleCount;
+    private final ConcurrentMap<HttpHost, Long> rejectingHosts;
+
+    public RequestCompressionSupport(final RequestCompressionConfig config) {
+        this.config = config != null ? config : RequestCompressionConfig.DEFAULT;
+        this.gzip = RequestCompressionConfig.GZIP.equals(this.config.getContentEncoding());
+        this.idleDeflaters = new ConcurrentLinkedQueue<>();
+        this.idleCount = new AtomicInteger(0);
+        this.rejectingHosts = new ConcurrentHashMap<>();
+    }
+
+    public RequestCompressionConfig getConfig() {
+        return config;
+    }
+
+    public String getContentEncoding() {
+        return config.getContentEncoding();
+    }
+
+    /**
+     * Determines whether request content with the given properties sent to
+     * the given host should be compressed.
+     */
+    public boolean isCompressible(
+            final HttpHost host,
+            final HttpRequest request,
+            final String contentEncoding,
+            final long contentLength) {
+        if (contentEncoding != null || request.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+            return false;
+        }
+        if (contentLength >= 0 && contentLength < config.getThreshold()) {
+            return false;
+        }
+        if (host != null) {
+            final Long expiry = rejectingHosts.get(host);
+            if (expiry != null) {
+                if (expiry > System.currentTimeMillis()) {
+                    return false;
+                }
+                rejectingHosts.remove(host, expiry);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether the response to a request with compressed content
+     * indicates that the content coding has been rejected by the server.
+     * <p>
+     * A {@code 415 Unsupported Media Type} response is taken as a rejection of the
+     * content coding unless it plainly concerns the media type, that is unless its
+     * {@code Accept-Encoding} header lists the content coding used or, in absence
+     * of {@code Accept-Encoding}, it advertises acceptable media types with
+     * {@code Accept}, {@code Accept-Patch} or {@code Accept-Post}.
+     * </p>
+     */
+    public boolean isRejected(final HttpResponse response) {
+        if (response.getCode() != HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE) {
+            return false;
+        }
+        if (response.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            final String contentEncoding = config.getContentEncoding();
+            for (final Iterator<HeaderElement> it = MessageSupport.iterate(response, HttpHeaders.ACCEPT_ENCODING);
+                    it.hasNext(); ) {
+                final HeaderElement element = it.next();
+                if (contentEncoding.equalsIgnoreCase(element.getName())) {
+                    final NameValuePair q = element.getParameterByName("q");
+                    return q != null && isZero(q.getValue());
+                }
+            }
+            return true;
+        }
+        return !response.containsHeader(HttpHeaders.ACCEPT)
+                && !response.containsHeader("Accept-Patch")
+                && !response.containsHeader("Accept-Post");
+    }
+
+    private static boolean isZero(final String qvalue) {
+        try {
+            return qvalue != null && Double.parseDouble(qvalue.trim()) == 0;
+        } catch (final NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Records the given host as not accepting compressed request content.
+     */
+    public void markRejected(final HttpHost host) {
+        if (host != null) {
+            final long now = System.currentTimeMillis();
+            rejectingHosts.put(host, now + config.getRejectionExpiry().toMilliseconds());
+            if (rejectingHosts.size() > MAX_REJECTING_HOSTS) {
+                pruneRejectingHosts(now);
+            }
+        }
+    }
+
+    private void pruneRejectingHosts(final long now) {
+        for (final Iterator<Map.Entry<HttpHost, Long>> it = rejectingHosts.entrySet().iterator(); it.hasNext(); ) {
+            if (it.next().getValue() <= now) {
+                it.remove();
+            }
+        }
+        while (rejectingHosts.size() > MAX_REJECTING_HOSTS) {
+            Map.Entry<HttpHost, Long> eldest = null;
+            for (final Map.Entry<HttpHost, Long> entry : rejectingHosts.entrySet()) {
+                if (eldest == null || entry.getValue() < eldest.getValue()) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                break;
+            }
+            rejectingHosts.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    int getRejectingHostCount() {
+        return rejectingHosts.size();
+    }
+
+    public boolean isRejecting(final HttpHost host) {
+        final Long expiry = host != null ? rejectingHosts.get(host) : null;
+        return expiry != null && expiry > System.currentTimeMillis();
+    }
+
+    /**
+     * Creates a new compressor using a pooled {@link Deflater}. The compressor must be
+     * {@link ContentCompressor#release() released} once no longer needed.
+     */
+    public ContentCompressor createCompressor() {
+        Deflater deflater = idleDeflaters.poll();
+        if (deflater != null) {
+            idleCount.decrementAndGet();
+        } else {
+            // gzip header and trailer are written by the compressor
+            deflater = new Deflater(config.getCompressionLevel(), gzip);
+        }
+        return new ContentCompressor(this, deflater, gzip);
+    }
+
+    void releaseDeflater(final Deflater deflater) {
+        Args.notNull(deflater, "Deflater");
+        if (idleCount.incrementAndGet() <= MAX_IDLE) {
+            deflater.reset();
+            idleDeflaters.add(deflater);
+        } else {
+            idleCount.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RequestCompressionSupport [" + config.getContentEncoding().toLowerCase(Locale.ROOT)
+                + ", idle deflaters: " + idleCount.get() + "]";
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.async;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.hc.client5.http.ConcurrencyLimitExceededException;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.classic.ConnectionBackoffStrategy;
+import org.apache.hc.client5.http.impl.AdaptiveConcurrencyLimiter;
+import org.apache.hc.client5.http.impl.ConcurrencyLimitPermit;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Experimental;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Request execution handler in the asynchronous request execution chain
+ * that limits the number of requests in flight per route by means of
+ * an {@link AdaptiveConcurrencyLimiter}.
+ * <p>
+ * Requests on a saturated route are queued for up to the configured
+ * timeout without blocking the calling thread and fail with
+ * {@link ConcurrencyLimitExceededException} if no permit becomes available.
+ * The time until the response head is received is reported to the limiter;
+ * responses and exceptions that the {@link ConnectionBackoffStrategy}
+ * considers signs of overload reduce the limit of the route. A request
+ * permit is held until the message exchange has completed or failed.
+ * As the limit applies to message exchanges rather than connections this
+ * handler can also be used to cap the number of concurrent HTTP/2 streams
+ * per route.
+ * </p>
+ * <p>
+ * Further responsibilities such as communication with the opposite
+ * endpoint is delegated to the next executor in the request execution
+ * chain.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+@Experimental
+public final class AsyncConcurrencyLimitExec implements AsyncExecChainHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncConcurrencyLimitExec.class);
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ConnectionBackoffStrategy connectionBackoffStrategy;
+    private final Timeout maxQueueTime;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param concurrencyLimiter the concurrency limiter.
+     * @param connectionBackoffStrategy the strategy classifying back-off signals.
+     * @param maxQueueTime the maximum time to wait for a permit.
+     *  {@code null} or zero means requests on saturated routes are rejected immediately.
+     * @param executor the executor used to time out waiting requests and to proceed
+     *  with requests granted a permit. Required if {@code maxQueueTime} is positive.
+     *  The executor remains owned by the caller.
+     */
+    public AsyncConcurrencyLimitExec(
+            final AdaptiveConcurrencyLimiter concurrencyLimiter,
+            final ConnectionBackoffStrategy connectionBackoffStrategy,
+            final Timeout maxQueueTime,
+            final ScheduledExecutorService executor) {
+        super();
+        Args.notNull(concurrencyLimiter, "Concurrency limiter");
+        Args.notNull(connectionBackoffStrategy, "Connection backoff strategy");
+        Args.check(executor != null || !TimeValue.isPositive(maxQueueTime),
+                "Executor is required to queue requests");
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.connectionBackoffStrategy = connectionBackoffStrategy;
+        this.maxQueueTime = maxQueueTime != null ? maxQueueTime : Timeout.ZERO_MILLISECONDS;
+        this.executor = executor;
+    }
+
+    public AsyncConcurrencyLimitExec(
+            final AdaptiveConcurrencyLimiter concurrencyLimiter,
+            final ConnectionBackoffStrategy connectionBackoffStrategy) {
+        this(concurrencyLimiter, connectionBackoffStrategy, null, null);
+    }
+
+    @Override
+    public void execute(
+            final HttpRequest request,
+            final AsyncEntityProducer entityProducer,
+            final AsyncExecChain.Scope scope,
+            final AsyncExecChain chain,
+            final AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        Args.notNull(request, "HTTP request");
+        Args.notNull(scope, "Scope");
+        final HttpRoute route = scope.route;
+
+        if (concurrencyLimiter.tryAcquire(route)) {
+            proceed(request, entityProducer, scope, chain, asyncExecCallback);
+            return;
+        }
+        if (!TimeValue.isPositive(maxQueueTime)) {
+            reject(scope, asyncExecCallback);
+            return;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{}: waiting for a permit for route {}", scope.exchangeId, route);
+        }
+        scope.cancellableDependency.setDependency(concurrencyLimiter.acquire(route, maxQueueTime, executor, new FutureCallback<Boolean>() {
+
+            @Override
+            public void completed(final Boolean acquired) {
+                if (!acquired.booleanValue()) {
+                    reject(scope, asyncExecCallback);
+                    return;
+                }
+                try {
+                    proceed(request, entityProducer, scope, chain, asyncExecCallback);
+                } catch (final IOException | HttpException | RuntimeException ex) {
+                    asyncExecCallback.failed(ex);
+                }
+            }
+
+            @Override
+            public void failed(final Exception ex) {
+                asyncExecCallback.failed(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                asyncExecCallback.failed(new CancellationException("Request execution cancelled"));
+            }
+
+        }));
+    }
+
+    private void reject(final AsyncExecChain.Scope scope, final AsyncExecCallback asyncExecCallback) {
+        final HttpRoute route = scope.route;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{}: concurrency limit of {} reached for route {}",
+                    scope.exchangeId, concurrencyLimiter.getLimit(route), route);
+        }
+        asyncExecCallback.failed(new ConcurrencyLimitExceededException(
+                "Concurrency limit reached for route " + route, route));
+    }
+
+    private void proceed(
+            final HttpRequest request,
+            final AsyncEntityProducer entityProducer,
+            final AsyncExecChain.Scope scope,
+            final AsyncExecChain chain,
+            final AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        final ConcurrencyLimitPermit permit = new ConcurrencyLimitPermit(concurrencyLimiter, scope.route);
+        final long start = System.nanoTime();
+        try {
+            chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+
+                @Override
+                public AsyncDataConsumer handleResponse(
+                        final HttpResponse response,
+                        final EntityDetails entityDetails) throws HttpException, IOException {
+                    if (connectionBackoffStrategy.shouldBackoff(response)) {
+                        permit.dropped();
+                    } else {
+                        permit.succeeded(System.nanoTime() - start);
+                    }
+                    return asyncExecCallback.handleResponse(response, entityDetails);
+                }
+
+                @Override
+                public void handleInformationResponse(final HttpResponse response) throws HttpException, IOException {
+                    asyncExecCallback.handleInformationResponse(response);
+                }
+
+                @Override
+                public void completed() {
+                    // The request stays in flight until its response content has been received
+                    permit.release();
+                    asyncExecCallback.completed();
+                }
+
+                @Override
+                public void failed(final Exception cause) {
+                    if (connectionBackoffStrategy.shouldBackoff(cause)) {
+                        permit.dropped();
+                    }
+                    permit.release();
+                    asyncExecCallback.failed(cause);
+                }
+
+            });
+        } catch (final IOException | HttpException | RuntimeException ex) {
+            if (connectionBackoffStrategy.shouldBackoff(ex)) {
+                permit.dropped();
+            }
+            permit.release();
+            throw ex;
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.async;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Internal;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HeaderElement;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.message.BasicHeaderValueParser;
+import org.apache.hc.core5.http.message.MessageSupport;
+import org.apache.hc.core5.http.message.ParserCursor;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * Request execution handler in the asynchronous request execution chain
+ * that is responsible for automatic response content decompression.
+ * <p>
+ * Response content in {@code gzip} or {@code deflate} encoding is decoded
+ * incrementally as it is being received without buffering of the entire
+ * message body.
+ * </p>
+ * <p>
+ * Further responsibilities such as communication with the opposite
+ * endpoint is delegated to the next executor in the request execution
+ * chain.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.STATELESS)
+@Internal
+public final class AsyncContentCompressionExec implements AsyncExecChainHandler {
+
+    private final Header acceptEncoding;
+    private final boolean ignoreUnknown;
+
+    public AsyncContentCompressionExec(
+            final List<String> acceptEncoding,
+            final boolean ignoreUnknown) {
+        this.acceptEncoding = MessageSupport.format(HttpHeaders.ACCEPT_ENCODING,
+            acceptEncoding != null ? acceptEncoding.toArray(
+                new String[acceptEncoding.size()]) : new String[] {"gzip", "x-gzip", "deflate"});
+        this.ignoreUnknown = ignoreUnknown;
+    }
+
+    public AsyncContentCompressionExec(final boolean ignoreUnknown) {
+        this(null, ignoreUnknown);
+    }
+
+    public AsyncContentCompressionExec() {
+        this(null, true);
+    }
+
+    @Override
+    public void execute(
+            final HttpRequest request,
+            final AsyncEntityProducer entityProducer,
+            final AsyncExecChain.Scope scope,
+            final AsyncExecChain chain,
+            final AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        Args.notNull(request, "HTTP request");
+        Args.notNull(scope, "Scope");
+
+        final RequestConfig requestConfig = scope.clientContext.getRequestConfig();
+        if (!requestConfig.isContentCompressionEnabled()) {
+            chain.proceed(request, entityProducer, scope, asyncExecCallback);
+            return;
+        }
+
+        /* Signal support for Accept-Encoding transfer encodings. */
+        if (!request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            request.addHeader(acceptEncoding);
+        }
+
+        chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+
+            @Override
+            public AsyncDataConsumer handleResponse(
+                    final HttpResponse response,
+                    final EntityDetails entityDetails) throws HttpException, IOException {
+                // entity can be null in case of 304 Not Modified, 204 No Content or similar
+                // check for zero length entity.
+                if (entityDetails == null || entityDetails.getContentLength() == 0) {
+                    return asyncExecCallback.handleResponse(response, entityDetails);
+                }
+                final String contentEncoding = entityDetails.getContentEncoding();
+                if (contentEncoding == null) {
+                    return asyncExecCallback.handleResponse(response, entityDetails);
+                }
+                final ParserCursor cursor = new ParserCursor(0, contentEncoding.length());
+                final HeaderElement[] codecs = BasicHeaderValueParser.INSTANCE.parseElements(contentEncoding, cursor);
+                boolean decoding = false;
+                for (final HeaderElement codec : codecs) {
+                    final String codecname = codec.getName().toLowerCase(Locale.ROOT);
+                    if (isSupported(codecname)) {
+                        decoding = true;
+                    } else if (!"identity".equals(codecname)) {
+                        if (!ignoreUnknown) {
+                            throw new HttpException("Unsupported Content-Encoding: " + codec.getName());
+                        }
+                        // Cannot decode past an unknown encoding
+                        return asyncExecCallback.handleResponse(response, entityDetails);
+                    }
+                }
+                if (!decoding) {
+                    return asyncExecCallback.handleResponse(response, entityDetails);
+                }
+                response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+                response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+                response.removeHeaders(HttpHeaders.CONTENT_MD5);
+                final AsyncDataConsumer dataConsumer = asyncExecCallback.handleResponse(
+                        response, new DecodedEntityDetails(entityDetails));
+                if (dataConsumer == null) {
+                    return null;
+                }
+                // Codecs are listed in the order they were applied
+                AsyncDataConsumer decodingConsumer = dataConsumer;
+                for (final HeaderElement codec : codecs) {
+                    final String codecname = codec.getName().toLowerCase(Locale.ROOT);
+                    if (isSupported(codecname)) {
+                        decodingConsumer = new InflatingAsyncDataConsumer(
+                                decodingConsumer, !"deflate".equals(codecname));
+                    }
+                }
+                return decodingConsumer;
+            }
+
+            @Override
+            public void handleInformationResponse(final HttpResponse response) throws HttpException, IOException {
+                asyncExecCallback.handleInformationResponse(response);
+            }
+
+            @Override
+            public void completed() {
+                asyncExecCallback.completed();
+            }
+
+            @Override
+            public void failed(final Exception cause) {
+                asyncExecCallback.failed(cause);
+            }
+
+        });
+    }
+
+    private static boolean isSupported(final String codecname) {
+        return "gzip".equals(codecname) || "x-gzip".equals(codecname) || "deflate".equals(codecname);
+    }
+
+    private static final class DecodedEntityDetails implements EntityDetails {
+
+        private final EntityDetails entityDetails;
+
+        DecodedEntityDetails(final EntityDetails entityDetails) {
+            this.entityDetails = entityDetails;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public String getContentType() {
+            return entityDetails.getContentType();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return null;
+        }
+
+        @Override
+        public boolean isChunked() {
+            return true;
+        }
+
+        @Override
+        public Set<String> getTrailerNames() {
+            return entityDetails.getTrailerNames();
+        }
+
+    }
+
+}
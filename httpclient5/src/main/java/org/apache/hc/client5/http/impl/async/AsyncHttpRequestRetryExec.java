@@ -30,6 +30,7 @@
 
 import org.apache.hc.client5.http.HttpRequestRetryStrategy;
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.async.AsyncExecCallback;
 import org.apache.hc.client5.http.async.AsyncExecChain;
 import org.apache.hc.client5.http.async.AsyncExecChainHandler;
@@ -122,6 +123,10 @@ public void handleInformationResponse(final HttpResponse response) throws HttpEx
             @Override
             public void completed() {
                 if (state.retrying) {
+                    final RequestEventListener listener = scope.clientContext.getRequestEventListener();
+                    if (listener != null) {
+                        listener.retry(request, state.execCount, scope.clientContext);
+                    }
                     state.execCount++;
                     try {
                         internalExecute(state, request, entityProducer, scope, chain, asyncExecCallback);
@@ -155,6 +160,10 @@ public void failed(final Exception cause) {
                             entityProducer.releaseResources();
                         }
                         state.retrying = true;
+                        final RequestEventListener listener = clientContext.getRequestEventListener();
+                        if (listener != null) {
+                            listener.retry(request, state.execCount, clientContext);
+                        }
                         state.execCount++;
                         try {
                             internalExecute(state, request, entityProducer, scope, chain, asyncExecCallback);
@@ -32,6 +32,7 @@
 import org.apache.hc.client5.http.CircularRedirectException;
 import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.RedirectException;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.async.AsyncExecCallback;
 import org.apache.hc.client5.http.async.AsyncExecChain;
 import org.apache.hc.client5.http.async.AsyncExecChainHandler;
@@ -192,6 +193,10 @@ public AsyncDataConsumer handleResponse(
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("{}: redirecting to '{}' via {}", exchangeId, state.redirectURI, currentRoute);
                     }
+                    final RequestEventListener listener = clientContext.getRequestEventListener();
+                    if (listener != null) {
+                        listener.redirect(request, state.redirectURI, clientContext);
+                    }
                     return null;
                 }
                 return asyncExecCallback.handleResponse(response, entityDetails);
@@ -0,0 +1,161 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.async;
+
+import java.io.IOException;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.config.RequestCompressionConfig;
+import org.apache.hc.client5.http.impl.RequestCompressionSupport;
+import org.apache.hc.client5.http.impl.RequestCopier;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Internal;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.entity.NoopEntityConsumer;
+import org.apache.hc.core5.util.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Request execution handler in the asynchronous request execution chain
+ * that is responsible for compression of request content.
+ * <p>
+ * Request content at least as long as the configured threshold is compressed
+ * with pooled {@link java.util.zip.Deflater} instances. Should the target host
+ * reject compressed content with status {@code 415 Unsupported Media Type}
+ * (see {@link RequestCompressionSupport#isRejected(HttpResponse)})
+ * the request gets re-executed once with uncompressed content, provided the
+ * request entity producer is repeatable, and no further requests to the host
+ * are compressed for the configured period of time.
+ * </p>
+ * <p>
+ * Further responsibilities such as communication with the opposite
+ * endpoint is delegated to the next executor in the request execution
+ * chain.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+@Internal
+public final class AsyncRequestCompressionExec implements AsyncExecChainHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncRequestCompressionExec.class);
+
+    private final RequestCompressionSupport compressionSupport;
+
+    public AsyncRequestCompressionExec(final RequestCompressionConfig config) {
+        this.compressionSupport = new RequestCompressionSupport(config);
+    }
+
+    public AsyncRequestCompressionExec() {
+        this(null);
+    }
+
+    RequestCompressionSupport getCompressionSupport() {
+        return compressionSupport;
+    }
+
+    @Override
+    public void execute(
+            final HttpRequest request,
+            final AsyncEntityProducer entityProducer,
+            final AsyncExecChain.Scope scope,
+            final AsyncExecChain chain,
+            final AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        Args.notNull(request, "HTTP request");
+        Args.notNull(scope, "Scope");
+
+        final HttpHost target = scope.route.getTargetHost();
+        if (entityProducer == null || !compressionSupport.isCompressible(
+                target, request, entityProducer.getContentEncoding(), entityProducer.getContentLength())) {
+            chain.proceed(request, entityProducer, scope, asyncExecCallback);
+            return;
+        }
+
+        final CompressingAsyncEntityProducer compressingProducer = new CompressingAsyncEntityProducer(
+                entityProducer, compressionSupport);
+        // Leave the original request intact for re-execution with uncompressed content
+        chain.proceed(RequestCopier.INSTANCE.copy(request), compressingProducer, scope, new AsyncExecCallback() {
+
+            private volatile boolean rejected;
+
+            @Override
+            public AsyncDataConsumer handleResponse(
+                    final HttpResponse response,
+                    final EntityDetails entityDetails) throws HttpException, IOException {
+                if (compressingProducer.isProduced() && compressionSupport.isRejected(response)) {
+                    compressionSupport.markRejected(target);
+                    if (entityProducer.isRepeatable()) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("{}: {} rejected compressed request content; re-executing uncompressed",
+                                    scope.exchangeId, target);
+                        }
+                        rejected = true;
+                        return new NoopEntityConsumer();
+                    }
+                }
+                return asyncExecCallback.handleResponse(response, entityDetails);
+            }
+
+            @Override
+            public void handleInformationResponse(final HttpResponse response) throws HttpException, IOException {
+                asyncExecCallback.handleInformationResponse(response);
+            }
+
+            @Override
+            public void completed() {
+                if (rejected) {
+                    compressingProducer.releaseResources();
+                    try {
+                        chain.proceed(request, entityProducer, scope, asyncExecCallback);
+                    } catch (final IOException | HttpException ex) {
+                        asyncExecCallback.failed(ex);
+                    }
+                } else {
+                    asyncExecCallback.completed();
+                }
+            }
+
+            @Override
+            public void failed(final Exception cause) {
+                asyncExecCallback.failed(cause);
+            }
+
+        });
+    }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.async;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hc.client5.http.impl.ContentCompressor;
+import org.apache.hc.client5.http.impl.RequestCompressionSupport;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+
+/**
+ * {@link AsyncEntityProducer} decorator that compresses content of the
+ * wrapped producer with a pooled {@link java.util.zip.Deflater}.
+ * <p>
+ * Compressed output that cannot be written to the data channel immediately
+ * is retained and written out before the wrapped producer gets asked for
+ * more content.
+ * </p>
+ */
+final class CompressingAsyncEntityProducer implements AsyncEntityProducer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final AsyncEntityProducer entityProducer;
+    private final RequestCompressionSupport compressionSupport;
+    private final InternalDataChannel internalChannel;
+
+    private ContentCompressor compressor;
+    private byte[] inBuffer;
+    private byte[] outBuffer;
+    private ByteBuffer outView;
+    private int outStart;
+    private int outEnd;
+    private boolean endStream;
+    private boolean streamEnded;
+    private List<? extends Header> trailers;
+    private volatile boolean produced;
+
+    CompressingAsyncEntityProducer(
+            final AsyncEntityProducer entityProducer,
+            final RequestCompressionSupport compressionSupport) {
+        this.entityProducer = entityProducer;
+        this.compressionSupport = compressionSupport;
+        this.internalChannel = new InternalDataChannel();
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return entityProducer.isRepeatable();
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public String getContentType() {
+        return entityProducer.getContentType();
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return compressionSupport.getContentEncoding();
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+        return entityProducer.getTrailerNames();
+    }
+
+    @Override
+    public synchronized int available() {
+        if (outEnd > outStart) {
+            return outEnd - outStart;
+        }
+        if (endStream) {
+            return streamEnded ? 0 : 1;
+        }
+        return entityProducer.available();
+    }
+
+    @Override
+    public synchronized void produce(final DataStreamChannel channel) throws IOException {
+        produced = true;
+        if (compressor == null) {
+            compressor = compressionSupport.createCompressor();
+            inBuffer = new byte[BUFFER_SIZE];
+            outBuffer = new byte[BUFFER_SIZE];
+            outView = ByteBuffer.wrap(outBuffer);
+        }
+        if (!flush(channel)) {
+            return;
+        }
+        if (endStream) {
+            endStream(channel);
+            return;
+        }
+        internalChannel.channel = channel;
+        entityProducer.produce(internalChannel);
+    }
+
+    private synchronized int compress(final DataStreamChannel channel, final ByteBuffer src) throws IOException {
+        if (endStream || !flush(channel)) {
+            return 0;
+        }
+        int total = 0;
+        while (src.hasRemaining()) {
+            final int len = Math.min(src.remaining(), inBuffer.length);
+            src.get(inBuffer, 0, len);
+            total += len;
+            compressor.update(inBuffer, 0, len);
+            while (!compressor.needsInput()) {
+                drain();
+            }
+            if (!flush(channel)) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private synchronized void finish(final DataStreamChannel channel, final List<? extends Header> trailers) throws IOException {
+        if (endStream) {
+            return;
+        }
+        this.trailers = trailers;
+        endStream = true;
+        compressor.finish();
+        while (!compressor.isDone()) {
+            drain();
+        }
+        if (flush(channel)) {
+            endStream(channel);
+        } else {
+            channel.requestOutput();
+        }
+    }
+
+    private void endStream(final DataStreamChannel channel) throws IOException {
+        if (!streamEnded) {
+            streamEnded = true;
+            channel.endStream(trailers);
+        }
+    }
+
+    private void drain() {
+        if (outEnd == outBuffer.length) {
+            if (outStart > 0) {
+                System.arraycopy(outBuffer, outStart, outBuffer, 0, outEnd - outStart);
+                outEnd -= outStart;
+                outStart = 0;
+            } else {
+                final byte[] expanded = new byte[outBuffer.length * 2];
+                System.arraycopy(outBuffer, 0, expanded, 0, outEnd);
+                outBuffer = expanded;
+                outView = ByteBuffer.wrap(outBuffer);
+            }
+        }
+        outEnd += compressor.drain(outBuffer, outEnd, outBuffer.length - outEnd);
+    }
+
+    private boolean flush(final DataStreamChannel channel) throws IOException {
+        while (outEnd > outStart) {
+            outView.limit(outEnd);
+            outView.position(outStart);
+            final int n = channel.write(outView);
+            if (n <= 0) {
+                return false;
+            }
+            outStart += n;
+        }
+        outStart = 0;
+        outEnd = 0;
+        return true;
+    }
+
+    @Override
+    public void failed(final Exception cause) {
+        entityProducer.failed(cause);
+    }
+
+    /**
+     * Returns {@code true} if compressed content has been produced.
+     */
+    boolean isProduced() {
+        return produced;
+    }
+
+    @Override
+    public synchronized void releaseResources() {
+        if (compressor != null) {
+            compressor.release();
+            compressor = null;
+        }
+        outStart = 0;
+        outEnd = 0;
+        endStream = false;
+        streamEnded = false;
+        trailers = null;
+        entityProducer.releaseResources();
+    }
+
+    private class InternalDataChannel implements DataStreamChannel {
+
+        private volatile DataStreamChannel channel;
+
+        @Override
+        public void requestOutput() {
+            channel.requestOutput();
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            return compress(channel, src);
+        }
+
+        @Override
+        public void endStream(final List<? extends Header> trailers) throws IOException {
+            finish(channel, trailers);
+        }
+
+        @Override
+        public void endStream() throws IOException {
+            finish(channel, null);
+        }
+
+    }
+
+}
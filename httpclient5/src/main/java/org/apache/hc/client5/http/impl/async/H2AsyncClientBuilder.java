@@ -36,20 +36,26 @@
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 
 import org.apache.hc.client5.http.AuthenticationStrategy;
 import org.apache.hc.client5.http.DnsResolver;
 import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.SchemePortResolver;
 import org.apache.hc.client5.http.async.AsyncExecChainHandler;
 import org.apache.hc.client5.http.auth.AuthSchemeFactory;
 import org.apache.hc.client5.http.auth.StandardAuthScheme;
 import org.apache.hc.client5.http.auth.CredentialsProvider;
+import org.apache.hc.client5.http.classic.ConnectionBackoffStrategy;
+import org.apache.hc.client5.http.config.RequestCompressionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.cookie.BasicCookieStore;
 import org.apache.hc.client5.http.cookie.CookieSpecFactory;
 import org.apache.hc.client5.http.cookie.CookieStore;
+import org.apache.hc.client5.http.impl.AdaptiveConcurrencyLimiter;
 import org.apache.hc.client5.http.impl.ChainElement;
 import org.apache.hc.client5.http.impl.CookieSpecSupport;
 import org.apache.hc.client5.http.impl.DefaultAuthenticationStrategy;
@@ -63,6 +69,7 @@
 import org.apache.hc.client5.http.impl.auth.NTLMSchemeFactory;
 import org.apache.hc.client5.http.impl.auth.SPNegoSchemeFactory;
 import org.apache.hc.client5.http.impl.auth.SystemDefaultCredentialsProvider;
+import org.apache.hc.client5.http.impl.classic.DefaultBackoffStrategy;
 import org.apache.hc.client5.http.impl.nio.MultihomeConnectionInitiator;
 import org.apache.hc.client5.http.impl.routing.DefaultRoutePlanner;
 import org.apache.hc.client5.http.protocol.RedirectStrategy;
@@ -98,7 +105,6 @@
 import org.apache.hc.core5.http.protocol.RequestTargetHost;
 import org.apache.hc.core5.http.protocol.RequestUserAgent;
 import org.apache.hc.core5.http2.config.H2Config;
-import org.apache.hc.core5.http2.nio.pool.H2ConnPool;
 import org.apache.hc.core5.http2.protocol.H2RequestConnControl;
 import org.apache.hc.core5.http2.protocol.H2RequestContent;
 import org.apache.hc.core5.http2.protocol.H2RequestTargetHost;
@@ -110,6 +116,7 @@
 import org.apache.hc.core5.reactor.IOSession;
 import org.apache.hc.core5.util.Args;
 import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.apache.hc.core5.util.VersionInfo;
 
 /**
@@ -199,14 +206,22 @@ private ExecInterceptorEntry(
     private String userAgent;
     private Collection<? extends Header> defaultHeaders;
     private RequestConfig defaultRequestConfig;
+    private RequestCompressionConfig requestCompressionConfig;
+    private ConnectionBackoffStrategy connectionBackoffStrategy;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private RequestEventListener requestEventListener;
+    private Timeout concurrencyLimitMaxQueueTime;
     private boolean evictIdleConnections;
     private TimeValue maxIdleTime;
+    private int minConnPerRoute;
+    private int maxConnPerRoute;
 
     private boolean systemProperties;
     private boolean automaticRetriesDisabled;
     private boolean redirectHandlingDisabled;
     private boolean cookieManagementDisabled;
     private boolean authCachingDisabled;
+    private boolean contentCompressionDisabled;
 
     private DnsResolver dnsResolver;
     private TlsStrategy tlsStrategy;
@@ -510,6 +525,18 @@ public final H2AsyncClientBuilder setDefaultRequestConfig(final RequestConfig co
         return this;
     }
 
+    /**
+     * Enables compression of request content using the given
+     * {@link RequestCompressionConfig}. Request content is not compressed
+     * by default.
+     *
+     * @since 5.1
+     */
+    public final H2AsyncClientBuilder setRequestCompressionConfig(final RequestCompressionConfig requestCompressionConfig) {
+        this.requestCompressionConfig = requestCompressionConfig;
+        return this;
+    }
+
     /**
      * Use system properties when creating and configuring default
      * implementations.
@@ -543,6 +570,104 @@ public final H2AsyncClientBuilder disableCookieManagement() {
         return this;
     }
 
+    /**
+     * Assigns {@link RequestEventListener} instance that will be notified of
+     * request execution events if not explicitly set in the client execution
+     * context. New connections are established by the connection pool while
+     * an endpoint is being leased, so the time spent connecting is reported as
+     * part of the lease phase. Connect events are only reported when a closed
+     * connection gets re-established and TLS handshake events are not reported.
+     *
+     * @since 5.1
+     */
+    public final H2AsyncClientBuilder setRequestEventListener(final RequestEventListener requestEventListener) {
+        this.requestEventListener = requestEventListener;
+        return this;
+    }
+
+    /**
+     * Assigns {@link ConnectionBackoffStrategy} instance used by the concurrency
+     * limiter to classify back-off signals.
+     *
+     * @since 5.1
+     */
+    public final H2AsyncClientBuilder setConnectionBackoffStrategy(
+            final ConnectionBackoffStrategy connectionBackoffStrategy) {
+        this.connectionBackoffStrategy = connectionBackoffStrategy;
+        return this;
+    }
+
+    /**
+     * Assigns {@link AdaptiveConcurrencyLimiter} instance used to limit the number
+     * of requests in flight per route. Requests on a saturated route wait up to
+     * {@code maxQueueTime} for a permit without blocking an I/O thread before
+     * being rejected with {@link org.apache.hc.client5.http.ConcurrencyLimitExceededException}.
+     * Waiting requests are timed out and resumed by a single thread executor
+     * owned by the client, which gets shut down when the client is closed.
+     * <p>
+     * As HTTP/2 connections are shared by all requests to the same route, the
+     * limit applies to streams in flight rather than connections. Back-off
+     * signals are classified by the {@link ConnectionBackoffStrategy} if set or
+     * by {@link DefaultBackoffStrategy} otherwise.
+     * </p>
+     *
+     * @since 5.1
+     */
+    public final H2AsyncClientBuilder setConcurrencyLimiter(
+            final AdaptiveConcurrencyLimiter concurrencyLimiter,
+            final Timeout maxQueueTime) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.concurrencyLimitMaxQueueTime = maxQueueTime;
+        return this;
+    }
+
+    /**
+     * Assigns minimum number of connections per route kept open when the client
+     * is allowed to open multiple connections per route.
+     *
+     * @see #setMaxConnPerRoute(int)
+     *
+     * @since 5.1
+     */
+    public final H2AsyncClientBuilder setMinConnPerRoute(final int minConnPerRoute) {
+        this.minConnPerRoute = minConnPerRoute;
+        return this;
+    }
+
+    /**
+     * Assigns maximum number of connections per route. By default all concurrent
+     * message exchanges with the same route are multiplexed over a single HTTP/2
+     * connection.
+     * <p>
+     * If set to a value greater than one, additional connections to the same route
+     * are opened when the number of active streams on the least loaded connection
+     * approaches the maximum number of concurrent streams advertised by the opposite
+     * endpoint. New message exchanges get executed over the least loaded connection.
+     * Connections in excess of {@link #setMinConnPerRoute(int) the minimum} get
+     * gracefully shut down once they have been idle for longer than the maximum idle
+     * time set with {@link #evictIdleConnections(TimeValue)} (30 seconds by default).
+     * The pool schedules shutdown of extra connections with a timer thread of its
+     * own, regardless of whether idle connection eviction is enabled. The timer
+     * thread is shut down when the client is closed.
+     * </p>
+     *
+     * @since 5.1
+     */
+    public final H2AsyncClientBuilder setMaxConnPerRoute(final int maxConnPerRoute) {
+        this.maxConnPerRoute = maxConnPerRoute;
+        return this;
+    }
+
+    /**
+     * Disables automatic content decompression.
+     *
+     * @since 5.1
+     */
+    public final H2AsyncClientBuilder disableContentCompression() {
+        contentCompressionDisabled = true;
+        return this;
+    }
+
     /**
      * Disables authentication scheme caching.
      */
@@ -580,6 +705,13 @@ public final H2AsyncClientBuilder evictIdleConnections(final TimeValue maxIdleTi
     protected void customizeExecChain(final NamedElementChain<AsyncExecChainHandler> execChainDefinition) {
     }
 
+    private static ScheduledExecutorService createConcurrencyLimitExecutor() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                1, new DefaultThreadFactory("httpclient-concurrency-limiter", true));
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
     /**
      * Adds to the list of {@link Closeable} resources to be managed by the client.
      * <p>
@@ -676,6 +808,12 @@ public CloseableHttpAsyncClient build() {
                 new AsyncProtocolExec(httpProcessor, targetAuthStrategyCopy, proxyAuthStrategyCopy),
                 ChainElement.PROTOCOL.name());
 
+        if (requestCompressionConfig != null) {
+            execChainDefinition.addFirst(
+                    new AsyncRequestCompressionExec(requestCompressionConfig),
+                    ChainElement.COMPRESS_REQUEST.name());
+        }
+
         // Add request retry executor, if not disabled
         if (!automaticRetriesDisabled) {
             HttpRequestRetryStrategy retryStrategyCopy = this.retryStrategy;
@@ -696,6 +834,12 @@ public CloseableHttpAsyncClient build() {
             routePlannerCopy = new DefaultRoutePlanner(schemePortResolverCopy);
         }
 
+        if (!contentCompressionDisabled) {
+            execChainDefinition.addFirst(
+                    new AsyncContentCompressionExec(true),
+                    ChainElement.COMPRESS.name());
+        }
+
         // Add redirect executor, if not disabled
         if (!redirectHandlingDisabled) {
             RedirectStrategy redirectStrategyCopy = this.redirectStrategy;
@@ -707,6 +851,23 @@ public CloseableHttpAsyncClient build() {
                     ChainElement.REDIRECT.name());
         }
 
+        // Optionally, add connection back-off executor
+        final ScheduledExecutorService concurrencyLimitExecutor =
+                this.concurrencyLimiter != null && TimeValue.isPositive(this.concurrencyLimitMaxQueueTime)
+                        ? createConcurrencyLimitExecutor() : null;
+        if (this.concurrencyLimiter != null) {
+            execChainDefinition.addFirst(new AsyncConcurrencyLimitExec(
+                    this.concurrencyLimiter,
+                    this.connectionBackoffStrategy != null ? this.connectionBackoffStrategy : new DefaultBackoffStrategy(),
+                    this.concurrencyLimitMaxQueueTime,
+                    concurrencyLimitExecutor),
+                    ChainElement.BACK_OFF.name());
+        }
+
+        final int maxConnPerRouteCopy = maxConnPerRoute > 0 ? maxConnPerRoute : 1;
+        final int minConnPerRouteCopy = minConnPerRoute > 0 ? Math.min(minConnPerRoute, maxConnPerRouteCopy) : 1;
+        final H2PeerSettingsListener peerSettingsListener = maxConnPerRouteCopy > 1 ? new H2PeerSettingsListener() : null;
+
         final AsyncPushConsumerRegistry pushConsumerRegistry = new AsyncPushConsumerRegistry();
         final IOEventHandlerFactory ioEventHandlerFactory = new H2AsyncClientEventHandlerFactory(
                 new DefaultHttpProcessor(new H2RequestContent(), new H2RequestTargetHost(), new H2RequestConnControl()),
@@ -719,7 +880,8 @@ public AsyncPushConsumer create(final HttpRequest request, final HttpContext con
 
                 },
                 h2Config != null ? h2Config : H2Config.DEFAULT,
-                charCodingConfig != null ? charCodingConfig : CharCodingConfig.DEFAULT);
+                charCodingConfig != null ? charCodingConfig : CharCodingConfig.DEFAULT,
+                peerSettingsListener);
         final DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(
                 ioEventHandlerFactory,
                 ioReactorConfig != null ? ioReactorConfig : IOReactorConfig.DEFAULT,
@@ -806,14 +968,19 @@ public void execute(final IOSession ioSession) {
         }
 
         final MultihomeConnectionInitiator connectionInitiator = new MultihomeConnectionInitiator(ioReactor, dnsResolver);
-        final H2ConnPool connPool = new H2ConnPool(connectionInitiator, new Resolver<HttpHost, InetSocketAddress>() {
+        final H2MultiConnPool connPool = new H2MultiConnPool(connectionInitiator, new Resolver<HttpHost, InetSocketAddress>() {
 
             @Override
             public InetSocketAddress resolve(final HttpHost host) {
                 return null;
             }
 
-        }, tlsStrategyCopy);
+        }, tlsStrategyCopy,
+                minConnPerRouteCopy,
+                maxConnPerRouteCopy,
+                H2MultiConnPool.DEFAULT_MAX_CONCURRENT_STREAMS,
+                maxIdleTime,
+                peerSettingsListener);
 
         List<Closeable> closeablesCopy = closeables != null ? new ArrayList<>(closeables) : null;
         if (closeablesCopy == null) {
@@ -833,6 +1000,20 @@ public void close() throws IOException {
             connectionEvictor.start();
         }
         closeablesCopy.add(connPool);
+        closeablesCopy.add(connectionInitiator);
+        if (concurrencyLimitExecutor != null) {
+            if (closeablesCopy == null) {
+                closeablesCopy = new ArrayList<>(1);
+            }
+            closeablesCopy.add(new Closeable() {
+
+                @Override
+                public void close() throws IOException {
+                    concurrencyLimitExecutor.shutdownNow();
+                }
+
+            });
+        }
 
         return new InternalH2AsyncClient(
                 ioReactor,
@@ -846,6 +1027,7 @@ public void close() throws IOException {
                 cookieStoreCopy,
                 credentialsProviderCopy,
                 defaultRequestConfig,
+                requestEventListener,
                 closeablesCopy);
     }
 
@@ -862,7 +1044,7 @@ static class IdleConnectionEvictor implements Closeable {
 
         private final Thread thread;
 
-        public IdleConnectionEvictor(final H2ConnPool connPool, final TimeValue maxIdleTime) {
+        public IdleConnectionEvictor(final H2MultiConnPool connPool, final TimeValue maxIdleTime) {
             this.thread = new DefaultThreadFactory("idle-connection-evictor", true).newThread(new Runnable() {
                 @Override
                 public void run() {
@@ -60,16 +60,27 @@ class H2AsyncClientEventHandlerFactory implements IOEventHandlerFactory {
     private final HandlerFactory<AsyncPushConsumer> exchangeHandlerFactory;
     private final H2Config h2Config;
     private final CharCodingConfig charCodingConfig;
+    private final H2StreamListener streamListener;
 
     H2AsyncClientEventHandlerFactory(
             final HttpProcessor httpProcessor,
             final HandlerFactory<AsyncPushConsumer> exchangeHandlerFactory,
             final H2Config h2Config,
-            final CharCodingConfig charCodingConfig) {
+            final CharCodingConfig charCodingConfig,
+            final H2StreamListener streamListener) {
         this.httpProcessor = Args.notNull(httpProcessor, "HTTP processor");
         this.exchangeHandlerFactory = exchangeHandlerFactory;
         this.h2Config = h2Config != null ? h2Config : H2Config.DEFAULT;
         this.charCodingConfig = charCodingConfig != null ? charCodingConfig : CharCodingConfig.DEFAULT;
+        this.streamListener = streamListener;
+    }
+
+    H2AsyncClientEventHandlerFactory(
+            final HttpProcessor httpProcessor,
+            final HandlerFactory<AsyncPushConsumer> exchangeHandlerFactory,
+            final H2Config h2Config,
+            final CharCodingConfig charCodingConfig) {
+        this(httpProcessor, exchangeHandlerFactory, h2Config, charCodingConfig, null);
     }
 
     @Override
@@ -117,6 +128,9 @@ public void onHeaderInput(final HttpConnection connection, final int streamId, f
                                     HEADER_LOG.debug("{} << {}", id, headers.get(i));
                                 }
                             }
+                            if (streamListener != null) {
+                                streamListener.onHeaderInput(connection, streamId, headers);
+                            }
                         }
 
                         @Override
@@ -126,6 +140,9 @@ public void onHeaderOutput(final HttpConnection connection, final int streamId,
                                     HEADER_LOG.debug("{} >> {}", id, headers.get(i));
                                 }
                             }
+                            if (streamListener != null) {
+                                streamListener.onHeaderOutput(connection, streamId, headers);
+                            }
                         }
 
                         @Override
@@ -136,6 +153,9 @@ public void onFrameInput(final HttpConnection connection, final int streamId, fi
                             if (FRAME_PAYLOAD_LOG.isDebugEnabled()) {
                                 logFramePayload(id + " <<", frame);
                             }
+                            if (streamListener != null) {
+                                streamListener.onFrameInput(connection, streamId, frame);
+                            }
                         }
 
                         @Override
@@ -146,6 +166,9 @@ public void onFrameOutput(final HttpConnection connection, final int streamId, f
                             if (FRAME_PAYLOAD_LOG.isDebugEnabled()) {
                                 logFramePayload(id + " >>", frame);
                             }
+                            if (streamListener != null) {
+                                streamListener.onFrameOutput(connection, streamId, frame);
+                            }
                         }
 
                         @Override
@@ -153,6 +176,9 @@ public void onInputFlowControl(final HttpConnection connection, final int stream
                             if (FLOW_CTRL_LOG.isDebugEnabled()) {
                                 logFlowControl(id + " <<", streamId, delta, actualSize);
                             }
+                            if (streamListener != null) {
+                                streamListener.onInputFlowControl(connection, streamId, delta, actualSize);
+                            }
                         }
 
                         @Override
@@ -160,6 +186,9 @@ public void onOutputFlowControl(final HttpConnection connection, final int strea
                             if (FLOW_CTRL_LOG.isDebugEnabled()) {
                                 logFlowControl(id + " >>", streamId, delta, actualSize);
                             }
+                            if (streamListener != null) {
+                                streamListener.onOutputFlowControl(connection, streamId, delta, actualSize);
+                            }
                         }
 
                     });
@@ -170,7 +199,7 @@ public void onOutputFlowControl(final HttpConnection connection, final int strea
                 exchangeHandlerFactory,
                 h2Config,
                 charCodingConfig,
-                null);
+                streamListener);
         return new H2OnlyClientProtocolNegotiator(ioSession, http2StreamHandlerFactory, false);
    }
 
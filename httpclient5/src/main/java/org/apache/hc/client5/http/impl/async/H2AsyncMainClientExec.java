@@ -32,6 +32,7 @@
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.async.AsyncExecCallback;
 import org.apache.hc.client5.http.async.AsyncExecChain;
 import org.apache.hc.client5.http.async.AsyncExecChainHandler;
@@ -81,6 +82,7 @@ public void execute(
         final CancellableDependency operation = scope.cancellableDependency;
         final HttpClientContext clientContext = scope.clientContext;
         final AsyncExecRuntime execRuntime = scope.execRuntime;
+        final RequestEventListener listener = clientContext.getRequestEventListener();
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("{}: executing {}", exchangeId, new RequestLine(request));
@@ -115,6 +117,9 @@ public void cancel() {
 
             @Override
             public void produceRequest(final RequestChannel channel, final HttpContext context) throws HttpException, IOException {
+                if (listener != null) {
+                    listener.requestStart(request, clientContext);
+                }
                 channel.sendRequest(request, entityProducer, context);
             }
 
@@ -137,9 +142,15 @@ public void consumeResponse(
                     final HttpResponse response,
                     final EntityDetails entityDetails,
                     final HttpContext context) throws HttpException, IOException {
+                if (listener != null) {
+                    listener.responseStart(response, clientContext);
+                }
                 entityConsumerRef.set(asyncExecCallback.handleResponse(response, entityDetails));
                 if (entityDetails == null) {
                     execRuntime.validateConnection();
+                    if (listener != null) {
+                        listener.responseEnd(clientContext);
+                    }
                     asyncExecCallback.completed();
                 }
             }
@@ -164,6 +175,10 @@ public void consume(final ByteBuffer src) throws IOException {
 
             @Override
             public void streamEnd(final List<? extends Header> trailers) throws HttpException, IOException {
+                // Report the event before the consumer gets to complete the response future
+                if (listener != null) {
+                    listener.responseEnd(clientContext);
+                }
                 final AsyncDataConsumer entityConsumer = entityConsumerRef.getAndSet(null);
                 if (entityConsumer != null) {
                     entityConsumer.streamEnd(trailers);
@@ -0,0 +1,513 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.hc.client5.http.impl.async;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.function.Resolver;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.nio.command.ShutdownCommand;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http2.nio.pool.H2ConnPool;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.io.ModalCloseable;
+import org.apache.hc.core5.reactor.Command;
+import org.apache.hc.core5.reactor.ConnectionInitiator;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * HTTP/2 session pool capable of maintaining multiple connections per route.
+ * <p>
+ * Each connection slot is backed by its own {@link H2ConnPool}. Message exchanges
+ * are leased the least loaded connection of the route. A new connection is opened
+ * while the route has fewer connections than the minimum or once the least loaded
+ * connection approaches the maximum number of concurrent streams advertised by
+ * the opposite endpoint, up to the maximum number of connections per route.
+ * Connections in excess of the minimum are gracefully shut down once they have
+ * had no active message exchanges for longer than the drain interval. Draining
+ * is scheduled with a timer thread owned by the pool, which is shut down when
+ * the pool is closed.
+ * </p>
+ * <p>
+ * With a single connection per route this pool behaves exactly as
+ * {@link H2ConnPool} and keeps no per-route state of its own.
+ * </p>
+ */
+final class H2MultiConnPool implements ModalCloseable {
+
+    /**
+     * Maximum number of concurrent streams assumed for connections whose peer has
+     * not advertised any limit yet, as recommended by RFC 7540, section 6.5.2.
+     */
+    static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+
+    private static final int DRAINING = -1;
+    private static final int RETIRED = -1;
+
+    private final H2ConnPool[] slotPools;
+    private final int minConnPerRoute;
+    private final int defaultMaxConcurrentStreams;
+    private final TimeValue drainInterval;
+    private final H2PeerSettingsListener peerSettings;
+    private final ConcurrentMap<HttpHost, RouteState> routeStates;
+    private final ScheduledExecutorService drainScheduler;
+    private final AtomicBoolean closed;
+
+    H2MultiConnPool(
+            final ConnectionInitiator connectionInitiator,
+            final Resolver<HttpHost, InetSocketAddress> addressResolver,
+            final TlsStrategy tlsStrategy,
+            final int minConnPerRoute,
+            final int maxConnPerRoute,
+            final int defaultMaxConcurrentStreams,
+            final TimeValue drainInterval,
+            final H2PeerSettingsListener peerSettings) {
+        Args.positive(maxConnPerRoute, "Max connections per route");
+        Args.check(minConnPerRoute >= 1 && minConnPerRoute <= maxConnPerRoute,
+                "Min connections per route must be within [1, max connections per route]");
+        this.slotPools = new H2ConnPool[maxConnPerRoute];
+        for (int i = 0; i < slotPools.length; i++) {
+            this.slotPools[i] = new H2ConnPool(connectionInitiator, addressResolver, tlsStrategy);
+        }
+        this.minConnPerRoute = minConnPerRoute;
+        this.defaultMaxConcurrentStreams = Args.positive(defaultMaxConcurrentStreams, "Max concurrent streams");
+        this.drainInterval = TimeValue.defaultsTo(drainInterval, TimeValue.ofSeconds(30L));
+        this.peerSettings = peerSettings;
+        this.routeStates = new ConcurrentHashMap<>();
+        this.drainScheduler = maxConnPerRoute > 1 && this.drainInterval.toMilliseconds() > 0
+                ? createDrainScheduler() : null;
+        this.closed = new AtomicBoolean(false);
+    }
+
+    private static ScheduledExecutorService createDrainScheduler() {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(
+                1, new DefaultThreadFactory("httpclient-h2-drain", true));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    H2MultiConnPool(
+            final ConnectionInitiator connectionInitiator,
+            final Resolver<HttpHost, InetSocketAddress> addressResolver,
+            final TlsStrategy tlsStrategy) {
+        this(connectionInitiator, addressResolver, tlsStrategy, 1, 1, DEFAULT_MAX_CONCURRENT_STREAMS, null, null);
+    }
+
+    int getMinConnPerRoute() {
+        return minConnPerRoute;
+    }
+
+    int getMaxConnPerRoute() {
+        return slotPools.length;
+    }
+
+    ScheduledExecutorService getDrainScheduler() {
+        return drainScheduler;
+    }
+
+    void setValidateAfterInactivity(final TimeValue timeValue) {
+        for (final H2ConnPool slotPool: slotPools) {
+            slotPool.setValidateAfterInactivity(timeValue);
+        }
+    }
+
+    private RouteState getRouteState(final HttpHost host) {
+        RouteState state = routeStates.get(host);
+        if (state == null) {
+            final RouteState newState = new RouteState(slotPools.length);
+            state = routeStates.putIfAbsent(host, newState);
+            if (state == null) {
+                state = newState;
+            }
+        }
+        return state;
+    }
+
+    private int getHighWatermark(final IOSession session) {
+        final int maxConcurrentStreams = session != null && peerSettings != null
+                ? peerSettings.getMaxConcurrentStreams(session.getId(), defaultMaxConcurrentStreams)
+                : defaultMaxConcurrentStreams;
+        return Math.max(1, maxConcurrentStreams - maxConcurrentStreams / 4);
+    }
+
+    private void discardSession(final RouteState state, final int slot, final IOSession session) {
+        if (state.sessions.compareAndSet(slot, session, null) && peerSettings != null) {
+            peerSettings.remove(session.getId());
+        }
+    }
+
+    /**
+     * Discards the connection held by the given slot if it has been closed
+     * and returns the number of streams of the slot, or {@link #DRAINING}
+     * if the slot still holds a connection being shut down.
+     */
+    private int pruneSlot(final RouteState state, final int slot) {
+        final IOSession session = state.sessions.get(slot);
+        final int streams = state.streams.get(slot);
+        if (session != null && session.isOpen()) {
+            return streams;
+        }
+        if (session != null) {
+            discardSession(state, slot, session);
+        }
+        if (streams == DRAINING) {
+            // Drained connection has been closed; the slot can be re-used
+            state.streams.compareAndSet(slot, DRAINING, 0);
+            return 0;
+        }
+        return streams;
+    }
+
+    private int selectSlot(final RouteState state) {
+        int best = -1;
+        int bestStreams = Integer.MAX_VALUE;
+        IOSession bestSession = null;
+        int active = 0;
+        int vacant = -1;
+        for (int i = 0; i < slotPools.length; i++) {
+            final int streams = pruneSlot(state, i);
+            if (streams == DRAINING) {
+                continue;
+            }
+            final IOSession session = state.sessions.get(i);
+            // A slot is active if it holds an open connection or one that is being established
+            if (session != null || streams > 0) {
+                active++;
+                if (streams < bestStreams) {
+                    best = i;
+                    bestStreams = streams;
+                    bestSession = session;
+                }
+            } else if (vacant == -1) {
+                vacant = i;
+            }
+        }
+        if (vacant != -1 && (best == -1 || active < minConnPerRoute || bestStreams >= getHighWatermark(bestSession))) {
+            return vacant;
+        }
+        return best;
+    }
+
+    private RouteState acquireRouteState(final HttpHost host) {
+        for (;;) {
+            final RouteState state = getRouteState(host);
+            final int leased = state.leased.get();
+            if (leased == RETIRED) {
+                // The route state is being removed; make sure it is gone before trying again
+                routeStates.remove(host, state);
+            } else if (state.leased.compareAndSet(leased, leased + 1)) {
+                return state;
+            }
+        }
+    }
+
+    /**
+     * Leases a connection slot of the given route for a new message exchange.
+     * The slot must be released with {@link #release(HttpHost, int)} once
+     * the message exchange is over.
+     *
+     * @return the slot index or {@code -1} if all connections of the route
+     * are being shut down and there is no vacant slot to open a new one.
+     */
+    int lease(final HttpHost host) {
+        if (slotPools.length == 1) {
+            return 0;
+        }
+        final RouteState state = acquireRouteState(host);
+        // A slot may only be lost to a connection being drained concurrently,
+        // which can happen at most once per slot
+        for (int attempt = 0; attempt <= slotPools.length; attempt++) {
+            final int slot = selectSlot(state);
+            if (slot < 0) {
+                break;
+            }
+            for (;;) {
+                final int streams = state.streams.get(slot);
+                if (streams == DRAINING) {
+                    break;
+                }
+                if (state.streams.compareAndSet(slot, streams, streams + 1)) {
+                    return slot;
+                }
+            }
+        }
+        state.leased.decrementAndGet();
+        return -1;
+    }
+
+    /**
+     * Releases a connection slot previously leased with {@link #lease(HttpHost)}.
+     */
+    void release(final HttpHost host, final int slot) {
+        if (slotPools.length == 1) {
+            return;
+        }
+        final RouteState state = routeStates.get(host);
+        if (state == null) {
+            return;
+        }
+        final boolean idle = state.streams.decrementAndGet(slot) == 0;
+        if (idle) {
+            state.idleSince.set(slot, System.currentTimeMillis());
+        }
+        state.leased.decrementAndGet();
+        if (drainScheduler == null) {
+            drain(host, state, drainInterval);
+        } else if (idle) {
+            scheduleDrain(host, state);
+        }
+    }
+
+    /**
+     * Returns a connection for the given slot of the route, establishing a new
+     * one if the slot holds none.
+     */
+    Future<IOSession> getSession(
+            final HttpHost host,
+            final int slot,
+            final Timeout connectTimeout,
+            final FutureCallback<IOSession> callback) {
+        if (slotPools.length == 1) {
+            return slotPools[0].getSession(host, connectTimeout, callback);
+        }
+        final RouteState state = getRouteState(host);
+        return slotPools[slot].getSession(host, connectTimeout, new FutureCallback<IOSession>() {
+
+            @Override
+            public void completed(final IOSession session) {
+                final IOSession previous = state.sessions.getAndSet(slot, session);
+                if (previous != null && previous != session && peerSettings != null) {
+                    peerSettings.remove(previous.getId());
+                }
+                if (callback != null) {
+                    callback.completed(session);
+                }
+            }
+
+            @Override
+            public void failed(final Exception ex) {
+                if (callback != null) {
+                    callback.failed(ex);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                if (callback != null) {
+                    callback.cancelled();
+                }
+            }
+
+        });
+    }
+
+    /**
+     * Returns the number of active message exchanges in the given slot of the route.
+     * Message exchanges are not counted with a single connection per route.
+     */
+    int getActiveStreams(final HttpHost host, final int slot) {
+        final RouteState state = routeStates.get(host);
+        return state != null ? Math.max(0, state.streams.get(slot)) : 0;
+    }
+
+    /**
+     * Gracefully shuts down connections in excess of the minimum number of connections
+     * per route that have been idle for longer than the given period of time.
+     *
+     * @return {@code true} if the route has connections that are idle but not yet
+     * expired or still being shut down and needs to be drained again later.
+     */
+    private boolean drain(final HttpHost host, final RouteState state, final TimeValue idleTime) {
+        int open = 0;
+        boolean closing = false;
+        for (int i = 0; i < slotPools.length; i++) {
+            final int streams = pruneSlot(state, i);
+            if (streams == DRAINING) {
+                closing = true;
+            } else if (state.sessions.get(i) != null) {
+                open++;
+            }
+        }
+        boolean pending = false;
+        final long deadline = System.currentTimeMillis() - idleTime.toMilliseconds();
+        // Shut down connections in the highest slots first
+        for (int i = slotPools.length - 1; i >= 0 && open > minConnPerRoute; i--) {
+            final IOSession session = state.sessions.get(i);
+            if (session != null && session.isOpen() && state.streams.get(i) == 0) {
+                if (state.idleSince.get(i) > deadline) {
+                    pending = true;
+                } else if (state.streams.compareAndSet(i, 0, DRAINING)) {
+                    session.enqueue(ShutdownCommand.GRACEFUL, Command.Priority.NORMAL);
+                    closing = true;
+                    open--;
+                }
+            }
+        }
+        if (!pending && !closing) {
+            retireIfEmpty(host, state);
+        }
+        return pending || closing;
+    }
+
+    private void scheduleDrain(final HttpHost host, final RouteState state) {
+        if (closed.get() || !state.drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            drainScheduler.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    state.drainScheduled.set(false);
+                    if (!closed.get() && drain(host, state, drainInterval)) {
+                        scheduleDrain(host, state);
+                    }
+                }
+
+            }, drainInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException ex) {
+            state.drainScheduled.set(false);
+        }
+    }
+
+    /**
+     * Removes the state of the route if none of its slots is leased or holds
+     * a connection.
+     */
+    private void retireIfEmpty(final HttpHost host, final RouteState state) {
+        for (int i = 0; i < slotPools.length; i++) {
+            if (state.sessions.get(i) != null) {
+                return;
+            }
+        }
+        if (state.leased.compareAndSet(0, RETIRED)) {
+            // No slot can be leased any more; re-check connections that may have
+            // been handed over by a connect request completed concurrently
+            for (int i = 0; i < slotPools.length; i++) {
+                if (state.sessions.get(i) != null) {
+                    state.leased.compareAndSet(RETIRED, 0);
+                    return;
+                }
+            }
+            routeStates.remove(host, state);
+        }
+    }
+
+    /**
+     * Closes connections that have been idle longer than the given period of time
+     * and shuts down extra connections in excess of the minimum number of connections
+     * per route.
+     */
+    void closeIdle(final TimeValue idleTime) {
+        for (final H2ConnPool slotPool: slotPools) {
+            slotPool.closeIdle(idleTime);
+        }
+        if (slotPools.length > 1) {
+            for (final Map.Entry<HttpHost, RouteState> entry: routeStates.entrySet()) {
+                drain(entry.getKey(), entry.getValue(), idleTime);
+            }
+        }
+    }
+
+    /**
+     * Returns the routes the pool currently keeps track of.
+     */
+    Set<HttpHost> getRoutes() {
+        return Collections.unmodifiableSet(routeStates.keySet());
+    }
+
+    @Override
+    public void close(final CloseMode closeMode) {
+        closed.set(true);
+        if (drainScheduler != null) {
+            // Pending drain tasks are of no use once the slot pools have been closed
+            drainScheduler.shutdownNow();
+        }
+        for (final H2ConnPool slotPool: slotPools) {
+            slotPool.close(closeMode);
+        }
+        routeStates.clear();
+        if (peerSettings != null) {
+            peerSettings.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        close(CloseMode.GRACEFUL);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[min: ").append(minConnPerRoute)
+                .append("; max: ").append(slotPools.length)
+                .append("; routes: ").append(routeStates.keySet())
+                .append("]");
+        return buffer.toString();
+    }
+
+    static final class RouteState {
+
+        final AtomicReferenceArray<IOSession> sessions;
+        final AtomicIntegerArray streams;
+        final AtomicLongArray idleSince;
+        final AtomicInteger leased;
+        final AtomicBoolean drainScheduled;
+
+        RouteState(final int slots) {
+            this.sessions = new AtomicReferenceArray<>(slots);
+            this.streams = new AtomicIntegerArray(slots);
+            this.idleSince = new AtomicLongArray(slots);
+            this.leased = new AtomicInteger(0);
+            this.drainScheduled = new AtomicBoolean(false);
+        }
+
+    }
+
+}
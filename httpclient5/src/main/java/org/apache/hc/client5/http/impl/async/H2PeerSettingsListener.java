@@ -0,0 +1,118 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.hc.client5.http.impl.async;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpConnection;
+import org.apache.hc.core5.http2.config.H2Param;
+import org.apache.hc.core5.http2.frame.FrameFlag;
+import org.apache.hc.core5.http2.frame.FrameType;
+import org.apache.hc.core5.http2.frame.RawFrame;
+import org.apache.hc.core5.http2.impl.nio.H2StreamListener;
+import org.apache.hc.core5.util.Identifiable;
+
+/**
+ * {@link H2StreamListener} that keeps track of the maximum number of concurrent
+ * streams advertised by the opposite endpoint in its {@code SETTINGS} frames
+ * on a per connection basis. Connections are identified by the id of their
+ * underlying I/O session.
+ */
+class H2PeerSettingsListener implements H2StreamListener {
+
+    private final ConcurrentMap<String, Integer> maxConcurrentStreamsMap;
+
+    H2PeerSettingsListener() {
+        super();
+        this.maxConcurrentStreamsMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the maximum number of concurrent streams advertised by the peer
+     * of the connection with the given id or {@code defaultValue} if the peer
+     * has not advertised any limit yet.
+     */
+    int getMaxConcurrentStreams(final String id, final int defaultValue) {
+        final Integer value = maxConcurrentStreamsMap.get(id);
+        return value != null ? value.intValue() : defaultValue;
+    }
+
+    void remove(final String id) {
+        maxConcurrentStreamsMap.remove(id);
+    }
+
+    void clear() {
+        maxConcurrentStreamsMap.clear();
+    }
+
+    @Override
+    public void onFrameInput(final HttpConnection connection, final int streamId, final RawFrame frame) {
+        if (streamId != 0 || !frame.isType(FrameType.SETTINGS) || frame.isFlagSet(FrameFlag.ACK)
+                || !(connection instanceof Identifiable)) {
+            return;
+        }
+        final ByteBuffer payload = frame.getPayload();
+        if (payload == null) {
+            return;
+        }
+        final ByteBuffer buffer = payload.duplicate();
+        while (buffer.remaining() >= 6) {
+            final int code = buffer.getShort() & 0xffff;
+            final int value = buffer.getInt();
+            if (code == H2Param.MAX_CONCURRENT_STREAMS.getCode()) {
+                // The setting is an unsigned 32-bit integer
+                maxConcurrentStreamsMap.put(((Identifiable) connection).getId(), value >= 0 ? value : Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    @Override
+    public void onHeaderInput(final HttpConnection connection, final int streamId, final List<? extends Header> headers) {
+    }
+
+    @Override
+    public void onHeaderOutput(final HttpConnection connection, final int streamId, final List<? extends Header> headers) {
+    }
+
+    @Override
+    public void onFrameOutput(final HttpConnection connection, final int streamId, final RawFrame frame) {
+    }
+
+    @Override
+    public void onInputFlowControl(final HttpConnection connection, final int streamId, final int delta, final int actualSize) {
+    }
+
+    @Override
+    public void onOutputFlowControl(final HttpConnection connection, final int streamId, final int delta, final int actualSize) {
+    }
+
+}
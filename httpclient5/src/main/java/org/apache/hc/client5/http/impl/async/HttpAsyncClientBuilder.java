@@ -36,22 +36,32 @@
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 
 import org.apache.hc.client5.http.AuthenticationStrategy;
 import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
 import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.SchemePortResolver;
 import org.apache.hc.client5.http.UserTokenHandler;
 import org.apache.hc.client5.http.async.AsyncExecChainHandler;
 import org.apache.hc.client5.http.auth.AuthSchemeFactory;
 import org.apache.hc.client5.http.auth.StandardAuthScheme;
 import org.apache.hc.client5.http.auth.CredentialsProvider;
+import org.apache.hc.client5.http.classic.BackoffManager;
+import org.apache.hc.client5.http.classic.ConnectionBackoffStrategy;
+import org.apache.hc.client5.http.config.RequestCompressionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.cookie.BasicCookieStore;
 import org.apache.hc.client5.http.cookie.CookieSpecFactory;
 import org.apache.hc.client5.http.cookie.CookieStore;
+import org.apache.hc.client5.http.impl.AdaptiveConcurrencyLimiter;
 import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.ConnPoolWarmUp;
 import org.apache.hc.client5.http.impl.CookieSpecSupport;
 import org.apache.hc.client5.http.impl.DefaultAuthenticationStrategy;
 import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
@@ -60,6 +70,7 @@
 import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
 import org.apache.hc.client5.http.impl.DefaultUserTokenHandler;
 import org.apache.hc.client5.http.impl.IdleConnectionEvictor;
+import org.apache.hc.client5.http.impl.MinIdleConnectionMaintainer;
 import org.apache.hc.client5.http.impl.NoopUserTokenHandler;
 import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
 import org.apache.hc.client5.http.impl.auth.BasicSchemeFactory;
@@ -68,6 +79,8 @@
 import org.apache.hc.client5.http.impl.auth.NTLMSchemeFactory;
 import org.apache.hc.client5.http.impl.auth.SPNegoSchemeFactory;
 import org.apache.hc.client5.http.impl.auth.SystemDefaultCredentialsProvider;
+import org.apache.hc.client5.http.impl.classic.DefaultBackoffStrategy;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
 import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
 import org.apache.hc.client5.http.impl.routing.DefaultProxyRoutePlanner;
 import org.apache.hc.client5.http.impl.routing.DefaultRoutePlanner;
@@ -81,7 +94,9 @@
 import org.apache.hc.client5.http.protocol.ResponseProcessCookies;
 import org.apache.hc.client5.http.routing.HttpRoutePlanner;
 import org.apache.hc.core5.annotation.Internal;
+import org.apache.hc.core5.concurrent.BasicFuture;
 import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.function.Callback;
 import org.apache.hc.core5.http.ConnectionReuseStrategy;
 import org.apache.hc.core5.http.Header;
@@ -117,9 +132,11 @@
 import org.apache.hc.core5.reactor.DefaultConnectingIOReactor;
 import org.apache.hc.core5.reactor.IOEventHandlerFactory;
 import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.IOReactorStatus;
 import org.apache.hc.core5.reactor.IOSession;
 import org.apache.hc.core5.util.Args;
 import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.apache.hc.core5.util.VersionInfo;
 
 /**
@@ -237,15 +254,24 @@ private ExecInterceptorEntry(
     private HttpHost proxy;
     private Collection<? extends Header> defaultHeaders;
     private RequestConfig defaultRequestConfig;
+    private RequestCompressionConfig requestCompressionConfig;
+    private RequestEventListener requestEventListener;
+    private ConnectionBackoffStrategy connectionBackoffStrategy;
+    private BackoffManager backoffManager;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private Timeout concurrencyLimitMaxQueueTime;
     private boolean evictExpiredConnections;
     private boolean evictIdleConnections;
     private TimeValue maxIdleTime;
+    private int minIdlePerRoute;
+    private Collection<HttpRoute> warmUpRoutes;
 
     private boolean systemProperties;
     private boolean automaticRetriesDisabled;
     private boolean redirectHandlingDisabled;
     private boolean cookieManagementDisabled;
     private boolean authCachingDisabled;
+    private boolean contentCompressionDisabled;
     private boolean connectionStateDisabled;
 
     private ThreadFactory threadFactory;
@@ -612,6 +638,30 @@ public final HttpAsyncClientBuilder setDefaultRequestConfig(final RequestConfig
         return this;
     }
 
+    /**
+     * Enables compression of request content using the given
+     * {@link RequestCompressionConfig}. Request content is not compressed
+     * by default.
+     *
+     * @since 5.1
+     */
+    public final HttpAsyncClientBuilder setRequestCompressionConfig(final RequestCompressionConfig requestCompressionConfig) {
+        this.requestCompressionConfig = requestCompressionConfig;
+        return this;
+    }
+
+    /**
+     * Assigns {@link RequestEventListener} instance that will be notified of
+     * request execution events if not explicitly set in the client execution
+     * context.
+     *
+     * @since 5.1
+     */
+    public final HttpAsyncClientBuilder setRequestEventListener(final RequestEventListener requestEventListener) {
+        this.requestEventListener = requestEventListener;
+        return this;
+    }
+
     /**
      * Use system properties when creating and configuring default
      * implementations.
@@ -653,6 +703,67 @@ public final HttpAsyncClientBuilder disableCookieManagement() {
         return this;
     }
 
+    /**
+     * Assigns {@link ConnectionBackoffStrategy} instance.
+     *
+     * @since 5.1
+     */
+    public final HttpAsyncClientBuilder setConnectionBackoffStrategy(
+            final ConnectionBackoffStrategy connectionBackoffStrategy) {
+        this.connectionBackoffStrategy = connectionBackoffStrategy;
+        return this;
+    }
+
+    /**
+     * Assigns {@link BackoffManager} instance.
+     * <p>
+     * A {@link BackoffManager} such as
+     * {@link org.apache.hc.client5.http.impl.classic.AIMDBackoffManager} created with
+     * {@link org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager}
+     * adjusts per-route connection maximums of the pool.
+     * </p>
+     *
+     * @since 5.1
+     */
+    public final HttpAsyncClientBuilder setBackoffManager(final BackoffManager backoffManager) {
+        this.backoffManager = backoffManager;
+        return this;
+    }
+
+    /**
+     * Assigns {@link AdaptiveConcurrencyLimiter} instance used to limit the number
+     * of requests in flight per route. Requests on a saturated route wait up to
+     * {@code maxQueueTime} for a permit without blocking an I/O thread before
+     * being rejected with {@link org.apache.hc.client5.http.ConcurrencyLimitExceededException}.
+     * Waiting requests are timed out and resumed by a single thread executor
+     * owned by the client, which gets shut down when the client is closed.
+     * <p>
+     * If set, the concurrency limiter takes precedence over
+     * {@link #setBackoffManager(BackoffManager)}. Back-off signals are classified
+     * by the {@link ConnectionBackoffStrategy} if set or by
+     * {@link DefaultBackoffStrategy} otherwise.
+     * </p>
+     *
+     * @since 5.1
+     */
+    public final HttpAsyncClientBuilder setConcurrencyLimiter(
+            final AdaptiveConcurrencyLimiter concurrencyLimiter,
+            final Timeout maxQueueTime) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.concurrencyLimitMaxQueueTime = maxQueueTime;
+        return this;
+    }
+
+    /**
+     * Disables automatic content decompression.
+     *
+     * @since 5.1
+     */
+    public final HttpAsyncClientBuilder disableContentCompression() {
+        contentCompressionDisabled = true;
+        return this;
+    }
+
     /**
      * Disables authentication scheme caching.
      */
@@ -702,6 +813,43 @@ public final HttpAsyncClientBuilder evictIdleConnections(final TimeValue maxIdle
         return this;
     }
 
+    /**
+     * Makes this instance of HttpClient keep at least the given number of idle
+     * connections per route in the connection pool using a background thread.
+     * Missing connections are established in advance including TLS handshakes
+     * so that requests do not pay for connection setup. Connections are only
+     * established while the client is running.
+     * <p>
+     * One MUST explicitly close HttpClient with {@link CloseableHttpAsyncClient#close()}
+     * in order to stop and release the background thread.
+     * <p>
+     * Please note this method has no effect if the instance of HttpClient is configured to
+     * use a shared connection manager or a connection manager other than
+     * {@link PoolingAsyncClientConnectionManager}.
+     *
+     * @see #setWarmUpRoutes(Collection)
+     *
+     * @since 5.1
+     */
+    public final HttpAsyncClientBuilder setMinIdlePerRoute(final int minIdlePerRoute) {
+        this.minIdlePerRoute = minIdlePerRoute;
+        return this;
+    }
+
+    /**
+     * Assigns routes to pre-open connections to as soon as the client has been started.
+     * Only these routes are then kept at the minimum number of idle connections
+     * per route, or one connection if no minimum has been set.
+     *
+     * @see #setMinIdlePerRoute(int)
+     *
+     * @since 5.1
+     */
+    public final HttpAsyncClientBuilder setWarmUpRoutes(final Collection<HttpRoute> warmUpRoutes) {
+        this.warmUpRoutes = warmUpRoutes;
+        return this;
+    }
+
     /**
      * Request exec chain customization and extension.
      * <p>
@@ -711,6 +859,13 @@ public final HttpAsyncClientBuilder evictIdleConnections(final TimeValue maxIdle
     protected void customizeExecChain(final NamedElementChain<AsyncExecChainHandler> execChainDefinition) {
     }
 
+    private static ScheduledExecutorService createConcurrencyLimitExecutor() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                1, new DefaultThreadFactory("httpclient-concurrency-limiter", true));
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
     /**
      * Adds to the list of {@link Closeable} resources to be managed by the client.
      * <p>
@@ -826,6 +981,12 @@ public CloseableHttpAsyncClient build() {
                 new AsyncProtocolExec(httpProcessor, targetAuthStrategyCopy, proxyAuthStrategyCopy),
                 ChainElement.PROTOCOL.name());
 
+        if (requestCompressionConfig != null) {
+            execChainDefinition.addFirst(
+                    new AsyncRequestCompressionExec(requestCompressionConfig),
+                    ChainElement.COMPRESS_REQUEST.name());
+        }
+
         // Add request retry executor, if not disabled
         if (!automaticRetriesDisabled) {
             HttpRequestRetryStrategy retryStrategyCopy = this.retryStrategy;
@@ -859,6 +1020,12 @@ public ProxySelector run() {
             }
         }
 
+        if (!contentCompressionDisabled) {
+            execChainDefinition.addFirst(
+                    new AsyncContentCompressionExec(true),
+                    ChainElement.COMPRESS.name());
+        }
+
         // Add redirect executor, if not disabled
         if (!redirectHandlingDisabled) {
             RedirectStrategy redirectStrategyCopy = this.redirectStrategy;
@@ -870,6 +1037,22 @@ public ProxySelector run() {
                     ChainElement.REDIRECT.name());
         }
 
+        // Optionally, add connection back-off executor
+        final ScheduledExecutorService concurrencyLimitExecutor =
+                this.concurrencyLimiter != null && TimeValue.isPositive(this.concurrencyLimitMaxQueueTime)
+                        ? createConcurrencyLimitExecutor() : null;
+        if (this.concurrencyLimiter != null) {
+            execChainDefinition.addFirst(new AsyncConcurrencyLimitExec(
+                    this.concurrencyLimiter,
+                    this.connectionBackoffStrategy != null ? this.connectionBackoffStrategy : new DefaultBackoffStrategy(),
+                    this.concurrencyLimitMaxQueueTime,
+                    concurrencyLimitExecutor),
+                    ChainElement.BACK_OFF.name());
+        } else if (this.backoffManager != null && this.connectionBackoffStrategy != null) {
+            execChainDefinition.addFirst(new AsyncBackoffStrategyExec(this.connectionBackoffStrategy, this.backoffManager),
+                    ChainElement.BACK_OFF.name());
+        }
+
         List<Closeable> closeablesCopy = closeables != null ? new ArrayList<>(closeables) : null;
         if (!this.connManagerShared) {
             if (closeablesCopy == null) {
@@ -892,6 +1075,19 @@ public void close() throws IOException {
             }
             closeablesCopy.add(connManagerCopy);
         }
+        if (concurrencyLimitExecutor != null) {
+            if (closeablesCopy == null) {
+                closeablesCopy = new ArrayList<>(1);
+            }
+            closeablesCopy.add(new Closeable() {
+
+                @Override
+                public void close() throws IOException {
+                    concurrencyLimitExecutor.shutdownNow();
+                }
+
+            });
+        }
         ConnectionReuseStrategy reuseStrategyCopy = this.reuseStrategy;
         if (reuseStrategyCopy == null) {
             if (systemProperties) {
@@ -943,6 +1139,43 @@ public void execute(final IOSession ioSession) {
 
                 });
 
+        if (!this.connManagerShared && (minIdlePerRoute > 0 || (warmUpRoutes != null && !warmUpRoutes.isEmpty()))) {
+            if (connManagerCopy instanceof PoolingAsyncClientConnectionManager) {
+                final PoolingAsyncClientConnectionManager poolingConnManager = (PoolingAsyncClientConnectionManager) connManagerCopy;
+                final MinIdleConnectionMaintainer connectionMaintainer = new MinIdleConnectionMaintainer(
+                        poolingConnManager,
+                        new ConnPoolWarmUp<HttpRoute>() {
+
+                            @Override
+                            public Future<Integer> warmUp(
+                                    final HttpRoute route,
+                                    final int connections,
+                                    final Timeout timeout,
+                                    final FutureCallback<Integer> callback) {
+                                if (ioReactor.getStatus() != IOReactorStatus.ACTIVE) {
+                                    final BasicFuture<Integer> future = new BasicFuture<>(callback);
+                                    future.completed(0);
+                                    return future;
+                                }
+                                return poolingConnManager.warmUp(route, connections, ioReactor, timeout, callback);
+                            }
+
+                        },
+                        warmUpRoutes,
+                        Math.max(minIdlePerRoute, 1),
+                        (defaultRequestConfig != null ? defaultRequestConfig : RequestConfig.DEFAULT).getConnectTimeout());
+                closeablesCopy.add(new Closeable() {
+
+                    @Override
+                    public void close() throws IOException {
+                        connectionMaintainer.shutdown();
+                    }
+
+                });
+                connectionMaintainer.start();
+            }
+        }
+
         if (execInterceptors != null) {
             for (final ExecInterceptorEntry entry: execInterceptors) {
                 switch (entry.postion) {
@@ -1016,6 +1249,7 @@ public void execute(final IOSession ioSession) {
                 cookieStoreCopy,
                 credentialsProviderCopy,
                 defaultRequestConfig,
+                requestEventListener,
                 closeablesCopy);
     }
 
@@ -35,6 +35,7 @@
 
 import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.UserTokenHandler;
 import org.apache.hc.client5.http.async.AsyncExecCallback;
 import org.apache.hc.client5.http.async.AsyncExecChain;
@@ -96,6 +97,7 @@ public void execute(
         final CancellableDependency operation = scope.cancellableDependency;
         final HttpClientContext clientContext = scope.clientContext;
         final AsyncExecRuntime execRuntime = scope.execRuntime;
+        final RequestEventListener listener = clientContext.getRequestEventListener();
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("{}: executing {}", exchangeId, new RequestLine(request));
@@ -133,6 +135,9 @@ public void cancel() {
             public void produceRequest(
                     final RequestChannel channel,
                     final HttpContext context) throws HttpException, IOException {
+                if (listener != null) {
+                    listener.requestStart(request, clientContext);
+                }
                 channel.sendRequest(request, entityProducer, context);
                 if (entityProducer == null) {
                     messageCountDown.decrementAndGet();
@@ -189,6 +194,9 @@ public void consumeResponse(
                     final HttpResponse response,
                     final EntityDetails entityDetails,
                     final HttpContext context) throws HttpException, IOException {
+                if (listener != null) {
+                    listener.responseStart(response, clientContext);
+                }
                 entityConsumerRef.set(asyncExecCallback.handleResponse(response, entityDetails));
                 if (response.getCode() >= HttpStatus.SC_CLIENT_ERROR) {
                     messageCountDown.decrementAndGet();
@@ -202,6 +210,9 @@ public void consumeResponse(
                 execRuntime.markConnectionReusable(userToken, keepAliveDuration);
                 if (entityDetails == null) {
                     execRuntime.validateConnection();
+                    if (listener != null) {
+                        listener.responseEnd(clientContext);
+                    }
                     if (messageCountDown.decrementAndGet() <= 0) {
                         asyncExecCallback.completed();
                     }
@@ -228,6 +239,10 @@ public void consume(final ByteBuffer src) throws IOException {
 
             @Override
             public void streamEnd(final List<? extends Header> trailers) throws HttpException, IOException {
+                // Report the event before the consumer gets to complete the response future
+                if (listener != null) {
+                    listener.responseEnd(clientContext);
+                }
                 final AsyncDataConsumer entityConsumer = entityConsumerRef.getAndSet(null);
                 if (entityConsumer != null) {
                     entityConsumer.streamEnd(trailers);
@@ -0,0 +1,292 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.async;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.ByteArrayBuffer;
+
+/**
+ * {@link AsyncDataConsumer} decorator that incrementally decodes {@code gzip}
+ * or {@code deflate} encoded content and passes decoded data on to the
+ * downstream consumer as it becomes available.
+ * <p>
+ * Content in {@code deflate} encoding is expected to be a zlib stream as required
+ * by RFC 7230; raw deflate streams as sent by some servers are detected and
+ * handled as well. Concatenated gzip members are decoded as one stream.
+ * </p>
+ */
+final class InflatingAsyncDataConsumer implements AsyncDataConsumer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int TRAILING_GARBAGE = -2;
+
+    private enum State { HEADER, BODY, TRAILER, MEMBER_END, DONE }
+
+    private final AsyncDataConsumer downstream;
+    private final boolean gzip;
+    private final CRC32 crc;
+    private final ByteArrayBuffer headBuffer;
+    private final byte[] outBuffer;
+
+    private Inflater inflater;
+    private byte[] inBuffer;
+    private State state;
+
+    InflatingAsyncDataConsumer(final AsyncDataConsumer downstream, final boolean gzip) {
+        this.downstream = Args.notNull(downstream, "Data consumer");
+        this.gzip = gzip;
+        this.crc = gzip ? new CRC32() : null;
+        this.headBuffer = new ByteArrayBuffer(16);
+        this.outBuffer = new byte[BUFFER_SIZE];
+        this.state = State.HEADER;
+    }
+
+    @Override
+    public void updateCapacity(final CapacityChannel capacityChannel) throws IOException {
+        downstream.updateCapacity(capacityChannel);
+    }
+
+    @Override
+    public void consume(final ByteBuffer src) throws IOException {
+        if (src.hasArray()) {
+            final int len = src.remaining();
+            decode(src.array(), src.arrayOffset() + src.position(), len);
+            src.position(src.limit());
+        } else {
+            if (inBuffer == null) {
+                inBuffer = new byte[BUFFER_SIZE];
+            }
+            while (src.hasRemaining()) {
+                final int len = Math.min(src.remaining(), inBuffer.length);
+                src.get(inBuffer, 0, len);
+                decode(inBuffer, 0, len);
+            }
+        }
+    }
+
+    private void decode(final byte[] b, final int off, final int len) throws IOException {
+        int pos = off;
+        int remaining = len;
+        while (remaining > 0) {
+            switch (state) {
+                case MEMBER_END:
+                    inflater.reset();
+                    crc.reset();
+                    state = State.HEADER;
+                    // fall through
+                case HEADER: {
+                    final int n = Math.min(remaining, 64);
+                    headBuffer.append(b, pos, n);
+                    pos += n;
+                    remaining -= n;
+                    final int headerLen = gzip ? parseGzipHeader(headBuffer) : detectZlibHeader(headBuffer);
+                    if (headerLen == TRAILING_GARBAGE) {
+                        state = State.DONE;
+                        return;
+                    }
+                    if (headerLen >= 0) {
+                        final int excess = headBuffer.length() - headerLen;
+                        pos -= excess;
+                        remaining += excess;
+                        headBuffer.clear();
+                        state = State.BODY;
+                    }
+                    break;
+                }
+                case BODY: {
+                    final int consumed = inflate(b, pos, remaining);
+                    pos += consumed;
+                    remaining -= consumed;
+                    break;
+                }
+                case TRAILER: {
+                    final int n = Math.min(remaining, 8 - headBuffer.length());
+                    headBuffer.append(b, pos, n);
+                    pos += n;
+                    remaining -= n;
+                    if (headBuffer.length() == 8) {
+                        verifyGzipTrailer(headBuffer);
+                        headBuffer.clear();
+                        state = State.MEMBER_END;
+                    }
+                    break;
+                }
+                default:
+                    // Ignore any data past the end of the deflate stream
+                    return;
+            }
+        }
+    }
+
+    private int inflate(final byte[] b, final int off, final int len) throws IOException {
+        inflater.setInput(b, off, len);
+        try {
+            for (;;) {
+                final int n = inflater.inflate(outBuffer);
+                if (n > 0) {
+                    if (crc != null) {
+                        crc.update(outBuffer, 0, n);
+                    }
+                    downstream.consume(ByteBuffer.wrap(outBuffer, 0, n));
+                }
+                if (inflater.finished()) {
+                    state = gzip ? State.TRAILER : State.DONE;
+                    return len - inflater.getRemaining();
+                }
+                if (inflater.needsDictionary()) {
+                    throw new ZipException("Deflate dictionary is not supported");
+                }
+                if (n == 0 && inflater.needsInput()) {
+                    return len;
+                }
+            }
+        } catch (final DataFormatException ex) {
+            throw new ZipException(ex.getMessage() != null ? ex.getMessage() : "Invalid deflate data");
+        }
+    }
+
+    private int detectZlibHeader(final ByteArrayBuffer buf) {
+        if (buf.length() < 2) {
+            return -1;
+        }
+        final int cmf = buf.byteAt(0) & 0xff;
+        final int flg = buf.byteAt(1) & 0xff;
+        final boolean zlib = (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+        inflater = new Inflater(!zlib);
+        return 0;
+    }
+
+    private int parseGzipHeader(final ByteArrayBuffer buf) throws ZipException {
+        if (buf.length() < 2) {
+            return -1;
+        }
+        if (readUShort(buf, 0) != GZIP_MAGIC) {
+            if (inflater != null) {
+                // Ignore trailing data that is not another gzip member
+                return TRAILING_GARBAGE;
+            }
+            throw new ZipException("Not in GZIP format");
+        }
+        if (buf.length() < 10) {
+            return -1;
+        }
+        if ((buf.byteAt(2) & 0xff) != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        final int flags = buf.byteAt(3) & 0xff;
+        int pos = 10;
+        if ((flags & FEXTRA) != 0) {
+            if (buf.length() < pos + 2) {
+                return -1;
+            }
+            pos += 2 + readUShort(buf, pos);
+        }
+        if ((flags & FNAME) != 0) {
+            pos = skipZeroTerminated(buf, pos);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            pos = skipZeroTerminated(buf, pos);
+        }
+        if ((flags & FHCRC) != 0 && pos >= 0) {
+            pos += 2;
+        }
+        if (pos < 0 || pos > buf.length()) {
+            return -1;
+        }
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        return pos;
+    }
+
+    private void verifyGzipTrailer(final ByteArrayBuffer buf) throws ZipException {
+        final long expectedCrc = readUInt(buf, 0);
+        final long expectedSize = readUInt(buf, 4);
+        if (expectedCrc != crc.getValue()) {
+            throw new ZipException("Corrupt GZIP trailer: CRC mismatch");
+        }
+        if (expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+            throw new ZipException("Corrupt GZIP trailer: size mismatch");
+        }
+    }
+
+    private static int skipZeroTerminated(final ByteArrayBuffer buf, final int pos) {
+        if (pos < 0) {
+            return -1;
+        }
+        for (int i = pos; i < buf.length(); i++) {
+            if (buf.byteAt(i) == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int readUShort(final ByteArrayBuffer buf, final int pos) {
+        return (buf.byteAt(pos) & 0xff) | ((buf.byteAt(pos + 1) & 0xff) << 8);
+    }
+
+    private static long readUInt(final ByteArrayBuffer buf, final int pos) {
+        return (readUShort(buf, pos) | ((long) readUShort(buf, pos + 2) << 16)) & 0xffffffffL;
+    }
+
+    @Override
+    public void streamEnd(final List<? extends Header> trailers) throws HttpException, IOException {
+        if (state == State.BODY || state == State.TRAILER || (state == State.HEADER && headBuffer.length() > 0 && inflater == null)) {
+            throw new EOFException("Unexpected end of compressed content");
+        }
+        downstream.streamEnd(trailers);
+    }
+
+    @Override
+    public void releaseResources() {
+        if (inflater != null) {
+            inflater.end();
+        }
+        downstream.releaseResources();
+    }
+
+}
@@ -37,6 +37,7 @@
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.async.AsyncExecCallback;
 import org.apache.hc.client5.http.async.AsyncExecChain;
 import org.apache.hc.client5.http.async.AsyncExecRuntime;
@@ -83,6 +84,7 @@ abstract class InternalAbstractHttpAsyncClient extends AbstractHttpAsyncClientBa
     private final CookieStore cookieStore;
     private final CredentialsProvider credentialsProvider;
     private final RequestConfig defaultConfig;
+    private final RequestEventListener requestEventListener;
     private final ConcurrentLinkedQueue<Closeable> closeables;
 
     InternalAbstractHttpAsyncClient(
@@ -95,6 +97,7 @@ abstract class InternalAbstractHttpAsyncClient extends AbstractHttpAsyncClientBa
             final CookieStore cookieStore,
             final CredentialsProvider credentialsProvider,
             final RequestConfig defaultConfig,
+            final RequestEventListener requestEventListener,
             final List<Closeable> closeables) {
         super(ioReactor, pushConsumerRegistry, threadFactory);
         this.execChain = execChain;
@@ -103,6 +106,7 @@ abstract class InternalAbstractHttpAsyncClient extends AbstractHttpAsyncClientBa
         this.cookieStore = cookieStore;
         this.credentialsProvider = credentialsProvider;
         this.defaultConfig = defaultConfig;
+        this.requestEventListener = requestEventListener;
         this.closeables = closeables != null ? new ConcurrentLinkedQueue<>(closeables) : null;
     }
 
@@ -140,6 +144,9 @@ private void setupContext(final HttpClientContext context) {
         if (context.getAttribute(HttpClientContext.REQUEST_CONFIG) == null) {
             context.setAttribute(HttpClientContext.REQUEST_CONFIG, defaultConfig);
         }
+        if (requestEventListener != null && context.getAttribute(HttpClientContext.REQUEST_EVENT_LISTENER) == null) {
+            context.setAttribute(HttpClientContext.REQUEST_EVENT_LISTENER, requestEventListener);
+        }
     }
 
     abstract AsyncExecRuntime createAsyncExecRuntime(HandlerFactory<AsyncPushConsumer> pushHandlerFactory);
@@ -185,6 +192,10 @@ public void sendRequest(
                     final AsyncExecRuntime execRuntime = createAsyncExecRuntime(pushHandlerFactory);
 
                     setupContext(clientContext);
+                    final RequestEventListener listener = clientContext.getRequestEventListener();
+                    if (listener != null) {
+                        listener.callStart(request, clientContext);
+                    }
 
                     final AsyncExecChain.Scope scope = new AsyncExecChain.Scope(exchangeId, route, request, future,
                             clientContext, execRuntime);
@@ -255,6 +266,9 @@ public void produce(final DataStreamChannel channel) throws IOException {
                                 public AsyncDataConsumer handleResponse(
                                         final HttpResponse response,
                                         final EntityDetails entityDetails) throws HttpException, IOException {
+                                    if (listener != null) {
+                                        listener.callEnd(response, clientContext);
+                                    }
                                     if (response.getCode() >= HttpStatus.SC_CLIENT_ERROR) {
                                         outputTerminated.set(true);
                                         requestProducer.releaseResources();
@@ -305,6 +319,9 @@ public void failed(final Exception cause) {
                                     if (LOG.isDebugEnabled()) {
                                         LOG.debug("{}: request failed: {}", exchangeId, cause.getMessage());
                                     }
+                                    if (listener != null) {
+                                        listener.callFailed(cause, clientContext);
+                                    }
                                     try {
                                         execRuntime.discardEndpoint();
                                         responseConsumer.failed(cause);
@@ -31,6 +31,7 @@
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.async.AsyncExecRuntime;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.ConnPoolSupport;
@@ -39,12 +40,12 @@
 import org.apache.hc.core5.concurrent.Cancellable;
 import org.apache.hc.core5.concurrent.ComplexCancellable;
 import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ConnectionClosedException;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.nio.AsyncClientExchangeHandler;
 import org.apache.hc.core5.http.nio.AsyncPushConsumer;
 import org.apache.hc.core5.http.nio.HandlerFactory;
 import org.apache.hc.core5.http.nio.command.RequestExecutionCommand;
-import org.apache.hc.core5.http2.nio.pool.H2ConnPool;
 import org.apache.hc.core5.io.CloseMode;
 import org.apache.hc.core5.reactor.Command;
 import org.apache.hc.core5.reactor.IOSession;
@@ -56,14 +57,15 @@
 class InternalH2AsyncExecRuntime implements AsyncExecRuntime {
 
     private final Logger log;
-    private final H2ConnPool connPool;
+    private final H2MultiConnPool connPool;
     private final HandlerFactory<AsyncPushConsumer> pushHandlerFactory;
     private final AtomicReference<Endpoint> sessionRef;
     private volatile boolean reusable;
+    private volatile HttpRoute route;
 
     InternalH2AsyncExecRuntime(
             final Logger log,
-            final H2ConnPool connPool,
+            final H2MultiConnPool connPool,
             final HandlerFactory<AsyncPushConsumer> pushHandlerFactory) {
         super();
         this.log = log;
@@ -91,28 +93,44 @@ public Cancellable acquireEndpoint(
             if (log.isDebugEnabled()) {
                 log.debug("{}: acquiring endpoint ({})", id, connectTimeout);
             }
+            this.route = route;
+            final RequestEventListener listener = context.getRequestEventListener();
+            if (listener != null) {
+                listener.leaseStart(route, context);
+            }
+            final int slot = connPool.lease(target);
+            if (slot < 0) {
+                callback.failed(new ConnectionClosedException("All connections to %s are being shut down", target));
+                return Operations.nonCancellable();
+            }
             return Operations.cancellable(connPool.getSession(
                     target,
+                    slot,
                     connectTimeout,
                     new FutureCallback<IOSession>() {
 
                         @Override
                         public void completed(final IOSession ioSession) {
-                            sessionRef.set(new Endpoint(target, ioSession));
+                            sessionRef.set(new Endpoint(target, slot, ioSession));
                             reusable = true;
                             if (log.isDebugEnabled()) {
                                 log.debug("{}: acquired endpoint", id);
                             }
+                            if (listener != null) {
+                                listener.leaseEnd(route, context);
+                            }
                             callback.completed(InternalH2AsyncExecRuntime.this);
                         }
 
                         @Override
                         public void failed(final Exception ex) {
+                            connPool.release(target, slot);
                             callback.failed(ex);
                         }
 
                         @Override
                         public void cancelled() {
+                            connPool.release(target, slot);
                             callback.cancelled();
                         }
 
@@ -123,6 +141,7 @@ public void cancelled() {
     }
 
     private void closeEndpoint(final Endpoint endpoint) {
+        connPool.release(endpoint.target, endpoint.slot);
         endpoint.session.close(CloseMode.GRACEFUL);
         if (log.isDebugEnabled()) {
             log.debug("{}: endpoint closed", ConnPoolSupport.getId(endpoint));
@@ -132,8 +151,12 @@ private void closeEndpoint(final Endpoint endpoint) {
     @Override
     public void releaseEndpoint() {
         final Endpoint endpoint = sessionRef.getAndSet(null);
-        if (endpoint != null && !reusable) {
-            closeEndpoint(endpoint);
+        if (endpoint != null) {
+            if (reusable) {
+                connPool.release(endpoint.target, endpoint.slot);
+            } else {
+                closeEndpoint(endpoint);
+            }
         }
     }
 
@@ -188,21 +211,32 @@ public Cancellable connectEndpoint(
         if (log.isDebugEnabled()) {
             log.debug("{}: connecting endpoint ({})", ConnPoolSupport.getId(endpoint), connectTimeout);
         }
-        return Operations.cancellable(connPool.getSession(target, connectTimeout,
+        final HttpRoute routeSnapshot = route;
+        final RequestEventListener listener = context.getRequestEventListener();
+        if (listener != null) {
+            listener.connectStart(routeSnapshot, context);
+        }
+        return Operations.cancellable(connPool.getSession(target, endpoint.slot, connectTimeout,
             new FutureCallback<IOSession>() {
 
             @Override
             public void completed(final IOSession ioSession) {
-                sessionRef.set(new Endpoint(target, ioSession));
+                sessionRef.set(new Endpoint(target, endpoint.slot, ioSession));
                 reusable = true;
                 if (log.isDebugEnabled()) {
                     log.debug("{}: endpoint connected", ConnPoolSupport.getId(endpoint));
                 }
+                if (listener != null) {
+                    listener.connectEnd(routeSnapshot, context);
+                }
                 callback.completed(InternalH2AsyncExecRuntime.this);
             }
 
             @Override
             public void failed(final Exception ex) {
+                if (listener != null) {
+                    listener.connectFailed(routeSnapshot, ex, context);
+                }
                 callback.failed(ex);
             }
 
@@ -238,16 +272,17 @@ public Cancellable execute(
             final HttpHost target = endpoint.target;
             final RequestConfig requestConfig = context.getRequestConfig();
             final Timeout connectTimeout = requestConfig.getConnectTimeout();
-            connPool.getSession(target, connectTimeout, new FutureCallback<IOSession>() {
+            connPool.getSession(target, endpoint.slot, connectTimeout, new FutureCallback<IOSession>() {
 
                 @Override
                 public void completed(final IOSession ioSession) {
-                    sessionRef.set(new Endpoint(target, ioSession));
+                    final Endpoint newEndpoint = new Endpoint(target, endpoint.slot, ioSession);
+                    sessionRef.set(newEndpoint);
                     reusable = true;
                     if (log.isDebugEnabled()) {
-                        log.debug("{}: start execution {}", ConnPoolSupport.getId(endpoint), id);
+                        log.debug("{}: start execution {}", ConnPoolSupport.getId(newEndpoint), id);
                     }
-                    session.enqueue(
+                    ioSession.enqueue(
                             new RequestExecutionCommand(exchangeHandler, pushHandlerFactory, complexCancellable, context),
                             Command.Priority.NORMAL);
                 }
@@ -280,10 +315,12 @@ public void markConnectionNonReusable() {
     static class Endpoint implements Identifiable {
 
         final HttpHost target;
+        final int slot;
         final IOSession session;
 
-        Endpoint(final HttpHost target, final IOSession session) {
+        Endpoint(final HttpHost target, final int slot, final IOSession session) {
             this.target = target;
+            this.slot = slot;
             this.session = session;
         }
 
@@ -31,6 +31,7 @@
 import java.util.concurrent.ThreadFactory;
 
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.async.AsyncExecRuntime;
 import org.apache.hc.client5.http.auth.AuthSchemeFactory;
 import org.apache.hc.client5.http.auth.CredentialsProvider;
@@ -86,9 +87,11 @@ public final class InternalHttpAsyncClient extends InternalAbstractHttpAsyncClie
             final CookieStore cookieStore,
             final CredentialsProvider credentialsProvider,
             final RequestConfig defaultConfig,
+            final RequestEventListener requestEventListener,
             final List<Closeable> closeables) {
         super(ioReactor, pushConsumerRegistry, threadFactory, execChain,
-                cookieSpecRegistry, authSchemeRegistry, cookieStore, credentialsProvider, defaultConfig, closeables);
+                cookieSpecRegistry, authSchemeRegistry, cookieStore, credentialsProvider, defaultConfig,
+                requestEventListener, closeables);
         this.manager = manager;
         this.routePlanner = routePlanner;
         this.versionPolicy = versionPolicy;
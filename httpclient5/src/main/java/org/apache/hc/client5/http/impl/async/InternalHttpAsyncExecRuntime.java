@@ -31,6 +31,7 @@
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.async.AsyncExecRuntime;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.ConnPoolSupport;
@@ -60,6 +61,7 @@ class InternalHttpAsyncExecRuntime implements AsyncExecRuntime {
     private final AtomicReference<AsyncConnectionEndpoint> endpointRef;
     private volatile boolean reusable;
     private volatile Object state;
+    private volatile HttpRoute route;
     private volatile TimeValue validDuration;
 
     InternalHttpAsyncExecRuntime(
@@ -97,6 +99,11 @@ public Cancellable acquireEndpoint(
             if (log.isDebugEnabled()) {
                 log.debug("{}: acquiring endpoint ({})", id, connectionRequestTimeout);
             }
+            this.route = route;
+            final RequestEventListener listener = context.getRequestEventListener();
+            if (listener != null) {
+                listener.leaseStart(route, context);
+            }
             return Operations.cancellable(manager.lease(
                     id,
                     route,
@@ -111,6 +118,9 @@ public void completed(final AsyncConnectionEndpoint connectionEndpoint) {
                             if (log.isDebugEnabled()) {
                                 log.debug("{}: acquired endpoint {}", id, ConnPoolSupport.getId(connectionEndpoint));
                             }
+                            if (listener != null) {
+                                listener.leaseEnd(route, context);
+                            }
                             callback.completed(InternalHttpAsyncExecRuntime.this);
                         }
 
@@ -207,6 +217,11 @@ public Cancellable connectEndpoint(
         if (log.isDebugEnabled()) {
             log.debug("{}: connecting endpoint ({})", ConnPoolSupport.getId(endpoint), connectTimeout);
         }
+        final HttpRoute routeSnapshot = route;
+        final RequestEventListener listener = context.getRequestEventListener();
+        if (listener != null) {
+            listener.connectStart(routeSnapshot, context);
+        }
         return Operations.cancellable(manager.connect(
                 endpoint,
                 connectionInitiator,
@@ -220,11 +235,17 @@ public void completed(final AsyncConnectionEndpoint endpoint) {
                         if (log.isDebugEnabled()) {
                             log.debug("{}: endpoint connected", ConnPoolSupport.getId(endpoint));
                         }
+                        if (listener != null) {
+                            listener.connectEnd(routeSnapshot, context);
+                        }
                         callback.completed(InternalHttpAsyncExecRuntime.this);
                     }
 
                     @Override
                     public void failed(final Exception ex) {
+                        if (listener != null) {
+                            listener.connectFailed(routeSnapshot, ex, context);
+                        }
                         callback.failed(ex);
                     }
 
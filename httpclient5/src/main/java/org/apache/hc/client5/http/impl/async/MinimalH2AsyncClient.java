@@ -68,7 +68,6 @@
 import org.apache.hc.core5.http2.nio.pool.H2ConnPool;
 import org.apache.hc.core5.io.CloseMode;
 import org.apache.hc.core5.reactor.Command;
-import org.apache.hc.core5.reactor.ConnectionInitiator;
 import org.apache.hc.core5.reactor.DefaultConnectingIOReactor;
 import org.apache.hc.core5.reactor.IOEventHandlerFactory;
 import org.apache.hc.core5.reactor.IOReactorConfig;
@@ -95,7 +94,7 @@ public final class MinimalH2AsyncClient extends AbstractMinimalHttpAsyncClientBa
 
     private static final Logger LOG = LoggerFactory.getLogger(MinimalH2AsyncClient.class);
     private final H2ConnPool connPool;
-    private final ConnectionInitiator connectionInitiator;
+    private final MultihomeConnectionInitiator connectionInitiator;
 
     MinimalH2AsyncClient(
             final IOEventHandlerFactory eventHandlerFactory,
@@ -133,6 +132,11 @@ public InetSocketAddress resolve(final HttpHost object) {
         }, tlsStrategy);
     }
 
+    @Override
+    void internalClose(final CloseMode closeMode) {
+        connectionInitiator.close(closeMode);
+    }
+
     @Override
     public Cancellable execute(
             final AsyncClientExchangeHandler exchangeHandler,
@@ -39,6 +39,13 @@
 
 /**
  * Default implementation of {@link CredentialsStore}.
+ * <p>
+ * Credentials are indexed by the host of their {@link AuthScope}. Lookups for
+ * a specific host consider credentials registered for that host first and
+ * only then credentials that apply to any host, which is equivalent to
+ * picking the best {@link AuthScope#match(AuthScope)} among all entries, as
+ * an exact host match always outweighs all other attributes combined.
+ * </p>
  *
  * @since 4.0
  */
@@ -46,6 +53,8 @@
 public class BasicCredentialsProvider implements CredentialsStore {
 
     private final ConcurrentHashMap<AuthScope, Credentials> credMap;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<AuthScope, Credentials>> hostMap;
+    private final ConcurrentHashMap<AuthScope, Credentials> anyHostMap;
 
     /**
      * Default constructor.
@@ -53,6 +62,8 @@ public class BasicCredentialsProvider implements CredentialsStore {
     public BasicCredentialsProvider() {
         super();
         this.credMap = new ConcurrentHashMap<>();
+        this.hostMap = new ConcurrentHashMap<>();
+        this.anyHostMap = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -61,10 +72,25 @@ public void setCredentials(
             final Credentials credentials) {
         Args.notNull(authScope, "Authentication scope");
         credMap.put(authScope, credentials);
+        final String host = authScope.getHost();
+        if (host != null) {
+            ConcurrentHashMap<AuthScope, Credentials> hostCreds = hostMap.get(host);
+            if (hostCreds == null) {
+                final ConcurrentHashMap<AuthScope, Credentials> newHostCreds = new ConcurrentHashMap<>();
+                hostCreds = hostMap.putIfAbsent(host, newHostCreds);
+                if (hostCreds == null) {
+                    hostCreds = newHostCreds;
+                }
+            }
+            hostCreds.put(authScope, credentials);
+        } else {
+            anyHostMap.put(authScope, credentials);
+        }
     }
 
     /**
-     * Find matching {@link Credentials credentials} for the given authentication scope.
+     * Find the best matching {@link Credentials credentials} for the given
+     * authentication scope.
      *
      * @param map the credentials hash map
      * @param authScope the {@link AuthScope authentication scope}
@@ -99,12 +125,26 @@ private static Credentials matchCredentials(
     public Credentials getCredentials(final AuthScope authScope,
                                       final HttpContext httpContext) {
         Args.notNull(authScope, "Authentication scope");
-        return matchCredentials(this.credMap, authScope);
+        final String host = authScope.getHost();
+        if (host == null) {
+            // Scopes of all hosts are candidates
+            return matchCredentials(this.credMap, authScope);
+        }
+        final Map<AuthScope, Credentials> hostCreds = this.hostMap.get(host);
+        if (hostCreds != null) {
+            final Credentials creds = matchCredentials(hostCreds, authScope);
+            if (creds != null) {
+                return creds;
+            }
+        }
+        return matchCredentials(this.anyHostMap, authScope);
     }
 
     @Override
     public void clear() {
         this.credMap.clear();
+        this.hostMap.clear();
+        this.anyHostMap.clear();
     }
 
     @Override
@@ -41,7 +41,7 @@
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.hc.client5.http.auth.AuthChallenge;
-import org.apache.hc.client5.http.auth.AuthScheme;
+import org.apache.hc.client5.http.auth.CopyableAuthScheme;
 import org.apache.hc.client5.http.auth.StandardAuthScheme;
 import org.apache.hc.client5.http.auth.AuthScope;
 import org.apache.hc.client5.http.auth.AuthStateCacheable;
@@ -64,7 +64,7 @@
  * @since 4.0
  */
 @AuthStateCacheable
-public class BasicScheme implements AuthScheme, Serializable {
+public class BasicScheme implements CopyableAuthScheme, Serializable {
 
     private static final long serialVersionUID = -1931571557597830536L;
 
@@ -102,6 +102,24 @@ public void initPreemptive(final Credentials credentials) {
         }
     }
 
+    /**
+     * Creates a copy of this scheme. Subclasses that hold additional state
+     * must override this method, otherwise the copy is a plain {@code BasicScheme}
+     * and {@link SnapshotAuthCache} falls back to caching them in their
+     * serialized form.
+     *
+     * @since 5.1
+     */
+    @Override
+    public BasicScheme copy() {
+        final BasicScheme copy = new BasicScheme(this.charset);
+        copy.paramMap.putAll(this.paramMap);
+        copy.complete = this.complete;
+        copy.username = this.username;
+        copy.password = this.password != null ? this.password.clone() : null;
+        return copy;
+    }
+
     @Override
     public String getName() {
         return StandardAuthScheme.BASIC;
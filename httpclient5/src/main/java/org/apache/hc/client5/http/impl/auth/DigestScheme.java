@@ -47,7 +47,7 @@
 import java.util.StringTokenizer;
 
 import org.apache.hc.client5.http.auth.AuthChallenge;
-import org.apache.hc.client5.http.auth.AuthScheme;
+import org.apache.hc.client5.http.auth.CopyableAuthScheme;
 import org.apache.hc.client5.http.auth.AuthScope;
 import org.apache.hc.client5.http.auth.AuthenticationException;
 import org.apache.hc.client5.http.auth.Credentials;
@@ -83,7 +83,7 @@
  *
  * @since 4.0
  */
-public class DigestScheme implements AuthScheme, Serializable {
+public class DigestScheme implements CopyableAuthScheme, Serializable {
 
     private static final long serialVersionUID = 3883908186234566916L;
 
@@ -137,6 +137,29 @@ public void initPreemptive(final Credentials credentials, final String cnonce, f
         this.paramMap.put("realm", realm);
     }
 
+    /**
+     * Creates a copy of this scheme. Subclasses that hold additional state
+     * must override this method, otherwise the copy is a plain {@code DigestScheme}
+     * and {@link SnapshotAuthCache} falls back to caching them in their
+     * serialized form.
+     *
+     * @since 5.1
+     */
+    @Override
+    public DigestScheme copy() {
+        final DigestScheme copy = new DigestScheme(this.defaultCharset);
+        copy.paramMap.putAll(this.paramMap);
+        copy.complete = this.complete;
+        copy.lastNonce = this.lastNonce;
+        copy.nounceCount = this.nounceCount;
+        copy.cnonce = this.cnonce;
+        copy.a1 = this.a1 != null ? this.a1.clone() : null;
+        copy.a2 = this.a2 != null ? this.a2.clone() : null;
+        copy.username = this.username;
+        copy.password = this.password != null ? this.password.clone() : null;
+        return copy;
+    }
+
     @Override
     public String getName() {
         return StandardAuthScheme.DIGEST;
@@ -362,7 +362,7 @@ private void updateCache(final HttpHost host, final AuthScheme authScheme, final
         if (cachable) {
             AuthCache authCache = clientContext.getAuthCache();
             if (authCache == null) {
-                authCache = new BasicAuthCache();
+                authCache = new SnapshotAuthCache();
                 clientContext.setAuthCache(authCache);
             }
             if (log.isDebugEnabled()) {
@@ -0,0 +1,155 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.auth;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.auth.AuthCache;
+import org.apache.hc.client5.http.auth.AuthScheme;
+import org.apache.hc.client5.http.auth.CopyableAuthScheme;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.routing.RoutingSupport;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AuthCache} implementation that keeps private snapshots of
+ * {@link CopyableAuthScheme}s instead of their serialized form.
+ * <p>
+ * A copy of the auth scheme is stored on {@link #put(HttpHost, AuthScheme)}
+ * and a new copy of the snapshot is returned on every {@link #get(HttpHost)},
+ * so cached state remains isolated from requests that make use of it, just
+ * like with {@link BasicAuthCache}, at the cost of a shallow object copy
+ * rather than a Java serialization round trip. Auth schemes that are not
+ * {@link CopyableAuthScheme}s, or whose class inherits {@code copy()} from
+ * a superclass and hence would not be copied faithfully, are cached by an
+ * internal {@link BasicAuthCache}.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE_CONDITIONAL)
+public class SnapshotAuthCache implements AuthCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotAuthCache.class);
+
+    private static final ConcurrentMap<Class<?>, Boolean> COPYABLE_CLASSES = new ConcurrentHashMap<>();
+
+    private final Map<HttpHost, CopyableAuthScheme> map;
+    private final SchemePortResolver schemePortResolver;
+    private final BasicAuthCache fallback;
+
+    public SnapshotAuthCache(final SchemePortResolver schemePortResolver) {
+        super();
+        this.map = new ConcurrentHashMap<>();
+        this.schemePortResolver = schemePortResolver != null ? schemePortResolver : DefaultSchemePortResolver.INSTANCE;
+        this.fallback = new BasicAuthCache(this.schemePortResolver);
+    }
+
+    public SnapshotAuthCache() {
+        this(null);
+    }
+
+    @Override
+    public void put(final HttpHost host, final AuthScheme authScheme) {
+        Args.notNull(host, "HTTP host");
+        if (authScheme == null) {
+            return;
+        }
+        final HttpHost key = RoutingSupport.normalize(host, schemePortResolver);
+        if (isCopyable(authScheme)) {
+            this.map.put(key, ((CopyableAuthScheme) authScheme).copy());
+            this.fallback.remove(key);
+        } else {
+            this.map.remove(key);
+            this.fallback.put(key, authScheme);
+        }
+    }
+
+    /**
+     * Determines whether the given auth scheme can be snapshot by means of
+     * {@link CopyableAuthScheme#copy()}, which requires its class to declare
+     * the method itself.
+     */
+    static boolean isCopyable(final AuthScheme authScheme) {
+        if (!(authScheme instanceof CopyableAuthScheme)) {
+            return false;
+        }
+        final Class<?> clazz = authScheme.getClass();
+        Boolean copyable = COPYABLE_CLASSES.get(clazz);
+        if (copyable == null) {
+            try {
+                copyable = clazz.getMethod("copy").getDeclaringClass() == clazz;
+            } catch (final NoSuchMethodException | SecurityException ex) {
+                copyable = Boolean.FALSE;
+            }
+            if (!copyable && LOG.isDebugEnabled()) {
+                LOG.debug("{} does not override copy(); caching serialized form", clazz.getName());
+            }
+            COPYABLE_CLASSES.putIfAbsent(clazz, copyable);
+        }
+        return copyable;
+    }
+
+    @Override
+    public AuthScheme get(final HttpHost host) {
+        Args.notNull(host, "HTTP host");
+        final HttpHost key = RoutingSupport.normalize(host, schemePortResolver);
+        final CopyableAuthScheme snapshot = this.map.get(key);
+        if (snapshot != null) {
+            return snapshot.copy();
+        }
+        return this.fallback.get(key);
+    }
+
+    @Override
+    public void remove(final HttpHost host) {
+        Args.notNull(host, "HTTP host");
+        final HttpHost key = RoutingSupport.normalize(host, schemePortResolver);
+        this.map.remove(key);
+        this.fallback.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        this.map.clear();
+        this.fallback.clear();
+    }
+
+    @Override
+    public String toString() {
+        return this.map.toString();
+    }
+
+}
@@ -26,8 +26,9 @@
  */
 package org.apache.hc.client5.http.impl.classic;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.classic.BackoffManager;
@@ -54,6 +55,12 @@
  * capacity among clients (fairness) to happen faster, at the
  * expense of having more server capacity unused in the short term.</p>
  *
+ * <p>Adjustments are coordinated per route: the time of the last adjustment
+ * is claimed with an atomic compare-and-set operation and the pool limit
+ * of the route is then updated under a lock private to that route.
+ * Concurrent requests to different routes do not contend for a common
+ * lock.</p>
+ *
  * @since 4.2
  */
 @Experimental
@@ -61,11 +68,10 @@ public class AIMDBackoffManager implements BackoffManager {
 
     private final ConnPoolControl<HttpRoute> connPerRoute;
     private final Clock clock;
-    private final Map<HttpRoute, Long> lastRouteProbes;
-    private final Map<HttpRoute, Long> lastRouteBackoffs;
-    private TimeValue coolDown = TimeValue.ofSeconds(5L);
-    private double backoffFactor = 0.5;
-    private int cap = 2; // Per RFC 2616 sec 8.1.4
+    private final ConcurrentMap<HttpRoute, RouteState> routeStates;
+    private volatile TimeValue coolDown = TimeValue.ofSeconds(5L);
+    private volatile double backoffFactor = 0.5;
+    private volatile int cap = 2; // Per RFC 2616 sec 8.1.4
 
     /**
      * Creates an {@code AIMDBackoffManager} to manage
@@ -81,21 +87,23 @@ public AIMDBackoffManager(final ConnPoolControl<HttpRoute> connPerRoute) {
     AIMDBackoffManager(final ConnPoolControl<HttpRoute> connPerRoute, final Clock clock) {
         this.clock = clock;
         this.connPerRoute = connPerRoute;
-        this.lastRouteProbes = new HashMap<>();
-        this.lastRouteBackoffs = new HashMap<>();
+        this.routeStates = new ConcurrentHashMap<>();
     }
 
     @Override
     public void backOff(final HttpRoute route) {
-        synchronized(connPerRoute) {
-            final int curr = connPerRoute.getMaxPerRoute(route);
-            final Long lastUpdate = getLastUpdate(lastRouteBackoffs, route);
-            final long now = clock.getCurrentTime();
-            if (now - lastUpdate.longValue() < coolDown.toMilliseconds()) {
-                return;
+        final RouteState state = getRouteState(route);
+        final long last = state.lastBackoff.get();
+        final long now = clock.getCurrentTime();
+        if (now - last < coolDown.toMilliseconds()) {
+            return;
+        }
+        // Only the thread that claims the cool down slot adjusts the pool
+        if (state.lastBackoff.compareAndSet(last, now)) {
+            synchronized (state) {
+                final int curr = connPerRoute.getMaxPerRoute(route);
+                connPerRoute.setMaxPerRoute(route, getBackedOffPoolSize(curr));
             }
-            connPerRoute.setMaxPerRoute(route, getBackedOffPoolSize(curr));
-            lastRouteBackoffs.put(route, Long.valueOf(now));
         }
     }
 
@@ -108,27 +116,39 @@ private int getBackedOffPoolSize(final int curr) {
 
     @Override
     public void probe(final HttpRoute route) {
-        synchronized(connPerRoute) {
-            final int curr = connPerRoute.getMaxPerRoute(route);
-            final int max = (curr >= cap) ? cap : curr + 1;
-            final Long lastProbe = getLastUpdate(lastRouteProbes, route);
-            final Long lastBackoff = getLastUpdate(lastRouteBackoffs, route);
-            final long now = clock.getCurrentTime();
-            if (now - lastProbe.longValue() < coolDown.toMilliseconds()
-                || now - lastBackoff.longValue() < coolDown.toMilliseconds()) {
-                return;
+        final RouteState state = getRouteState(route);
+        final long last = state.lastProbe.get();
+        final long now = clock.getCurrentTime();
+        final long coolDownMillis = coolDown.toMilliseconds();
+        if (now - last < coolDownMillis
+            || now - state.lastBackoff.get() < coolDownMillis) {
+            return;
+        }
+        if (state.lastProbe.compareAndSet(last, now)) {
+            // Probes and back-offs of the same route must not interleave
+            // their read-modify-write of the pool limit
+            synchronized (state) {
+                // A back-off may have happened since the cool down check above
+                if (now - state.lastBackoff.get() < coolDownMillis) {
+                    return;
+                }
+                final int curr = connPerRoute.getMaxPerRoute(route);
+                final int max = (curr >= cap) ? cap : curr + 1;
+                connPerRoute.setMaxPerRoute(route, max);
             }
-            connPerRoute.setMaxPerRoute(route, max);
-            lastRouteProbes.put(route, Long.valueOf(now));
         }
     }
 
-    private Long getLastUpdate(final Map<HttpRoute, Long> updates, final HttpRoute route) {
-        Long lastUpdate = updates.get(route);
-        if (lastUpdate == null) {
-            lastUpdate = Long.valueOf(0L);
+    private RouteState getRouteState(final HttpRoute route) {
+        RouteState state = routeStates.get(route);
+        if (state == null) {
+            final RouteState newState = new RouteState();
+            state = routeStates.putIfAbsent(route, newState);
+            if (state == null) {
+                state = newState;
+            }
         }
-        return lastUpdate;
+        return state;
     }
 
     /**
@@ -166,4 +186,11 @@ public void setPerHostConnectionCap(final int cap) {
         this.cap = cap;
     }
 
+    static final class RouteState {
+
+        final AtomicLong lastProbe = new AtomicLong(0L);
+        final AtomicLong lastBackoff = new AtomicLong(0L);
+
+    }
+
 }
@@ -0,0 +1,151 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.classic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.hc.client5.http.impl.ContentCompressor;
+import org.apache.hc.client5.http.impl.RequestCompressionSupport;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * Wrapping entity that compresses content with a pooled
+ * {@link java.util.zip.Deflater} when {@link #writeTo writing}.
+ */
+class CompressingEntity extends HttpEntityWrapper {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final RequestCompressionSupport compressionSupport;
+    private volatile boolean written;
+
+    CompressingEntity(final HttpEntity entity, final RequestCompressionSupport compressionSupport) {
+        super(entity);
+        this.compressionSupport = compressionSupport;
+    }
+
+    /**
+     * Returns {@code true} if compressed content has been written out.
+     */
+    boolean isWritten() {
+        return written;
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return compressionSupport.getContentEncoding();
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isChunked() {
+        // force content chunking
+        return true;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeTo(final OutputStream outStream) throws IOException {
+        Args.notNull(outStream, "Output stream");
+        final ContentCompressor compressor = compressionSupport.createCompressor();
+        written = true;
+        try {
+            final CompressingOutputStream out = new CompressingOutputStream(outStream, compressor);
+            super.writeTo(out);
+            // Only finish the compressed stream if the wrapped entity has been
+            // successfully written out
+            out.finish();
+        } finally {
+            compressor.release();
+        }
+    }
+
+    static class CompressingOutputStream extends OutputStream {
+
+        private final OutputStream outStream;
+        private final ContentCompressor compressor;
+        private final byte[] buffer;
+        private final byte[] single;
+
+        CompressingOutputStream(final OutputStream outStream, final ContentCompressor compressor) {
+            this.outStream = outStream;
+            this.compressor = compressor;
+            this.buffer = new byte[BUFFER_SIZE];
+            this.single = new byte[1];
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            compressor.update(b, off, len);
+            while (!compressor.needsInput()) {
+                final int n = compressor.drain(buffer, 0, buffer.length);
+                if (n > 0) {
+                    outStream.write(buffer, 0, n);
+                }
+            }
+        }
+
+        void finish() throws IOException {
+            compressor.finish();
+            while (!compressor.isDone()) {
+                final int n = compressor.drain(buffer, 0, buffer.length);
+                if (n > 0) {
+                    outStream.write(buffer, 0, n);
+                }
+            }
+            outStream.flush();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outStream.flush();
+        }
+
+    }
+
+}
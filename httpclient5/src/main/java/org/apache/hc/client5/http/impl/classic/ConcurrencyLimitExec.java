@@ -0,0 +1,230 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.classic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import org.apache.hc.client5.http.ConcurrencyLimitExceededException;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.ConnectionBackoffStrategy;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.impl.AdaptiveConcurrencyLimiter;
+import org.apache.hc.client5.http.impl.ConcurrencyLimitPermit;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Experimental;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.io.EofSensorInputStream;
+import org.apache.hc.core5.http.io.EofSensorWatcher;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Request execution handler in the classic request execution chain
+ * that limits the number of requests in flight per route by means
+ * of an {@link AdaptiveConcurrencyLimiter}.
+ * <p>
+ * Requests on a saturated route wait up to the configured timeout for
+ * a permit and fail with {@link ConcurrencyLimitExceededException}
+ * if none becomes available. The time until the response head is
+ * received is reported to the limiter; responses and exceptions that
+ * the {@link ConnectionBackoffStrategy} considers signs of overload
+ * reduce the limit of the route. A request permit is held until
+ * the response content has been consumed or the response has been
+ * closed.
+ * </p>
+ * <p>
+ * Further responsibilities such as communication with the opposite
+ * endpoint is delegated to the next executor in the request execution
+ * chain.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+@Experimental
+public final class ConcurrencyLimitExec implements ExecChainHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimitExec.class);
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ConnectionBackoffStrategy connectionBackoffStrategy;
+    private final Timeout maxQueueTime;
+
+    /**
+     * @param concurrencyLimiter the concurrency limiter.
+     * @param connectionBackoffStrategy the strategy classifying overload signals.
+     * @param maxQueueTime the maximum time to wait for a permit.
+     *  {@code null} or zero means requests on saturated routes are rejected immediately.
+     */
+    public ConcurrencyLimitExec(
+            final AdaptiveConcurrencyLimiter concurrencyLimiter,
+            final ConnectionBackoffStrategy connectionBackoffStrategy,
+            final Timeout maxQueueTime) {
+        super();
+        Args.notNull(concurrencyLimiter, "Concurrency limiter");
+        Args.notNull(connectionBackoffStrategy, "Connection backoff strategy");
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.connectionBackoffStrategy = connectionBackoffStrategy;
+        this.maxQueueTime = maxQueueTime != null ? maxQueueTime : Timeout.ZERO_MILLISECONDS;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(
+            final ClassicHttpRequest request,
+            final ExecChain.Scope scope,
+            final ExecChain chain) throws IOException, HttpException {
+        Args.notNull(request, "HTTP request");
+        Args.notNull(scope, "Scope");
+        final String exchangeId = scope.exchangeId;
+        final HttpRoute route = scope.route;
+
+        final boolean acquired;
+        try {
+            acquired = concurrencyLimiter.acquire(route, maxQueueTime);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a request permit");
+        }
+        if (!acquired) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("{}: concurrency limit of {} reached for route {}",
+                        exchangeId, concurrencyLimiter.getLimit(route), route);
+            }
+            throw new ConcurrencyLimitExceededException(
+                    "Concurrency limit reached for route " + route, route);
+        }
+        final ConcurrencyLimitPermit permit = new ConcurrencyLimitPermit(concurrencyLimiter, route);
+        boolean handedOver = false;
+        final long start = System.nanoTime();
+        try {
+            final ClassicHttpResponse response = chain.proceed(request, scope);
+            if (connectionBackoffStrategy.shouldBackoff(response)) {
+                permit.dropped();
+            } else {
+                permit.succeeded(System.nanoTime() - start);
+            }
+            final HttpEntity entity = response.getEntity();
+            if (entity != null && entity.isStreaming()) {
+                // The request stays in flight until its response content
+                // has been consumed or discarded
+                response.setEntity(new PermitReleasingEntity(entity, permit));
+                handedOver = true;
+            }
+            return response;
+        } catch (final IOException | HttpException | RuntimeException ex) {
+            if (connectionBackoffStrategy.shouldBackoff(ex)) {
+                permit.dropped();
+            }
+            throw ex;
+        } finally {
+            if (!handedOver) {
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * Response entity that releases the request permit once its content
+     * has been fully consumed, the content stream has been closed or
+     * the entity itself has been closed.
+     */
+    static class PermitReleasingEntity extends HttpEntityWrapper implements EofSensorWatcher {
+
+        private final ConcurrencyLimitPermit permit;
+
+        PermitReleasingEntity(final HttpEntity entity, final ConcurrencyLimitPermit permit) {
+            super(entity);
+            this.permit = permit;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new EofSensorInputStream(super.getContent(), this);
+        }
+
+        @Override
+        public void writeTo(final OutputStream outStream) throws IOException {
+            try {
+                super.writeTo(outStream);
+            } finally {
+                permit.release();
+            }
+        }
+
+        @Override
+        public boolean eofDetected(final InputStream wrapped) throws IOException {
+            try {
+                wrapped.close();
+            } finally {
+                permit.release();
+            }
+            return false;
+        }
+
+        @Override
+        public boolean streamClosed(final InputStream wrapped) throws IOException {
+            try {
+                wrapped.close();
+            } finally {
+                permit.release();
+            }
+            return false;
+        }
+
+        @Override
+        public boolean streamAbort(final InputStream wrapped) throws IOException {
+            try {
+                wrapped.close();
+            } finally {
+                permit.release();
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                permit.release();
+            }
+        }
+
+    }
+
+}
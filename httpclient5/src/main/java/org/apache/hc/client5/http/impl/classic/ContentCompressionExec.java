@@ -28,15 +28,15 @@
 package org.apache.hc.client5.http.impl.classic;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
 import org.apache.hc.client5.http.classic.ExecChain;
 import org.apache.hc.client5.http.classic.ExecChainHandler;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.entity.ContentDecoderRegistry;
 import org.apache.hc.client5.http.entity.DecompressingEntity;
-import org.apache.hc.client5.http.entity.DeflateInputStreamFactory;
-import org.apache.hc.client5.http.entity.GZIPInputStreamFactory;
 import org.apache.hc.client5.http.entity.InputStreamFactory;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.annotation.Contract;
@@ -50,7 +50,6 @@
 import org.apache.hc.core5.http.HttpException;
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.config.Lookup;
-import org.apache.hc.core5.http.config.RegistryBuilder;
 import org.apache.hc.core5.http.message.BasicHeaderValueParser;
 import org.apache.hc.core5.http.message.MessageSupport;
 import org.apache.hc.core5.http.message.ParserCursor;
@@ -79,19 +78,31 @@ public ContentCompressionExec(
             final List<String> acceptEncoding,
             final Lookup<InputStreamFactory> decoderRegistry,
             final boolean ignoreUnknown) {
+        final List<String> encodings;
+        if (acceptEncoding != null) {
+            encodings = acceptEncoding;
+        } else if (decoderRegistry != null) {
+            encodings = Arrays.asList("gzip", "x-gzip", "deflate");
+        } else {
+            encodings = ContentDecoderRegistry.getDefault().getAcceptEncoding();
+        }
         this.acceptEncoding = MessageSupport.format(HttpHeaders.ACCEPT_ENCODING,
-            acceptEncoding != null ? acceptEncoding.toArray(
-                new String[acceptEncoding.size()]) : new String[] {"gzip", "x-gzip", "deflate"});
-
-        this.decoderRegistry = decoderRegistry != null ? decoderRegistry :
-                RegistryBuilder.<InputStreamFactory>create()
-                        .register("gzip", GZIPInputStreamFactory.getInstance())
-                        .register("x-gzip", GZIPInputStreamFactory.getInstance())
-                        .register("deflate", DeflateInputStreamFactory.getInstance())
-                        .build();
+                encodings.toArray(new String[encodings.size()]));
+        this.decoderRegistry = decoderRegistry != null ? decoderRegistry : ContentDecoderRegistry.getDefault();
         this.ignoreUnknown = ignoreUnknown;
     }
 
+    /**
+     * Handles content codings registered with the given {@link ContentDecoderRegistry}
+     * and advertises them along with their preference in the {@code Accept-Encoding}
+     * request header.
+     *
+     * @since 5.1
+     */
+    public ContentCompressionExec(final ContentDecoderRegistry decoderRegistry, final boolean ignoreUnknown) {
+        this(Args.notNull(decoderRegistry, "Decoder registry").getAcceptEncoding(), decoderRegistry, ignoreUnknown);
+    }
+
     public ContentCompressionExec(final boolean ignoreUnknown) {
         this(null, null, ignoreUnknown);
     }
@@ -103,6 +114,8 @@ public ContentCompressionExec(final boolean ignoreUnknown) {
      * <li>gzip - see {@link java.util.zip.GZIPInputStream}</li>
      * <li>deflate - see {@link org.apache.hc.client5.http.entity.DeflateInputStream}</li>
      * </ul>
+     * as well as content codings of all
+     * {@link org.apache.hc.client5.http.entity.ContentDecoderProvider}s present on the classpath.
      */
     public ContentCompressionExec() {
         this(null, null, true);
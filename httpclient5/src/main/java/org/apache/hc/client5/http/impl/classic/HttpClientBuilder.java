@@ -40,6 +40,8 @@
 import org.apache.hc.client5.http.AuthenticationStrategy;
 import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
 import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.SchemePortResolver;
 import org.apache.hc.client5.http.UserTokenHandler;
 import org.apache.hc.client5.http.auth.AuthSchemeFactory;
@@ -48,12 +50,16 @@
 import org.apache.hc.client5.http.classic.BackoffManager;
 import org.apache.hc.client5.http.classic.ConnectionBackoffStrategy;
 import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.config.RequestCompressionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.cookie.BasicCookieStore;
 import org.apache.hc.client5.http.cookie.CookieSpecFactory;
 import org.apache.hc.client5.http.cookie.CookieStore;
+import org.apache.hc.client5.http.entity.ContentDecoderRegistry;
 import org.apache.hc.client5.http.entity.InputStreamFactory;
+import org.apache.hc.client5.http.impl.AdaptiveConcurrencyLimiter;
 import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.ConnPoolWarmUp;
 import org.apache.hc.client5.http.impl.CookieSpecSupport;
 import org.apache.hc.client5.http.impl.DefaultAuthenticationStrategy;
 import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
@@ -62,6 +68,7 @@
 import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
 import org.apache.hc.client5.http.impl.DefaultUserTokenHandler;
 import org.apache.hc.client5.http.impl.IdleConnectionEvictor;
+import org.apache.hc.client5.http.impl.MinIdleConnectionMaintainer;
 import org.apache.hc.client5.http.impl.NoopUserTokenHandler;
 import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
 import org.apache.hc.client5.http.impl.auth.BasicSchemeFactory;
@@ -93,7 +100,6 @@
 import org.apache.hc.core5.http.HttpResponseInterceptor;
 import org.apache.hc.core5.http.config.Lookup;
 import org.apache.hc.core5.http.config.NamedElementChain;
-import org.apache.hc.core5.http.config.Registry;
 import org.apache.hc.core5.http.config.RegistryBuilder;
 import org.apache.hc.core5.http.impl.DefaultConnectionReuseStrategy;
 import org.apache.hc.core5.http.impl.io.HttpRequestExecutor;
@@ -209,18 +215,25 @@ private ExecInterceptorEntry(
     private RedirectStrategy redirectStrategy;
     private ConnectionBackoffStrategy connectionBackoffStrategy;
     private BackoffManager backoffManager;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private Timeout concurrencyLimitMaxQueueTime;
     private Lookup<AuthSchemeFactory> authSchemeRegistry;
     private Lookup<CookieSpecFactory> cookieSpecRegistry;
     private LinkedHashMap<String, InputStreamFactory> contentDecoderMap;
+    private LinkedHashMap<String, Float> contentDecoderQualities;
     private CookieStore cookieStore;
     private CredentialsProvider credentialsProvider;
     private String userAgent;
     private HttpHost proxy;
     private Collection<? extends Header> defaultHeaders;
     private RequestConfig defaultRequestConfig;
+    private RequestCompressionConfig requestCompressionConfig;
+    private RequestEventListener requestEventListener;
     private boolean evictExpiredConnections;
     private boolean evictIdleConnections;
     private TimeValue maxIdleTime;
+    private int minIdlePerRoute;
+    private Collection<HttpRoute> warmUpRoutes;
 
     private boolean systemProperties;
     private boolean redirectHandlingDisabled;
@@ -575,6 +588,28 @@ public final HttpClientBuilder setBackoffManager(final BackoffManager backoffMan
         return this;
     }
 
+    /**
+     * Assigns {@link AdaptiveConcurrencyLimiter} instance used to limit the number
+     * of requests in flight per route. Requests on a saturated route wait up to
+     * {@code maxQueueTime} for a permit before being rejected with
+     * {@link org.apache.hc.client5.http.ConcurrencyLimitExceededException}.
+     * <p>
+     * If set, the concurrency limiter takes precedence over
+     * {@link #setBackoffManager(BackoffManager)}. Back-off signals are classified
+     * by the {@link ConnectionBackoffStrategy} if set or by
+     * {@link DefaultBackoffStrategy} otherwise.
+     * </p>
+     *
+     * @since 5.1
+     */
+    public final HttpClientBuilder setConcurrencyLimiter(
+            final AdaptiveConcurrencyLimiter concurrencyLimiter,
+            final Timeout maxQueueTime) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.concurrencyLimitMaxQueueTime = maxQueueTime;
+        return this;
+    }
+
     /**
      * Assigns default {@link CookieStore} instance which will be used for
      * request execution if not explicitly set in the client execution context.
@@ -631,6 +666,22 @@ public final HttpClientBuilder setContentDecoderRegistry(
         return this;
     }
 
+    /**
+     * Assigns the preference of the given content coding advertised in the
+     * {@code Accept-Encoding} request header. A preference of {@code 0} stops
+     * the content coding from being advertised.
+     *
+     * @since 5.1
+     */
+    public final HttpClientBuilder setContentDecoderQuality(final String encoding, final float quality) {
+        Args.notBlank(encoding, "Content encoding");
+        if (contentDecoderQualities == null) {
+            contentDecoderQualities = new LinkedHashMap<>();
+        }
+        contentDecoderQualities.put(encoding, quality);
+        return this;
+    }
+
     /**
      * Assigns default {@link RequestConfig} instance which will be used
      * for request execution if not explicitly set in the client execution
@@ -641,6 +692,30 @@ public final HttpClientBuilder setDefaultRequestConfig(final RequestConfig confi
         return this;
     }
 
+    /**
+     * Enables compression of request content using the given
+     * {@link RequestCompressionConfig}. Request content is not compressed
+     * by default.
+     *
+     * @since 5.1
+     */
+    public final HttpClientBuilder setRequestCompressionConfig(final RequestCompressionConfig requestCompressionConfig) {
+        this.requestCompressionConfig = requestCompressionConfig;
+        return this;
+    }
+
+    /**
+     * Assigns {@link RequestEventListener} instance that will be notified of
+     * request execution events if not explicitly set in the client execution
+     * context.
+     *
+     * @since 5.1
+     */
+    public final HttpClientBuilder setRequestEventListener(final RequestEventListener requestEventListener) {
+        this.requestEventListener = requestEventListener;
+        return this;
+    }
+
     /**
      * Use system properties when creating and configuring default
      * implementations.
@@ -695,6 +770,42 @@ public final HttpClientBuilder evictIdleConnections(final TimeValue maxIdleTime)
         return this;
     }
 
+    /**
+     * Makes this instance of HttpClient keep at least the given number of idle
+     * connections per route in the connection pool using a background thread.
+     * Missing connections are established in advance including TLS handshakes
+     * so that requests do not pay for connection setup.
+     * <p>
+     * One MUST explicitly close HttpClient with {@link CloseableHttpClient#close()} in order
+     * to stop and release the background thread.
+     * <p>
+     * Please note this method has no effect if the instance of HttpClient is configured to
+     * use a shared connection manager or a connection manager that does not implement
+     * {@link ConnPoolWarmUp}.
+     *
+     * @see #setWarmUpRoutes(Collection)
+     *
+     * @since 5.1
+     */
+    public final HttpClientBuilder setMinIdlePerRoute(final int minIdlePerRoute) {
+        this.minIdlePerRoute = minIdlePerRoute;
+        return this;
+    }
+
+    /**
+     * Assigns routes to pre-open connections to as soon as the client has been built.
+     * Only these routes are then kept at the minimum number of idle connections
+     * per route, or one connection if no minimum has been set.
+     *
+     * @see #setMinIdlePerRoute(int)
+     *
+     * @since 5.1
+     */
+    public final HttpClientBuilder setWarmUpRoutes(final Collection<HttpRoute> warmUpRoutes) {
+        this.warmUpRoutes = warmUpRoutes;
+        return this;
+    }
+
     /**
      * Disables the default user agent set by this builder if none has been provided by the user.
      *
@@ -854,6 +965,12 @@ public boolean keepAlive(
                 new ProtocolExec(httpProcessor, targetAuthStrategyCopy, proxyAuthStrategyCopy),
                 ChainElement.PROTOCOL.name());
 
+        if (requestCompressionConfig != null) {
+            execChainDefinition.addFirst(
+                    new RequestCompressionExec(requestCompressionConfig),
+                    ChainElement.COMPRESS_REQUEST.name());
+        }
+
         // Add request retry executor, if not disabled
         if (!automaticRetriesDisabled) {
             HttpRequestRetryStrategy retryStrategyCopy = this.retryStrategy;
@@ -882,15 +999,22 @@ public boolean keepAlive(
         }
 
         if (!contentCompressionDisabled) {
-            if (contentDecoderMap != null) {
-                final List<String> encodings = new ArrayList<>(contentDecoderMap.keySet());
-                final RegistryBuilder<InputStreamFactory> b2 = RegistryBuilder.create();
-                for (final Map.Entry<String, InputStreamFactory> entry: contentDecoderMap.entrySet()) {
-                    b2.register(entry.getKey(), entry.getValue());
+            if (contentDecoderMap != null || contentDecoderQualities != null) {
+                final ContentDecoderRegistry.Builder b2 = ContentDecoderRegistry.custom();
+                if (contentDecoderMap != null) {
+                    for (final Map.Entry<String, InputStreamFactory> entry: contentDecoderMap.entrySet()) {
+                        b2.register(entry.getKey(), entry.getValue());
+                    }
+                } else {
+                    b2.registerDefaults();
+                }
+                if (contentDecoderQualities != null) {
+                    for (final Map.Entry<String, Float> entry: contentDecoderQualities.entrySet()) {
+                        b2.setQuality(entry.getKey(), entry.getValue());
+                    }
                 }
-                final Registry<InputStreamFactory> decoderRegistry = b2.build();
                 execChainDefinition.addFirst(
-                        new ContentCompressionExec(encodings, decoderRegistry, true),
+                        new ContentCompressionExec(b2.build(), true),
                         ChainElement.COMPRESS.name());
             } else {
                 execChainDefinition.addFirst(new ContentCompressionExec(true), ChainElement.COMPRESS.name());
@@ -909,7 +1033,13 @@ public boolean keepAlive(
         }
 
         // Optionally, add connection back-off executor
-        if (this.backoffManager != null && this.connectionBackoffStrategy != null) {
+        if (this.concurrencyLimiter != null) {
+            execChainDefinition.addFirst(new ConcurrencyLimitExec(
+                    this.concurrencyLimiter,
+                    this.connectionBackoffStrategy != null ? this.connectionBackoffStrategy : new DefaultBackoffStrategy(),
+                    this.concurrencyLimitMaxQueueTime),
+                    ChainElement.BACK_OFF.name());
+        } else if (this.backoffManager != null && this.connectionBackoffStrategy != null) {
             execChainDefinition.addFirst(new BackoffStrategyExec(this.connectionBackoffStrategy, this.backoffManager),
                     ChainElement.BACK_OFF.name());
         }
@@ -999,6 +1129,31 @@ public void close() throws IOException {
                     connectionEvictor.start();
                 }
             }
+            if (minIdlePerRoute > 0 || (warmUpRoutes != null && !warmUpRoutes.isEmpty())) {
+                if (connManagerCopy instanceof ConnPoolControl && connManagerCopy instanceof ConnPoolWarmUp) {
+                    @SuppressWarnings("unchecked")
+                    final MinIdleConnectionMaintainer connectionMaintainer = new MinIdleConnectionMaintainer(
+                            (ConnPoolControl<HttpRoute>) connManagerCopy,
+                            (ConnPoolWarmUp<HttpRoute>) connManagerCopy,
+                            warmUpRoutes,
+                            Math.max(minIdlePerRoute, 1),
+                            (defaultRequestConfig != null ? defaultRequestConfig : RequestConfig.DEFAULT).getConnectTimeout());
+                    closeablesCopy.add(new Closeable() {
+
+                        @Override
+                        public void close() throws IOException {
+                            connectionMaintainer.shutdown();
+                            try {
+                                connectionMaintainer.awaitTermination(Timeout.ofSeconds(1));
+                            } catch (final InterruptedException interrupted) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+
+                    });
+                    connectionMaintainer.start();
+                }
+            }
             closeablesCopy.add(connManagerCopy);
         }
 
@@ -1012,6 +1167,7 @@ public void close() throws IOException {
                 defaultCookieStore,
                 defaultCredentialsProvider,
                 defaultRequestConfig != null ? defaultRequestConfig : RequestConfig.DEFAULT,
+                requestEventListener,
                 closeablesCopy);
     }
 
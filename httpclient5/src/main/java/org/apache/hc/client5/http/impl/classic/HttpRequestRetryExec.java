@@ -31,6 +31,7 @@
 
 import org.apache.hc.client5.http.HttpRequestRetryStrategy;
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.classic.ExecChain;
 import org.apache.hc.client5.http.classic.ExecChain.Scope;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
@@ -110,6 +111,10 @@ public ClassicHttpResponse execute(
                         LOG.info("Recoverable I/O exception ({}) caught when processing request to {}",
                                 ex.getClass().getName(), route);
                     }
+                    final RequestEventListener listener = context.getRequestEventListener();
+                    if (listener != null) {
+                        listener.retry(request, execCount, context);
+                    }
                     currentRequest = ClassicRequestCopier.INSTANCE.copy(scope.originalRequest);
                     continue;
                 } else {
@@ -146,6 +151,10 @@ public ClassicHttpResponse execute(
                             throw new InterruptedIOException();
                         }
                     }
+                    final RequestEventListener listener = context.getRequestEventListener();
+                    if (listener != null) {
+                        listener.retry(request, execCount, context);
+                    }
                     currentRequest = ClassicRequestCopier.INSTANCE.copy(scope.originalRequest);
                 } else {
                     return response;
@@ -33,6 +33,7 @@
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.classic.ExecRuntime;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.ConnPoolSupport;
@@ -64,6 +65,7 @@ class InternalExecRuntime implements ExecRuntime, Cancellable {
 
     private volatile boolean reusable;
     private volatile Object state;
+    private volatile HttpRoute route;
     private volatile TimeValue validDuration;
 
     InternalExecRuntime(
@@ -100,8 +102,13 @@ public void acquireEndpoint(
             if (log.isDebugEnabled()) {
                 log.debug("{}: acquiring endpoint ({})", id, connectionRequestTimeout);
             }
+            final RequestEventListener listener = context.getRequestEventListener();
+            if (listener != null) {
+                listener.leaseStart(route, context);
+            }
             final LeaseRequest connRequest = manager.lease(id, route, connectionRequestTimeout, object);
             state = object;
+            this.route = route;
             if (cancellableDependency != null) {
                 if (cancellableDependency.isCancelled()) {
                     connRequest.cancel();
@@ -116,6 +123,9 @@ public void acquireEndpoint(
                 if (cancellableDependency != null) {
                     cancellableDependency.setDependency(this);
                 }
+                if (listener != null) {
+                    listener.leaseEnd(route, context);
+                }
                 if (log.isDebugEnabled()) {
                     log.debug("{}: acquired endpoint {}", id, ConnPoolSupport.getId(connectionEndpoint));
                 }
@@ -161,7 +171,19 @@ private void connectEndpoint(final ConnectionEndpoint endpoint, final HttpClient
         if (log.isDebugEnabled()) {
             log.debug("{}: connecting endpoint ({})", ConnPoolSupport.getId(endpoint), connectTimeout);
         }
-        manager.connect(endpoint, connectTimeout, context);
+        final RequestEventListener listener = context.getRequestEventListener();
+        if (listener != null) {
+            listener.connectStart(route, context);
+            try {
+                manager.connect(endpoint, connectTimeout, context);
+            } catch (final IOException | RuntimeException ex) {
+                listener.connectFailed(route, ex, context);
+                throw ex;
+            }
+            listener.connectEnd(route, context);
+        } else {
+            manager.connect(endpoint, connectTimeout, context);
+        }
         if (log.isDebugEnabled()) {
             log.debug("{}: endpoint connected", ConnPoolSupport.getId(endpoint));
         }
@@ -34,6 +34,7 @@
 
 import org.apache.hc.client5.http.ClientProtocolException;
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.auth.AuthSchemeFactory;
 import org.apache.hc.client5.http.auth.CredentialsProvider;
 import org.apache.hc.client5.http.classic.ExecChain;
@@ -91,6 +92,7 @@ class InternalHttpClient extends CloseableHttpClient implements Configurable {
     private final CookieStore cookieStore;
     private final CredentialsProvider credentialsProvider;
     private final RequestConfig defaultConfig;
+    private final RequestEventListener requestEventListener;
     private final ConcurrentLinkedQueue<Closeable> closeables;
 
     public InternalHttpClient(
@@ -103,6 +105,7 @@ public InternalHttpClient(
             final CookieStore cookieStore,
             final CredentialsProvider credentialsProvider,
             final RequestConfig defaultConfig,
+            final RequestEventListener requestEventListener,
             final List<Closeable> closeables) {
         super();
         this.connManager = Args.notNull(connManager, "Connection manager");
@@ -114,9 +117,25 @@ public InternalHttpClient(
         this.cookieStore = cookieStore;
         this.credentialsProvider = credentialsProvider;
         this.defaultConfig = defaultConfig;
+        this.requestEventListener = requestEventListener;
         this.closeables = closeables != null ?  new ConcurrentLinkedQueue<>(closeables) : null;
     }
 
+    public InternalHttpClient(
+            final HttpClientConnectionManager connManager,
+            final HttpRequestExecutor requestExecutor,
+            final ExecChainElement execChain,
+            final HttpRoutePlanner routePlanner,
+            final Lookup<CookieSpecFactory> cookieSpecRegistry,
+            final Lookup<AuthSchemeFactory> authSchemeRegistry,
+            final CookieStore cookieStore,
+            final CredentialsProvider credentialsProvider,
+            final RequestConfig defaultConfig,
+            final List<Closeable> closeables) {
+        this(connManager, requestExecutor, execChain, routePlanner, cookieSpecRegistry, authSchemeRegistry,
+                cookieStore, credentialsProvider, defaultConfig, null, closeables);
+    }
+
     private HttpRoute determineRoute(
             final HttpHost host,
             final HttpRequest request,
@@ -141,6 +160,9 @@ private void setupContext(final HttpClientContext context) {
         if (context.getAttribute(HttpClientContext.REQUEST_CONFIG) == null) {
             context.setAttribute(HttpClientContext.REQUEST_CONFIG, this.defaultConfig);
         }
+        if (this.requestEventListener != null && context.getAttribute(HttpClientContext.REQUEST_EVENT_LISTENER) == null) {
+            context.setAttribute(HttpClientContext.REQUEST_EVENT_LISTENER, this.requestEventListener);
+        }
     }
 
     @Override
@@ -149,6 +171,8 @@ protected CloseableHttpResponse doExecute(
             final ClassicHttpRequest request,
             final HttpContext context) throws IOException {
         Args.notNull(request, "HTTP request");
+        RequestEventListener listener = null;
+        HttpClientContext localcontext = null;
         try {
             if (request.getScheme() == null && target != null) {
                 request.setScheme(target.getSchemeName());
@@ -156,7 +180,7 @@ protected CloseableHttpResponse doExecute(
             if (request.getAuthority() == null && target != null) {
                 request.setAuthority(new URIAuthority(target));
             }
-            final HttpClientContext localcontext = HttpClientContext.adapt(
+            localcontext = HttpClientContext.adapt(
                     context != null ? context : new BasicHttpContext());
             RequestConfig config = null;
             if (request instanceof Configurable) {
@@ -166,6 +190,10 @@ protected CloseableHttpResponse doExecute(
                 localcontext.setRequestConfig(config);
             }
             setupContext(localcontext);
+            listener = localcontext.getRequestEventListener();
+            if (listener != null) {
+                listener.callStart(request, localcontext);
+            }
             final HttpRoute route = determineRoute(target, request, localcontext);
             final String exchangeId = ExecSupport.getNextExchangeId();
             if (LOG.isDebugEnabled()) {
@@ -176,9 +204,20 @@ protected CloseableHttpResponse doExecute(
                     request instanceof CancellableDependency ? (CancellableDependency) request : null);
             final ExecChain.Scope scope = new ExecChain.Scope(exchangeId, route, request, execRuntime, localcontext);
             final ClassicHttpResponse response = this.execChain.execute(ClassicRequestCopier.INSTANCE.copy(request), scope);
+            if (listener != null) {
+                listener.callEnd(response, localcontext);
+            }
             return CloseableHttpResponse.adapt(response);
         } catch (final HttpException httpException) {
+            if (listener != null) {
+                listener.callFailed(httpException, localcontext);
+            }
             throw new ClientProtocolException(httpException.getMessage(), httpException);
+        } catch (final IOException | RuntimeException ex) {
+            if (listener != null) {
+                listener.callFailed(ex, localcontext);
+            }
+            throw ex;
         }
     }
 
@@ -32,6 +32,7 @@
 
 import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.UserTokenHandler;
 import org.apache.hc.client5.http.classic.ExecChain;
 import org.apache.hc.client5.http.classic.ExecChainHandler;
@@ -104,7 +105,14 @@ public ClassicHttpResponse execute(
         try {
             RequestEntityProxy.enhance(request);
 
+            final RequestEventListener listener = context.getRequestEventListener();
+            if (listener != null) {
+                listener.requestStart(request, context);
+            }
             final ClassicHttpResponse response = execRuntime.execute(exchangeId, request, context);
+            if (listener != null) {
+                listener.responseStart(response, context);
+            }
 
             Object userToken = context.getUserToken();
             if (userToken == null) {
@@ -134,9 +142,12 @@ public ClassicHttpResponse execute(
             if (entity == null || !entity.isStreaming()) {
                 // connection not needed and (assumed to be) in re-usable state
                 execRuntime.releaseEndpoint();
+                if (listener != null) {
+                    listener.responseEnd(context);
+                }
                 return new CloseableHttpResponse(response, null);
             }
-            ResponseEntityProxy.enhance(response, execRuntime);
+            ResponseEntityProxy.enhance(response, execRuntime, listener != null ? context : null);
             return new CloseableHttpResponse(response, execRuntime);
         } catch (final ConnectionShutdownException ex) {
             final InterruptedIOException ioex = new InterruptedIOException(
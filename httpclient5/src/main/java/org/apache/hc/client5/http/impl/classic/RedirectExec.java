@@ -33,6 +33,7 @@
 import org.apache.hc.client5.http.CircularRedirectException;
 import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.RedirectException;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.auth.AuthExchange;
 import org.apache.hc.client5.http.classic.ExecChain;
 import org.apache.hc.client5.http.classic.ExecChainHandler;
@@ -199,6 +200,10 @@ public ClassicHttpResponse execute(
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("{}: redirecting to '{}' via {}", exchangeId, redirectUri, currentRoute);
                     }
+                    final RequestEventListener listener = context.getRequestEventListener();
+                    if (listener != null) {
+                        listener.redirect(currentRequest, redirectUri, context);
+                    }
                     currentRequest = redirect;
                     RequestEntityProxy.enhance(currentRequest);
 
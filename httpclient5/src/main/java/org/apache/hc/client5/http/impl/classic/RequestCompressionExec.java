@@ -0,0 +1,123 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.classic;
+
+import java.io.IOException;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.config.RequestCompressionConfig;
+import org.apache.hc.client5.http.impl.RequestCompressionSupport;
+import org.apache.hc.core5.annotation.Contract;
+import org.apache.hc.core5.annotation.Internal;
+import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Request execution handler in the classic request execution chain
+ * that is responsible for compression of request content.
+ * <p>
+ * Request content at least as long as the configured threshold is compressed
+ * with pooled {@link java.util.zip.Deflater} instances. Should the target host
+ * reject compressed content with status {@code 415 Unsupported Media Type}
+ * (see {@link RequestCompressionSupport#isRejected(org.apache.hc.core5.http.HttpResponse)})
+ * the request gets re-executed once with uncompressed content, provided the
+ * request entity is repeatable, and no further requests to the host are
+ * compressed for the configured period of time.
+ * </p>
+ * <p>
+ * Further responsibilities such as communication with the opposite
+ * endpoint is delegated to the next executor in the request execution
+ * chain.
+ * </p>
+ *
+ * @since 5.1
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+@Internal
+public final class RequestCompressionExec implements ExecChainHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestCompressionExec.class);
+
+    private final RequestCompressionSupport compressionSupport;
+
+    public RequestCompressionExec(final RequestCompressionConfig config) {
+        this.compressionSupport = new RequestCompressionSupport(config);
+    }
+
+    public RequestCompressionExec() {
+        this(null);
+    }
+
+    RequestCompressionSupport getCompressionSupport() {
+        return compressionSupport;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(
+            final ClassicHttpRequest request,
+            final ExecChain.Scope scope,
+            final ExecChain chain) throws IOException, HttpException {
+        Args.notNull(request, "HTTP request");
+        Args.notNull(scope, "Scope");
+
+        final HttpEntity entity = request.getEntity();
+        final HttpHost target = scope.route.getTargetHost();
+        if (entity == null || !compressionSupport.isCompressible(
+                target, request, entity.getContentEncoding(), entity.getContentLength())) {
+            return chain.proceed(request, scope);
+        }
+
+        // Leave the original request intact for re-execution with uncompressed content
+        final ClassicHttpRequest compressedRequest = ClassicRequestCopier.INSTANCE.copy(request);
+        final CompressingEntity compressingEntity = new CompressingEntity(entity, compressionSupport);
+        compressedRequest.setEntity(compressingEntity);
+        final ClassicHttpResponse response = chain.proceed(compressedRequest, scope);
+        if (compressingEntity.isWritten() && compressionSupport.isRejected(response)) {
+            compressionSupport.markRejected(target);
+            if (entity.isRepeatable()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("{}: {} rejected compressed request content; re-executing uncompressed",
+                            scope.exchangeId, target);
+                }
+                EntityUtils.consume(response.getEntity());
+                response.close();
+                return chain.proceed(request, scope);
+            }
+        }
+        return response;
+    }
+
+}
@@ -34,7 +34,9 @@
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.classic.ExecRuntime;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.function.Supplier;
 import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.Header;
@@ -47,17 +49,30 @@
 class ResponseEntityProxy extends HttpEntityWrapper implements EofSensorWatcher {
 
     private final ExecRuntime execRuntime;
+    private final HttpClientContext context;
 
     public static void enhance(final ClassicHttpResponse response, final ExecRuntime execRuntime) {
+        enhance(response, execRuntime, null);
+    }
+
+    public static void enhance(
+            final ClassicHttpResponse response,
+            final ExecRuntime execRuntime,
+            final HttpClientContext context) {
         final HttpEntity entity = response.getEntity();
         if (entity != null && entity.isStreaming() && execRuntime != null) {
-            response.setEntity(new ResponseEntityProxy(entity, execRuntime));
+            response.setEntity(new ResponseEntityProxy(entity, execRuntime, context));
         }
     }
 
-    ResponseEntityProxy(final HttpEntity entity, final ExecRuntime execRuntime) {
+    ResponseEntityProxy(final HttpEntity entity, final ExecRuntime execRuntime, final HttpClientContext context) {
         super(entity);
         this.execRuntime = execRuntime;
+        this.context = context;
+    }
+
+    ResponseEntityProxy(final HttpEntity entity, final ExecRuntime execRuntime) {
+        this(entity, execRuntime, null);
     }
 
     private void cleanup() throws IOException {
@@ -79,6 +94,12 @@ public void releaseConnection() {
         if (this.execRuntime != null) {
             this.execRuntime.releaseEndpoint();
         }
+        if (this.context != null) {
+            final RequestEventListener listener = this.context.getRequestEventListener();
+            if (listener != null) {
+                listener.responseEnd(this.context);
+            }
+        }
     }
 
     @Override
@@ -61,6 +61,7 @@
 import org.apache.hc.core5.http.io.SocketConfig;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.io.ModalCloseable;
 import org.apache.hc.core5.util.Args;
 import org.apache.hc.core5.util.Asserts;
 import org.apache.hc.core5.util.LangUtils;
@@ -159,6 +160,9 @@ public void close() {
     public void close(final CloseMode closeMode) {
         if (this.closed.compareAndSet(false, true)) {
             closeConnection(closeMode);
+            if (this.connectionOperator instanceof ModalCloseable) {
+                ((ModalCloseable) this.connectionOperator).close(closeMode);
+            }
         }
     }
 
@@ -27,17 +27,31 @@
 package org.apache.hc.client5.http.impl.io;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.hc.client5.http.ConnectExceptionSupport;
 import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.SchemePortResolver;
 import org.apache.hc.client5.http.SystemDefaultDnsResolver;
 import org.apache.hc.client5.http.UnsupportedSchemeException;
 import org.apache.hc.client5.http.impl.ConnPoolSupport;
 import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.HappyEyeballsSupport;
 import org.apache.hc.client5.http.io.HttpClientConnectionOperator;
 import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
@@ -51,6 +65,9 @@
 import org.apache.hc.core5.http.config.Lookup;
 import org.apache.hc.core5.http.io.SocketConfig;
 import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.io.Closer;
+import org.apache.hc.core5.io.ModalCloseable;
 import org.apache.hc.core5.util.Args;
 import org.apache.hc.core5.util.TimeValue;
 import org.slf4j.Logger;
@@ -64,8 +81,8 @@
  * @since 4.4
  */
 @Internal
-@Contract(threading = ThreadingBehavior.STATELESS)
-public class DefaultHttpClientConnectionOperator implements HttpClientConnectionOperator {
+@Contract(threading = ThreadingBehavior.SAFE)
+public class DefaultHttpClientConnectionOperator implements HttpClientConnectionOperator, ModalCloseable {
 
     static final String SOCKET_FACTORY_REGISTRY = "http.socket-factory-registry";
 
@@ -74,11 +91,25 @@ public class DefaultHttpClientConnectionOperator implements HttpClientConnection
     private final Lookup<ConnectionSocketFactory> socketFactoryRegistry;
     private final SchemePortResolver schemePortResolver;
     private final DnsResolver dnsResolver;
+    private final TimeValue connectionAttemptDelay;
+    private final ExecutorService connectExecutor;
 
+    /**
+     * @param connectionAttemptDelay if positive, multi-home hosts are connected
+     *  to using the Happy Eyeballs (RFC 8305) algorithm: resolved addresses are
+     *  interleaved by address family and a new connection attempt is started
+     *  every {@code connectionAttemptDelay} (or immediately upon failure of
+     *  the previous attempt) until one succeeds. Otherwise addresses are tried
+     *  sequentially. Concurrent attempts are run by a bounded pool of daemon
+     *  threads owned by this operator and released by {@link #close(CloseMode)}.
+     *
+     * @since 5.1
+     */
     public DefaultHttpClientConnectionOperator(
             final Lookup<ConnectionSocketFactory> socketFactoryRegistry,
             final SchemePortResolver schemePortResolver,
-            final DnsResolver dnsResolver) {
+            final DnsResolver dnsResolver,
+            final TimeValue connectionAttemptDelay) {
         super();
         Args.notNull(socketFactoryRegistry, "Socket factory registry");
         this.socketFactoryRegistry = socketFactoryRegistry;
@@ -86,6 +117,17 @@ public DefaultHttpClientConnectionOperator(
             DefaultSchemePortResolver.INSTANCE;
         this.dnsResolver = dnsResolver != null ? dnsResolver :
             SystemDefaultDnsResolver.INSTANCE;
+        this.connectionAttemptDelay = connectionAttemptDelay;
+        this.connectExecutor = HappyEyeballsSupport.isEnabled(connectionAttemptDelay)
+                ? HappyEyeballsSupport.createExecutor(HappyEyeballsSupport.DEFAULT_MAX_CONNECT_THREADS)
+                : null;
+    }
+
+    public DefaultHttpClientConnectionOperator(
+            final Lookup<ConnectionSocketFactory> socketFactoryRegistry,
+            final SchemePortResolver schemePortResolver,
+            final DnsResolver dnsResolver) {
+        this(socketFactoryRegistry, schemePortResolver, dnsResolver, null);
     }
 
     @SuppressWarnings("unchecked")
@@ -115,29 +157,30 @@ public void connect(
         if (sf == null) {
             throw new UnsupportedSchemeException(host.getSchemeName() + " protocol is not supported");
         }
-        final InetAddress[] addresses = host.getAddress() != null ?
-                new InetAddress[] { host.getAddress() } : this.dnsResolver.resolve(host.getHostName());
+        final InetAddress[] addresses;
+        if (host.getAddress() != null) {
+            addresses = new InetAddress[] { host.getAddress() };
+        } else {
+            final RequestEventListener listener = (RequestEventListener) context.getAttribute(
+                    HttpClientContext.REQUEST_EVENT_LISTENER);
+            if (listener != null) {
+                listener.dnsStart(host.getHostName(), context);
+            }
+            addresses = this.dnsResolver.resolve(host.getHostName());
+            if (listener != null) {
+                listener.dnsEnd(host.getHostName(), addresses, context);
+            }
+        }
         final int port = this.schemePortResolver.resolve(host);
+        if (HappyEyeballsSupport.isEnabled(connectionAttemptDelay) && addresses.length > 1) {
+            connectConcurrently(conn, host, sf, addresses, port, localAddress, connectTimeout, socketConfig, context);
+            return;
+        }
         for (int i = 0; i < addresses.length; i++) {
             final InetAddress address = addresses[i];
             final boolean last = i == addresses.length - 1;
 
-            Socket sock = sf.createSocket(context);
-            sock.setSoTimeout(socketConfig.getSoTimeout().toMillisecondsIntBound());
-            sock.setReuseAddress(socketConfig.isSoReuseAddress());
-            sock.setTcpNoDelay(socketConfig.isTcpNoDelay());
-            sock.setKeepAlive(socketConfig.isSoKeepAlive());
-            if (socketConfig.getRcvBufSize() > 0) {
-                sock.setReceiveBufferSize(socketConfig.getRcvBufSize());
-            }
-            if (socketConfig.getSndBufSize() > 0) {
-                sock.setSendBufferSize(socketConfig.getSndBufSize());
-            }
-
-            final int linger = socketConfig.getSoLinger().toMillisecondsIntBound();
-            if (linger >= 0) {
-                sock.setSoLinger(true, linger);
-            }
+            Socket sock = createSocket(sf, socketConfig, context);
             conn.bind(sock);
 
             final InetSocketAddress remoteAddress = new InetSocketAddress(address, port);
@@ -162,6 +205,156 @@ public void connect(
         }
     }
 
+    private void connectConcurrently(
+            final ManagedHttpClientConnection conn,
+            final HttpHost host,
+            final ConnectionSocketFactory sf,
+            final InetAddress[] addresses,
+            final int port,
+            final InetSocketAddress localAddress,
+            final TimeValue connectTimeout,
+            final SocketConfig socketConfig,
+            final HttpContext context) throws IOException {
+        final InetAddress[] candidates = HappyEyeballsSupport.interleave(addresses);
+        final AtomicReferenceArray<Socket> sockets = new AtomicReferenceArray<>(candidates.length);
+        final AtomicBoolean finished = new AtomicBoolean(false);
+        final List<Future<Socket>> attempts = new ArrayList<>(candidates.length);
+        final CompletionService<Socket> completionService = new ExecutorCompletionService<>(connectExecutor);
+        final long delayMillis = connectionAttemptDelay.toMilliseconds();
+        int winner = -1;
+        int pending = 0;
+        try {
+            while (winner < 0) {
+                if (attempts.size() < candidates.length) {
+                    final int index = attempts.size();
+                    final InetSocketAddress remoteAddress = new InetSocketAddress(candidates[index], port);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("{}: connecting to {}", ConnPoolSupport.getId(conn), remoteAddress);
+                    }
+                    attempts.add(completionService.submit(new Callable<Socket>() {
+
+                        @Override
+                        public Socket call() throws IOException {
+                            final Socket sock = createSocket(sf, socketConfig, context);
+                            track(sock);
+                            try {
+                                final Socket connected = sf.connectSocket(
+                                        connectTimeout, sock, host, remoteAddress, localAddress, context);
+                                track(connected);
+                                return connected;
+                            } catch (final IOException | RuntimeException ex) {
+                                Closer.closeQuietly(sock);
+                                throw ex;
+                            }
+                        }
+
+                        /**
+                         * Registers the socket for clean-up by the calling thread. The socket
+                         * gets closed right away if the operation is already over, as
+                         * the calling thread may have already swept up attempt sockets.
+                         */
+                        private void track(final Socket sock) throws IOException {
+                            sockets.set(index, sock);
+                            if (finished.get()) {
+                                Closer.closeQuietly(sock);
+                                throw new InterruptedIOException("Connect to " + remoteAddress + " aborted");
+                            }
+                        }
+
+                    }));
+                    pending++;
+                }
+                final Future<Socket> done = attempts.size() < candidates.length
+                        ? completionService.poll(delayMillis, TimeUnit.MILLISECONDS)
+                        : completionService.take();
+                if (done == null) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("{}: connection attempt delay elapsed; starting next connection attempt", ConnPoolSupport.getId(conn));
+                    }
+                    continue;
+                }
+                pending--;
+                final Socket sock;
+                try {
+                    sock = done.get();
+                } catch (final ExecutionException ex) {
+                    final Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    if (pending == 0 && attempts.size() >= candidates.length) {
+                        throw ConnectExceptionSupport.enhance((IOException) cause, host, addresses);
+                    }
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("{}: connection attempt failed ({}); trying other IP addresses", ConnPoolSupport.getId(conn), cause.getClass());
+                    }
+                    continue;
+                }
+                final int index = attempts.indexOf(done);
+                // The socket of the winning attempt gets closed along with the others
+                // should the connection fail to bind it
+                conn.bind(sock);
+                winner = index;
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("{}: connection established {}", ConnPoolSupport.getId(conn), conn);
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Connect to " + host + " interrupted");
+        } finally {
+            finished.set(true);
+            for (int i = 0; i < attempts.size(); i++) {
+                if (i != winner) {
+                    attempts.get(i).cancel(true);
+                    Closer.closeQuietly(sockets.get(i));
+                }
+            }
+        }
+    }
+
+    private Socket createSocket(
+            final ConnectionSocketFactory sf,
+            final SocketConfig socketConfig,
+            final HttpContext context) throws IOException {
+        final Socket sock = sf.createSocket(context);
+        sock.setSoTimeout(socketConfig.getSoTimeout().toMillisecondsIntBound());
+        sock.setReuseAddress(socketConfig.isSoReuseAddress());
+        sock.setTcpNoDelay(socketConfig.isTcpNoDelay());
+        sock.setKeepAlive(socketConfig.isSoKeepAlive());
+        if (socketConfig.getRcvBufSize() > 0) {
+            sock.setReceiveBufferSize(socketConfig.getRcvBufSize());
+        }
+        if (socketConfig.getSndBufSize() > 0) {
+            sock.setSendBufferSize(socketConfig.getSndBufSize());
+        }
+
+        final int linger = socketConfig.getSoLinger().toMillisecondsIntBound();
+        if (linger >= 0) {
+            sock.setSoLinger(true, linger);
+        }
+        return sock;
+    }
+
+    @Override
+    public void close(final CloseMode closeMode) {
+        if (connectExecutor != null) {
+            if (closeMode == CloseMode.IMMEDIATE) {
+                connectExecutor.shutdownNow();
+            } else {
+                connectExecutor.shutdown();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        close(CloseMode.GRACEFUL);
+    }
+
     @Override
     public void upgrade(
             final ManagedHttpClientConnection conn,
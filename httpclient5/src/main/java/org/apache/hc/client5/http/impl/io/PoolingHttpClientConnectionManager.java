@@ -27,43 +27,66 @@
 package org.apache.hc.client5.http.impl.io;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.hc.client5.http.DnsResolver;
 import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ConnPoolMetrics;
 import org.apache.hc.client5.http.impl.ConnPoolSupport;
+import org.apache.hc.client5.http.impl.ConnPoolWarmUp;
 import org.apache.hc.client5.http.impl.ConnectionShutdownException;
 import org.apache.hc.client5.http.io.ConnectionEndpoint;
 import org.apache.hc.client5.http.io.HttpClientConnectionManager;
 import org.apache.hc.client5.http.io.HttpClientConnectionOperator;
 import org.apache.hc.client5.http.io.LeaseRequest;
 import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
 import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
 import org.apache.hc.core5.annotation.Contract;
 import org.apache.hc.core5.annotation.Internal;
 import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.concurrent.BasicFuture;
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.function.Callback;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.URIScheme;
 import org.apache.hc.core5.http.config.Registry;
 import org.apache.hc.core5.http.config.RegistryBuilder;
 import org.apache.hc.core5.http.impl.io.HttpRequestExecutor;
+import org.apache.hc.core5.http.io.HttpClientConnection;
 import org.apache.hc.core5.http.io.HttpConnectionFactory;
 import org.apache.hc.core5.http.io.SocketConfig;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.io.ModalCloseable;
 import org.apache.hc.core5.pool.ConnPoolControl;
 import org.apache.hc.core5.pool.LaxConnPool;
 import org.apache.hc.core5.pool.ManagedConnPool;
@@ -103,20 +126,31 @@
  */
 @Contract(threading = ThreadingBehavior.SAFE_CONDITIONAL)
 public class PoolingHttpClientConnectionManager
-    implements HttpClientConnectionManager, ConnPoolControl<HttpRoute> {
+    implements HttpClientConnectionManager, ConnPoolControl<HttpRoute>, ConnPoolWarmUp<HttpRoute> {
 
     private static final Logger LOG = LoggerFactory.getLogger(PoolingHttpClientConnectionManager.class);
 
     public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 25;
     public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 5;
 
+    static final int MAX_WARM_UP_THREADS = 4;
+
+    private static final ThreadFactory WARM_UP_THREAD_FACTORY = new DefaultThreadFactory("httpclient-warm-up", true);
+    private static final ThreadFactory VALIDATION_THREAD_FACTORY = new DefaultThreadFactory("connection-validator", true);
+
     private final HttpClientConnectionOperator connectionOperator;
     private final ManagedConnPool<HttpRoute, ManagedHttpClientConnection> pool;
     private final HttpConnectionFactory<ManagedHttpClientConnection> connFactory;
     private final AtomicBoolean closed;
+    private final Set<ManagedHttpClientConnection> idleConnections;
+    private final Object validationLock;
+    private final AtomicLong staleConnectionCount;
+    private final ThreadPoolExecutor warmUpExecutor;
 
     private volatile SocketConfig defaultSocketConfig;
     private volatile TimeValue validateAfterInactivity;
+    private volatile Thread validationThread;
+    private volatile ConnPoolMetrics metrics;
 
     public PoolingHttpClientConnectionManager() {
         this(RegistryBuilder.<ConnectionSocketFactory>create()
@@ -206,6 +240,10 @@ protected PoolingHttpClientConnectionManager(
         }
         this.connFactory = connFactory != null ? connFactory : ManagedHttpClientConnectionFactory.INSTANCE;
         this.closed = new AtomicBoolean(false);
+        this.idleConnections = Collections.newSetFromMap(new ConcurrentHashMap<ManagedHttpClientConnection, Boolean>());
+        this.validationLock = new Object();
+        this.staleConnectionCount = new AtomicLong(0);
+        this.warmUpExecutor = createWarmUpExecutor();
     }
 
     @Internal
@@ -218,6 +256,20 @@ protected PoolingHttpClientConnectionManager(
         this.pool = Args.notNull(pool, "Connection pool");
         this.connFactory = connFactory != null ? connFactory : ManagedHttpClientConnectionFactory.INSTANCE;
         this.closed = new AtomicBoolean(false);
+        this.idleConnections = Collections.newSetFromMap(new ConcurrentHashMap<ManagedHttpClientConnection, Boolean>());
+        this.validationLock = new Object();
+        this.staleConnectionCount = new AtomicLong(0);
+        this.warmUpExecutor = createWarmUpExecutor();
+    }
+
+    private static ThreadPoolExecutor createWarmUpExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                MAX_WARM_UP_THREADS, MAX_WARM_UP_THREADS,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                WARM_UP_THREAD_FACTORY);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     @Override
@@ -231,7 +283,19 @@ public void close(final CloseMode closeMode) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Shutdown connection pool {}", closeMode);
             }
+            final Thread validationThreadSnapshot = validationThread;
+            if (validationThreadSnapshot != null) {
+                validationThreadSnapshot.interrupt();
+            }
+            if (closeMode == CloseMode.IMMEDIATE) {
+                this.warmUpExecutor.shutdownNow();
+            } else {
+                this.warmUpExecutor.shutdown();
+            }
             this.pool.close(closeMode);
+            if (this.connectionOperator instanceof ModalCloseable) {
+                ((ModalCloseable) this.connectionOperator).close(closeMode);
+            }
             LOG.debug("Connection pool shut down");
         }
     }
@@ -257,6 +321,8 @@ public LeaseRequest lease(
         if (LOG.isDebugEnabled()) {
             LOG.debug("{}: endpoint lease request ({}) {}", id, requestTimeout, ConnPoolSupport.formatStats(route, state, pool));
         }
+        final ConnPoolMetrics metricsSnapshot = metrics;
+        final long leaseStart = metricsSnapshot != null ? System.nanoTime() : 0;
         final Future<PoolEntry<HttpRoute, ManagedHttpClientConnection>> leaseFuture = this.pool.lease(route, state, requestTimeout, null);
         return new LeaseRequest() {
 
@@ -283,8 +349,27 @@ public synchronized ConnectionEndpoint get(
                     LOG.debug("{}: endpoint leased {}", id, ConnPoolSupport.formatStats(route, state, pool));
                 }
                 try {
+                    final ManagedHttpClientConnection idleConn = poolEntry.getConnection();
+                    if (metricsSnapshot != null) {
+                        metricsSnapshot.record(route, ConnPoolMetrics.Phase.LEASE_WAIT, System.nanoTime() - leaseStart, TimeUnit.NANOSECONDS);
+                        if (idleConn != null) {
+                            metricsSnapshot.record(route, ConnPoolMetrics.Phase.IDLE,
+                                    System.currentTimeMillis() - poolEntry.getUpdated(), TimeUnit.MILLISECONDS);
+                        }
+                    }
+                    boolean validatedInBackground = false;
+                    if (idleConn != null) {
+                        // Wait for the background validation of the connection to complete, if any
+                        synchronized (validationLock) {
+                            validatedInBackground = idleConnections.remove(idleConn);
+                        }
+                    }
                     final TimeValue validateAfterInactivitySnapshot = validateAfterInactivity;
-                    if (TimeValue.isNonNegative(validateAfterInactivitySnapshot)) {
+                    if (validatedInBackground) {
+                        if (!idleConn.isOpen()) {
+                            poolEntry.discardConnection(CloseMode.IMMEDIATE);
+                        }
+                    } else if (TimeValue.isNonNegative(validateAfterInactivitySnapshot)) {
                         final ManagedHttpClientConnection conn = poolEntry.getConnection();
                         if (conn != null
                                 && poolEntry.getUpdated() + validateAfterInactivitySnapshot.toMilliseconds() <= System.currentTimeMillis()) {
@@ -299,6 +384,7 @@ public synchronized ConnectionEndpoint get(
                                     LOG.debug("{}: connection {} is stale", id, ConnPoolSupport.getId(conn));
                                 }
                                 poolEntry.discardConnection(CloseMode.IMMEDIATE);
+                                staleConnectionCount.incrementAndGet();
                             }
                         }
                     }
@@ -376,6 +462,9 @@ public void release(final ConnectionEndpoint endpoint, final Object state, final
             reusable = false;
             throw ex;
         } finally {
+            if (reusable && validationThread != null) {
+                idleConnections.add(conn);
+            }
             this.pool.release(entry, reusable);
             if (LOG.isDebugEnabled()) {
                 LOG.debug("{}: connection released {}", ConnPoolSupport.getId(endpoint), ConnPoolSupport.formatStats(entry.getRoute(), entry.getState(), pool));
@@ -406,6 +495,8 @@ public void connect(final ConnectionEndpoint endpoint, final TimeValue connectTi
         }
         final ManagedHttpClientConnection conn = poolEntry.getConnection();
         final SocketConfig defaultSocketConfigSnapshot = defaultSocketConfig;
+        final ConnPoolMetrics metricsSnapshot = metrics;
+        final long connectStart = metricsSnapshot != null ? System.nanoTime() : 0;
         this.connectionOperator.connect(
                 conn,
                 host,
@@ -413,6 +504,9 @@ public void connect(final ConnectionEndpoint endpoint, final TimeValue connectTi
                 connectTimeout,
                 defaultSocketConfigSnapshot != null ? defaultSocketConfigSnapshot : SocketConfig.DEFAULT,
                 context);
+        if (metricsSnapshot != null) {
+            metricsSnapshot.record(route, ConnPoolMetrics.Phase.CONNECT, System.nanoTime() - connectStart, TimeUnit.NANOSECONDS);
+        }
         if (LOG.isDebugEnabled()) {
             LOG.debug("{}: connected {}", ConnPoolSupport.getId(endpoint), ConnPoolSupport.getId(conn));
         }
@@ -424,7 +518,161 @@ public void upgrade(final ConnectionEndpoint endpoint, final HttpContext context
         final InternalConnectionEndpoint internalEndpoint = cast(endpoint);
         final PoolEntry<HttpRoute, ManagedHttpClientConnection> poolEntry = internalEndpoint.getValidatedPoolEntry();
         final HttpRoute route = poolEntry.getRoute();
+        final ConnPoolMetrics metricsSnapshot = metrics;
+        final long upgradeStart = metricsSnapshot != null ? System.nanoTime() : 0;
         this.connectionOperator.upgrade(poolEntry.getConnection(), route.getTargetHost(), context);
+        if (metricsSnapshot != null) {
+            metricsSnapshot.record(route, ConnPoolMetrics.Phase.HANDSHAKE, System.nanoTime() - upgradeStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Establishes up to the given number of connections to the given route and
+     * returns them to the pool idle. Connections are established in parallel
+     * including TLS handshakes where applicable, using a small number of threads
+     * owned by the manager. Endpoints are leased one at a time per thread and
+     * held until the warm-up completes, so that each connection gets a distinct
+     * pool entry. Leasing stops as soon as the pool fails to provide an endpoint
+     * within the timeout. Idle connections already in the pool count towards
+     * the number.
+     * <p>
+     * Routes tunnelled through a proxy cannot be warmed up as tunnels are
+     * established by the request execution chain.
+     * </p>
+     *
+     * @param route the route.
+     * @param connections the number of connections.
+     * @param timeout the timeout for leasing and connecting each connection.
+     * @return future reporting the number of connections available after the
+     *  warm-up.
+     *
+     * @since 5.1
+     */
+    public Future<Integer> warmUp(final HttpRoute route, final int connections, final Timeout timeout) {
+        return warmUp(route, connections, timeout, null);
+    }
+
+    /**
+     * @since 5.1
+     */
+    @Override
+    public Future<Integer> warmUp(
+            final HttpRoute route,
+            final int connections,
+            final Timeout timeout,
+            final FutureCallback<Integer> callback) {
+        Args.notNull(route, "HTTP route");
+        Args.positive(connections, "Number of connections");
+        Args.notNull(timeout, "Timeout");
+        final BasicFuture<Integer> future = new BasicFuture<>(callback);
+        if (route.isTunnelled()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Cannot warm up tunnelled route {}", route);
+            }
+            future.completed(0);
+            return future;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Warming up {} connection(s) to {}", connections, route);
+        }
+        final int workers = Math.min(connections, MAX_WARM_UP_THREADS);
+        final WarmUp warmUp = new WarmUp(route, connections, workers, timeout, future);
+        for (int i = 0; i < workers; i++) {
+            try {
+                warmUpExecutor.execute(warmUp);
+            } catch (final RejectedExecutionException ex) {
+                // The connection manager has been shut down
+                warmUp.abort(workers - i);
+                break;
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Warm-up of a route shared by a number of worker threads. Each worker
+     * leases and connects one endpoint at a time until the requested number
+     * of connections has been reached or a lease fails. Leased endpoints are
+     * released back to the pool once the last worker has finished.
+     */
+    private final class WarmUp implements Runnable {
+
+        private final HttpRoute route;
+        private final Timeout timeout;
+        private final BasicFuture<Integer> future;
+        private final AtomicInteger pending;
+        private final AtomicInteger activeWorkers;
+        private final AtomicInteger established;
+        private final Queue<ConnectionEndpoint> endpoints;
+
+        WarmUp(
+                final HttpRoute route,
+                final int connections,
+                final int workers,
+                final Timeout timeout,
+                final BasicFuture<Integer> future) {
+            this.route = route;
+            this.timeout = timeout;
+            this.future = future;
+            this.pending = new AtomicInteger(connections);
+            this.activeWorkers = new AtomicInteger(workers);
+            this.established = new AtomicInteger(0);
+            this.endpoints = new ConcurrentLinkedQueue<>();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (pending.getAndDecrement() > 0 && !closed.get()) {
+                    final LeaseRequest leaseRequest = lease("warm-up", route, timeout, null);
+                    final ConnectionEndpoint endpoint;
+                    try {
+                        endpoint = leaseRequest.get(timeout);
+                    } catch (final InterruptedException ex) {
+                        leaseRequest.cancel();
+                        Thread.currentThread().interrupt();
+                        break;
+                    } catch (final ExecutionException | TimeoutException ex) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Connection warm-up to {} failed: {}", route, ex.getMessage());
+                        }
+                        leaseRequest.cancel();
+                        break;
+                    }
+                    // Keep the endpoint leased so that the next lease gets a distinct pool entry
+                    endpoints.add(endpoint);
+                    try {
+                        connect(endpoint, timeout, HttpClientContext.create());
+                        established.incrementAndGet();
+                    } catch (final IOException ex) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Connection warm-up to {} failed: {}", route, ex.getMessage());
+                        }
+                    }
+                }
+            } finally {
+                abort(1);
+            }
+        }
+
+        /**
+         * Stops further leasing and accounts for the given number of workers
+         * having finished or never having been started.
+         */
+        void abort(final int workers) {
+            pending.set(0);
+            if (activeWorkers.addAndGet(-workers) == 0) {
+                for (;;) {
+                    final ConnectionEndpoint endpoint = endpoints.poll();
+                    if (endpoint == null) {
+                        break;
+                    }
+                    release(endpoint, null, RequestConfig.DEFAULT.getConnectionKeepAlive());
+                }
+                future.completed(established.get());
+            }
+        }
+
     }
 
     @Override
@@ -516,6 +764,171 @@ public void setValidateAfterInactivity(final TimeValue validateAfterInactivity)
         this.validateAfterInactivity = validateAfterInactivity;
     }
 
+    /**
+     * Enables validation of idle connections by a background thread in place of
+     * {@link HttpClientConnection#isStale()} checks at lease time. Once every
+     * {@code sweepInterval} connections idle for longer than
+     * {@link #getValidateAfterInactivity()} (or all idle connections if negative)
+     * are checked and stale ones get discarded, so that connections leased
+     * to consumers are already known to be valid.
+     *
+     * @param sweepInterval the interval between validation runs or {@code null}
+     *  to revert to validation at lease time.
+     *
+     * @since 5.1
+     */
+    public synchronized void setBackgroundValidation(final TimeValue sweepInterval) {
+        final Thread current = this.validationThread;
+        if (current != null) {
+            current.interrupt();
+            this.validationThread = null;
+            // Connections are validated at lease time from now on
+            synchronized (validationLock) {
+                this.idleConnections.clear();
+            }
+        }
+        if (sweepInterval == null || this.closed.get()) {
+            return;
+        }
+        Args.positive(sweepInterval.getDuration(), "Sweep interval");
+        final Thread thread = VALIDATION_THREAD_FACTORY.newThread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        sweepInterval.sleep();
+                        validateIdle();
+                    }
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (final Exception ex) {
+                    LOG.debug("Connection validation terminated", ex);
+                }
+            }
+
+        });
+        this.validationThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Validates connections idle for longer than {@link #getValidateAfterInactivity()}
+     * and discards stale ones. This method is executed periodically by the background
+     * validation thread if enabled.
+     *
+     * @see #setBackgroundValidation(TimeValue)
+     *
+     * @since 5.1
+     */
+    public void validateIdle() {
+        final TimeValue validateAfterInactivitySnapshot = validateAfterInactivity;
+        final long threshold = System.currentTimeMillis() - (TimeValue.isNonNegative(validateAfterInactivitySnapshot)
+                ? validateAfterInactivitySnapshot.toMilliseconds() : 0);
+        final List<ManagedHttpClientConnection> candidates = new ArrayList<>();
+        // Only take a snapshot while holding the pool lock; connections are checked outside of it
+        enumAvailable(new Callback<PoolEntry<HttpRoute, ManagedHttpClientConnection>>() {
+
+            @Override
+            public void execute(final PoolEntry<HttpRoute, ManagedHttpClientConnection> entry) {
+                final ManagedHttpClientConnection conn = entry.getConnection();
+                if (conn != null && entry.getUpdated() <= threshold) {
+                    candidates.add(conn);
+                }
+            }
+
+        });
+        int discarded = 0;
+        for (final ManagedHttpClientConnection conn: candidates) {
+            // The lock is held for one connection at a time to keep leases waiting briefly
+            synchronized (validationLock) {
+                // Skip connections leased in the meantime
+                if (!idleConnections.contains(conn)) {
+                    continue;
+                }
+                boolean stale;
+                try {
+                    stale = conn.isStale();
+                } catch (final IOException ignore) {
+                    stale = true;
+                }
+                if (stale) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Connection {} is stale", ConnPoolSupport.getId(conn));
+                    }
+                    idleConnections.remove(conn);
+                    conn.close(CloseMode.IMMEDIATE);
+                    discarded++;
+                }
+            }
+        }
+        if (discarded > 0) {
+            staleConnectionCount.addAndGet(discarded);
+            enumAvailable(new Callback<PoolEntry<HttpRoute, ManagedHttpClientConnection>>() {
+
+                @Override
+                public void execute(final PoolEntry<HttpRoute, ManagedHttpClientConnection> entry) {
+                    final ManagedHttpClientConnection conn = entry.getConnection();
+                    if (conn != null && !conn.isOpen()) {
+                        entry.discardConnection(CloseMode.IMMEDIATE);
+                    }
+                }
+
+            });
+        }
+        // Forget connections evicted from the pool by other means
+        for (final Iterator<ManagedHttpClientConnection> it = idleConnections.iterator(); it.hasNext(); ) {
+            if (!it.next().isOpen()) {
+                it.remove();
+            }
+        }
+    }
+
+    private void enumAvailable(final Callback<PoolEntry<HttpRoute, ManagedHttpClientConnection>> callback) {
+        if (pool instanceof StrictConnPool) {
+            ((StrictConnPool<HttpRoute, ManagedHttpClientConnection>) pool).enumAvailable(callback);
+        } else if (pool instanceof LaxConnPool) {
+            ((LaxConnPool<HttpRoute, ManagedHttpClientConnection>) pool).enumAvailable(callback);
+        }
+    }
+
+    /**
+     * Returns the number of connections found stale and discarded by validation,
+     * either at lease time or in the background.
+     *
+     * @since 5.1
+     */
+    public long getStaleConnectionCount() {
+        return staleConnectionCount.get();
+    }
+
+    /**
+     * Returns the latency metrics recorded by this connection manager
+     * or {@code null} if metrics are not enabled.
+     *
+     * @since 5.1
+     */
+    public ConnPoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Enables recording of lease wait, connect, handshake and idle time
+     * histograms per route to the given metrics. Passing {@code null}
+     * disables recording.
+     * <p>
+     * Please note that TLS handshakes of routes not tunnelled through a proxy
+     * are performed by the socket factory while connecting and are therefore
+     * accounted for as connect time. Only TLS upgrades of tunnelled
+     * connections are recorded as handshake time.
+     * </p>
+     *
+     * @since 5.1
+     */
+    public void setMetrics(final ConnPoolMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     private static final AtomicLong COUNT = new AtomicLong(0);
 
     class InternalConnectionEndpoint extends ConnectionEndpoint implements Identifiable {
@@ -29,6 +29,7 @@
 
 import org.apache.hc.client5.http.DnsResolver;
 import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.impl.ConnPoolMetrics;
 import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
 import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
 import org.apache.hc.client5.http.socket.LayeredConnectionSocketFactory;
@@ -85,6 +86,9 @@ public class PoolingHttpClientConnectionManagerBuilder {
 
     private TimeValue timeToLive;
     private TimeValue validateAfterInactivity;
+    private TimeValue backgroundValidationInterval;
+    private ConnPoolMetrics metrics;
+    private TimeValue connectionAttemptDelay;
 
     public static PoolingHttpClientConnectionManagerBuilder create() {
         return new PoolingHttpClientConnectionManagerBuilder();
@@ -187,6 +191,48 @@ public final PoolingHttpClientConnectionManagerBuilder setValidateAfterInactivit
         return this;
     }
 
+    /**
+     * Enables validation of idle connections by a background thread once every
+     * given interval in place of stale checks at lease time.
+     *
+     * @see PoolingHttpClientConnectionManager#setBackgroundValidation(TimeValue)
+     *
+     * @since 5.1
+     */
+    public final PoolingHttpClientConnectionManagerBuilder setBackgroundValidation(final TimeValue sweepInterval) {
+        this.backgroundValidationInterval = sweepInterval;
+        return this;
+    }
+
+    /**
+     * Enables Happy Eyeballs (RFC 8305) connection establishment to multi-home
+     * hosts: resolved addresses are interleaved by address family and a new
+     * connection attempt is started every {@code connectionAttemptDelay}
+     * (or immediately upon failure of the previous attempt) until one of them
+     * succeeds, at which point all other attempts are aborted. Addresses are
+     * tried sequentially if the delay is not set or not positive.
+     *
+     * @see org.apache.hc.client5.http.impl.HappyEyeballsSupport#DEFAULT_CONNECTION_ATTEMPT_DELAY
+     *
+     * @since 5.1
+     */
+    public final PoolingHttpClientConnectionManagerBuilder setConnectionAttemptDelay(final TimeValue connectionAttemptDelay) {
+        this.connectionAttemptDelay = connectionAttemptDelay;
+        return this;
+    }
+
+    /**
+     * Enables recording of connection pool latency metrics.
+     *
+     * @see PoolingHttpClientConnectionManager#setMetrics(ConnPoolMetrics)
+     *
+     * @since 5.1
+     */
+    public final PoolingHttpClientConnectionManagerBuilder setMetrics(final ConnPoolMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     /**
      * Use system properties when creating and configuring default
      * implementations.
@@ -199,20 +245,28 @@ public final PoolingHttpClientConnectionManagerBuilder useSystemProperties() {
     public PoolingHttpClientConnectionManager build() {
         @SuppressWarnings("resource")
         final PoolingHttpClientConnectionManager poolingmgr = new PoolingHttpClientConnectionManager(
-                RegistryBuilder.<ConnectionSocketFactory>create()
-                        .register(URIScheme.HTTP.id, PlainConnectionSocketFactory.getSocketFactory())
-                        .register(URIScheme.HTTPS.id, sslSocketFactory != null ? sslSocketFactory :
-                                (systemProperties ?
-                                        SSLConnectionSocketFactory.getSystemSocketFactory() :
-                                        SSLConnectionSocketFactory.getSocketFactory()))
-                        .build(),
+                new DefaultHttpClientConnectionOperator(
+                        RegistryBuilder.<ConnectionSocketFactory>create()
+                                .register(URIScheme.HTTP.id, PlainConnectionSocketFactory.getSocketFactory())
+                                .register(URIScheme.HTTPS.id, sslSocketFactory != null ? sslSocketFactory :
+                                        (systemProperties ?
+                                                SSLConnectionSocketFactory.getSystemSocketFactory() :
+                                                SSLConnectionSocketFactory.getSocketFactory()))
+                                .build(),
+                        schemePortResolver,
+                        dnsResolver,
+                        connectionAttemptDelay),
                 poolConcurrencyPolicy,
                 poolReusePolicy,
                 timeToLive != null ? timeToLive : TimeValue.NEG_ONE_MILLISECOND,
-                schemePortResolver,
-                dnsResolver,
                 connectionFactory);
         poolingmgr.setValidateAfterInactivity(this.validateAfterInactivity);
+        if (backgroundValidationInterval != null) {
+            poolingmgr.setBackgroundValidation(backgroundValidationInterval);
+        }
+        if (metrics != null) {
+            poolingmgr.setMetrics(metrics);
+        }
         if (defaultSocketConfig != null) {
             poolingmgr.setDefaultSocketConfig(defaultSocketConfig);
         }
@@ -31,10 +31,14 @@
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 
+import org.apache.hc.client5.http.AsyncDnsResolver;
 import org.apache.hc.client5.http.DnsResolver;
 import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.impl.DefaultAsyncDnsResolver;
 import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.HappyEyeballsSupport;
 import org.apache.hc.client5.http.nio.AsyncClientConnectionOperator;
 import org.apache.hc.client5.http.nio.ManagedAsyncClientConnection;
 import org.apache.hc.client5.http.routing.RoutingSupport;
@@ -43,24 +47,62 @@
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.config.Lookup;
 import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.io.ModalCloseable;
 import org.apache.hc.core5.reactor.ConnectionInitiator;
 import org.apache.hc.core5.reactor.IOSession;
 import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 
-final class DefaultAsyncClientConnectionOperator implements AsyncClientConnectionOperator {
+final class DefaultAsyncClientConnectionOperator implements AsyncClientConnectionOperator, ModalCloseable {
 
     private final SchemePortResolver schemePortResolver;
     private final MultihomeIOSessionRequester sessionRequester;
     private final Lookup<TlsStrategy> tlsStrategyLookup;
+    private final DefaultAsyncDnsResolver ownedDnsResolver;
+    private final ScheduledExecutorService scheduler;
 
-    DefaultAsyncClientConnectionOperator(
+    private DefaultAsyncClientConnectionOperator(
             final Lookup<TlsStrategy> tlsStrategyLookup,
             final SchemePortResolver schemePortResolver,
-            final DnsResolver dnsResolver) {
+            final AsyncDnsResolver asyncDnsResolver,
+            final DnsResolver dnsResolver,
+            final TimeValue connectionAttemptDelay) {
         this.tlsStrategyLookup = Args.notNull(tlsStrategyLookup, "TLS strategy lookup");
         this.schemePortResolver = schemePortResolver != null ? schemePortResolver : DefaultSchemePortResolver.INSTANCE;
-        this.sessionRequester = new MultihomeIOSessionRequester(dnsResolver);
+        // Only resolvers created by the operator itself get closed along with it
+        this.ownedDnsResolver = asyncDnsResolver == null ? new DefaultAsyncDnsResolver(dnsResolver) : null;
+        this.scheduler = HappyEyeballsSupport.isEnabled(connectionAttemptDelay)
+                ? HappyEyeballsSupport.createScheduler()
+                : null;
+        this.sessionRequester = new MultihomeIOSessionRequester(
+                asyncDnsResolver != null ? asyncDnsResolver : ownedDnsResolver,
+                connectionAttemptDelay,
+                scheduler);
+    }
+
+    DefaultAsyncClientConnectionOperator(
+            final Lookup<TlsStrategy> tlsStrategyLookup,
+            final SchemePortResolver schemePortResolver,
+            final AsyncDnsResolver dnsResolver,
+            final TimeValue connectionAttemptDelay) {
+        this(tlsStrategyLookup, schemePortResolver, dnsResolver, null, connectionAttemptDelay);
+    }
+
+    DefaultAsyncClientConnectionOperator(
+            final Lookup<TlsStrategy> tlsStrategyLookup,
+            final SchemePortResolver schemePortResolver,
+            final DnsResolver dnsResolver,
+            final TimeValue connectionAttemptDelay) {
+        this(tlsStrategyLookup, schemePortResolver, null, dnsResolver, connectionAttemptDelay);
+    }
+
+    DefaultAsyncClientConnectionOperator(
+            final Lookup<TlsStrategy> tlsStrategyLookup,
+            final SchemePortResolver schemePortResolver,
+            final DnsResolver dnsResolver) {
+        this(tlsStrategyLookup, schemePortResolver, dnsResolver, null);
     }
 
     @Override
@@ -135,4 +177,24 @@ public void upgrade(final ManagedAsyncClientConnection connection, final HttpHos
         }
 
     }
+
+    @Override
+    public void close(final CloseMode closeMode) {
+        if (scheduler != null) {
+            if (closeMode == CloseMode.IMMEDIATE) {
+                scheduler.shutdownNow();
+            } else {
+                scheduler.shutdown();
+            }
+        }
+        if (ownedDnsResolver != null) {
+            ownedDnsResolver.close(closeMode);
+        }
+    }
+
+    @Override
+    public void close() {
+        close(CloseMode.GRACEFUL);
+    }
+
 }
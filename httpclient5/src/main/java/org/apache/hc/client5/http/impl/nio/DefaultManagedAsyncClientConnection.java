@@ -30,8 +30,11 @@
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSession;
 
 import org.apache.hc.client5.http.nio.ManagedAsyncClientConnection;
@@ -62,11 +65,13 @@ final class DefaultManagedAsyncClientConnection implements ManagedAsyncClientCon
     private final IOSession ioSession;
     private final Timeout socketTimeout;
     private final AtomicBoolean closed;
+    private final AtomicLong handshakeTime;
 
     public DefaultManagedAsyncClientConnection(final IOSession ioSession) {
         this.ioSession = ioSession;
         this.socketTimeout = ioSession.getSocketTimeout();
         this.closed = new AtomicBoolean();
+        this.handshakeTime = new AtomicLong(-1);
     }
 
     @Override
@@ -149,13 +154,32 @@ public void startTls(
             LOG.debug("{}: start TLS", getId());
         }
         if (ioSession instanceof TransportSecurityLayer) {
-            ((TransportSecurityLayer) ioSession).startTls(sslContext, endpoint, sslBufferMode, initializer, verifier,
+            final long handshakeStart = System.nanoTime();
+            final SSLSessionVerifier timedVerifier = verifier != null ? new SSLSessionVerifier() {
+
+                @Override
+                public TlsDetails verify(final NamedEndpoint namedEndpoint, final SSLEngine sslEngine) throws SSLException {
+                    handshakeTime.set(System.nanoTime() - handshakeStart);
+                    return verifier.verify(namedEndpoint, sslEngine);
+                }
+
+            } : null;
+            ((TransportSecurityLayer) ioSession).startTls(sslContext, endpoint, sslBufferMode, initializer, timedVerifier,
                 handshakeTimeout);
         } else {
             throw new UnsupportedOperationException("TLS upgrade not supported");
         }
     }
 
+    /**
+     * Returns the duration of the last completed TLS handshake in nanoseconds
+     * and clears it, or returns {@code -1} if no handshake has completed since
+     * the last call.
+     */
+    long getAndClearHandshakeTime() {
+        return handshakeTime.getAndSet(-1);
+    }
+
     @Override
     public TlsDetails getTlsDetails() {
         return ioSession instanceof TransportSecurityLayer ? ((TransportSecurityLayer) ioSession).getTlsDetails() : null;
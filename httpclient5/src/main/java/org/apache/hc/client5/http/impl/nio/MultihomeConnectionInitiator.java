@@ -29,15 +29,22 @@
 
 import java.net.SocketAddress;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 
+import org.apache.hc.client5.http.AsyncDnsResolver;
 import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.impl.DefaultAsyncDnsResolver;
+import org.apache.hc.client5.http.impl.HappyEyeballsSupport;
 import org.apache.hc.core5.annotation.Contract;
 import org.apache.hc.core5.annotation.ThreadingBehavior;
 import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.io.ModalCloseable;
 import org.apache.hc.core5.net.NamedEndpoint;
 import org.apache.hc.core5.reactor.ConnectionInitiator;
 import org.apache.hc.core5.reactor.IOSession;
 import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 
 /**
@@ -46,16 +53,62 @@
  * @since 5.0
  */
 @Contract(threading = ThreadingBehavior.SAFE_CONDITIONAL)
-public final class MultihomeConnectionInitiator implements ConnectionInitiator {
+public final class MultihomeConnectionInitiator implements ConnectionInitiator, ModalCloseable {
 
     private final ConnectionInitiator connectionInitiator;
+    private final DefaultAsyncDnsResolver ownedDnsResolver;
+    private final ScheduledExecutorService scheduler;
     private final MultihomeIOSessionRequester sessionRequester;
 
+    /**
+     * @param connectionAttemptDelay if positive, multi-home hosts are connected
+     *  to using the Happy Eyeballs (RFC 8305) algorithm with the given delay
+     *  between concurrent connection attempts. Attempts are staggered by
+     *  a scheduler owned by this initiator and released by {@link #close(CloseMode)}.
+     *  The blocking resolver is run by a bounded thread pool owned by this initiator
+     *  as well.
+     *
+     * @since 5.1
+     */
     public MultihomeConnectionInitiator(
             final ConnectionInitiator connectionInitiator,
-            final DnsResolver dnsResolver) {
+            final DnsResolver dnsResolver,
+            final TimeValue connectionAttemptDelay) {
+        this.connectionInitiator = Args.notNull(connectionInitiator, "Connection initiator");
+        this.ownedDnsResolver = new DefaultAsyncDnsResolver(dnsResolver);
+        this.scheduler = createScheduler(connectionAttemptDelay);
+        this.sessionRequester = new MultihomeIOSessionRequester(ownedDnsResolver, connectionAttemptDelay, scheduler);
+    }
+
+    /**
+     * @param dnsResolver non-blocking resolver used to look up the addresses
+     *  of the remote endpoint.
+     * @param connectionAttemptDelay if positive, multi-home hosts are connected
+     *  to using the Happy Eyeballs (RFC 8305) algorithm with the given delay
+     *  between concurrent connection attempts. Attempts are staggered by
+     *  a scheduler owned by this initiator and released by {@link #close(CloseMode)}.
+     *
+     * @since 5.1
+     */
+    public MultihomeConnectionInitiator(
+            final ConnectionInitiator connectionInitiator,
+            final AsyncDnsResolver dnsResolver,
+            final TimeValue connectionAttemptDelay) {
         this.connectionInitiator = Args.notNull(connectionInitiator, "Connection initiator");
-        this.sessionRequester = new MultihomeIOSessionRequester(dnsResolver);
+        this.ownedDnsResolver = null;
+        this.scheduler = createScheduler(connectionAttemptDelay);
+        this.sessionRequester = new MultihomeIOSessionRequester(
+                Args.notNull(dnsResolver, "DNS resolver"), connectionAttemptDelay, scheduler);
+    }
+
+    public MultihomeConnectionInitiator(
+            final ConnectionInitiator connectionInitiator,
+            final DnsResolver dnsResolver) {
+        this(connectionInitiator, dnsResolver, null);
+    }
+
+    private static ScheduledExecutorService createScheduler(final TimeValue connectionAttemptDelay) {
+        return HappyEyeballsSupport.isEnabled(connectionAttemptDelay) ? HappyEyeballsSupport.createScheduler() : null;
     }
 
     @Override
@@ -80,4 +133,30 @@ public Future<IOSession> connect(
         return sessionRequester.connect(connectionInitiator, remoteEndpoint, localAddress, connectTimeout, attachment, callback);
     }
 
+    /**
+     * Shuts down the scheduler used to stagger concurrent connection attempts and
+     * the resolver created by this initiator, if any. Resolvers passed in by
+     * the caller are left open.
+     *
+     * @since 5.1
+     */
+    @Override
+    public void close(final CloseMode closeMode) {
+        if (scheduler != null) {
+            if (closeMode == CloseMode.IMMEDIATE) {
+                scheduler.shutdownNow();
+            } else {
+                scheduler.shutdown();
+            }
+        }
+        if (ownedDnsResolver != null) {
+            ownedDnsResolver.close(closeMode);
+        }
+    }
+
+    @Override
+    public void close() {
+        close(CloseMode.GRACEFUL);
+    }
+
 }
@@ -31,19 +31,26 @@
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
-import java.net.UnknownHostException;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.hc.client5.http.AsyncDnsResolver;
 import org.apache.hc.client5.http.ConnectExceptionSupport;
-import org.apache.hc.client5.http.DnsResolver;
-import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.impl.HappyEyeballsSupport;
+import org.apache.hc.core5.concurrent.Cancellable;
 import org.apache.hc.core5.concurrent.ComplexFuture;
 import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.io.CloseMode;
 import org.apache.hc.core5.net.NamedEndpoint;
 import org.apache.hc.core5.reactor.ConnectionInitiator;
 import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,10 +58,24 @@
 final class MultihomeIOSessionRequester {
 
     private static final Logger LOG = LoggerFactory.getLogger(MultihomeIOSessionRequester.class);
-    private final DnsResolver dnsResolver;
+    private final AsyncDnsResolver dnsResolver;
+    private final TimeValue connectionAttemptDelay;
+    private final ScheduledExecutorService scheduler;
 
-    MultihomeIOSessionRequester(final DnsResolver dnsResolver) {
-        this.dnsResolver = dnsResolver != null ? dnsResolver : SystemDefaultDnsResolver.INSTANCE;
+    /**
+     * @param dnsResolver the resolver used to look up remote endpoints. The caller
+     *  owns the resolver.
+     * @param scheduler the scheduler used to stagger concurrent connection attempts.
+     *  The caller owns the scheduler. If {@code null} addresses are always tried
+     *  sequentially.
+     */
+    MultihomeIOSessionRequester(
+            final AsyncDnsResolver dnsResolver,
+            final TimeValue connectionAttemptDelay,
+            final ScheduledExecutorService scheduler) {
+        this.dnsResolver = Args.notNull(dnsResolver, "DNS resolver");
+        this.connectionAttemptDelay = connectionAttemptDelay;
+        this.scheduler = scheduler;
     }
 
     public Future<IOSession> connect(
@@ -78,16 +99,64 @@ public Future<IOSession> connect(
         }
 
         final ComplexFuture<IOSession> future = new ComplexFuture<>(callback);
-        final InetAddress[] remoteAddresses;
-        try {
-            remoteAddresses = dnsResolver.resolve(remoteEndpoint.getHostName());
-        } catch (final UnknownHostException ex) {
-            future.failed(ex);
-            return future;
-        }
+        // The dependency is set up front so that it gets superseded by connection
+        // attempts started from the resolver callback, possibly on another thread
+        final AtomicReference<Future<InetAddress[]>> resolveFutureRef = new AtomicReference<>(null);
+        future.setDependency(new Cancellable() {
 
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("{}: resolved to {}", remoteEndpoint, Arrays.asList(remoteAddresses));
+            @Override
+            public boolean cancel() {
+                final Future<InetAddress[]> resolveFuture = resolveFutureRef.get();
+                return resolveFuture == null || resolveFuture.cancel(true);
+            }
+
+        });
+        resolveFutureRef.set(dnsResolver.resolve(remoteEndpoint.getHostName(), new FutureCallback<InetAddress[]>() {
+
+            @Override
+            public void completed(final InetAddress[] remoteAddresses) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("{}: resolved to {}", remoteEndpoint, Arrays.asList(remoteAddresses));
+                }
+                if (future.isDone()) {
+                    return;
+                }
+                connect(connectionInitiator, remoteEndpoint, remoteAddresses, localAddress, connectTimeout, attachment, future);
+            }
+
+            @Override
+            public void failed(final Exception ex) {
+                future.failed(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel();
+            }
+
+        }));
+        return future;
+    }
+
+    private void connect(
+            final ConnectionInitiator connectionInitiator,
+            final NamedEndpoint remoteEndpoint,
+            final InetAddress[] remoteAddresses,
+            final SocketAddress localAddress,
+            final Timeout connectTimeout,
+            final Object attachment,
+            final ComplexFuture<IOSession> future) {
+
+        if (scheduler != null && HappyEyeballsSupport.isEnabled(connectionAttemptDelay) && remoteAddresses.length > 1) {
+            connectConcurrently(
+                    connectionInitiator,
+                    remoteEndpoint,
+                    remoteAddresses,
+                    localAddress,
+                    connectTimeout,
+                    attachment,
+                    future);
+            return;
         }
 
         final Runnable runnable = new Runnable() {
@@ -155,7 +224,130 @@ public void run() {
 
         };
         runnable.run();
-        return future;
+    }
+
+    private void connectConcurrently(
+            final ConnectionInitiator connectionInitiator,
+            final NamedEndpoint remoteEndpoint,
+            final InetAddress[] remoteAddresses,
+            final SocketAddress localAddress,
+            final Timeout connectTimeout,
+            final Object attachment,
+            final ComplexFuture<IOSession> future) {
+
+        final InetAddress[] candidates = HappyEyeballsSupport.interleave(remoteAddresses);
+        final List<Future<?>> attempts = new CopyOnWriteArrayList<>();
+        final AtomicInteger attempt = new AtomicInteger(0);
+        final AtomicInteger failures = new AtomicInteger(0);
+        final AtomicReference<Exception> lastFailure = new AtomicReference<>(null);
+
+        future.setDependency(new Cancellable() {
+
+            @Override
+            public boolean cancel() {
+                for (final Future<?> pending: attempts) {
+                    pending.cancel(true);
+                }
+                return true;
+            }
+
+        });
+
+        final Runnable runnable = new Runnable() {
+
+            /**
+             * Starts the connection attempt with the given index unless it has already
+             * been started by a failure of a previous attempt or by the attempt timer.
+             */
+            void executeAttempt(final int index) {
+                if (future.isDone() || index >= candidates.length || !attempt.compareAndSet(index, index + 1)) {
+                    return;
+                }
+                final InetSocketAddress remoteAddress = new InetSocketAddress(candidates[index], remoteEndpoint.getPort());
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("{}: connecting {} to {} ({})", remoteEndpoint, localAddress, remoteAddress, connectTimeout);
+                }
+
+                final Future<IOSession> sessionFuture = connectionInitiator.connect(
+                        remoteEndpoint,
+                        remoteAddress,
+                        localAddress,
+                        connectTimeout,
+                        attachment,
+                        new FutureCallback<IOSession>() {
+
+                            @Override
+                            public void completed(final IOSession session) {
+                                if (future.completed(session)) {
+                                    if (LOG.isDebugEnabled()) {
+                                        LOG.debug("{}: connected {} {}->{}", remoteEndpoint, session.getId(), session.getLocalAddress(), session.getRemoteAddress());
+                                    }
+                                    for (final Future<?> pending: attempts) {
+                                        pending.cancel(true);
+                                    }
+                                } else {
+                                    if (LOG.isDebugEnabled()) {
+                                        LOG.debug("{}: discarding redundant connection {} to {}", remoteEndpoint, session.getId(), remoteAddress);
+                                    }
+                                    session.close(CloseMode.IMMEDIATE);
+                                }
+                            }
+
+                            @Override
+                            public void failed(final Exception cause) {
+                                lastFailure.set(cause);
+                                if (failures.incrementAndGet() >= candidates.length) {
+                                    if (LOG.isDebugEnabled()) {
+                                        LOG.debug("{}: connection to {} failed ({}); terminating operation", remoteEndpoint, remoteAddress, cause.getClass());
+                                    }
+                                    if (cause instanceof IOException) {
+                                        future.failed(ConnectExceptionSupport.enhance((IOException) cause, remoteEndpoint, remoteAddresses));
+                                    } else {
+                                        future.failed(cause);
+                                    }
+                                } else {
+                                    if (LOG.isDebugEnabled()) {
+                                        LOG.debug("{}: connection to {} failed ({}); starting next connection attempt", remoteEndpoint, remoteAddress, cause.getClass());
+                                    }
+                                    // Start the next attempt right away; its pending timer becomes a no-op
+                                    executeAttempt(attempt.get());
+                                }
+                            }
+
+                            @Override
+                            public void cancelled() {
+                                if (failures.incrementAndGet() >= candidates.length) {
+                                    final Exception cause = lastFailure.get();
+                                    if (cause != null) {
+                                        future.failed(cause);
+                                    } else {
+                                        future.cancel();
+                                    }
+                                }
+                            }
+
+                        });
+                attempts.add(sessionFuture);
+                if (index + 1 < candidates.length) {
+                    attempts.add(scheduler.schedule(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            executeAttempt(index + 1);
+                        }
+
+                    }, connectionAttemptDelay.getDuration(), connectionAttemptDelay.getTimeUnit()));
+                }
+            }
+
+            @Override
+            public void run() {
+                executeAttempt(0);
+            }
+
+        };
+        runnable.run();
     }
 
     public Future<IOSession> connect(
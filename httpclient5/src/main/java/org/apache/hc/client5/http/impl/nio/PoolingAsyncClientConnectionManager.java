@@ -30,24 +30,33 @@
 import java.net.InetSocketAddress;
 import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.hc.client5.http.AsyncDnsResolver;
 import org.apache.hc.client5.http.DnsResolver;
 import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ConnPoolMetrics;
 import org.apache.hc.client5.http.impl.ConnPoolSupport;
 import org.apache.hc.client5.http.impl.ConnectionShutdownException;
 import org.apache.hc.client5.http.nio.AsyncClientConnectionManager;
 import org.apache.hc.client5.http.nio.AsyncClientConnectionOperator;
 import org.apache.hc.client5.http.nio.AsyncConnectionEndpoint;
 import org.apache.hc.client5.http.nio.ManagedAsyncClientConnection;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
 import org.apache.hc.core5.annotation.Contract;
 import org.apache.hc.core5.annotation.Internal;
 import org.apache.hc.core5.annotation.ThreadingBehavior;
+import org.apache.hc.core5.concurrent.BasicFuture;
 import org.apache.hc.core5.concurrent.ComplexFuture;
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
 import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.function.Callback;
 import org.apache.hc.core5.http.HttpHost;
@@ -64,6 +73,7 @@
 import org.apache.hc.core5.http2.nio.command.PingCommand;
 import org.apache.hc.core5.http2.nio.support.BasicPingHandler;
 import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.io.ModalCloseable;
 import org.apache.hc.core5.pool.ConnPoolControl;
 import org.apache.hc.core5.pool.LaxConnPool;
 import org.apache.hc.core5.pool.ManagedConnPool;
@@ -108,11 +118,16 @@ public class PoolingAsyncClientConnectionManager implements AsyncClientConnectio
     public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 25;
     public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 5;
 
+    private static final ThreadFactory VALIDATION_THREAD_FACTORY = new DefaultThreadFactory("connection-validator", true);
+
     private final ManagedConnPool<HttpRoute, ManagedAsyncClientConnection> pool;
     private final AsyncClientConnectionOperator connectionOperator;
     private final AtomicBoolean closed;
+    private final AtomicLong staleConnectionCount;
 
     private volatile TimeValue validateAfterInactivity;
+    private volatile Thread validationThread;
+    private volatile ConnPoolMetrics metrics;
 
     public PoolingAsyncClientConnectionManager() {
         this(RegistryBuilder.<TlsStrategy>create()
@@ -150,6 +165,28 @@ public PoolingAsyncClientConnectionManager(
                 poolConcurrencyPolicy, poolReusePolicy, timeToLive);
     }
 
+    /**
+     * @param dnsResolver non-blocking resolver used to look up the addresses
+     *  of remote hosts. If {@code null} the system resolver is executed on
+     *  a dedicated thread pool.
+     * @param connectionAttemptDelay if positive, multi-home hosts are connected
+     *  to using the Happy Eyeballs (RFC 8305) algorithm with the given delay
+     *  between concurrent connection attempts.
+     *
+     * @since 5.1
+     */
+    public PoolingAsyncClientConnectionManager(
+            final Lookup<TlsStrategy> tlsStrategyLookup,
+            final PoolConcurrencyPolicy poolConcurrencyPolicy,
+            final PoolReusePolicy poolReusePolicy,
+            final TimeValue timeToLive,
+            final SchemePortResolver schemePortResolver,
+            final AsyncDnsResolver dnsResolver,
+            final TimeValue connectionAttemptDelay) {
+        this(new DefaultAsyncClientConnectionOperator(tlsStrategyLookup, schemePortResolver, dnsResolver, connectionAttemptDelay),
+                poolConcurrencyPolicy, poolReusePolicy, timeToLive);
+    }
+
     @Internal
     protected PoolingAsyncClientConnectionManager(
             final AsyncClientConnectionOperator connectionOperator,
@@ -177,6 +214,7 @@ protected PoolingAsyncClientConnectionManager(
                 throw new IllegalArgumentException("Unexpected PoolConcurrencyPolicy value: " + poolConcurrencyPolicy);
         }
         this.closed = new AtomicBoolean(false);
+        this.staleConnectionCount = new AtomicLong(0);
     }
 
     @Internal
@@ -186,6 +224,7 @@ protected PoolingAsyncClientConnectionManager(
         this.connectionOperator = Args.notNull(connectionOperator, "Connection operator");
         this.pool = Args.notNull(pool, "Connection pool");
         this.closed = new AtomicBoolean(false);
+        this.staleConnectionCount = new AtomicLong(0);
     }
 
     @Override
@@ -199,7 +238,14 @@ public void close(final CloseMode closeMode) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Shutdown connection pool {}", closeMode);
             }
+            final Thread validationThreadSnapshot = validationThread;
+            if (validationThreadSnapshot != null) {
+                validationThreadSnapshot.interrupt();
+            }
             this.pool.close(closeMode);
+            if (this.connectionOperator instanceof ModalCloseable) {
+                ((ModalCloseable) this.connectionOperator).close(closeMode);
+            }
             LOG.debug("Connection pool shut down");
         }
     }
@@ -222,6 +268,8 @@ public Future<AsyncConnectionEndpoint> lease(
             LOG.debug("{}: endpoint lease request ({}) {}", id, requestTimeout, ConnPoolSupport.formatStats(route, state, pool));
         }
         final ComplexFuture<AsyncConnectionEndpoint> resultFuture = new ComplexFuture<>(callback);
+        final ConnPoolMetrics metricsSnapshot = metrics;
+        final long leaseStart = metricsSnapshot != null ? System.nanoTime() : 0;
         final Future<PoolEntry<HttpRoute, ManagedAsyncClientConnection>> leaseFuture = pool.lease(
                 route, state, requestTimeout, new FutureCallback<PoolEntry<HttpRoute, ManagedAsyncClientConnection>>() {
 
@@ -243,8 +291,21 @@ void leaseCompleted(final PoolEntry<HttpRoute, ManagedAsyncClientConnection> poo
                     @Override
                     public void completed(final PoolEntry<HttpRoute, ManagedAsyncClientConnection> poolEntry) {
                         final ManagedAsyncClientConnection connection = poolEntry.getConnection();
+                        if (metricsSnapshot != null) {
+                            metricsSnapshot.record(route, ConnPoolMetrics.Phase.LEASE_WAIT, System.nanoTime() - leaseStart, TimeUnit.NANOSECONDS);
+                            if (connection != null) {
+                                metricsSnapshot.record(route, ConnPoolMetrics.Phase.IDLE,
+                                        System.currentTimeMillis() - poolEntry.getUpdated(), TimeUnit.MILLISECONDS);
+                            }
+                        }
                         final TimeValue timeValue = PoolingAsyncClientConnectionManager.this.validateAfterInactivity;
-                        if (TimeValue.isNonNegative(timeValue) && connection != null &&
+                        if (validationThread != null) {
+                            if (connection != null && !connection.isOpen()) {
+                                poolEntry.discardConnection(CloseMode.IMMEDIATE);
+                                staleConnectionCount.incrementAndGet();
+                            }
+                            leaseCompleted(poolEntry);
+                        } else if (TimeValue.isNonNegative(timeValue) && connection != null &&
                                 poolEntry.getUpdated() + timeValue.toMilliseconds() <= System.currentTimeMillis()) {
                             final ProtocolVersion protocolVersion = connection.getProtocolVersion();
                             if (protocolVersion != null && protocolVersion.greaterEquals(HttpVersion.HTTP_2_0)) {
@@ -257,6 +318,7 @@ public void execute(final Boolean result) {
                                                 LOG.debug("{}: connection {} is stale", id, ConnPoolSupport.getId(connection));
                                             }
                                             poolEntry.discardConnection(CloseMode.IMMEDIATE);
+                                            staleConnectionCount.incrementAndGet();
                                         }
                                         leaseCompleted(poolEntry);
                                     }
@@ -268,6 +330,7 @@ public void execute(final Boolean result) {
                                         LOG.debug("{}: connection {} is closed", id, ConnPoolSupport.getId(connection));
                                     }
                                     poolEntry.discardConnection(CloseMode.IMMEDIATE);
+                                    staleConnectionCount.incrementAndGet();
                                 }
                                 leaseCompleted(poolEntry);
                             }
@@ -310,6 +373,13 @@ public void release(final AsyncConnectionEndpoint endpoint, final Object state,
             LOG.debug("{}: releasing endpoint", ConnPoolSupport.getId(endpoint));
         }
         final ManagedAsyncClientConnection connection = entry.getConnection();
+        final ConnPoolMetrics metricsSnapshot = metrics;
+        if (metricsSnapshot != null && connection instanceof DefaultManagedAsyncClientConnection) {
+            final long handshakeTime = ((DefaultManagedAsyncClientConnection) connection).getAndClearHandshakeTime();
+            if (handshakeTime >= 0) {
+                metricsSnapshot.record(entry.getRoute(), ConnPoolMetrics.Phase.HANDSHAKE, handshakeTime, TimeUnit.NANOSECONDS);
+            }
+        }
         boolean reusable = connection != null && connection.isOpen();
         try {
             if (reusable) {
@@ -366,11 +436,16 @@ public Future<AsyncConnectionEndpoint> connect(
         if (LOG.isDebugEnabled()) {
             LOG.debug("{}: connecting endpoint to {} ({})", ConnPoolSupport.getId(endpoint), host, connectTimeout);
         }
+        final ConnPoolMetrics metricsSnapshot = metrics;
+        final long connectStart = metricsSnapshot != null ? System.nanoTime() : 0;
         final Future<ManagedAsyncClientConnection> connectFuture = connectionOperator.connect(
                 connectionInitiator, host, localAddress, connectTimeout, attachment, new FutureCallback<ManagedAsyncClientConnection>() {
 
                     @Override
                     public void completed(final ManagedAsyncClientConnection connection) {
+                        if (metricsSnapshot != null) {
+                            metricsSnapshot.record(route, ConnPoolMetrics.Phase.CONNECT, System.nanoTime() - connectStart, TimeUnit.NANOSECONDS);
+                        }
                         try {
                             if (LOG.isDebugEnabled()) {
                                 LOG.debug("{}: connected {}", ConnPoolSupport.getId(endpoint), ConnPoolSupport.getId(connection));
@@ -413,6 +488,113 @@ public void upgrade(
         }
     }
 
+    /**
+     * Establishes up to the given number of connections to the given route and
+     * returns them to the pool idle. Connections are established in parallel
+     * including TLS handshakes where applicable. Idle connections already in the
+     * pool count towards the number.
+     * <p>
+     * Routes tunnelled through a proxy cannot be warmed up as tunnels are
+     * established by the request execution chain.
+     * </p>
+     *
+     * @param route the route.
+     * @param connections the number of connections.
+     * @param connectionInitiator the connection initiator, usually the I/O reactor
+     *  of the client using this connection manager.
+     * @param timeout the timeout for leasing and connecting each connection.
+     * @param callback the future callback. May be {@code null}.
+     * @return future reporting the number of connections available after the
+     *  warm-up.
+     *
+     * @since 5.1
+     */
+    public Future<Integer> warmUp(
+            final HttpRoute route,
+            final int connections,
+            final ConnectionInitiator connectionInitiator,
+            final Timeout timeout,
+            final FutureCallback<Integer> callback) {
+        Args.notNull(route, "HTTP route");
+        Args.positive(connections, "Number of connections");
+        Args.notNull(connectionInitiator, "Connection initiator");
+        Args.notNull(timeout, "Timeout");
+        final BasicFuture<Integer> future = new BasicFuture<>(callback);
+        if (route.isTunnelled()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Cannot warm up tunnelled route {}", route);
+            }
+            future.completed(0);
+            return future;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Warming up {} connection(s) to {}", connections, route);
+        }
+        final AtomicInteger remaining = new AtomicInteger(connections);
+        final AtomicInteger established = new AtomicInteger(0);
+        for (int i = 0; i < connections; i++) {
+            lease("warm-up", route, null, timeout, new FutureCallback<AsyncConnectionEndpoint>() {
+
+                private void done(final AsyncConnectionEndpoint endpoint, final boolean connected) {
+                    if (endpoint != null) {
+                        release(endpoint, null, RequestConfig.DEFAULT.getConnectionKeepAlive());
+                    }
+                    if (connected) {
+                        established.incrementAndGet();
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        future.completed(established.get());
+                    }
+                }
+
+                @Override
+                public void completed(final AsyncConnectionEndpoint endpoint) {
+                    if (endpoint.isConnected()) {
+                        done(endpoint, true);
+                        return;
+                    }
+                    connect(endpoint, connectionInitiator, timeout, null, HttpClientContext.create(),
+                            new FutureCallback<AsyncConnectionEndpoint>() {
+
+                                @Override
+                                public void completed(final AsyncConnectionEndpoint result) {
+                                    done(endpoint, true);
+                                }
+
+                                @Override
+                                public void failed(final Exception ex) {
+                                    if (LOG.isDebugEnabled()) {
+                                        LOG.debug("Connection warm-up to {} failed: {}", route, ex.getMessage());
+                                    }
+                                    done(endpoint, false);
+                                }
+
+                                @Override
+                                public void cancelled() {
+                                    done(endpoint, false);
+                                }
+
+                            });
+                }
+
+                @Override
+                public void failed(final Exception ex) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Connection warm-up to {} failed: {}", route, ex.getMessage());
+                    }
+                    done(null, false);
+                }
+
+                @Override
+                public void cancelled() {
+                    done(null, false);
+                }
+
+            });
+        }
+        return future;
+    }
+
     @Override
     public Set<HttpRoute> getRoutes() {
         return pool.getRoutes();
@@ -483,6 +665,145 @@ public void setValidateAfterInactivity(final TimeValue validateAfterInactivity)
         this.validateAfterInactivity = validateAfterInactivity;
     }
 
+    /**
+     * Enables validation of idle connections by a background thread in place of
+     * checks at lease time. Once every {@code sweepInterval} idle connections
+     * closed by the opposite endpoint, as detected by the I/O reactor, get
+     * discarded and HTTP/2 connections idle for longer than
+     * {@link #getValidateAfterInactivity()} get probed with a {@code PING} frame,
+     * so that connections leased to consumers are already known to be valid.
+     *
+     * @param sweepInterval the interval between validation runs or {@code null}
+     *  to revert to validation at lease time.
+     *
+     * @since 5.1
+     */
+    public synchronized void setBackgroundValidation(final TimeValue sweepInterval) {
+        final Thread current = this.validationThread;
+        if (current != null) {
+            current.interrupt();
+            this.validationThread = null;
+        }
+        if (sweepInterval == null || this.closed.get()) {
+            return;
+        }
+        Args.positive(sweepInterval.getDuration(), "Sweep interval");
+        final Thread thread = VALIDATION_THREAD_FACTORY.newThread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        sweepInterval.sleep();
+                        validateIdle();
+                    }
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (final Exception ex) {
+                    LOG.debug("Connection validation terminated", ex);
+                }
+            }
+
+        });
+        this.validationThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Discards idle connections that have been closed and probes HTTP/2 connections
+     * idle for longer than {@link #getValidateAfterInactivity()}. Connections that
+     * fail to respond to the probe get closed and are discarded by a subsequent run.
+     * This method never blocks on I/O and is executed periodically by the background
+     * validation thread if enabled.
+     *
+     * @see #setBackgroundValidation(TimeValue)
+     *
+     * @since 5.1
+     */
+    public void validateIdle() {
+        final TimeValue timeValue = validateAfterInactivity;
+        final long threshold = System.currentTimeMillis() - (TimeValue.isNonNegative(timeValue)
+                ? timeValue.toMilliseconds() : 0);
+        final Callback<PoolEntry<HttpRoute, ManagedAsyncClientConnection>> callback =
+                new Callback<PoolEntry<HttpRoute, ManagedAsyncClientConnection>>() {
+
+            @Override
+            public void execute(final PoolEntry<HttpRoute, ManagedAsyncClientConnection> entry) {
+                final ManagedAsyncClientConnection connection = entry.getConnection();
+                if (connection == null) {
+                    return;
+                }
+                if (!connection.isOpen()) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Connection {} is closed", ConnPoolSupport.getId(connection));
+                    }
+                    entry.discardConnection(CloseMode.IMMEDIATE);
+                    staleConnectionCount.incrementAndGet();
+                    return;
+                }
+                final ProtocolVersion protocolVersion = connection.getProtocolVersion();
+                if (protocolVersion != null && protocolVersion.greaterEquals(HttpVersion.HTTP_2_0)
+                        && entry.getUpdated() <= threshold) {
+                    connection.submitCommand(new PingCommand(new BasicPingHandler(new Callback<Boolean>() {
+
+                        @Override
+                        public void execute(final Boolean result) {
+                            if (result == null || !result) {
+                                if (LOG.isDebugEnabled()) {
+                                    LOG.debug("Connection {} is stale", ConnPoolSupport.getId(connection));
+                                }
+                                connection.close(CloseMode.IMMEDIATE);
+                            }
+                        }
+
+                    })), Command.Priority.NORMAL);
+                }
+            }
+
+        };
+        if (pool instanceof StrictConnPool) {
+            ((StrictConnPool<HttpRoute, ManagedAsyncClientConnection>) pool).enumAvailable(callback);
+        } else if (pool instanceof LaxConnPool) {
+            ((LaxConnPool<HttpRoute, ManagedAsyncClientConnection>) pool).enumAvailable(callback);
+        }
+    }
+
+    /**
+     * Returns the number of connections found stale or closed and discarded by
+     * validation, either at lease time or in the background.
+     *
+     * @since 5.1
+     */
+    public long getStaleConnectionCount() {
+        return staleConnectionCount.get();
+    }
+
+    /**
+     * Returns the latency metrics recorded by this connection manager
+     * or {@code null} if metrics are not enabled.
+     *
+     * @since 5.1
+     */
+    public ConnPoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Enables recording of lease wait, connect, handshake and idle time
+     * histograms per route to the given metrics. Passing {@code null}
+     * disables recording.
+     * <p>
+     * Connect time covers establishment of the transport connection.
+     * TLS handshakes complete asynchronously and are recorded when
+     * the connection is first released back to the pool.
+     * </p>
+     *
+     * @since 5.1
+     */
+    public void setMetrics(final ConnPoolMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     private static final AtomicLong COUNT = new AtomicLong(0);
 
     class InternalConnectionEndpoint extends AsyncConnectionEndpoint implements Identifiable {
@@ -27,10 +27,13 @@
 
 package org.apache.hc.client5.http.impl.nio;
 
+import org.apache.hc.client5.http.AsyncDnsResolver;
 import org.apache.hc.client5.http.DnsResolver;
 import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.impl.ConnPoolMetrics;
 import org.apache.hc.client5.http.ssl.ConscryptClientTlsStrategy;
 import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.core5.http.config.Lookup;
 import org.apache.hc.core5.http.config.RegistryBuilder;
 import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
 import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
@@ -69,6 +72,7 @@ public class PoolingAsyncClientConnectionManagerBuilder {
     private TlsStrategy tlsStrategy;
     private SchemePortResolver schemePortResolver;
     private DnsResolver dnsResolver;
+    private AsyncDnsResolver asyncDnsResolver;
     private PoolConcurrencyPolicy poolConcurrencyPolicy;
     private PoolReusePolicy poolReusePolicy;
 
@@ -79,6 +83,9 @@ public class PoolingAsyncClientConnectionManagerBuilder {
 
     private TimeValue timeToLive;
     private TimeValue validateAfterInactivity;
+    private TimeValue backgroundValidationInterval;
+    private ConnPoolMetrics metrics;
+    private TimeValue connectionAttemptDelay;
 
     public static PoolingAsyncClientConnectionManagerBuilder create() {
         return new PoolingAsyncClientConnectionManagerBuilder();
@@ -105,6 +112,19 @@ public final PoolingAsyncClientConnectionManagerBuilder setDnsResolver(final Dns
         return this;
     }
 
+    /**
+     * Assigns {@link AsyncDnsResolver} instance. Takes precedence over
+     * the {@link DnsResolver} instance, if both are set. If neither is set,
+     * the system resolver is executed on a dedicated thread pool so that
+     * I/O reactor threads never block on name resolution.
+     *
+     * @since 5.1
+     */
+    public final PoolingAsyncClientConnectionManagerBuilder setAsyncDnsResolver(final AsyncDnsResolver asyncDnsResolver) {
+        this.asyncDnsResolver = asyncDnsResolver;
+        return this;
+    }
+
     /**
      * Assigns {@link SchemePortResolver} instance.
      */
@@ -164,6 +184,48 @@ public final PoolingAsyncClientConnectionManagerBuilder setValidateAfterInactivi
         return this;
     }
 
+    /**
+     * Enables validation of idle connections by a background thread once every
+     * given interval in place of checks at lease time.
+     *
+     * @see PoolingAsyncClientConnectionManager#setBackgroundValidation(TimeValue)
+     *
+     * @since 5.1
+     */
+    public final PoolingAsyncClientConnectionManagerBuilder setBackgroundValidation(final TimeValue sweepInterval) {
+        this.backgroundValidationInterval = sweepInterval;
+        return this;
+    }
+
+    /**
+     * Enables Happy Eyeballs (RFC 8305) connection establishment to multi-home
+     * hosts: resolved addresses are interleaved by address family and a new
+     * connection attempt is started every {@code connectionAttemptDelay}
+     * (or immediately upon failure of the previous attempt) until one of them
+     * succeeds, at which point all other attempts are cancelled. Addresses are
+     * tried sequentially if the delay is not set or not positive.
+     *
+     * @see org.apache.hc.client5.http.impl.HappyEyeballsSupport#DEFAULT_CONNECTION_ATTEMPT_DELAY
+     *
+     * @since 5.1
+     */
+    public final PoolingAsyncClientConnectionManagerBuilder setConnectionAttemptDelay(final TimeValue connectionAttemptDelay) {
+        this.connectionAttemptDelay = connectionAttemptDelay;
+        return this;
+    }
+
+    /**
+     * Enables recording of connection pool latency metrics.
+     *
+     * @see PoolingAsyncClientConnectionManager#setMetrics(ConnPoolMetrics)
+     *
+     * @since 5.1
+     */
+    public final PoolingAsyncClientConnectionManagerBuilder setMetrics(final ConnPoolMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     /**
      * Use system properties when creating and configuring default
      * implementations.
@@ -192,16 +254,27 @@ public PoolingAsyncClientConnectionManager build() {
                 }
             }
         }
+        final Lookup<TlsStrategy> tlsStrategyLookup = RegistryBuilder.<TlsStrategy>create()
+                .register("https", tlsStrategyCopy)
+                .build();
+        // The operator closes the resolver only if it wraps a blocking one itself
+        final DefaultAsyncClientConnectionOperator connectionOperator = asyncDnsResolver != null
+                ? new DefaultAsyncClientConnectionOperator(
+                        tlsStrategyLookup, schemePortResolver, asyncDnsResolver, connectionAttemptDelay)
+                : new DefaultAsyncClientConnectionOperator(
+                        tlsStrategyLookup, schemePortResolver, dnsResolver, connectionAttemptDelay);
         final PoolingAsyncClientConnectionManager poolingmgr = new PoolingAsyncClientConnectionManager(
-                RegistryBuilder.<TlsStrategy>create()
-                        .register("https", tlsStrategyCopy)
-                        .build(),
+                connectionOperator,
                 poolConcurrencyPolicy,
                 poolReusePolicy,
-                timeToLive,
-                schemePortResolver,
-                dnsResolver);
+                timeToLive);
         poolingmgr.setValidateAfterInactivity(this.validateAfterInactivity);
+        if (backgroundValidationInterval != null) {
+            poolingmgr.setBackgroundValidation(backgroundValidationInterval);
+        }
+        if (metrics != null) {
+            poolingmgr.setMetrics(metrics);
+        }
         if (maxConnTotal > 0) {
             poolingmgr.setMaxTotal(maxConnTotal);
         }
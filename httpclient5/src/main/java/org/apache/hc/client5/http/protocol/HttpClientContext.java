@@ -31,6 +31,7 @@
 import java.util.Map;
 
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RequestEventListener;
 import org.apache.hc.client5.http.RouteInfo;
 import org.apache.hc.client5.http.auth.AuthCache;
 import org.apache.hc.client5.http.auth.AuthExchange;
@@ -130,6 +131,14 @@ public class HttpClientContext extends HttpCoreContext {
      */
     public static final String REQUEST_CONFIG = "http.request-config";
 
+    /**
+     * Attribute name of a {@link RequestEventListener} object that
+     * receives request execution events.
+     *
+     * @since 5.1
+     */
+    public static final String REQUEST_EVENT_LISTENER = "http.request-event-listener";
+
     public static HttpClientContext adapt(final HttpContext context) {
         Args.notNull(context, "HTTP context");
         if (context instanceof HttpClientContext) {
@@ -275,4 +284,18 @@ public void setRequestConfig(final RequestConfig config) {
         setAttribute(REQUEST_CONFIG, config);
     }
 
+    /**
+     * @since 5.1
+     */
+    public RequestEventListener getRequestEventListener() {
+        return getAttribute(REQUEST_EVENT_LISTENER, RequestEventListener.class);
+    }
+
+    /**
+     * @since 5.1
+     */
+    public void setRequestEventListener(final RequestEventListener listener) {
+        setAttribute(REQUEST_EVENT_LISTENER, listener);
+    }
+
 }
@@ -36,6 +36,7 @@
 import org.apache.hc.client5.http.cookie.StandardCookieSpec;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.cookie.Cookie;
+import org.apache.hc.client5.http.cookie.CookieLookup;
 import org.apache.hc.client5.http.cookie.CookieOrigin;
 import org.apache.hc.client5.http.cookie.CookieSpec;
 import org.apache.hc.client5.http.cookie.CookieSpecFactory;
@@ -139,11 +140,14 @@ public void process(final HttpRequest request, final EntityDetails entity, final
             return;
         }
         final CookieSpec cookieSpec = factory.create(clientContext);
-        // Get all cookies available in the HTTP state
-        final List<Cookie> cookies = cookieStore.getCookies();
+        final Date now = new Date();
+        // Get cookies available in the HTTP state. Indexed stores only return
+        // unexpired cookies relevant to the origin and evict expired ones themselves
+        final List<Cookie> cookies = cookieStore instanceof CookieLookup
+                ? ((CookieLookup) cookieStore).getCookies(cookieOrigin, now)
+                : cookieStore.getCookies();
         // Find cookies matching the given origin
         final List<Cookie> matchedCookies = new ArrayList<>();
-        final Date now = new Date();
         boolean expired = false;
         for (final Cookie cookie : cookies) {
             if (!cookie.isExpired(now)) {
@@ -47,6 +47,8 @@
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 
+import org.apache.hc.client5.http.RequestEventListener;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.socket.LayeredConnectionSocketFactory;
 import org.apache.hc.core5.annotation.Contract;
 import org.apache.hc.core5.annotation.ThreadingBehavior;
@@ -269,9 +271,17 @@ public Socket createLayeredSocket(
         }
 
         prepareSocket(sslsock);
+        final RequestEventListener listener = context != null ?
+                (RequestEventListener) context.getAttribute(HttpClientContext.REQUEST_EVENT_LISTENER) : null;
+        if (listener != null) {
+            listener.secureConnectStart(target, context);
+        }
         LOG.debug("Starting handshake");
         sslsock.startHandshake();
         verifyHostname(sslsock, target);
+        if (listener != null) {
+            listener.secureConnectEnd(sslsock.getSession(), context);
+        }
         return sslsock;
     }
 
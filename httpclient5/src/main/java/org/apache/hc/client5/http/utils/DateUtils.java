@@ -117,6 +117,64 @@ public static Date parseDate(final MessageHeaders headers, final String headerNa
         return parseDate(header.getValue(), null, null);
     }
 
+    /**
+     * Parses a date value in one of the standard HTTP date formats (IMF-fixdate,
+     * RFC 850 or ANSI C {@code asctime()}) into milliseconds since the epoch.
+     * <p>
+     * Well-formed values are parsed without intermediate object allocation.
+     * Anything else is handed over to {@link #parseDate(String)}.
+     * </p>
+     *
+     * @param dateValue the date value to parse
+     *
+     * @return the parsed date in milliseconds since the epoch or {@link Long#MIN_VALUE}
+     *  if input could not be parsed
+     *
+     * @since 5.1
+     */
+    public static long parseEpochMillis(final CharSequence dateValue) {
+        Args.notNull(dateValue, "Date value");
+        int start = 0;
+        int end = dateValue.length();
+        // trim single quotes around date if present
+        if (end > 1 && dateValue.charAt(0) == '\'' && dateValue.charAt(end - 1) == '\'') {
+            start++;
+            end--;
+        }
+        final long millis = parseStandardDate(dateValue, start, end);
+        if (millis != Long.MIN_VALUE) {
+            return millis;
+        }
+        final Date date = parseWithPatterns(dateValue.subSequence(start, end).toString(),
+                DEFAULT_PATTERNS, DEFAULT_TWO_DIGIT_YEAR_START);
+        return date != null ? date.getTime() : Long.MIN_VALUE;
+    }
+
+    /**
+     * Parses a date value from a header with the given name into milliseconds
+     * since the epoch.
+     *
+     * @param headers message headers
+     * @param headerName header name
+     *
+     * @return the parsed date in milliseconds since the epoch or {@link Long#MIN_VALUE}
+     *  if the header is absent or could not be parsed
+     *
+     * @see #parseEpochMillis(CharSequence)
+     *
+     * @since 5.1
+     */
+    public static long parseEpochMillis(final MessageHeaders headers, final String headerName) {
+        if (headers == null) {
+            return Long.MIN_VALUE;
+        }
+        final Header header = headers.getFirstHeader(headerName);
+        if (header == null) {
+            return Long.MIN_VALUE;
+        }
+        return parseEpochMillis(header.getValue());
+    }
+
     /**
      * Tests if the first message is after (newer) than second one
      * using the given message header for comparison.
@@ -140,11 +198,11 @@ public static boolean isAfter(
             if (dateHeader1 != null) {
                 final Header dateHeader2 = message2.getFirstHeader(headerName);
                 if (dateHeader2 != null) {
-                    final Date date1 = parseDate(dateHeader1.getValue());
-                    if (date1 != null) {
-                        final Date date2 = parseDate(dateHeader2.getValue());
-                        if (date2 != null) {
-                            return date1.after(date2);
+                    final long date1 = parseEpochMillis(dateHeader1.getValue());
+                    if (date1 != Long.MIN_VALUE) {
+                        final long date2 = parseEpochMillis(dateHeader2.getValue());
+                        if (date2 != Long.MIN_VALUE) {
+                            return date1 > date2;
                         }
                     }
                 }
@@ -176,11 +234,11 @@ public static boolean isBefore(
             if (dateHeader1 != null) {
                 final Header dateHeader2 = message2.getFirstHeader(headerName);
                 if (dateHeader2 != null) {
-                    final Date date1 = parseDate(dateHeader1.getValue());
-                    if (date1 != null) {
-                        final Date date2 = parseDate(dateHeader2.getValue());
-                        if (date2 != null) {
-                            return date1.before(date2);
+                    final long date1 = parseEpochMillis(dateHeader1.getValue());
+                    if (date1 != Long.MIN_VALUE) {
+                        final long date2 = parseEpochMillis(dateHeader2.getValue());
+                        if (date2 != Long.MIN_VALUE) {
+                            return date1 < date2;
                         }
                     }
                 }
@@ -218,6 +276,10 @@ public static Date parseDate(
             final String[] dateFormats,
             final Date startDate) {
         Args.notNull(dateValue, "Date value");
+        if (dateFormats == null && startDate == null) {
+            final long millis = parseEpochMillis(dateValue);
+            return millis != Long.MIN_VALUE ? new Date(millis) : null;
+        }
         final String[] localDateFormats = dateFormats != null ? dateFormats : DEFAULT_PATTERNS;
         final Date localStartDate = startDate != null ? startDate : DEFAULT_TWO_DIGIT_YEAR_START;
         String v = dateValue;
@@ -226,7 +288,13 @@ public static Date parseDate(
         if (v.length() > 1 && v.startsWith("'") && v.endsWith("'")) {
             v = v.substring (1, v.length() - 1);
         }
+        return parseWithPatterns(v, localDateFormats, localStartDate);
+    }
 
+    private static Date parseWithPatterns(
+            final String v,
+            final String[] localDateFormats,
+            final Date localStartDate) {
         for (final String dateFormat : localDateFormats) {
             final SimpleDateFormat dateParser = DateFormatHolder.formatFor(dateFormat);
             dateParser.set2DigitYearStart(localStartDate);
@@ -248,7 +316,33 @@ public static Date parseDate(
      * @see #PATTERN_RFC1123
      */
     public static String formatDate(final Date date) {
-        return formatDate(date, PATTERN_RFC1123);
+        Args.notNull(date, "Date");
+        return formatEpochMillis(date.getTime());
+    }
+
+    /**
+     * Formats the given point in time according to the RFC 1123 pattern.
+     * <p>
+     * The most recently formatted second is cached, so repeated calls with
+     * the current time do not re-format the date.
+     * </p>
+     *
+     * @param epochMillis milliseconds since the epoch.
+     * @return An RFC 1123 formatted date string.
+     *
+     * @see #PATTERN_RFC1123
+     *
+     * @since 5.1
+     */
+    public static String formatEpochMillis(final long epochMillis) {
+        final long second = floorDiv(epochMillis, 1000);
+        final FormattedSecond cached = lastFormatted;
+        if (cached != null && cached.second == second) {
+            return cached.value;
+        }
+        final String value = formatStandardDate(epochMillis);
+        lastFormatted = new FormattedSecond(second, value);
+        return value;
     }
 
     /**
@@ -268,6 +362,8 @@ public static String formatDate(final Date date, final String pattern) {
         Args.notNull(date, "Date");
         Args.notNull(pattern, "Pattern");
         final SimpleDateFormat formatter = DateFormatHolder.formatFor(pattern);
+        // parsing a date with a time zone other than GMT changes the time zone of the formatter
+        formatter.setTimeZone(GMT);
         return formatter.format(date);
     }
 
@@ -280,6 +376,222 @@ public static void clearThreadLocal() {
         DateFormatHolder.clearThreadLocal();
     }
 
+    private static final String[] DAY_NAMES = {
+        "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"
+    };
+
+    private static final String[] LONG_DAY_NAMES = {
+        "Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"
+    };
+
+    private static final String[] MONTH_NAMES = {
+        "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    /**
+     * Years outside of this range are left to {@link SimpleDateFormat}, which
+     * uses the Julian calendar for dates before the Gregorian cutover.
+     */
+    private static final int MIN_YEAR = 1600;
+    private static final int MAX_YEAR = 9999;
+
+    private static final class FormattedSecond {
+
+        final long second;
+        final String value;
+
+        FormattedSecond(final long second, final String value) {
+            this.second = second;
+            this.value = value;
+        }
+
+    }
+
+    private static volatile FormattedSecond lastFormatted;
+
+    /**
+     * Parses well-formed IMF-fixdate, RFC 850 and {@code asctime()} dates
+     * as defined by RFC 7231 section 7.1.1.1. Returns {@link Long#MIN_VALUE}
+     * for any other input including values that {@link SimpleDateFormat}
+     * would accept leniently.
+     */
+    static long parseStandardDate(final CharSequence s, final int start, final int end) {
+        final int len = end - start;
+        if (len == 29 && s.charAt(start + 3) == ',') {
+            // Sun, 06 Nov 1994 08:49:37 GMT
+            if (matchName(s, start, 3, DAY_NAMES) < 0
+                    || s.charAt(start + 4) != ' ' || s.charAt(start + 7) != ' '
+                    || s.charAt(start + 11) != ' ' || s.charAt(start + 16) != ' '
+                    || !isGMT(s, start + 25)) {
+                return Long.MIN_VALUE;
+            }
+            return toEpochMillis(
+                    parseDigits(s, start + 12, 4),
+                    matchName(s, start + 8, 3, MONTH_NAMES),
+                    parseDigits(s, start + 5, 2),
+                    s, start + 17);
+        }
+        if (len == 24 && s.charAt(start + 3) == ' ') {
+            // Sun Nov  6 08:49:37 1994
+            if (matchName(s, start, 3, DAY_NAMES) < 0
+                    || s.charAt(start + 7) != ' ' || s.charAt(start + 10) != ' '
+                    || s.charAt(start + 19) != ' ') {
+                return Long.MIN_VALUE;
+            }
+            final int day = s.charAt(start + 8) == ' ' ? parseDigits(s, start + 9, 1) : parseDigits(s, start + 8, 2);
+            return toEpochMillis(
+                    parseDigits(s, start + 20, 4),
+                    matchName(s, start + 4, 3, MONTH_NAMES),
+                    day,
+                    s, start + 11);
+        }
+        // Sunday, 06-Nov-94 08:49:37 GMT
+        final int comma = len - 24;
+        if (comma >= 6 && comma <= 9 && s.charAt(start + comma) == ',') {
+            final int pos = start + comma + 1;
+            if (matchName(s, start, comma, LONG_DAY_NAMES) < 0
+                    || s.charAt(pos) != ' ' || s.charAt(pos + 3) != '-' || s.charAt(pos + 7) != '-'
+                    || s.charAt(pos + 10) != ' ' || s.charAt(pos + 19) != ' '
+                    || !isGMT(s, pos + 20)) {
+                return Long.MIN_VALUE;
+            }
+            final int year = parseDigits(s, pos + 8, 2);
+            // two digit years are placed in the default range 2000 - 2099
+            return toEpochMillis(
+                    year >= 0 ? 2000 + year : -1,
+                    matchName(s, pos + 4, 3, MONTH_NAMES),
+                    parseDigits(s, pos + 1, 2),
+                    s, pos + 11);
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private static long toEpochMillis(
+            final int year, final int month, final int day, final CharSequence s, final int timePos) {
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 0 || day < 1 || day > daysInMonth(year, month)
+                || s.charAt(timePos + 2) != ':' || s.charAt(timePos + 5) != ':') {
+            return Long.MIN_VALUE;
+        }
+        final int hour = parseDigits(s, timePos, 2);
+        final int minute = parseDigits(s, timePos + 3, 2);
+        final int second = parseDigits(s, timePos + 6, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        final long days = daysFromCivil(year, month + 1, day);
+        return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L;
+    }
+
+    private static boolean isGMT(final CharSequence s, final int pos) {
+        return s.charAt(pos) == ' ' && s.charAt(pos + 1) == 'G' && s.charAt(pos + 2) == 'M' && s.charAt(pos + 3) == 'T';
+    }
+
+    private static int parseDigits(final CharSequence s, final int pos, final int count) {
+        int n = 0;
+        for (int i = pos; i < pos + count; i++) {
+            final char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return -1;
+            }
+            n = n * 10 + (ch - '0');
+        }
+        return n;
+    }
+
+    private static int matchName(final CharSequence s, final int pos, final int len, final String[] names) {
+        for (int i = 0; i < names.length; i++) {
+            final String name = names[i];
+            if (name.length() == len) {
+                int j = 0;
+                while (j < len && s.charAt(pos + j) == name.charAt(j)) {
+                    j++;
+                }
+                if (j == len) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isLeapYear(final long year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    private static int daysInMonth(final int year, final int month) {
+        switch (month) {
+            case 1:
+                return isLeapYear(year) ? 29 : 28;
+            case 3:
+            case 5:
+            case 8:
+            case 10:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static long floorDiv(final long x, final long y) {
+        final long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    /**
+     * Days since the epoch of the given proleptic Gregorian date, month being 1 - 12.
+     */
+    private static long daysFromCivil(final long year, final int month, final int day) {
+        final long y = month <= 2 ? year - 1 : year;
+        final long era = floorDiv(y, 400);
+        final long yoe = y - era * 400;
+        final long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    static String formatStandardDate(final long epochMillis) {
+        final long days = floorDiv(epochMillis, 86400000L);
+        final long z = days + 719468;
+        final long era = floorDiv(z, 146097);
+        final long doe = z - era * 146097;
+        final long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        final long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        final long mp = (5 * doy + 2) / 153;
+        final int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        final int month = (int) (mp < 10 ? mp + 2 : mp - 10);
+        final long year = yoe + era * 400 + (month <= 1 ? 1 : 0);
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            return formatDate(new Date(epochMillis), PATTERN_RFC1123);
+        }
+        final long millisOfDay = epochMillis - days * 86400000L;
+        final int secondOfDay = (int) (millisOfDay / 1000);
+        // 1970-01-01 was a Thursday
+        final int dayOfWeek = (int) (days + 4 - floorDiv(days + 4, 7) * 7);
+        final StringBuilder buf = new StringBuilder(29);
+        buf.append(DAY_NAMES[dayOfWeek]).append(", ");
+        appendDigits(buf, day, 2);
+        buf.append(' ').append(MONTH_NAMES[month]).append(' ');
+        appendDigits(buf, (int) year, 4);
+        buf.append(' ');
+        appendDigits(buf, secondOfDay / 3600, 2);
+        buf.append(':');
+        appendDigits(buf, secondOfDay / 60 % 60, 2);
+        buf.append(':');
+        appendDigits(buf, secondOfDay % 60, 2);
+        buf.append(" GMT");
+        return buf.toString();
+    }
+
+    private static void appendDigits(final StringBuilder buf, final int value, final int count) {
+        int divisor = 1;
+        for (int i = 1; i < count; i++) {
+            divisor *= 10;
+        }
+        for (int d = divisor; d > 0; d /= 10) {
+            buf.append((char) ('0' + value / d % 10));
+        }
+    }
+
     /** This class should not be instantiated. */
     private DateUtils() {
     }
@@ -0,0 +1,136 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.entity;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestContentDecoderRegistry {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testBuiltIns() throws Exception {
+        final ContentDecoderRegistry registry = ContentDecoderRegistry.custom().registerBuiltIns().build();
+        Assert.assertSame(GZIPInputStreamFactory.getInstance(), registry.lookup("gzip"));
+        Assert.assertSame(GZIPInputStreamFactory.getInstance(), registry.lookup("X-GZip"));
+        Assert.assertSame(DeflateInputStreamFactory.getInstance(), registry.lookup("deflate"));
+        Assert.assertNull(registry.lookup("br"));
+        Assert.assertEquals(Arrays.asList("gzip", "x-gzip", "deflate"), registry.getAcceptEncoding());
+    }
+
+    @Test
+    public void testQualities() throws Exception {
+        final ContentDecoderRegistry registry = ContentDecoderRegistry.custom()
+                .registerBuiltIns()
+                .register("identity", new DummyProvider().getInputStreamFactory(), 0.25f)
+                .setQuality("x-gzip", 0f)
+                .setQuality("deflate", 0.5f)
+                .setQuality("unknown", 0.5f)
+                .build();
+        Assert.assertEquals(Arrays.asList("gzip", "deflate;q=0.5", "identity;q=0.25"), registry.getAcceptEncoding());
+        Assert.assertNotNull(registry.lookup("x-gzip"));
+        Assert.assertEquals(0.5f, registry.getQuality("Deflate"), 0.0001f);
+        Assert.assertEquals(0f, registry.getQuality("unknown"), 0.0001f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQuality() throws Exception {
+        ContentDecoderRegistry.custom().register("gzip", GZIPInputStreamFactory.getInstance(), 1.5f);
+    }
+
+    @Test
+    public void testFormatToken() throws Exception {
+        Assert.assertEquals("br", ContentDecoderRegistry.formatToken("br", 1f));
+        Assert.assertEquals("br;q=0.9", ContentDecoderRegistry.formatToken("br", 0.9f));
+        Assert.assertEquals("br;q=0.125", ContentDecoderRegistry.formatToken("br", 0.125f));
+        Assert.assertEquals("br;q=0.05", ContentDecoderRegistry.formatToken("br", 0.05f));
+        Assert.assertEquals("br;q=0.0", ContentDecoderRegistry.formatToken("br", 0.0001f));
+    }
+
+    @Test
+    public void testLoadProviders() throws Exception {
+        final File dir = tempFolder.newFolder();
+        final File services = new File(dir, "META-INF/services");
+        Assert.assertTrue(services.mkdirs());
+        final OutputStream out = new FileOutputStream(new File(services, ContentDecoderProvider.class.getName()));
+        try {
+            out.write((DummyProvider.class.getName() + "\n" + "com.example.MissingProvider\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            out.close();
+        }
+        final ClassLoader classLoader = new URLClassLoader(new URL[] { dir.toURI().toURL() },
+                getClass().getClassLoader());
+        final ContentDecoderRegistry registry = ContentDecoderRegistry.custom()
+                .registerBuiltIns()
+                .loadProviders(classLoader)
+                .build();
+        Assert.assertNotNull(registry.lookup("dummy"));
+        Assert.assertEquals(Arrays.asList("gzip", "x-gzip", "deflate", "dummy;q=0.8"), registry.getAcceptEncoding());
+    }
+
+    public static class DummyProvider implements ContentDecoderProvider {
+
+        @Override
+        public String getContentEncoding() {
+            return "dummy";
+        }
+
+        @Override
+        public InputStreamFactory getInputStreamFactory() {
+            return new InputStreamFactory() {
+
+                @Override
+                public InputStream create(final InputStream inputStream) throws IOException {
+                    return inputStream;
+                }
+
+            };
+        }
+
+        @Override
+        public float getQuality() {
+            return 0.8f;
+        }
+
+    }
+
+}
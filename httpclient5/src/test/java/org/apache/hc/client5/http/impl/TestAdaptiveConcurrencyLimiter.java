@@ -0,0 +1,190 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+public class TestAdaptiveConcurrencyLimiter {
+
+    private ConnPoolControl<HttpRoute> connPerRoute;
+    private AdaptiveConcurrencyLimiter limiter;
+    private HttpRoute route;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+        connPerRoute = Mockito.mock(ConnPoolControl.class);
+        limiter = new AdaptiveConcurrencyLimiter(connPerRoute);
+        limiter.setInitialLimit(4);
+        limiter.setMaxLimit(20);
+        route = new HttpRoute(new HttpHost("somehost", 80));
+    }
+
+    @Test
+    public void testRejectsWhenSaturated() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(limiter.tryAcquire(route));
+        }
+        Assert.assertFalse(limiter.tryAcquire(route));
+        Assert.assertFalse(limiter.acquire(route, Timeout.ofMilliseconds(10)));
+        Assert.assertEquals(4, limiter.getInFlight(route));
+
+        limiter.onIgnored(route);
+        Assert.assertEquals(3, limiter.getInFlight(route));
+        Assert.assertTrue(limiter.tryAcquire(route));
+    }
+
+    @Test
+    public void testInitialLimitAppliedToPool() throws Exception {
+        limiter.tryAcquire(route);
+        Mockito.verify(connPerRoute).setMaxPerRoute(route, 4);
+    }
+
+    @Test
+    public void testBackOffReducesLimit() throws Exception {
+        limiter.setInitialLimit(16);
+        Assert.assertEquals(16, limiter.getLimit(route));
+        Assert.assertTrue(limiter.tryAcquire(route));
+        limiter.onDropped(route);
+        Assert.assertEquals(12, limiter.getLimit(route));
+        Assert.assertEquals(0, limiter.getInFlight(route));
+        Mockito.verify(connPerRoute).setMaxPerRoute(route, 12);
+    }
+
+    @Test
+    public void testConcurrentBackOffsReachPoolInOrder() throws Exception {
+        limiter.setInitialLimit(20);
+        limiter.setMinLimit(1);
+        limiter.setBackoffRatio(0.9);
+        limiter.getLimit(route);
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int n = 0; n < 50; n++) {
+                        limiter.backOff(route);
+                    }
+                }
+
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final ArgumentCaptor<Integer> captor = ArgumentCaptor.forClass(Integer.class);
+        Mockito.verify(connPerRoute, Mockito.atLeastOnce()).setMaxPerRoute(Mockito.eq(route), captor.capture());
+        final List<Integer> applied = captor.getAllValues();
+        for (int i = 1; i < applied.size(); i++) {
+            Assert.assertTrue(applied.get(i) < applied.get(i - 1));
+        }
+        Assert.assertEquals(limiter.getLimit(route), applied.get(applied.size() - 1).intValue());
+    }
+
+    @Test
+    public void testBackOffDoesNotGoBelowMinimum() throws Exception {
+        limiter.setMinLimit(2);
+        for (int i = 0; i < 10; i++) {
+            limiter.backOff(route);
+        }
+        Assert.assertEquals(2, limiter.getLimit(route));
+    }
+
+    @Test
+    public void testLimitGrowsWithStableLatency() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            for (int n = 0; n < limiter.getLimit(route); n++) {
+                Assert.assertTrue(limiter.tryAcquire(route));
+            }
+            final int inFlight = limiter.getInFlight(route);
+            for (int n = 0; n < inFlight; n++) {
+                limiter.onSuccess(route, 10, TimeUnit.MILLISECONDS);
+            }
+        }
+        Assert.assertEquals(20, limiter.getLimit(route));
+        Mockito.verify(connPerRoute).setMaxPerRoute(route, 20);
+    }
+
+    @Test
+    public void testLimitDoesNotGrowWhenUnderutilized() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            Assert.assertTrue(limiter.tryAcquire(route));
+            limiter.onSuccess(route, 10, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertEquals(4, limiter.getLimit(route));
+    }
+
+    @Test
+    public void testLimitShrinksWithGrowingLatency() throws Exception {
+        limiter.setInitialLimit(20);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(limiter.tryAcquire(route));
+            limiter.onSuccess(route, 10, TimeUnit.MILLISECONDS);
+        }
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(limiter.tryAcquire(route));
+            limiter.onSuccess(route, 100, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertTrue(limiter.getLimit(route) < 20);
+    }
+
+    @Test
+    public void testQueuedRequestAcquiresReleasedPermit() throws Exception {
+        limiter.setInitialLimit(1);
+        Assert.assertTrue(limiter.tryAcquire(route));
+        final Thread releaser = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (final InterruptedException ignore) {
+                }
+                limiter.onIgnored(route);
+            }
+
+        });
+        releaser.start();
+        Assert.assertTrue(limiter.acquire(route, Timeout.ofSeconds(5)));
+        releaser.join();
+        Assert.assertEquals(1, limiter.getInFlight(route));
+    }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestCachingDnsResolver {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+
+    };
+
+    private DnsResolver dnsResolver;
+    private InetAddress ip1;
+    private InetAddress ip2;
+
+    @Before
+    public void setup() throws Exception {
+        dnsResolver = Mockito.mock(DnsResolver.class);
+        ip1 = InetAddress.getByAddress("somehost", new byte[] { 10, 0, 0, 1 });
+        ip2 = InetAddress.getByAddress("somehost", new byte[] { 10, 0, 0, 2 });
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[] { ip1, ip2 });
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver);
+        final InetAddress[] addresses1 = resolver.resolve("somehost");
+        final InetAddress[] addresses2 = resolver.resolve("somehost");
+        Assert.assertArrayEquals(new InetAddress[] { ip1, ip2 }, addresses1);
+        Assert.assertArrayEquals(new InetAddress[] { ip1, ip2 }, addresses2);
+        Assert.assertNotSame(addresses1, addresses2);
+
+        Mockito.verify(dnsResolver, Mockito.times(1)).resolve("somehost");
+        Assert.assertEquals(1, resolver.getMissCount());
+        Assert.assertEquals(1, resolver.getHitCount());
+        Assert.assertEquals(1, resolver.size());
+    }
+
+    @Test
+    public void testEntryExpiry() throws Exception {
+        Mockito.when(dnsResolver.resolve("somehost"))
+                .thenReturn(new InetAddress[] { ip1 })
+                .thenReturn(new InetAddress[] { ip2 });
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver,
+                TimeValue.ofMilliseconds(50), TimeValue.ZERO_MILLISECONDS, TimeValue.ZERO_MILLISECONDS,
+                10, DIRECT_EXECUTOR);
+        Assert.assertArrayEquals(new InetAddress[] { ip1 }, resolver.resolve("somehost"));
+        Thread.sleep(100);
+        Assert.assertArrayEquals(new InetAddress[] { ip2 }, resolver.resolve("somehost"));
+        Assert.assertEquals(2, resolver.getMissCount());
+        Assert.assertEquals(0, resolver.getRefreshCount());
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+        Mockito.when(dnsResolver.resolve("somehost")).thenThrow(new UnknownHostException("somehost"));
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver);
+        for (int i = 0; i < 3; i++) {
+            try {
+                resolver.resolve("somehost");
+                Assert.fail("UnknownHostException expected");
+            } catch (final UnknownHostException expected) {
+            }
+        }
+        Mockito.verify(dnsResolver, Mockito.times(1)).resolve("somehost");
+        Assert.assertEquals(2, resolver.getHitCount());
+    }
+
+    @Test
+    public void testNegativeCachingDisabled() throws Exception {
+        Mockito.when(dnsResolver.resolve("somehost")).thenThrow(new UnknownHostException("somehost"));
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver,
+                TimeValue.ofSeconds(60), TimeValue.ZERO_MILLISECONDS, TimeValue.ZERO_MILLISECONDS,
+                10, DIRECT_EXECUTOR);
+        for (int i = 0; i < 2; i++) {
+            try {
+                resolver.resolve("somehost");
+                Assert.fail("UnknownHostException expected");
+            } catch (final UnknownHostException expected) {
+            }
+        }
+        Mockito.verify(dnsResolver, Mockito.times(2)).resolve("somehost");
+        Assert.assertEquals(0, resolver.size());
+    }
+
+    @Test
+    public void testLruEviction() throws Exception {
+        Mockito.when(dnsResolver.resolve(Mockito.anyString())).thenReturn(new InetAddress[] { ip1 });
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver,
+                TimeValue.ofSeconds(60), TimeValue.ofSeconds(60), TimeValue.ZERO_MILLISECONDS,
+                2, DIRECT_EXECUTOR);
+        resolver.resolve("host1");
+        resolver.resolve("host2");
+        resolver.resolve("host1");
+        resolver.resolve("host3");
+        Assert.assertEquals(2, resolver.size());
+
+        resolver.resolve("host1");
+        resolver.resolve("host2");
+        Mockito.verify(dnsResolver, Mockito.times(1)).resolve("host1");
+        Mockito.verify(dnsResolver, Mockito.times(2)).resolve("host2");
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        Mockito.when(dnsResolver.resolve("somehost"))
+                .thenReturn(new InetAddress[] { ip1 })
+                .thenReturn(new InetAddress[] { ip2 });
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver,
+                TimeValue.ofSeconds(60), TimeValue.ZERO_MILLISECONDS, TimeValue.ofSeconds(60),
+                10, DIRECT_EXECUTOR);
+        Assert.assertArrayEquals(new InetAddress[] { ip1 }, resolver.resolve("somehost"));
+        // Served from cache while the refresh runs
+        Assert.assertArrayEquals(new InetAddress[] { ip1 }, resolver.resolve("somehost"));
+        Assert.assertEquals(1, resolver.getRefreshCount());
+        Assert.assertArrayEquals(new InetAddress[] { ip2 }, resolver.resolve("somehost"));
+        Assert.assertEquals(1, resolver.getMissCount());
+    }
+
+    @Test
+    public void testRefreshFailureKeepsEntry() throws Exception {
+        Mockito.when(dnsResolver.resolve("somehost"))
+                .thenReturn(new InetAddress[] { ip1 })
+                .thenThrow(new UnknownHostException("somehost"));
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver,
+                TimeValue.ofSeconds(60), TimeValue.ofSeconds(60), TimeValue.ofSeconds(60),
+                10, DIRECT_EXECUTOR);
+        resolver.resolve("somehost");
+        resolver.resolve("somehost");
+        Assert.assertArrayEquals(new InetAddress[] { ip1 }, resolver.resolve("somehost"));
+        Assert.assertEquals(2, resolver.getRefreshCount());
+    }
+
+    @Test
+    public void testConcurrentLookupsCoalesced() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        Mockito.when(dnsResolver.resolve("somehost")).thenAnswer(new Answer<InetAddress[]>() {
+
+            @Override
+            public InetAddress[] answer(final InvocationOnMock invocation) throws Throwable {
+                latch.await(5, TimeUnit.SECONDS);
+                return new InetAddress[] { ip1 };
+            }
+
+        });
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver);
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            @SuppressWarnings("unchecked")
+            final Future<InetAddress[]>[] futures = new Future[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executorService.submit(new Callable<InetAddress[]>() {
+
+                    @Override
+                    public InetAddress[] call() throws Exception {
+                        return resolver.resolve("somehost");
+                    }
+
+                });
+            }
+            Thread.sleep(100);
+            latch.countDown();
+            for (final Future<InetAddress[]> future : futures) {
+                Assert.assertArrayEquals(new InetAddress[] { ip1 }, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        Mockito.verify(dnsResolver, Mockito.times(1)).resolve("somehost");
+    }
+
+    @Test
+    public void testCanonicalHostnameDelegated() throws Exception {
+        Mockito.when(dnsResolver.resolveCanonicalHostname("somehost")).thenReturn("somehost.example.com");
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver);
+        Assert.assertEquals("somehost.example.com", resolver.resolveCanonicalHostname("somehost"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullHost() throws Exception {
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver);
+        resolver.resolve(null);
+    }
+
+    @Test
+    public void testExpiredEntriesEvictedFirst() throws Exception {
+        Mockito.when(dnsResolver.resolve("host1")).thenThrow(new UnknownHostException("host1"));
+        Mockito.when(dnsResolver.resolve("host2")).thenReturn(new InetAddress[] { ip1 });
+        Mockito.when(dnsResolver.resolve("host3")).thenReturn(new InetAddress[] { ip2 });
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver,
+                TimeValue.ofSeconds(60), TimeValue.ofMilliseconds(1), TimeValue.ZERO_MILLISECONDS,
+                2, DIRECT_EXECUTOR);
+        resolver.resolve("host2");
+        try {
+            resolver.resolve("host1");
+            Assert.fail("UnknownHostException expected");
+        } catch (final UnknownHostException expected) {
+        }
+        Thread.sleep(10);
+        resolver.resolve("host3");
+        Assert.assertEquals(2, resolver.size());
+
+        resolver.resolve("host2");
+        resolver.resolve("host3");
+        Mockito.verify(dnsResolver, Mockito.times(1)).resolve("host2");
+        Mockito.verify(dnsResolver, Mockito.times(1)).resolve("host3");
+    }
+
+    @Test
+    public void testResolveAfterClose() throws Exception {
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[] { ip1 });
+
+        final CachingDnsResolver resolver = new CachingDnsResolver(dnsResolver,
+                TimeValue.ofSeconds(60), TimeValue.ZERO_MILLISECONDS, TimeValue.ofSeconds(60),
+                10, null);
+        resolver.close();
+        Assert.assertArrayEquals(new InetAddress[] { ip1 }, resolver.resolve("somehost"));
+        // Refresh-ahead gets rejected by the shut down executor
+        Assert.assertArrayEquals(new InetAddress[] { ip1 }, resolver.resolve("somehost"));
+        Assert.assertEquals(0, resolver.getRefreshCount());
+        Assert.assertEquals(1, resolver.getHitCount());
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.core5.io.CloseMode;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestDefaultAsyncDnsResolver {
+
+    private DnsResolver dnsResolver;
+    private InetAddress ip1;
+
+    @Before
+    public void setup() throws Exception {
+        dnsResolver = Mockito.mock(DnsResolver.class);
+        ip1 = InetAddress.getByAddress("somehost", new byte[] { 10, 0, 0, 1 });
+    }
+
+    @Test
+    public void testResolveOffCallerThread() throws Exception {
+        final AtomicReference<Thread> resolverThread = new AtomicReference<>();
+        Mockito.when(dnsResolver.resolve("somehost")).thenAnswer(new Answer<InetAddress[]>() {
+
+            @Override
+            public InetAddress[] answer(final InvocationOnMock invocation) {
+                resolverThread.set(Thread.currentThread());
+                return new InetAddress[] { ip1 };
+            }
+
+        });
+
+        final DefaultAsyncDnsResolver resolver = new DefaultAsyncDnsResolver(dnsResolver);
+        final Future<InetAddress[]> future = resolver.resolve("somehost", null);
+        Assert.assertArrayEquals(new InetAddress[] { ip1 }, future.get(5, TimeUnit.SECONDS));
+        Assert.assertNotNull(resolverThread.get());
+        Assert.assertNotSame(Thread.currentThread(), resolverThread.get());
+    }
+
+    @Test
+    public void testResolveAddressLiteral() throws Exception {
+        final DefaultAsyncDnsResolver resolver = new DefaultAsyncDnsResolver(dnsResolver);
+        final Future<InetAddress[]> future = resolver.resolve("10.0.0.1", null);
+        Assert.assertTrue(future.isDone());
+        Assert.assertArrayEquals(new InetAddress[] { InetAddress.getByName("10.0.0.1") }, future.get());
+        Mockito.verifyZeroInteractions(dnsResolver);
+    }
+
+    @Test
+    public void testResolveFailure() throws Exception {
+        Mockito.when(dnsResolver.resolve("somehost")).thenThrow(new UnknownHostException("somehost"));
+
+        final DefaultAsyncDnsResolver resolver = new DefaultAsyncDnsResolver(dnsResolver);
+        final Future<InetAddress[]> future = resolver.resolve("somehost", null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("ExecutionException expected");
+        } catch (final ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof UnknownHostException);
+        }
+    }
+
+    @Test
+    public void testResolveNoAddresses() throws Exception {
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(null);
+
+        final DefaultAsyncDnsResolver resolver = new DefaultAsyncDnsResolver(dnsResolver);
+        final Future<InetAddress[]> future = resolver.resolve("somehost", null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("ExecutionException expected");
+        } catch (final ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof UnknownHostException);
+        }
+    }
+
+    @Test
+    public void testResolveAfterClose() throws Exception {
+        final DefaultAsyncDnsResolver resolver = new DefaultAsyncDnsResolver(dnsResolver);
+        resolver.close(CloseMode.GRACEFUL);
+        final Future<InetAddress[]> future = resolver.resolve("somehost", null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("ExecutionException expected");
+        } catch (final ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        Mockito.verifyZeroInteractions(dnsResolver);
+    }
+
+    @Test
+    public void testCloseLeavesCallerExecutorRunning() throws Exception {
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[] { ip1 });
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final DefaultAsyncDnsResolver resolver = new DefaultAsyncDnsResolver(dnsResolver, executor);
+            resolver.close(CloseMode.IMMEDIATE);
+            Assert.assertFalse(executor.isShutdown());
+            final Future<InetAddress[]> future = resolver.resolve("somehost", null);
+            Assert.assertArrayEquals(new InetAddress[] { ip1 }, future.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testImmediateCloseCancelsPendingLookups() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(dnsResolver.resolve(Mockito.anyString())).thenAnswer(new Answer<InetAddress[]>() {
+
+            @Override
+            public InetAddress[] answer(final InvocationOnMock invocation) throws Exception {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return new InetAddress[] { ip1 };
+            }
+
+        });
+        final DefaultAsyncDnsResolver resolver = new DefaultAsyncDnsResolver(dnsResolver);
+        final List<Future<InetAddress[]>> futures = new ArrayList<>();
+        for (int i = 0; i < DefaultAsyncDnsResolver.DEFAULT_MAX_THREADS + 1; i++) {
+            futures.add(resolver.resolve("host" + i, null));
+        }
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        resolver.close(CloseMode.IMMEDIATE);
+        release.countDown();
+        // The lookup still queued behind the busy threads gets cancelled
+        final Future<InetAddress[]> queued = futures.get(futures.size() - 1);
+        Assert.assertTrue(queued.isCancelled());
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.net.InetAddress;
+
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestHappyEyeballsSupport {
+
+    private static InetAddress v4(final int n) throws Exception {
+        return InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) n});
+    }
+
+    private static InetAddress v6(final int n) throws Exception {
+        final byte[] bytes = new byte[16];
+        bytes[0] = 0x20;
+        bytes[1] = 0x01;
+        bytes[15] = (byte) n;
+        return InetAddress.getByAddress(bytes);
+    }
+
+    @Test
+    public void testInterleavePreferredFamilyFirst() throws Exception {
+        final InetAddress[] addresses = new InetAddress[] { v6(1), v6(2), v6(3), v4(1), v4(2) };
+        Assert.assertArrayEquals(
+                new InetAddress[] { v6(1), v4(1), v6(2), v4(2), v6(3) },
+                HappyEyeballsSupport.interleave(addresses));
+    }
+
+    @Test
+    public void testInterleaveIPv4Preferred() throws Exception {
+        final InetAddress[] addresses = new InetAddress[] { v4(1), v4(2), v6(1) };
+        Assert.assertArrayEquals(
+                new InetAddress[] { v4(1), v6(1), v4(2) },
+                HappyEyeballsSupport.interleave(addresses));
+    }
+
+    @Test
+    public void testInterleaveSingleFamily() throws Exception {
+        final InetAddress[] addresses = new InetAddress[] { v4(1), v4(2), v4(3) };
+        Assert.assertSame(addresses, HappyEyeballsSupport.interleave(addresses));
+    }
+
+    @Test
+    public void testIsEnabled() throws Exception {
+        Assert.assertFalse(HappyEyeballsSupport.isEnabled(null));
+        Assert.assertFalse(HappyEyeballsSupport.isEnabled(TimeValue.ZERO_MILLISECONDS));
+        Assert.assertTrue(HappyEyeballsSupport.isEnabled(HappyEyeballsSupport.DEFAULT_CONNECTION_ATTEMPT_DELAY));
+    }
+
+}
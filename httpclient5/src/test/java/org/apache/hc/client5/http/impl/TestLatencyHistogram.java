@@ -0,0 +1,88 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+    @Test
+    public void testBucketBounds() {
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            final long lower = LatencyHistogram.lowerBound(i);
+            Assert.assertEquals(i, LatencyHistogram.bucketIndex(lower));
+            if (i < LatencyHistogram.BUCKET_COUNT - 1) {
+                final long upper = LatencyHistogram.upperBound(i);
+                Assert.assertEquals(i, LatencyHistogram.bucketIndex(upper));
+                Assert.assertEquals(i + 1, LatencyHistogram.bucketIndex(upper + 1));
+            }
+        }
+        Assert.assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testEmptySnapshot() {
+        final LatencyHistogram.Snapshot snapshot = new LatencyHistogram().getSnapshot();
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(TimeValue.ZERO_MILLISECONDS, snapshot.getPercentile(99.0));
+        Assert.assertEquals(0, snapshot.getMean().toMicroseconds());
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i, TimeUnit.MILLISECONDS);
+        }
+        final LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(100, snapshot.getCount());
+        Assert.assertEquals(100000, snapshot.getMax().toMicroseconds());
+        Assert.assertEquals(50500, snapshot.getMean().toMicroseconds());
+        final long p50 = snapshot.getPercentile(50.0).toMicroseconds();
+        Assert.assertTrue(p50 >= 50000 && p50 <= 50000 * 1.125);
+        final long p99 = snapshot.getPercentile(99.0).toMicroseconds();
+        Assert.assertTrue(p99 >= 99000 && p99 <= 100000);
+        Assert.assertEquals(100000, snapshot.getPercentile(100.0).toMicroseconds());
+    }
+
+    @Test
+    public void testReset() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5, TimeUnit.SECONDS);
+        histogram.record(-1, TimeUnit.SECONDS);
+        Assert.assertEquals(2, histogram.getSnapshot().getCount());
+        Assert.assertEquals(0, histogram.getSnapshot().getPercentile(0.0).toMicroseconds());
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getSnapshot().getCount());
+        Assert.assertEquals(0, histogram.getSnapshot().getMax().toMicroseconds());
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.concurrent.BasicFuture;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class TestMinIdleConnectionMaintainer {
+
+    @Mock
+    private ConnPoolControl<HttpRoute> connPoolControl;
+    @Mock
+    private ConnPoolWarmUp<HttpRoute> connPoolWarmUp;
+
+    private HttpRoute route1;
+    private HttpRoute route2;
+    private Timeout timeout;
+
+    @Before
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        route1 = new HttpRoute(new HttpHost("somehost", 80));
+        route2 = new HttpRoute(new HttpHost("otherhost", 80));
+        timeout = Timeout.ofSeconds(1);
+        final BasicFuture<Integer> future = new BasicFuture<>(null);
+        future.completed(0);
+        Mockito.when(connPoolWarmUp.warmUp(
+                Mockito.<HttpRoute>any(),
+                Mockito.anyInt(),
+                Mockito.<Timeout>any(),
+                Mockito.<FutureCallback<Integer>>any())).thenReturn(future);
+        Mockito.when(connPoolControl.getTotalStats()).thenReturn(new PoolStats(0, 0, 0, 25));
+    }
+
+    @Test
+    public void testWarmUpGivenRoutes() throws Exception {
+        Mockito.when(connPoolControl.getStats(route1)).thenReturn(new PoolStats(0, 0, 0, 5));
+        Mockito.when(connPoolControl.getStats(route2)).thenReturn(new PoolStats(0, 0, 1, 5));
+        final MinIdleConnectionMaintainer maintainer = new MinIdleConnectionMaintainer(
+                connPoolControl, connPoolWarmUp, Arrays.asList(route1, route2), 2, timeout);
+        maintainer.maintain();
+
+        Mockito.verify(connPoolWarmUp).warmUp(route1, 2, timeout, null);
+        Mockito.verify(connPoolWarmUp).warmUp(route2, 2, timeout, null);
+        Mockito.verify(connPoolControl, Mockito.never()).getRoutes();
+    }
+
+    @Test
+    public void testPoolRoutesMaintained() throws Exception {
+        Mockito.when(connPoolControl.getRoutes()).thenReturn(Collections.singleton(route1));
+        Mockito.when(connPoolControl.getStats(route1)).thenReturn(new PoolStats(1, 0, 3, 5));
+        final MinIdleConnectionMaintainer maintainer = new MinIdleConnectionMaintainer(
+                connPoolControl, connPoolWarmUp, null, 3, timeout);
+        maintainer.maintain();
+
+        Mockito.verifyZeroInteractions(connPoolWarmUp);
+    }
+
+    @Test
+    public void testWarmUpLimitedByFreeCapacity() throws Exception {
+        Mockito.when(connPoolControl.getStats(route1)).thenReturn(new PoolStats(4, 0, 0, 5));
+        Mockito.when(connPoolControl.getStats(route2)).thenReturn(new PoolStats(5, 0, 0, 5));
+        final MinIdleConnectionMaintainer maintainer = new MinIdleConnectionMaintainer(
+                connPoolControl, connPoolWarmUp, Arrays.asList(route1, route2), 3, timeout);
+        maintainer.maintain();
+
+        Mockito.verify(connPoolWarmUp).warmUp(route1, 1, timeout, null);
+        Mockito.verify(connPoolWarmUp, Mockito.never()).warmUp(
+                Mockito.eq(route2),
+                Mockito.anyInt(),
+                Mockito.<Timeout>any(),
+                Mockito.<FutureCallback<Integer>>any());
+    }
+
+}
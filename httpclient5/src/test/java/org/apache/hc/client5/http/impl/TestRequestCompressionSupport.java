@@ -0,0 +1,61 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl;
+
+import org.apache.hc.client5.http.config.RequestCompressionConfig;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRequestCompressionSupport {
+
+    @Test
+    public void testRejectingHostsBounded() throws Exception {
+        final RequestCompressionSupport support = new RequestCompressionSupport(RequestCompressionConfig.custom()
+                .setRejectionExpiry(TimeValue.ofHours(1))
+                .build());
+        for (int i = 0; i < 5000; i++) {
+            support.markRejected(new HttpHost("host" + i));
+        }
+        Assert.assertTrue(support.getRejectingHostCount() <= 1024);
+        Assert.assertTrue(support.isRejecting(new HttpHost("host4999")));
+    }
+
+    @Test
+    public void testExpiredRejectingHostsPruned() throws Exception {
+        final RequestCompressionSupport support = new RequestCompressionSupport(RequestCompressionConfig.custom()
+                .setRejectionExpiry(TimeValue.ZERO_MILLISECONDS)
+                .build());
+        for (int i = 0; i < 5000; i++) {
+            support.markRejected(new HttpHost("host" + i));
+        }
+        Assert.assertTrue(support.getRejectingHostCount() <= 1024);
+        Assert.assertFalse(support.isRejecting(new HttpHost("host4999")));
+    }
+
+}
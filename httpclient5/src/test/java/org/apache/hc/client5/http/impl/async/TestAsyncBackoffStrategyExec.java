@@ -0,0 +1,157 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.async;
+
+import java.io.IOException;
+import java.net.ConnectException;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecRuntime;
+import org.apache.hc.client5.http.classic.BackoffManager;
+import org.apache.hc.client5.http.impl.classic.DefaultBackoffStrategy;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.CancellableDependency;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestAsyncBackoffStrategyExec {
+
+    @Mock
+    private BackoffManager backoffManager;
+    @Mock
+    private AsyncExecRuntime execRuntime;
+    @Mock
+    private AsyncExecChain execChain;
+    @Mock
+    private CancellableDependency cancellableDependency;
+    @Mock
+    private AsyncExecCallback asyncExecCallback;
+
+    private HttpRoute route;
+    private HttpRequest request;
+    private AsyncExecChain.Scope scope;
+    private AsyncBackoffStrategyExec impl;
+
+    @Before
+    public void setup() {
+        final HttpHost host = new HttpHost("somehost", 80);
+        route = new HttpRoute(host);
+        request = new BasicHttpRequest(Method.GET, host, "/");
+        scope = new AsyncExecChain.Scope("test", route, request, cancellableDependency,
+                HttpClientContext.create(), execRuntime);
+        impl = new AsyncBackoffStrategyExec(new DefaultBackoffStrategy(), backoffManager);
+    }
+
+    private AsyncExecCallback execute() throws Exception {
+        impl.execute(request, null, scope, execChain, asyncExecCallback);
+        final ArgumentCaptor<AsyncExecCallback> callbackCaptor = ArgumentCaptor.forClass(AsyncExecCallback.class);
+        Mockito.verify(execChain).proceed(
+                Mockito.same(request),
+                Mockito.<AsyncEntityProducer>any(),
+                Mockito.same(scope),
+                callbackCaptor.capture());
+        return callbackCaptor.getValue();
+    }
+
+    @Test
+    public void testProbeOnSuccessfulResponse() throws Exception {
+        final AsyncExecCallback callback = execute();
+        final BasicHttpResponse response = new BasicHttpResponse(HttpStatus.SC_OK);
+        callback.handleResponse(response, null);
+        callback.completed();
+
+        Mockito.verify(backoffManager).probe(route);
+        Mockito.verify(backoffManager, Mockito.never()).backOff(Mockito.<HttpRoute>any());
+        Mockito.verify(asyncExecCallback).handleResponse(response, null);
+        Mockito.verify(asyncExecCallback).completed();
+    }
+
+    @Test
+    public void testBackOffOnOverloadResponse() throws Exception {
+        final AsyncExecCallback callback = execute();
+        final BasicHttpResponse response = new BasicHttpResponse(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        callback.handleResponse(response, null);
+
+        Mockito.verify(backoffManager).backOff(route);
+        Mockito.verify(backoffManager, Mockito.never()).probe(Mockito.<HttpRoute>any());
+        Mockito.verify(asyncExecCallback).handleResponse(response, null);
+    }
+
+    @Test
+    public void testBackOffOnConnectFailure() throws Exception {
+        final AsyncExecCallback callback = execute();
+        final ConnectException ex = new ConnectException("Oppsie");
+        callback.failed(ex);
+
+        Mockito.verify(backoffManager).backOff(route);
+        Mockito.verify(asyncExecCallback).failed(ex);
+    }
+
+    @Test
+    public void testNoBackOffOnOtherFailure() throws Exception {
+        final AsyncExecCallback callback = execute();
+        final IllegalStateException ex = new IllegalStateException("Oppsie");
+        callback.failed(ex);
+
+        Mockito.verifyZeroInteractions(backoffManager);
+        Mockito.verify(asyncExecCallback).failed(ex);
+    }
+
+    @Test
+    public void testBackOffOnExecutionException() throws Exception {
+        final ConnectException ex = new ConnectException("Oppsie");
+        Mockito.doThrow(ex).when(execChain).proceed(
+                Mockito.<HttpRequest>any(),
+                Mockito.<AsyncEntityProducer>any(),
+                Mockito.<AsyncExecChain.Scope>any(),
+                Mockito.<AsyncExecCallback>any());
+        try {
+            impl.execute(request, null, scope, execChain, asyncExecCallback);
+            Assert.fail("IOException expected");
+        } catch (final IOException expected) {
+            Assert.assertSame(ex, expected);
+        }
+        Mockito.verify(backoffManager).backOff(route);
+    }
+
+}
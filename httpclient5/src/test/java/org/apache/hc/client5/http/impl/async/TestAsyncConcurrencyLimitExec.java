@@ -0,0 +1,268 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.async;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hc.client5.http.ConcurrencyLimitExceededException;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecRuntime;
+import org.apache.hc.client5.http.impl.AdaptiveConcurrencyLimiter;
+import org.apache.hc.client5.http.impl.classic.DefaultBackoffStrategy;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.concurrent.CancellableDependency;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestAsyncConcurrencyLimitExec {
+
+    @Mock
+    private AsyncExecRuntime execRuntime;
+    @Mock
+    private AsyncExecChain execChain;
+    @Mock
+    private CancellableDependency cancellableDependency;
+    @Mock
+    private AsyncExecCallback asyncExecCallback;
+
+    private HttpRoute route;
+    private HttpRequest request;
+    private AsyncExecChain.Scope scope;
+    private AdaptiveConcurrencyLimiter limiter;
+    private AsyncConcurrencyLimitExec impl;
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setup() {
+        final HttpHost host = new HttpHost("somehost", 80);
+        route = new HttpRoute(host);
+        request = new BasicHttpRequest(Method.GET, host, "/");
+        scope = new AsyncExecChain.Scope("test", route, request, cancellableDependency,
+                HttpClientContext.create(), execRuntime);
+        limiter = new AdaptiveConcurrencyLimiter();
+        limiter.setInitialLimit(8);
+        impl = new AsyncConcurrencyLimitExec(limiter, new DefaultBackoffStrategy());
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void cleanup() {
+        executor.shutdownNow();
+    }
+
+    private AsyncExecCallback execute() throws Exception {
+        impl.execute(request, null, scope, execChain, asyncExecCallback);
+        final ArgumentCaptor<AsyncExecCallback> callbackCaptor = ArgumentCaptor.forClass(AsyncExecCallback.class);
+        Mockito.verify(execChain, Mockito.atLeastOnce()).proceed(
+                Mockito.same(request),
+                Mockito.<AsyncEntityProducer>any(),
+                Mockito.same(scope),
+                callbackCaptor.capture());
+        return callbackCaptor.getValue();
+    }
+
+    @Test
+    public void testPermitReleasedOnResponse() throws Exception {
+        final AsyncExecCallback callback = execute();
+        Assert.assertEquals(1, limiter.getInFlight(route));
+
+        final BasicHttpResponse response = new BasicHttpResponse(HttpStatus.SC_OK);
+        callback.handleResponse(response, null);
+        Assert.assertEquals(1, limiter.getInFlight(route));
+        callback.completed();
+        Assert.assertEquals(0, limiter.getInFlight(route));
+        Assert.assertEquals(8, limiter.getLimit(route));
+        Mockito.verify(asyncExecCallback).handleResponse(response, null);
+        Mockito.verify(asyncExecCallback).completed();
+    }
+
+    @Test
+    public void testOverloadResponseReducesLimit() throws Exception {
+        final AsyncExecCallback callback = execute();
+        callback.handleResponse(new BasicHttpResponse(HttpStatus.SC_SERVICE_UNAVAILABLE), null);
+        Assert.assertEquals(8, limiter.getLimit(route));
+        callback.completed();
+        Assert.assertEquals(0, limiter.getInFlight(route));
+        Assert.assertEquals(6, limiter.getLimit(route));
+    }
+
+    @Test
+    public void testPermitReleasedOnFailureAfterResponse() throws Exception {
+        final AsyncExecCallback callback = execute();
+        callback.handleResponse(new BasicHttpResponse(HttpStatus.SC_OK), null);
+        final IOException ex = new IOException("Oppsie");
+        callback.failed(ex);
+        Assert.assertEquals(0, limiter.getInFlight(route));
+        Mockito.verify(asyncExecCallback).failed(ex);
+    }
+
+    @Test
+    public void testPermitReleasedOnFailure() throws Exception {
+        final AsyncExecCallback callback = execute();
+        final IOException ex = new IOException("Oppsie");
+        callback.failed(ex);
+        Assert.assertEquals(0, limiter.getInFlight(route));
+        Assert.assertEquals(8, limiter.getLimit(route));
+        Mockito.verify(asyncExecCallback).failed(ex);
+    }
+
+    @Test
+    public void testPermitReleasedOnExecutionException() throws Exception {
+        final IOException ex = new IOException("Oppsie");
+        Mockito.doThrow(ex).when(execChain).proceed(
+                Mockito.<HttpRequest>any(),
+                Mockito.<AsyncEntityProducer>any(),
+                Mockito.<AsyncExecChain.Scope>any(),
+                Mockito.<AsyncExecCallback>any());
+        try {
+            impl.execute(request, null, scope, execChain, asyncExecCallback);
+            Assert.fail("IOException expected");
+        } catch (final IOException expected) {
+            Assert.assertSame(ex, expected);
+        }
+        Assert.assertEquals(0, limiter.getInFlight(route));
+    }
+
+    @Test
+    public void testSaturatedRouteRejected() throws Exception {
+        final AdaptiveConcurrencyLimiter saturated = new AdaptiveConcurrencyLimiter();
+        saturated.setInitialLimit(1);
+        Assert.assertTrue(saturated.tryAcquire(route));
+        final AsyncConcurrencyLimitExec exec = new AsyncConcurrencyLimitExec(saturated, new DefaultBackoffStrategy());
+        exec.execute(request, null, scope, execChain, asyncExecCallback);
+
+        Mockito.verifyZeroInteractions(execChain);
+        Mockito.verify(asyncExecCallback).failed(Mockito.<ConcurrencyLimitExceededException>any());
+        Assert.assertEquals(1, saturated.getInFlight(route));
+    }
+
+    private AsyncConcurrencyLimitExec saturatedExec(final AdaptiveConcurrencyLimiter saturated, final Timeout maxQueueTime) {
+        saturated.setInitialLimit(1);
+        Assert.assertTrue(saturated.tryAcquire(route));
+        return new AsyncConcurrencyLimitExec(saturated, new DefaultBackoffStrategy(), maxQueueTime, executor);
+    }
+
+    @Test
+    public void testQueuedRequestProceedsOncePermitReleased() throws Exception {
+        final AdaptiveConcurrencyLimiter saturated = new AdaptiveConcurrencyLimiter();
+        final AsyncConcurrencyLimitExec exec = saturatedExec(saturated, Timeout.ofMinutes(1));
+        exec.execute(request, null, scope, execChain, asyncExecCallback);
+
+        Mockito.verify(cancellableDependency).setDependency(Mockito.<Cancellable>any());
+        Mockito.verifyZeroInteractions(execChain);
+        Mockito.verifyZeroInteractions(asyncExecCallback);
+
+        final Thread releasingThread = Thread.currentThread();
+        final AtomicReference<Thread> proceedingThread = new AtomicReference<>();
+        Mockito.doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                proceedingThread.set(Thread.currentThread());
+                return null;
+            }
+
+        }).when(execChain).proceed(
+                Mockito.same(request),
+                Mockito.<AsyncEntityProducer>any(),
+                Mockito.same(scope),
+                Mockito.<AsyncExecCallback>any());
+        saturated.onIgnored(route);
+
+        final ArgumentCaptor<AsyncExecCallback> callbackCaptor = ArgumentCaptor.forClass(AsyncExecCallback.class);
+        Mockito.verify(execChain, Mockito.timeout(TimeUnit.SECONDS.toMillis(5))).proceed(
+                Mockito.same(request),
+                Mockito.<AsyncEntityProducer>any(),
+                Mockito.same(scope),
+                callbackCaptor.capture());
+        // The request granted the released permit proceeds on the executor
+        Assert.assertNotSame(releasingThread, proceedingThread.get());
+        Assert.assertEquals(1, saturated.getInFlight(route));
+        callbackCaptor.getValue().completed();
+        Assert.assertEquals(0, saturated.getInFlight(route));
+        Mockito.verify(asyncExecCallback).completed();
+    }
+
+    @Test
+    public void testQueuedRequestRejectedAfterTimeout() throws Exception {
+        final AdaptiveConcurrencyLimiter saturated = new AdaptiveConcurrencyLimiter();
+        final AsyncConcurrencyLimitExec exec = saturatedExec(saturated, Timeout.ofMilliseconds(50));
+        exec.execute(request, null, scope, execChain, asyncExecCallback);
+
+        Mockito.verify(asyncExecCallback, Mockito.timeout(TimeUnit.SECONDS.toMillis(5))).failed(
+                Mockito.<ConcurrencyLimitExceededException>any());
+        Mockito.verifyZeroInteractions(execChain);
+
+        // A permit released after the timeout must not be handed to the expired request
+        saturated.onIgnored(route);
+        Assert.assertEquals(0, saturated.getInFlight(route));
+        Mockito.verifyZeroInteractions(execChain);
+    }
+
+    @Test
+    public void testQueuedRequestCancelled() throws Exception {
+        final AdaptiveConcurrencyLimiter saturated = new AdaptiveConcurrencyLimiter();
+        final AsyncConcurrencyLimitExec exec = saturatedExec(saturated, Timeout.ofMinutes(1));
+        exec.execute(request, null, scope, execChain, asyncExecCallback);
+
+        final ArgumentCaptor<Cancellable> cancellableCaptor = ArgumentCaptor.forClass(Cancellable.class);
+        Mockito.verify(cancellableDependency).setDependency(cancellableCaptor.capture());
+        Assert.assertTrue(cancellableCaptor.getValue().cancel());
+        Mockito.verify(asyncExecCallback).failed(Mockito.<CancellationException>any());
+
+        saturated.onIgnored(route);
+        Assert.assertEquals(0, saturated.getInFlight(route));
+        Mockito.verifyZeroInteractions(execChain);
+    }
+
+}
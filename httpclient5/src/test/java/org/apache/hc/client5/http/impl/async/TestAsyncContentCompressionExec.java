@@ -0,0 +1,324 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.async;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecRuntime;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.CancellableDependency;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestAsyncContentCompressionExec {
+
+    private static final String TEXT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, " +
+            "sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.";
+
+    @Mock
+    private AsyncExecRuntime execRuntime;
+    @Mock
+    private AsyncExecChain execChain;
+    @Mock
+    private CancellableDependency cancellableDependency;
+    @Mock
+    private AsyncExecCallback asyncExecCallback;
+
+    private HttpHost host;
+    private HttpClientContext context;
+    private AsyncExecChain.Scope scope;
+    private AsyncContentCompressionExec impl;
+
+    @Before
+    public void setup() {
+        host = new HttpHost("somehost", 80);
+        context = HttpClientContext.create();
+        final HttpRequest original = new BasicHttpRequest(Method.GET, host, "/");
+        scope = new AsyncExecChain.Scope("test", new HttpRoute(host), original, cancellableDependency,
+                context, execRuntime);
+        impl = new AsyncContentCompressionExec();
+    }
+
+    private AsyncExecCallback execute(final HttpRequest request) throws Exception {
+        impl.execute(request, null, scope, execChain, asyncExecCallback);
+        final ArgumentCaptor<AsyncExecCallback> callbackCaptor = ArgumentCaptor.forClass(AsyncExecCallback.class);
+        Mockito.verify(execChain).proceed(
+                Mockito.same(request),
+                Mockito.<AsyncEntityProducer>any(),
+                Mockito.same(scope),
+                callbackCaptor.capture());
+        return callbackCaptor.getValue();
+    }
+
+    @Test
+    public void testAcceptEncodingAdded() throws Exception {
+        final HttpRequest request = new BasicHttpRequest(Method.GET, host, "/");
+        execute(request);
+        final Header header = request.getFirstHeader(HttpHeaders.ACCEPT_ENCODING);
+        Assert.assertNotNull(header);
+        Assert.assertEquals("gzip, x-gzip, deflate", header.getValue());
+    }
+
+    @Test
+    public void testCompressionDisabled() throws Exception {
+        final HttpRequest request = new BasicHttpRequest(Method.GET, host, "/");
+        context.setRequestConfig(RequestConfig.custom().setContentCompressionEnabled(false).build());
+        impl.execute(request, null, scope, execChain, asyncExecCallback);
+        Mockito.verify(execChain).proceed(request, null, scope, asyncExecCallback);
+        Assert.assertFalse(request.containsHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    @Test
+    public void testNoContentEncoding() throws Exception {
+        final AsyncExecCallback callback = execute(new BasicHttpRequest(Method.GET, host, "/"));
+        final HttpResponse response = new BasicHttpResponse(200, "OK");
+        final EntityDetails entityDetails = new BasicEntityDetails(10, ContentType.TEXT_PLAIN);
+        final CollectingDataConsumer consumer = new CollectingDataConsumer();
+        Mockito.when(asyncExecCallback.handleResponse(response, entityDetails)).thenReturn(consumer);
+
+        Assert.assertSame(consumer, callback.handleResponse(response, entityDetails));
+    }
+
+    @Test
+    public void testGzipContentEncoding() throws Exception {
+        final AsyncExecCallback callback = execute(new BasicHttpRequest(Method.GET, host, "/"));
+        final byte[] content = gzip(TEXT.getBytes(StandardCharsets.US_ASCII));
+        final HttpResponse response = new BasicHttpResponse(200, "OK");
+        response.addHeader(HttpHeaders.CONTENT_LENGTH, Integer.toString(content.length));
+        response.addHeader(HttpHeaders.CONTENT_ENCODING, "GZip");
+        final CollectingDataConsumer consumer = new CollectingDataConsumer();
+        final ArgumentCaptor<EntityDetails> detailsCaptor = ArgumentCaptor.forClass(EntityDetails.class);
+        Mockito.when(asyncExecCallback.handleResponse(Mockito.same(response), detailsCaptor.capture()))
+                .thenReturn(consumer);
+
+        final AsyncDataConsumer dataConsumer = callback.handleResponse(response,
+                new TestEntityDetails(content.length, "GZip"));
+        Assert.assertNotSame(consumer, dataConsumer);
+        Assert.assertFalse(response.containsHeader(HttpHeaders.CONTENT_LENGTH));
+        Assert.assertFalse(response.containsHeader(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(-1, detailsCaptor.getValue().getContentLength());
+        Assert.assertNull(detailsCaptor.getValue().getContentEncoding());
+
+        feed(dataConsumer, content, 7);
+        dataConsumer.streamEnd(null);
+        Assert.assertTrue(consumer.ended);
+        Assert.assertEquals(TEXT, consumer.getText());
+    }
+
+    @Test
+    public void testUnknownContentEncodingPassedThrough() throws Exception {
+        final AsyncExecCallback callback = execute(new BasicHttpRequest(Method.GET, host, "/"));
+        final HttpResponse response = new BasicHttpResponse(200, "OK");
+        response.addHeader(HttpHeaders.CONTENT_ENCODING, "whatever");
+        final EntityDetails entityDetails = new TestEntityDetails(10, "whatever");
+        final CollectingDataConsumer consumer = new CollectingDataConsumer();
+        Mockito.when(asyncExecCallback.handleResponse(response, entityDetails)).thenReturn(consumer);
+
+        Assert.assertSame(consumer, callback.handleResponse(response, entityDetails));
+        Assert.assertTrue(response.containsHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testDecodeGzipDirectBuffers() throws Exception {
+        final byte[] raw = new byte[100000];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = (byte) (i % 251);
+        }
+        final byte[] content = gzip(raw);
+        final CollectingDataConsumer consumer = new CollectingDataConsumer();
+        final InflatingAsyncDataConsumer decoder = new InflatingAsyncDataConsumer(consumer, true);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+        buffer.put(content);
+        buffer.flip();
+        decoder.consume(buffer);
+        decoder.streamEnd(null);
+        decoder.releaseResources();
+        Assert.assertArrayEquals(raw, consumer.buffer.toByteArray());
+    }
+
+    @Test
+    public void testDecodeConcatenatedGzipMembers() throws Exception {
+        final byte[] member1 = gzip("foo".getBytes(StandardCharsets.US_ASCII));
+        final byte[] member2 = gzip("bar".getBytes(StandardCharsets.US_ASCII));
+        final byte[] content = new byte[member1.length + member2.length];
+        System.arraycopy(member1, 0, content, 0, member1.length);
+        System.arraycopy(member2, 0, content, member1.length, member2.length);
+        final CollectingDataConsumer consumer = new CollectingDataConsumer();
+        final InflatingAsyncDataConsumer decoder = new InflatingAsyncDataConsumer(consumer, true);
+        feed(decoder, content, 1);
+        decoder.streamEnd(null);
+        Assert.assertEquals("foobar", consumer.getText());
+    }
+
+    @Test
+    public void testDecodeZlibAndRawDeflate() throws Exception {
+        for (final boolean nowrap : new boolean[] { false, true }) {
+            final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            final DeflaterOutputStream out = new DeflaterOutputStream(buf, new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap));
+            out.write(TEXT.getBytes(StandardCharsets.US_ASCII));
+            out.close();
+            final CollectingDataConsumer consumer = new CollectingDataConsumer();
+            final InflatingAsyncDataConsumer decoder = new InflatingAsyncDataConsumer(consumer, false);
+            feed(decoder, buf.toByteArray(), 3);
+            decoder.streamEnd(null);
+            Assert.assertEquals(TEXT, consumer.getText());
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedGzipContent() throws Exception {
+        final byte[] content = gzip(TEXT.getBytes(StandardCharsets.US_ASCII));
+        final InflatingAsyncDataConsumer decoder = new InflatingAsyncDataConsumer(new CollectingDataConsumer(), true);
+        decoder.consume(ByteBuffer.wrap(content, 0, content.length - 4));
+        decoder.streamEnd(null);
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptGzipTrailer() throws Exception {
+        final byte[] content = gzip(TEXT.getBytes(StandardCharsets.US_ASCII));
+        content[content.length - 8] ^= 0xff;
+        final InflatingAsyncDataConsumer decoder = new InflatingAsyncDataConsumer(new CollectingDataConsumer(), true);
+        decoder.consume(ByteBuffer.wrap(content));
+    }
+
+    private static void feed(final AsyncDataConsumer consumer, final byte[] content, final int chunk) throws IOException {
+        for (int off = 0; off < content.length; off += chunk) {
+            consumer.consume(ByteBuffer.wrap(content, off, Math.min(chunk, content.length - off)));
+        }
+    }
+
+    private static byte[] gzip(final byte[] raw) throws IOException {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final GZIPOutputStream out = new GZIPOutputStream(buf);
+        out.write(raw);
+        out.close();
+        return buf.toByteArray();
+    }
+
+    static class TestEntityDetails implements EntityDetails {
+
+        private final long contentLength;
+        private final String contentEncoding;
+
+        TestEntityDetails(final long contentLength, final String contentEncoding) {
+            this.contentLength = contentLength;
+            this.contentEncoding = contentEncoding;
+        }
+
+        @Override
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public String getContentType() {
+            return ContentType.TEXT_PLAIN.toString();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
+
+        @Override
+        public boolean isChunked() {
+            return false;
+        }
+
+        @Override
+        public Set<String> getTrailerNames() {
+            return null;
+        }
+
+    }
+
+    static class CollectingDataConsumer implements AsyncDataConsumer {
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        boolean ended;
+
+        @Override
+        public void updateCapacity(final CapacityChannel capacityChannel) throws IOException {
+        }
+
+        @Override
+        public void consume(final ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                buffer.write(src.get());
+            }
+        }
+
+        @Override
+        public void streamEnd(final List<? extends Header> trailers) {
+            ended = true;
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+
+        String getText() {
+            return new String(buffer.toByteArray(), StandardCharsets.US_ASCII);
+        }
+
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.async;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.hc.client5.http.config.RequestCompressionConfig;
+import org.apache.hc.client5.http.impl.RequestCompressionSupport;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityProducer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCompressingAsyncEntityProducer {
+
+    static class LimitingDataChannel implements DataStreamChannel {
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final int maxChunk;
+        int budget;
+        boolean ended;
+
+        LimitingDataChannel(final int maxChunk) {
+            this.maxChunk = maxChunk;
+        }
+
+        @Override
+        public void requestOutput() {
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            final int n = Math.min(src.remaining(), Math.min(maxChunk, budget));
+            for (int i = 0; i < n; i++) {
+                buffer.write(src.get());
+            }
+            budget -= n;
+            return n;
+        }
+
+        @Override
+        public void endStream(final List<? extends Header> trailers) throws IOException {
+            Assert.assertFalse(ended);
+            ended = true;
+        }
+
+        @Override
+        public void endStream() throws IOException {
+            endStream(null);
+        }
+
+    }
+
+    private static byte[] generate(final int len) {
+        final byte[] content = new byte[len];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + (i * 31 % 23));
+        }
+        return content;
+    }
+
+    private static byte[] gunzip(final byte[] compressed) throws IOException {
+        final InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final byte[] tmp = new byte[1024];
+        int n;
+        while ((n = in.read(tmp)) != -1) {
+            buf.write(tmp, 0, n);
+        }
+        return buf.toByteArray();
+    }
+
+    private static void produceAll(final CompressingAsyncEntityProducer producer,
+                                   final LimitingDataChannel channel, final int budgetPerRound) throws IOException {
+        for (int i = 0; i < 100000 && !channel.ended; i++) {
+            channel.budget = budgetPerRound;
+            producer.produce(channel);
+        }
+        Assert.assertTrue(channel.ended);
+        Assert.assertEquals(0, producer.available());
+    }
+
+    @Test
+    public void testCompressWithBackPressure() throws Exception {
+        final byte[] content = generate(100000);
+        final RequestCompressionSupport support = new RequestCompressionSupport(RequestCompressionConfig.DEFAULT);
+        final CompressingAsyncEntityProducer producer = new CompressingAsyncEntityProducer(
+                new BasicAsyncEntityProducer(content, ContentType.APPLICATION_JSON), support);
+        Assert.assertEquals("gzip", producer.getContentEncoding());
+        Assert.assertEquals(-1, producer.getContentLength());
+        Assert.assertTrue(producer.isChunked());
+
+        final LimitingDataChannel channel = new LimitingDataChannel(100);
+        produceAll(producer, channel, 137);
+        Assert.assertArrayEquals(content, gunzip(channel.buffer.toByteArray()));
+    }
+
+    @Test
+    public void testRepeatableProducerReleasesDeflater() throws Exception {
+        final byte[] content = generate(20000);
+        final RequestCompressionSupport support = new RequestCompressionSupport(RequestCompressionConfig.DEFAULT);
+        final CompressingAsyncEntityProducer producer = new CompressingAsyncEntityProducer(
+                new BasicAsyncEntityProducer(content, ContentType.APPLICATION_JSON), support);
+        Assert.assertTrue(producer.isRepeatable());
+        for (int i = 0; i < 3; i++) {
+            final LimitingDataChannel channel = new LimitingDataChannel(Integer.MAX_VALUE);
+            produceAll(producer, channel, Integer.MAX_VALUE);
+            Assert.assertArrayEquals(content, gunzip(channel.buffer.toByteArray()));
+            producer.releaseResources();
+            Assert.assertEquals(1, support.getIdleCount());
+        }
+    }
+
+}
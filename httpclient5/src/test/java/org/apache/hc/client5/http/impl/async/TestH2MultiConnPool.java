@@ -0,0 +1,291 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.hc.client5.http.impl.async;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.concurrent.BasicFuture;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.function.Resolver;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.nio.command.ShutdownCommand;
+import org.apache.hc.core5.http2.config.H2Param;
+import org.apache.hc.core5.http2.frame.FrameType;
+import org.apache.hc.core5.http2.frame.RawFrame;
+import org.apache.hc.core5.http2.impl.nio.ClientH2StreamMultiplexer;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.reactor.Command;
+import org.apache.hc.core5.reactor.ConnectionInitiator;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestH2MultiConnPool {
+
+    private HttpHost host;
+    private List<IOSession> sessions;
+    private List<BasicFuture<IOSession>> pendingConnects;
+    private ConnectionInitiator connectionInitiator;
+    private Resolver<HttpHost, InetSocketAddress> addressResolver;
+
+    @Before
+    public void setup() {
+        host = new HttpHost("somehost", 80);
+        sessions = new ArrayList<>();
+        pendingConnects = new ArrayList<>();
+        connectionInitiator = new ConnectionInitiator() {
+
+            @Override
+            public Future<IOSession> connect(
+                    final NamedEndpoint remoteEndpoint,
+                    final SocketAddress remoteAddress,
+                    final SocketAddress localAddress,
+                    final Timeout timeout,
+                    final Object attachment,
+                    final FutureCallback<IOSession> callback) {
+                final IOSession session = Mockito.mock(IOSession.class);
+                Mockito.when(session.getId()).thenReturn("c-" + sessions.size());
+                Mockito.when(session.isOpen()).thenReturn(true);
+                sessions.add(session);
+                final BasicFuture<IOSession> future = new BasicFuture<>(callback);
+                pendingConnects.add(future);
+                return future;
+            }
+
+        };
+        addressResolver = new Resolver<HttpHost, InetSocketAddress>() {
+
+            @Override
+            public InetSocketAddress resolve(final HttpHost object) {
+                return null;
+            }
+
+        };
+    }
+
+    private H2MultiConnPool createPool(
+            final int min, final int max, final int maxStreams, final H2PeerSettingsListener peerSettings) {
+        return new H2MultiConnPool(connectionInitiator, addressResolver, null,
+                min, max, maxStreams, TimeValue.ofMinutes(1), peerSettings);
+    }
+
+    private int leaseAndConnect(final H2MultiConnPool pool) throws Exception {
+        final int slot = pool.lease(host);
+        final Future<IOSession> future = pool.getSession(host, slot, Timeout.ofSeconds(5), null);
+        for (final BasicFuture<IOSession> pendingConnect: pendingConnects) {
+            pendingConnect.completed(sessions.get(sessions.size() - 1));
+        }
+        pendingConnects.clear();
+        Assert.assertNotNull(future.get(5, TimeUnit.SECONDS));
+        return slot;
+    }
+
+    @Test
+    public void testSingleConnectionPerRoute() throws Exception {
+        final H2MultiConnPool pool = createPool(1, 1, 1, null);
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(1, sessions.size());
+        pool.release(host, 0);
+        // No route state is kept with a single connection per route
+        Assert.assertTrue(pool.getRoutes().isEmpty());
+        Assert.assertEquals(0, pool.getActiveStreams(host, 0));
+    }
+
+    @Test
+    public void testNewConnectionOnHighWatermark() throws Exception {
+        final H2MultiConnPool pool = createPool(1, 3, 4, null);
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(1, sessions.size());
+        // High watermark of three streams reached
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        Assert.assertEquals(2, sessions.size());
+        // The new connection is the least loaded one
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        Assert.assertEquals(2, sessions.size());
+    }
+
+    @Test
+    public void testLeastLoadedConnection() throws Exception {
+        final H2MultiConnPool pool = createPool(1, 2, 1, null);
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        pool.release(host, 1);
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        pool.release(host, 0);
+        pool.release(host, 0);
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(2, sessions.size());
+    }
+
+    @Test
+    public void testMinConnPerRoute() throws Exception {
+        final H2MultiConnPool pool = createPool(2, 3, 100, null);
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(2, sessions.size());
+    }
+
+    @Test
+    public void testPeerMaxConcurrentStreams() throws Exception {
+        final H2PeerSettingsListener peerSettings = new H2PeerSettingsListener();
+        final H2MultiConnPool pool = createPool(1, 2, 100, peerSettings);
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(1, sessions.size());
+
+        final ByteBuffer payload = ByteBuffer.allocate(6);
+        payload.putShort((short) H2Param.MAX_CONCURRENT_STREAMS.getCode());
+        payload.putInt(2);
+        payload.flip();
+        final ClientH2StreamMultiplexer connection = Mockito.mock(ClientH2StreamMultiplexer.class);
+        Mockito.when(connection.getId()).thenReturn("c-0");
+        peerSettings.onFrameInput(connection, 0, new RawFrame(FrameType.SETTINGS.getValue(), 0, 0, payload));
+        Assert.assertEquals(2, peerSettings.getMaxConcurrentStreams("c-0", 100));
+
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        Assert.assertEquals(2, sessions.size());
+    }
+
+    @Test
+    public void testExtraConnectionDrainedWhenIdle() throws Exception {
+        final H2MultiConnPool pool = new H2MultiConnPool(connectionInitiator, addressResolver, null,
+                1, 2, 1, TimeValue.ZERO_MILLISECONDS, null);
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        Assert.assertEquals(2, sessions.size());
+
+        pool.release(host, 1);
+        Mockito.verify(sessions.get(1)).enqueue(ShutdownCommand.GRACEFUL, Command.Priority.NORMAL);
+        // The minimum number of connections is kept open
+        pool.release(host, 0);
+        Mockito.verify(sessions.get(0), Mockito.never()).enqueue(
+                Mockito.<Command>any(), Mockito.<Command.Priority>any());
+
+        // Connection being drained is not leased
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(0, leaseAndConnect(pool));
+
+        // Slot gets re-used once the drained connection has been closed
+        Mockito.when(sessions.get(1).isOpen()).thenReturn(false);
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        Assert.assertEquals(3, sessions.size());
+    }
+
+    @Test
+    public void testExtraConnectionDrainedWithoutEviction() throws Exception {
+        final H2MultiConnPool pool = new H2MultiConnPool(connectionInitiator, addressResolver, null,
+                1, 2, 1, TimeValue.ofMilliseconds(50), null);
+        try {
+            Assert.assertEquals(0, leaseAndConnect(pool));
+            Assert.assertEquals(1, leaseAndConnect(pool));
+            pool.release(host, 1);
+            pool.release(host, 0);
+            Mockito.verify(sessions.get(1), Mockito.timeout(5000)).enqueue(
+                    ShutdownCommand.GRACEFUL, Command.Priority.NORMAL);
+            Mockito.verify(sessions.get(0), Mockito.never()).enqueue(
+                    Mockito.<Command>any(), Mockito.<Command.Priority>any());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testCloseCancelsScheduledDrain() throws Exception {
+        final H2MultiConnPool pool = createPool(1, 2, 1, null);
+        Assert.assertNotNull(pool.getDrainScheduler());
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        pool.release(host, 1);
+        pool.close();
+        Assert.assertTrue(pool.getDrainScheduler().isShutdown());
+        // The drain task scheduled for a minute ahead must not keep the scheduler alive
+        Assert.assertTrue(pool.getDrainScheduler().awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNoDrainSchedulerWithSingleConnection() throws Exception {
+        final H2MultiConnPool pool = createPool(1, 1, 1, null);
+        Assert.assertNull(pool.getDrainScheduler());
+        pool.close();
+    }
+
+    @Test
+    public void testRouteStateRemovedOnceEmpty() throws Exception {
+        final H2MultiConnPool pool = createPool(1, 2, 1, null);
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(1, leaseAndConnect(pool));
+        Assert.assertEquals(Collections.singleton(host), pool.getRoutes());
+
+        pool.release(host, 0);
+        pool.release(host, 1);
+        pool.closeIdle(TimeValue.ofMinutes(1));
+        Assert.assertEquals(Collections.singleton(host), pool.getRoutes());
+
+        Mockito.when(sessions.get(0).isOpen()).thenReturn(false);
+        Mockito.when(sessions.get(1).isOpen()).thenReturn(false);
+        pool.closeIdle(TimeValue.ofMinutes(1));
+        Assert.assertTrue(pool.getRoutes().isEmpty());
+
+        // The route is tracked again once leased
+        Assert.assertEquals(0, leaseAndConnect(pool));
+        Assert.assertEquals(Collections.singleton(host), pool.getRoutes());
+        Assert.assertEquals(1, pool.getActiveStreams(host, 0));
+    }
+
+    @Test
+    public void testRouteStateRemovedAfterFailedConnect() throws Exception {
+        final H2MultiConnPool pool = new H2MultiConnPool(connectionInitiator, addressResolver, null,
+                1, 2, 1, TimeValue.ZERO_MILLISECONDS, null);
+        final int slot = pool.lease(host);
+        pool.getSession(host, slot, Timeout.ofSeconds(5), null);
+        pendingConnects.get(0).failed(new ConnectException());
+        pool.release(host, slot);
+        Assert.assertTrue(pool.getRoutes().isEmpty());
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.async;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.AsyncExecRuntime;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.BasicFuture;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.function.Resolver;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.nio.AsyncClientExchangeHandler;
+import org.apache.hc.core5.http.nio.command.RequestExecutionCommand;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.reactor.Command;
+import org.apache.hc.core5.reactor.ConnectionInitiator;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+
+public class TestInternalH2AsyncExecRuntime {
+
+    private HttpHost target;
+    private List<IOSession> sessions;
+    private List<BasicFuture<IOSession>> pendingConnects;
+    private H2MultiConnPool connPool;
+    private InternalH2AsyncExecRuntime execRuntime;
+
+    @Before
+    public void setup() {
+        target = new HttpHost("somehost", 80);
+        sessions = new ArrayList<>();
+        pendingConnects = new ArrayList<>();
+        final ConnectionInitiator connectionInitiator = new ConnectionInitiator() {
+
+            @Override
+            public Future<IOSession> connect(
+                    final NamedEndpoint remoteEndpoint,
+                    final SocketAddress remoteAddress,
+                    final SocketAddress localAddress,
+                    final Timeout timeout,
+                    final Object attachment,
+                    final FutureCallback<IOSession> callback) {
+                final IOSession session = Mockito.mock(IOSession.class);
+                Mockito.when(session.getId()).thenReturn("c-" + sessions.size());
+                Mockito.when(session.isOpen()).thenReturn(true);
+                sessions.add(session);
+                final BasicFuture<IOSession> future = new BasicFuture<>(callback);
+                pendingConnects.add(future);
+                return future;
+            }
+
+        };
+        connPool = new H2MultiConnPool(connectionInitiator, new Resolver<HttpHost, InetSocketAddress>() {
+
+            @Override
+            public InetSocketAddress resolve(final HttpHost object) {
+                return null;
+            }
+
+        }, null);
+        execRuntime = new InternalH2AsyncExecRuntime(
+                LoggerFactory.getLogger(TestInternalH2AsyncExecRuntime.class), connPool, null);
+    }
+
+    private void completeConnects() {
+        for (final BasicFuture<IOSession> pendingConnect: pendingConnects) {
+            pendingConnect.completed(sessions.get(sessions.size() - 1));
+        }
+        pendingConnects.clear();
+    }
+
+    @Test
+    public void testExecuteOverOpenSession() throws Exception {
+        final HttpClientContext context = HttpClientContext.create();
+        @SuppressWarnings("unchecked")
+        final FutureCallback<AsyncExecRuntime> callback = Mockito.mock(FutureCallback.class);
+        execRuntime.acquireEndpoint("some-id", new HttpRoute(target), null, context, callback);
+        completeConnects();
+        Mockito.verify(callback).completed(execRuntime);
+        Assert.assertEquals(1, sessions.size());
+
+        execRuntime.execute("some-id", Mockito.mock(AsyncClientExchangeHandler.class), context);
+        Mockito.verify(sessions.get(0)).enqueue(
+                Mockito.any(RequestExecutionCommand.class), Mockito.eq(Command.Priority.NORMAL));
+    }
+
+    @Test
+    public void testExecuteOverNewSessionOnceClosed() throws Exception {
+        final HttpClientContext context = HttpClientContext.create();
+        @SuppressWarnings("unchecked")
+        final FutureCallback<AsyncExecRuntime> callback = Mockito.mock(FutureCallback.class);
+        execRuntime.acquireEndpoint("some-id", new HttpRoute(target), null, context, callback);
+        completeConnects();
+        Mockito.verify(callback).completed(execRuntime);
+
+        final IOSession staleSession = sessions.get(0);
+        Mockito.when(staleSession.isOpen()).thenReturn(false);
+
+        execRuntime.execute("some-id", Mockito.mock(AsyncClientExchangeHandler.class), context);
+        completeConnects();
+        Assert.assertEquals(2, sessions.size());
+        // The request must be executed over the newly established session
+        Mockito.verify(sessions.get(1)).enqueue(
+                Mockito.any(RequestExecutionCommand.class), Mockito.eq(Command.Priority.NORMAL));
+        Mockito.verify(staleSession, Mockito.never()).enqueue(
+                Mockito.any(RequestExecutionCommand.class), Mockito.<Command.Priority>any());
+        Assert.assertTrue(execRuntime.isEndpointConnected());
+    }
+
+}
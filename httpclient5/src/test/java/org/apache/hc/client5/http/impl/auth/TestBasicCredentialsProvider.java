@@ -26,6 +26,12 @@
  */
 package org.apache.hc.client5.http.impl.auth;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 import org.apache.hc.client5.http.auth.StandardAuthScheme;
 import org.apache.hc.client5.http.auth.AuthScope;
 import org.apache.hc.client5.http.auth.Credentials;
@@ -155,4 +161,77 @@ public void testCredentialsMatching() {
         Assert.assertEquals(expected, got);
     }
 
+    @Test
+    public void testHostSpecificCredentialsPrecedence() {
+        final Credentials creds1 = new UsernamePasswordCredentials("name1", "pass1".toCharArray());
+        final Credentials creds2 = new UsernamePasswordCredentials("name2", "pass2".toCharArray());
+        final Credentials creds3 = new UsernamePasswordCredentials("name3", "pass3".toCharArray());
+
+        final BasicCredentialsProvider state = new BasicCredentialsProvider();
+        state.setCredentials(new AuthScope("http", null, 80, "somerealm", StandardAuthScheme.BASIC), creds1);
+        state.setCredentials(new AuthScope(null, "somehost", -1, null, null), creds2);
+        state.setCredentials(new AuthScope(null, "somehost", 8080, null, null), creds3);
+
+        Assert.assertEquals(creds2, state.getCredentials(
+                new AuthScope("http", "somehost", 80, "somerealm", StandardAuthScheme.BASIC), null));
+        Assert.assertEquals(creds3, state.getCredentials(
+                new AuthScope("http", "SomeHost", 8080, "somerealm", StandardAuthScheme.BASIC), null));
+        Assert.assertEquals(creds1, state.getCredentials(
+                new AuthScope("http", "someotherhost", 80, "somerealm", StandardAuthScheme.BASIC), null));
+        Assert.assertNull(state.getCredentials(
+                new AuthScope("http", "someotherhost", 8080, "somerealm", StandardAuthScheme.BASIC), null));
+        Assert.assertEquals(creds3, state.getCredentials(
+                new AuthScope(null, null, 8080, null, null), null));
+
+        state.clear();
+        Assert.assertNull(state.getCredentials(
+                new AuthScope("http", "somehost", 80, "somerealm", StandardAuthScheme.BASIC), null));
+    }
+
+    @Test
+    public void testMatchPrecedenceIsPreserved() {
+        final String[] protocols = {null, "http", "https"};
+        final String[] hosts = {null, "host1", "host2"};
+        final int[] ports = {-1, 80, 443};
+        final String[] realms = {null, "realm1", "realm2"};
+        final String[] schemes = {null, StandardAuthScheme.BASIC, StandardAuthScheme.DIGEST};
+
+        final List<AuthScope> scopes = new ArrayList<>();
+        for (final String protocol : protocols) {
+            for (final String host : hosts) {
+                for (final int port : ports) {
+                    for (final String realm : realms) {
+                        for (final String scheme : schemes) {
+                            scopes.add(new AuthScope(protocol, host, port, realm, scheme));
+                        }
+                    }
+                }
+            }
+        }
+        final Random random = new Random(1234);
+        for (int round = 0; round < 50; round++) {
+            final BasicCredentialsProvider state = new BasicCredentialsProvider();
+            final Map<Credentials, AuthScope> registered = new HashMap<>();
+            for (int i = 0; i < 20; i++) {
+                final AuthScope scope = scopes.get(random.nextInt(scopes.size()));
+                final Credentials creds = new UsernamePasswordCredentials(scope.toString(), "pass".toCharArray());
+                state.setCredentials(scope, creds);
+                registered.put(creds, scope);
+            }
+            for (final AuthScope query : scopes) {
+                int bestFactor = -1;
+                for (final AuthScope scope : registered.values()) {
+                    bestFactor = Math.max(bestFactor, query.match(scope));
+                }
+                final Credentials got = state.getCredentials(query, null);
+                if (bestFactor < 0) {
+                    Assert.assertNull(got);
+                } else {
+                    Assert.assertNotNull(got);
+                    Assert.assertEquals(bestFactor, query.match(registered.get(got)));
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,180 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.auth;
+
+import org.apache.hc.client5.http.auth.AuthChallenge;
+import org.apache.hc.client5.http.auth.AuthScheme;
+import org.apache.hc.client5.http.auth.ChallengeType;
+import org.apache.hc.client5.http.auth.StandardAuthScheme;
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SnapshotAuthCache}.
+ */
+public class TestSnapshotAuthCache {
+
+    @Test
+    public void testBasicStoreRestore() throws Exception {
+        final SnapshotAuthCache cache = new SnapshotAuthCache();
+        final AuthScheme authScheme = new BasicScheme();
+        cache.put(new HttpHost("localhost", 80), authScheme);
+        Assert.assertNotNull(cache.get(new HttpHost("localhost", 80)));
+        Assert.assertNotNull(cache.get(new HttpHost("localhost", -1)));
+        cache.remove(new HttpHost("localhost", 80));
+        Assert.assertNull(cache.get(new HttpHost("localhost", 80)));
+        cache.put(new HttpHost("localhost", 80), authScheme);
+        cache.clear();
+        Assert.assertNull(cache.get(new HttpHost("localhost", 80)));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullKey() throws Exception {
+        final SnapshotAuthCache cache = new SnapshotAuthCache();
+        cache.put(null, new BasicScheme());
+    }
+
+    @Test
+    public void testNullAuthScheme() throws Exception {
+        final SnapshotAuthCache cache = new SnapshotAuthCache();
+        cache.put(new HttpHost("localhost", 80), null);
+        Assert.assertNull(cache.get(new HttpHost("localhost", 80)));
+    }
+
+    @Test
+    public void testSnapshotIsolation() throws Exception {
+        final SnapshotAuthCache cache = new SnapshotAuthCache();
+        final HttpHost host = new HttpHost("localhost", 80);
+        final DigestScheme authScheme = new DigestScheme();
+        authScheme.processChallenge(new AuthChallenge(ChallengeType.TARGET, StandardAuthScheme.DIGEST,
+                new BasicNameValuePair("realm", "realm1"),
+                new BasicNameValuePair("nonce", "f2a3f18799759d4f1a1c068b92b573cb")), null);
+        cache.put(host, authScheme);
+
+        authScheme.processChallenge(new AuthChallenge(ChallengeType.TARGET, StandardAuthScheme.DIGEST,
+                new BasicNameValuePair("realm", "realm2"),
+                new BasicNameValuePair("nonce", "f2a3f18799759d4f1a1c068b92b573cb")), null);
+
+        final AuthScheme copy1 = cache.get(host);
+        final AuthScheme copy2 = cache.get(host);
+        Assert.assertTrue(copy1 instanceof DigestScheme);
+        Assert.assertNotSame(authScheme, copy1);
+        Assert.assertNotSame(copy1, copy2);
+        Assert.assertEquals("realm1", copy1.getRealm());
+        Assert.assertTrue(copy1.isChallengeComplete());
+
+        copy1.processChallenge(new AuthChallenge(ChallengeType.TARGET, StandardAuthScheme.DIGEST,
+                new BasicNameValuePair("realm", "realm3"),
+                new BasicNameValuePair("nonce", "f2a3f18799759d4f1a1c068b92b573cb")), null);
+        Assert.assertEquals("realm1", copy2.getRealm());
+        Assert.assertEquals("realm1", cache.get(host).getRealm());
+    }
+
+    @Test
+    public void testBasicSchemeCopyRetainsCredentials() throws Exception {
+        final SnapshotAuthCache cache = new SnapshotAuthCache();
+        final HttpHost host = new HttpHost("localhost", 80);
+        final BasicScheme authScheme = new BasicScheme();
+        authScheme.initPreemptive(new UsernamePasswordCredentials("user", "pass".toCharArray()));
+        cache.put(host, authScheme);
+
+        final AuthScheme copy = cache.get(host);
+        Assert.assertNotSame(authScheme, copy);
+        Assert.assertEquals(authScheme.generateAuthResponse(host, null, null),
+                copy.generateAuthResponse(host, null, null));
+    }
+
+    @Test
+    public void testStoreNonCopyable() throws Exception {
+        final SnapshotAuthCache cache = new SnapshotAuthCache();
+        final HttpHost host = new HttpHost("localhost", 80);
+        cache.put(host, new BasicScheme());
+        cache.put(host, new NTLMScheme());
+        Assert.assertNull(cache.get(host));
+    }
+
+    @SuppressWarnings("serial")
+    static class CustomBasicScheme extends BasicScheme {
+
+        String token;
+
+    }
+
+    @SuppressWarnings("serial")
+    static class CopyableCustomBasicScheme extends CustomBasicScheme {
+
+        @Override
+        public CopyableCustomBasicScheme copy() {
+            final CopyableCustomBasicScheme copy = new CopyableCustomBasicScheme();
+            copy.token = this.token;
+            return copy;
+        }
+
+    }
+
+    @Test
+    public void testSubclassWithoutCopyCachedSerialized() throws Exception {
+        final SnapshotAuthCache cache = new SnapshotAuthCache();
+        final HttpHost host = new HttpHost("localhost", 80);
+        final CustomBasicScheme authScheme = new CustomBasicScheme();
+        authScheme.token = "stuff";
+        Assert.assertFalse(SnapshotAuthCache.isCopyable(authScheme));
+        cache.put(host, authScheme);
+
+        final AuthScheme cached = cache.get(host);
+        Assert.assertNotSame(authScheme, cached);
+        Assert.assertTrue(cached instanceof CustomBasicScheme);
+        Assert.assertEquals("stuff", ((CustomBasicScheme) cached).token);
+    }
+
+    @Test
+    public void testSubclassWithCopySnapshot() throws Exception {
+        final SnapshotAuthCache cache = new SnapshotAuthCache();
+        final HttpHost host = new HttpHost("localhost", 80);
+        final CopyableCustomBasicScheme authScheme = new CopyableCustomBasicScheme();
+        authScheme.token = "stuff";
+        Assert.assertTrue(SnapshotAuthCache.isCopyable(authScheme));
+        cache.put(host, authScheme);
+        authScheme.token = "other stuff";
+
+        final AuthScheme cached = cache.get(host);
+        Assert.assertNotSame(authScheme, cached);
+        Assert.assertTrue(cached instanceof CopyableCustomBasicScheme);
+        Assert.assertEquals("stuff", ((CopyableCustomBasicScheme) cached).token);
+    }
+
+    @Test
+    public void testStandardSchemesCopyable() throws Exception {
+        Assert.assertTrue(SnapshotAuthCache.isCopyable(new BasicScheme()));
+        Assert.assertTrue(SnapshotAuthCache.isCopyable(new DigestScheme()));
+        Assert.assertFalse(SnapshotAuthCache.isCopyable(new NTLMScheme()));
+    }
+
+}
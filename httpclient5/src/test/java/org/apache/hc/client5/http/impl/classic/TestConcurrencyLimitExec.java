@@ -0,0 +1,149 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.hc.client5.http.impl.classic;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecRuntime;
+import org.apache.hc.client5.http.impl.AdaptiveConcurrencyLimiter;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpRequest;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestConcurrencyLimitExec {
+
+    @Mock
+    private ExecRuntime execRuntime;
+    @Mock
+    private ExecChain execChain;
+
+    private HttpRoute route;
+    private ClassicHttpRequest request;
+    private ExecChain.Scope scope;
+    private AdaptiveConcurrencyLimiter limiter;
+    private ConcurrencyLimitExec impl;
+
+    @Before
+    public void setup() {
+        final HttpHost host = new HttpHost("somehost", 80);
+        route = new HttpRoute(host);
+        request = new BasicClassicHttpRequest(Method.GET, host, "/");
+        scope = new ExecChain.Scope("test", route, request, execRuntime, HttpClientContext.create());
+        limiter = new AdaptiveConcurrencyLimiter();
+        limiter.setInitialLimit(8);
+        impl = new ConcurrencyLimitExec(limiter, new DefaultBackoffStrategy(), null);
+    }
+
+    private static ClassicHttpResponse createResponse(final int status) {
+        final ClassicHttpResponse response = new BasicClassicHttpResponse(status);
+        final InputStream inStream = new ByteArrayInputStream(new byte[] {1, 2, 3});
+        response.setEntity(new InputStreamEntity(inStream, 3, ContentType.DEFAULT_BINARY));
+        return response;
+    }
+
+    @Test
+    public void testPermitReleasedOnContentConsumed() throws Exception {
+        Mockito.when(execChain.proceed(request, scope)).thenReturn(createResponse(HttpStatus.SC_OK));
+
+        final ClassicHttpResponse response = impl.execute(request, scope, execChain);
+        Assert.assertEquals(1, limiter.getInFlight(route));
+        Assert.assertEquals(3, EntityUtils.toByteArray(response.getEntity()).length);
+        Assert.assertEquals(0, limiter.getInFlight(route));
+        Assert.assertEquals(8, limiter.getLimit(route));
+    }
+
+    @Test
+    public void testPermitReleasedOnResponseClosed() throws Exception {
+        Mockito.when(execChain.proceed(request, scope)).thenReturn(createResponse(HttpStatus.SC_SERVICE_UNAVAILABLE));
+
+        final ClassicHttpResponse response = impl.execute(request, scope, execChain);
+        Assert.assertEquals(1, limiter.getInFlight(route));
+        response.close();
+        Assert.assertEquals(0, limiter.getInFlight(route));
+        Assert.assertEquals(6, limiter.getLimit(route));
+        // Released only once
+        response.close();
+        Assert.assertEquals(0, limiter.getInFlight(route));
+    }
+
+    @Test
+    public void testPermitReleasedWithoutContent() throws Exception {
+        Mockito.when(execChain.proceed(request, scope)).thenReturn(new BasicClassicHttpResponse(HttpStatus.SC_NO_CONTENT));
+
+        impl.execute(request, scope, execChain);
+        Assert.assertEquals(0, limiter.getInFlight(route));
+    }
+
+    @Test
+    public void testPermitReleasedOnException() throws Exception {
+        final IOException ex = new IOException("Oppsie");
+        Mockito.when(execChain.proceed(request, scope)).thenThrow(ex);
+        try {
+            impl.execute(request, scope, execChain);
+            Assert.fail("IOException expected");
+        } catch (final IOException expected) {
+            Assert.assertSame(ex, expected);
+        }
+        Assert.assertEquals(0, limiter.getInFlight(route));
+    }
+
+    @Test
+    public void testPermitReleasedOnError() throws Exception {
+        final Error error = new AssertionError("Oppsie");
+        Mockito.when(execChain.proceed(request, scope)).thenThrow(error);
+        try {
+            impl.execute(request, scope, execChain);
+            Assert.fail("Error expected");
+        } catch (final Error expected) {
+            Assert.assertSame(error, expected);
+        }
+        Assert.assertEquals(0, limiter.getInFlight(route));
+        Assert.assertEquals(8, limiter.getLimit(route));
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.classic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecRuntime;
+import org.apache.hc.client5.http.config.RequestCompressionConfig;
+import org.apache.hc.client5.http.impl.RequestCompressionSupport;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpRequest;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestRequestCompressionExec {
+
+    @Mock
+    private ExecRuntime execRuntime;
+    @Mock
+    private ExecChain execChain;
+    @Mock
+    private ClassicHttpRequest originalRequest;
+
+    private HttpHost host;
+    private ExecChain.Scope scope;
+    private byte[] content;
+
+    @Before
+    public void setup() {
+        host = new HttpHost("somehost", 80);
+        scope = new ExecChain.Scope("test", new HttpRoute(host), originalRequest, execRuntime,
+                HttpClientContext.create());
+        content = new byte[10000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + i % 7);
+        }
+    }
+
+    private ClassicHttpRequest execute(final RequestCompressionExec impl, final ClassicHttpRequest request,
+                                       final int status) throws Exception {
+        final ArgumentCaptor<ClassicHttpRequest> requestCaptor = ArgumentCaptor.forClass(ClassicHttpRequest.class);
+        Mockito.when(execChain.proceed(requestCaptor.capture(), Mockito.same(scope)))
+                .thenReturn(new BasicClassicHttpResponse(status, "whatever"));
+        impl.execute(request, scope, execChain);
+        return requestCaptor.getValue();
+    }
+
+    /**
+     * Simulates transmission of the request content before returning the response.
+     */
+    private static Answer<ClassicHttpResponse> sendAndRespond(final ClassicHttpResponse response) {
+        return new Answer<ClassicHttpResponse>() {
+
+            @Override
+            public ClassicHttpResponse answer(final InvocationOnMock invocation) throws Throwable {
+                final ClassicHttpRequest request = invocation.getArgument(0);
+                if (request.getEntity() != null) {
+                    write(request.getEntity());
+                }
+                return response;
+            }
+
+        };
+    }
+
+    private static byte[] readAll(final InputStream in) throws Exception {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final byte[] tmp = new byte[1024];
+        int n;
+        while ((n = in.read(tmp)) != -1) {
+            buf.write(tmp, 0, n);
+        }
+        return buf.toByteArray();
+    }
+
+    private static byte[] write(final HttpEntity entity) throws Exception {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        entity.writeTo(buf);
+        return buf.toByteArray();
+    }
+
+    @Test
+    public void testGzipCompression() throws Exception {
+        final RequestCompressionExec impl = new RequestCompressionExec();
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(Method.POST, host, "/");
+        final HttpEntity original = new ByteArrayEntity(content, ContentType.APPLICATION_JSON);
+        request.setEntity(original);
+
+        final ClassicHttpRequest sent = execute(impl, request, HttpStatus.SC_OK);
+        Assert.assertSame(original, request.getEntity());
+        final HttpEntity entity = sent.getEntity();
+        Assert.assertEquals("gzip", entity.getContentEncoding());
+        Assert.assertEquals(-1, entity.getContentLength());
+        Assert.assertTrue(entity.isChunked());
+
+        final byte[] compressed = write(entity);
+        Assert.assertTrue(compressed.length < content.length);
+        Assert.assertArrayEquals(content, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+        // Repeatable content compresses the same way twice
+        Assert.assertArrayEquals(compressed, write(entity));
+        Assert.assertEquals(1, impl.getCompressionSupport().getIdleCount());
+    }
+
+    @Test
+    public void testDeflateCompression() throws Exception {
+        final RequestCompressionExec impl = new RequestCompressionExec(RequestCompressionConfig.custom()
+                .setContentEncoding("deflate")
+                .setCompressionLevel(9)
+                .build());
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(Method.POST, host, "/");
+        request.setEntity(new InputStreamEntity(new ByteArrayInputStream(content), -1, ContentType.APPLICATION_JSON));
+
+        final HttpEntity entity = execute(impl, request, HttpStatus.SC_OK).getEntity();
+        Assert.assertEquals("deflate", entity.getContentEncoding());
+        Assert.assertArrayEquals(content, readAll(new InflaterInputStream(new ByteArrayInputStream(write(entity)))));
+    }
+
+    @Test
+    public void testBelowThresholdNotCompressed() throws Exception {
+        final RequestCompressionExec impl = new RequestCompressionExec(RequestCompressionConfig.custom()
+                .setThreshold(content.length + 1)
+                .build());
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(Method.POST, host, "/");
+        final HttpEntity original = new ByteArrayEntity(content, ContentType.APPLICATION_JSON);
+        request.setEntity(original);
+
+        Assert.assertSame(original, execute(impl, request, HttpStatus.SC_OK).getEntity());
+    }
+
+    @Test
+    public void testAlreadyEncodedNotCompressed() throws Exception {
+        final RequestCompressionExec impl = new RequestCompressionExec();
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(Method.POST, host, "/");
+        final HttpEntity original = new ByteArrayEntity(content, ContentType.APPLICATION_JSON, "br");
+        request.setEntity(original);
+
+        Assert.assertSame(original, execute(impl, request, HttpStatus.SC_OK).getEntity());
+    }
+
+    @Test
+    public void testRejectedCompressionReExecutedUncompressed() throws Exception {
+        final RequestCompressionExec impl = new RequestCompressionExec();
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(Method.POST, host, "/");
+        final HttpEntity original = new ByteArrayEntity(content, ContentType.APPLICATION_JSON);
+        request.setEntity(original);
+
+        final ArgumentCaptor<ClassicHttpRequest> requestCaptor = ArgumentCaptor.forClass(ClassicHttpRequest.class);
+        Mockito.when(execChain.proceed(requestCaptor.capture(), Mockito.same(scope)))
+                .thenAnswer(sendAndRespond(new BasicClassicHttpResponse(HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported")))
+                .thenAnswer(sendAndRespond(new BasicClassicHttpResponse(HttpStatus.SC_OK, "OK")));
+
+        Assert.assertEquals(HttpStatus.SC_OK, impl.execute(request, scope, execChain).getCode());
+        Assert.assertEquals(2, requestCaptor.getAllValues().size());
+        Assert.assertEquals("gzip", requestCaptor.getAllValues().get(0).getEntity().getContentEncoding());
+        Assert.assertSame(original, requestCaptor.getAllValues().get(1).getEntity());
+        Assert.assertTrue(impl.getCompressionSupport().isRejecting(host));
+
+        // Subsequent requests to the same host are not compressed
+        final ClassicHttpRequest request2 = new BasicClassicHttpRequest(Method.POST, host, "/");
+        request2.setEntity(original);
+        impl.execute(request2, scope, execChain);
+        Assert.assertSame(original, requestCaptor.getValue().getEntity());
+    }
+
+    @Test
+    public void testRejectedNonRepeatableNotReExecuted() throws Exception {
+        final RequestCompressionExec impl = new RequestCompressionExec();
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(Method.POST, host, "/");
+        request.setEntity(new InputStreamEntity(new ByteArrayInputStream(content), -1, ContentType.APPLICATION_JSON));
+
+        final ArgumentCaptor<ClassicHttpRequest> requestCaptor = ArgumentCaptor.forClass(ClassicHttpRequest.class);
+        Mockito.when(execChain.proceed(requestCaptor.capture(), Mockito.same(scope)))
+                .thenAnswer(sendAndRespond(new BasicClassicHttpResponse(HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported")));
+        impl.execute(request, scope, execChain);
+        Assert.assertEquals("gzip", requestCaptor.getValue().getEntity().getContentEncoding());
+        Mockito.verify(execChain, Mockito.times(1)).proceed(Mockito.<ClassicHttpRequest>any(), Mockito.same(scope));
+        Assert.assertTrue(impl.getCompressionSupport().isRejecting(host));
+    }
+
+    @Test
+    public void testRejectionWithoutCompressedContentSentIgnored() throws Exception {
+        final RequestCompressionExec impl = new RequestCompressionExec();
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(Method.POST, host, "/");
+        request.setEntity(new ByteArrayEntity(content, ContentType.APPLICATION_JSON));
+
+        // The response arrives before any request content has been sent
+        execute(impl, request, HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE);
+        Mockito.verify(execChain, Mockito.times(1)).proceed(Mockito.<ClassicHttpRequest>any(), Mockito.same(scope));
+        Assert.assertFalse(impl.getCompressionSupport().isRejecting(host));
+    }
+
+    @Test
+    public void testMediaTypeRejectionIgnored() throws Exception {
+        final RequestCompressionExec impl = new RequestCompressionExec();
+        final ClassicHttpResponse response1 = new BasicClassicHttpResponse(HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported");
+        response1.addHeader(HttpHeaders.ACCEPT, "application/xml");
+        final ClassicHttpResponse response2 = new BasicClassicHttpResponse(HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported");
+        response2.addHeader(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.5");
+        Mockito.when(execChain.proceed(Mockito.<ClassicHttpRequest>any(), Mockito.same(scope)))
+                .thenAnswer(sendAndRespond(response1))
+                .thenAnswer(sendAndRespond(response2));
+
+        for (int i = 0; i < 2; i++) {
+            final ClassicHttpRequest request = new BasicClassicHttpRequest(Method.POST, host, "/");
+            request.setEntity(new ByteArrayEntity(content, ContentType.APPLICATION_JSON));
+            Assert.assertEquals(HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE, impl.execute(request, scope, execChain).getCode());
+        }
+        Mockito.verify(execChain, Mockito.times(2)).proceed(Mockito.<ClassicHttpRequest>any(), Mockito.same(scope));
+        Assert.assertFalse(impl.getCompressionSupport().isRejecting(host));
+    }
+
+    @Test
+    public void testContentCodingRejectionDetected() throws Exception {
+        final RequestCompressionSupport support = new RequestCompressionSupport(RequestCompressionConfig.DEFAULT);
+        final ClassicHttpResponse response = new BasicClassicHttpResponse(HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported");
+        Assert.assertTrue(support.isRejected(response));
+        response.setHeader(HttpHeaders.ACCEPT_ENCODING, "identity");
+        Assert.assertTrue(support.isRejected(response));
+        response.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate");
+        Assert.assertTrue(support.isRejected(response));
+        response.setHeader(HttpHeaders.ACCEPT_ENCODING, "GZIP");
+        Assert.assertFalse(support.isRejected(response));
+        Assert.assertFalse(support.isRejected(new BasicClassicHttpResponse(HttpStatus.SC_BAD_REQUEST, "Bad request")));
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.cookie;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.hc.client5.http.cookie.Cookie;
+import org.apache.hc.client5.http.cookie.CookieOrigin;
+import org.apache.hc.client5.http.cookie.DomainIndexedCookieStore;
+import org.apache.hc.client5.http.psl.DomainType;
+import org.apache.hc.client5.http.psl.PublicSuffixMatcher;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DomainIndexedCookieStore}.
+ */
+public class TestDomainIndexedCookieStore {
+
+    private DomainIndexedCookieStore store;
+
+    @Before
+    public void setUp() {
+        final PublicSuffixMatcher matcher = new PublicSuffixMatcher(DomainType.ICANN,
+                Arrays.asList("com", "co.uk"), null);
+        store = new DomainIndexedCookieStore(matcher);
+    }
+
+    private static BasicClientCookie cookie(final String name, final String domain, final String path) {
+        final BasicClientCookie cookie = new BasicClientCookie(name, "value");
+        cookie.setDomain(domain);
+        cookie.setPath(path);
+        return cookie;
+    }
+
+    private static Date daysFromNow(final int days) {
+        final Calendar c = Calendar.getInstance();
+        c.add(Calendar.DAY_OF_YEAR, days);
+        return c.getTime();
+    }
+
+    private static String names(final List<Cookie> cookies) {
+        final StringBuilder buf = new StringBuilder();
+        for (final Cookie cookie : cookies) {
+            if (buf.length() > 0) {
+                buf.append(",");
+            }
+            buf.append(cookie.getName());
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void testBasics() throws Exception {
+        store.addCookie(cookie("name1", "www.example.com", "/"));
+        store.addCookies(new BasicClientCookie[] {cookie("name2", "other.co.uk", "/")});
+        Assert.assertEquals(2, store.getCookies().size());
+        // Equivalent cookie replaces the existing one
+        store.addCookie(cookie("name1", "WWW.example.com", "/"));
+        Assert.assertEquals(2, store.getCookies().size());
+        store.clear();
+        Assert.assertEquals(0, store.getCookies().size());
+    }
+
+    @Test
+    public void testLookupByOrigin() throws Exception {
+        store.addCookie(cookie("host", "www.example.com", "/"));
+        store.addCookie(cookie("domain", ".example.com", "/"));
+        store.addCookie(cookie("sibling", "api.example.com", "/"));
+        store.addCookie(cookie("path", "www.example.com", "/app"));
+        store.addCookie(cookie("other", "www.example.co.uk", "/"));
+        store.addCookie(cookie("ip", "192.168.1.1", "/"));
+
+        final Date now = new Date();
+        Assert.assertEquals("host,domain,sibling", names(
+                store.getCookies(new CookieOrigin("www.example.com", 80, "/", false), now)));
+        Assert.assertEquals("host,domain,sibling,path", names(
+                store.getCookies(new CookieOrigin("www.example.com", 80, "/app/index.html", false), now)));
+        Assert.assertEquals("other", names(
+                store.getCookies(new CookieOrigin("www.example.co.uk", 80, "/", false), now)));
+        Assert.assertEquals("ip", names(
+                store.getCookies(new CookieOrigin("192.168.1.1", 80, "/", false), now)));
+        Assert.assertEquals("", names(
+                store.getCookies(new CookieOrigin("www.example.org", 80, "/", false), now)));
+    }
+
+    @Test
+    public void testExpiredCookie() throws Exception {
+        final BasicClientCookie cookie = cookie("name1", "www.example.com", "/");
+        cookie.setExpiryDate(daysFromNow(-10));
+        store.addCookie(cookie);
+        Assert.assertEquals(0, store.getCookies().size());
+    }
+
+    @Test
+    public void testLazyExpiry() throws Exception {
+        final BasicClientCookie cookie1 = cookie("name1", "www.example.com", "/");
+        cookie1.setExpiryDate(daysFromNow(1));
+        store.addCookie(cookie1);
+        store.addCookie(cookie("name2", "www.example.com", "/"));
+        final BasicClientCookie cookie3 = cookie("name3", "www.example.co.uk", "/");
+        cookie3.setExpiryDate(daysFromNow(1));
+        store.addCookie(cookie3);
+        Assert.assertEquals(3, store.getCookies().size());
+
+        final List<Cookie> cookies = store.getCookies(
+                new CookieOrigin("www.example.com", 80, "/", false), daysFromNow(2));
+        Assert.assertEquals("name2", names(cookies));
+        // Only the bucket visited by the lookup gets purged
+        Assert.assertEquals(2, store.getCookies().size());
+
+        Assert.assertTrue(store.clearExpired(daysFromNow(2)));
+        Assert.assertEquals(1, store.getCookies().size());
+        Assert.assertFalse(store.clearExpired(daysFromNow(2)));
+    }
+
+    @Test
+    public void testAddAfterBucketEmptied() throws Exception {
+        final BasicClientCookie cookie1 = cookie("name1", "www.example.com", "/");
+        cookie1.setExpiryDate(daysFromNow(1));
+        store.addCookie(cookie1);
+        Assert.assertEquals(0, store.getCookies(
+                new CookieOrigin("www.example.com", 80, "/", false), daysFromNow(2)).size());
+        Assert.assertEquals(0, store.getCookies().size());
+
+        store.addCookie(cookie("name2", "www.example.com", "/"));
+        final BasicClientCookie removal = cookie("name2", "www.example.com", "/");
+        removal.setExpiryDate(daysFromNow(-1));
+        store.addCookie(removal);
+        Assert.assertEquals(0, store.getCookies().size());
+
+        store.addCookie(cookie("name3", "www.example.com", "/"));
+        store.clear();
+        store.addCookie(cookie("name4", "www.example.com", "/"));
+        Assert.assertEquals("name4", names(store.getCookies(
+                new CookieOrigin("www.example.com", 80, "/", false), new Date())));
+    }
+
+    @Test
+    public void testConcurrentAddWhileBucketEmptied() throws Exception {
+        final int count = 2000;
+        final Thread remover = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    store.addCookie(cookie("tmp", "www.example.com", "/"));
+                    final BasicClientCookie removal = cookie("tmp", "www.example.com", "/");
+                    removal.setExpiryDate(daysFromNow(-1));
+                    store.addCookie(removal);
+                }
+            }
+
+        });
+        remover.start();
+        for (int i = 0; i < count; i++) {
+            store.addCookie(cookie("name" + i, "www" + (i % 2) + ".example.com", "/"));
+        }
+        remover.join(10000);
+        Assert.assertEquals(count, store.getCookies().size());
+    }
+
+}
@@ -27,18 +27,22 @@
 
 package org.apache.hc.client5.http.impl.io;
 
+import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.hc.client5.http.ConnectTimeoutException;
 import org.apache.hc.client5.http.DnsResolver;
 import org.apache.hc.client5.http.HttpHostConnectException;
 import org.apache.hc.client5.http.SchemePortResolver;
 import org.apache.hc.client5.http.UnsupportedSchemeException;
+import org.apache.hc.client5.http.impl.CachingDnsResolver;
 import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
 import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
 import org.apache.hc.client5.http.socket.LayeredConnectionSocketFactory;
@@ -47,10 +51,14 @@
 import org.apache.hc.core5.http.io.SocketConfig;
 import org.apache.hc.core5.http.protocol.BasicHttpContext;
 import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
 import org.apache.hc.core5.util.TimeValue;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 @SuppressWarnings({"boxing","static-access"}) // test code
 public class TestHttpClientConnectionOperator {
@@ -207,6 +215,225 @@ public void testConnectFailover() throws Exception {
         Mockito.verify(conn, Mockito.times(3)).bind(socket);
     }
 
+    @Test
+    public void testConnectConcurrentFailover() throws Exception {
+        connectionOperator = new DefaultHttpClientConnectionOperator(
+                socketFactoryRegistry, schemePortResolver, dnsResolver, TimeValue.ofMilliseconds(250));
+        final HttpContext context = new BasicHttpContext();
+        final HttpHost host = new HttpHost("somehost");
+        final InetAddress ip1 = InetAddress.getByAddress(new byte[] {10, 0, 0, 1});
+        final InetAddress ip2 = InetAddress.getByAddress(new byte[] {10, 0, 0, 2});
+
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[] { ip1, ip2 });
+        Mockito.when(socketFactoryRegistry.lookup("http")).thenReturn(plainSocketFactory);
+        Mockito.when(schemePortResolver.resolve(host)).thenReturn(80);
+        Mockito.when(plainSocketFactory.createSocket(Mockito.<HttpContext>any())).thenReturn(socket);
+        Mockito.when(plainSocketFactory.connectSocket(
+                Mockito.<TimeValue>any(),
+                Mockito.<Socket>any(),
+                Mockito.<HttpHost>any(),
+                Mockito.eq(new InetSocketAddress(ip1, 80)),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<HttpContext>any())).thenThrow(new ConnectException());
+        Mockito.when(plainSocketFactory.connectSocket(
+                Mockito.<TimeValue>any(),
+                Mockito.<Socket>any(),
+                Mockito.<HttpHost>any(),
+                Mockito.eq(new InetSocketAddress(ip2, 80)),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<HttpContext>any())).thenReturn(socket);
+
+        connectionOperator.connect(conn, host, null, TimeValue.ofMilliseconds(1000), SocketConfig.DEFAULT, context);
+
+        Mockito.verify(plainSocketFactory).connectSocket(
+                TimeValue.ofMilliseconds(1000),
+                socket,
+                host,
+                new InetSocketAddress(ip2, 80),
+                null,
+                context);
+        Mockito.verify(conn).bind(socket);
+    }
+
+    private void whenConnecting(final InetAddress address, final Answer<Socket> answer) throws IOException {
+        Mockito.when(plainSocketFactory.connectSocket(
+                Mockito.<TimeValue>any(),
+                Mockito.<Socket>any(),
+                Mockito.<HttpHost>any(),
+                Mockito.eq(new InetSocketAddress(address, 80)),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<HttpContext>any())).thenAnswer(answer);
+    }
+
+    /**
+     * Answers with the given socket once the latch has been released, ignoring interrupts
+     * in order to simulate a connect call that completes after its attempt has been cancelled.
+     */
+    private static Answer<Socket> connectsWhenReleased(
+            final AtomicReference<Socket> socketRef,
+            final CountDownLatch started,
+            final CountDownLatch release,
+            final Socket connected) {
+        return new Answer<Socket>() {
+
+            @Override
+            public Socket answer(final InvocationOnMock invocation) throws Throwable {
+                socketRef.set((Socket) invocation.getArguments()[1]);
+                started.countDown();
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        release.await();
+                        break;
+                    } catch (final InterruptedException ex) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return connected;
+            }
+
+        };
+    }
+
+    @Test
+    public void testConnectConcurrentSlowAddress() throws Exception {
+        connectionOperator = new DefaultHttpClientConnectionOperator(
+                socketFactoryRegistry, schemePortResolver, dnsResolver, TimeValue.ofMilliseconds(50));
+        final HttpContext context = new BasicHttpContext();
+        final HttpHost host = new HttpHost("somehost");
+        final InetAddress ip1 = InetAddress.getByAddress(new byte[] {10, 0, 0, 1});
+        final InetAddress ip2 = InetAddress.getByAddress(new byte[] {10, 0, 0, 2});
+        final Socket connected1 = Mockito.mock(Socket.class);
+        final Socket connected2 = Mockito.mock(Socket.class);
+        final AtomicReference<Socket> socket1Ref = new AtomicReference<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[] { ip1, ip2 });
+        Mockito.when(socketFactoryRegistry.lookup("http")).thenReturn(plainSocketFactory);
+        Mockito.when(schemePortResolver.resolve(host)).thenReturn(80);
+        Mockito.when(plainSocketFactory.createSocket(Mockito.<HttpContext>any())).thenAnswer(new Answer<Socket>() {
+
+            @Override
+            public Socket answer(final InvocationOnMock invocation) {
+                return Mockito.mock(Socket.class);
+            }
+
+        });
+        whenConnecting(ip1, connectsWhenReleased(socket1Ref, started, release, connected1));
+        whenConnecting(ip2, new Answer<Socket>() {
+
+            @Override
+            public Socket answer(final InvocationOnMock invocation) throws Throwable {
+                Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+                return connected2;
+            }
+
+        });
+
+        try {
+            // Completes while the connect to the first address is still blocked
+            connectionOperator.connect(conn, host, null, TimeValue.ofMilliseconds(10000), SocketConfig.DEFAULT, context);
+        } finally {
+            release.countDown();
+        }
+
+        Mockito.verify(conn).bind(connected2);
+        Mockito.verify(conn, Mockito.never()).bind(connected1);
+        Mockito.verify(socket1Ref.get(), Mockito.atLeastOnce()).close();
+        Mockito.verify(connected2, Mockito.never()).close();
+        // The late connection of the losing attempt gets closed by the attempt itself
+        Mockito.verify(connected1, Mockito.timeout(5000).atLeastOnce()).close();
+        connectionOperator.close();
+    }
+
+    @Test
+    public void testConnectConcurrentBindFailure() throws Exception {
+        connectionOperator = new DefaultHttpClientConnectionOperator(
+                socketFactoryRegistry, schemePortResolver, dnsResolver, TimeValue.ofMilliseconds(250));
+        final HttpContext context = new BasicHttpContext();
+        final HttpHost host = new HttpHost("somehost");
+        final InetAddress ip1 = InetAddress.getByAddress(new byte[] {10, 0, 0, 1});
+        final InetAddress ip2 = InetAddress.getByAddress(new byte[] {10, 0, 0, 2});
+
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[] { ip1, ip2 });
+        Mockito.when(socketFactoryRegistry.lookup("http")).thenReturn(plainSocketFactory);
+        Mockito.when(schemePortResolver.resolve(host)).thenReturn(80);
+        Mockito.when(plainSocketFactory.createSocket(Mockito.<HttpContext>any())).thenReturn(socket);
+        Mockito.when(plainSocketFactory.connectSocket(
+                Mockito.<TimeValue>any(),
+                Mockito.<Socket>any(),
+                Mockito.<HttpHost>any(),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<HttpContext>any())).thenReturn(socket);
+        Mockito.doThrow(new IOException("Oppsie")).when(conn).bind(socket);
+
+        try {
+            connectionOperator.connect(conn, host, null, TimeValue.ofMilliseconds(1000), SocketConfig.DEFAULT, context);
+            Assert.fail("IOException expected");
+        } catch (final IOException expected) {
+            Assert.assertEquals("Oppsie", expected.getMessage());
+        }
+        Mockito.verify(socket, Mockito.atLeastOnce()).close();
+        connectionOperator.close();
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testConnectConcurrentRuntimeException() throws Exception {
+        connectionOperator = new DefaultHttpClientConnectionOperator(
+                socketFactoryRegistry, schemePortResolver, dnsResolver, TimeValue.ofMilliseconds(250));
+        final HttpContext context = new BasicHttpContext();
+        final HttpHost host = new HttpHost("somehost");
+        final InetAddress ip1 = InetAddress.getByAddress(new byte[] {10, 0, 0, 1});
+        final InetAddress ip2 = InetAddress.getByAddress(new byte[] {10, 0, 0, 2});
+
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[] { ip1, ip2 });
+        Mockito.when(socketFactoryRegistry.lookup("http")).thenReturn(plainSocketFactory);
+        Mockito.when(schemePortResolver.resolve(host)).thenReturn(80);
+        Mockito.when(plainSocketFactory.createSocket(Mockito.<HttpContext>any())).thenReturn(socket);
+        Mockito.when(plainSocketFactory.connectSocket(
+                Mockito.<TimeValue>any(),
+                Mockito.<Socket>any(),
+                Mockito.<HttpHost>any(),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<HttpContext>any())).thenThrow(new IllegalStateException());
+
+        try {
+            connectionOperator.connect(conn, host, null, TimeValue.ofMilliseconds(1000), SocketConfig.DEFAULT, context);
+        } finally {
+            connectionOperator.close();
+        }
+    }
+
+    @Test(expected=HttpHostConnectException.class)
+    public void testConnectConcurrentFailure() throws Exception {
+        connectionOperator = new DefaultHttpClientConnectionOperator(
+                socketFactoryRegistry, schemePortResolver, dnsResolver, TimeValue.ofMilliseconds(250));
+        final HttpContext context = new BasicHttpContext();
+        final HttpHost host = new HttpHost("somehost");
+        final InetAddress ip1 = InetAddress.getByAddress(new byte[] {10, 0, 0, 1});
+        final InetAddress ip2 = InetAddress.getByAddress(new byte[] {10, 0, 0, 2});
+
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[] { ip1, ip2 });
+        Mockito.when(socketFactoryRegistry.lookup("http")).thenReturn(plainSocketFactory);
+        Mockito.when(schemePortResolver.resolve(host)).thenReturn(80);
+        Mockito.when(plainSocketFactory.createSocket(Mockito.<HttpContext>any())).thenReturn(socket);
+        Mockito.when(plainSocketFactory.connectSocket(
+                Mockito.<TimeValue>any(),
+                Mockito.<Socket>any(),
+                Mockito.<HttpHost>any(),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<HttpContext>any())).thenThrow(new ConnectException());
+
+        connectionOperator.connect(conn, host, null, TimeValue.ofMilliseconds(1000), SocketConfig.DEFAULT, context);
+    }
+
     @Test
     public void testConnectExplicitAddress() throws Exception {
         final HttpContext context = new BasicHttpContext();
@@ -278,4 +505,14 @@ public void testUpgradeNonLayeringScheme() throws Exception {
         connectionOperator.upgrade(conn, host, context);
     }
 
+    @Test
+    public void testCloseLeavesResolverOpen() throws Exception {
+        final CachingDnsResolver sharedResolver = Mockito.mock(CachingDnsResolver.class);
+        final DefaultHttpClientConnectionOperator operator = new DefaultHttpClientConnectionOperator(
+                socketFactoryRegistry, schemePortResolver, sharedResolver);
+        operator.close(CloseMode.GRACEFUL);
+        Mockito.verify(sharedResolver, Mockito.never()).close(Mockito.<CloseMode>any());
+        Mockito.verify(sharedResolver, Mockito.never()).close();
+    }
+
 }
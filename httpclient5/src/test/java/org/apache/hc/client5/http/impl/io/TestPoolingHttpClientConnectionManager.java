@@ -30,6 +30,7 @@
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.Collections;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +38,7 @@
 
 import org.apache.hc.client5.http.DnsResolver;
 import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.ConnPoolMetrics;
 import org.apache.hc.client5.http.SchemePortResolver;
 import org.apache.hc.client5.http.io.ConnectionEndpoint;
 import org.apache.hc.client5.http.io.LeaseRequest;
@@ -45,10 +47,12 @@
 import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
 import org.apache.hc.client5.http.socket.LayeredConnectionSocketFactory;
 import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.function.Callback;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.config.Lookup;
 import org.apache.hc.core5.http.io.SocketConfig;
 import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
 import org.apache.hc.core5.pool.PoolEntry;
 import org.apache.hc.core5.pool.StrictConnPool;
 import org.apache.hc.core5.util.TimeValue;
@@ -59,6 +63,8 @@
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 /**
  * {@link PoolingHttpClientConnectionManager} tests.
@@ -376,4 +382,187 @@ public void testProxyConnectAndUpgrade() throws Exception {
                 mockSock, "somehost", 8443, context);
     }
 
+    @Test
+    public void testWarmUpIdleConnection() throws Exception {
+        final HttpHost target = new HttpHost("localhost", 80);
+        final HttpRoute route = new HttpRoute(target);
+
+        final PoolEntry<HttpRoute, ManagedHttpClientConnection> entry = new PoolEntry<>(route, TimeValue.NEG_ONE_MILLISECOND);
+        entry.assignConnection(conn);
+
+        Mockito.when(conn.isOpen()).thenReturn(true);
+        Mockito.when(conn.isConsistent()).thenReturn(true);
+        Mockito.when(future.isCancelled()).thenReturn(false);
+        Mockito.when(future.get(1, TimeUnit.SECONDS)).thenReturn(entry);
+        Mockito.when(pool.lease(
+                Mockito.eq(route),
+                Mockito.eq(null),
+                Mockito.<Timeout>any(),
+                Mockito.<FutureCallback<PoolEntry<HttpRoute, ManagedHttpClientConnection>>>eq(null)))
+                .thenReturn(future);
+
+        final Integer established = mgr.warmUp(route, 1, Timeout.ofSeconds(1)).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(Integer.valueOf(1), established);
+
+        Mockito.verify(pool).release(entry, true);
+        Mockito.verify(plainSocketFactory, Mockito.never()).createSocket(Mockito.<HttpContext>any());
+    }
+
+    @Test
+    public void testWarmUpStopsLeasingOnLeaseTimeout() throws Exception {
+        final HttpHost target = new HttpHost("localhost", 80);
+        final HttpRoute route = new HttpRoute(target);
+
+        Mockito.when(future.get(1, TimeUnit.SECONDS)).thenThrow(new TimeoutException());
+        Mockito.when(pool.lease(
+                Mockito.eq(route),
+                Mockito.eq(null),
+                Mockito.<Timeout>any(),
+                Mockito.<FutureCallback<PoolEntry<HttpRoute, ManagedHttpClientConnection>>>eq(null)))
+                .thenReturn(future);
+
+        final Integer established = mgr.warmUp(route, 20, Timeout.ofSeconds(1)).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(Integer.valueOf(0), established);
+
+        // Each worker gives up after its first failed lease
+        Mockito.verify(pool, Mockito.atMost(PoolingHttpClientConnectionManager.MAX_WARM_UP_THREADS)).lease(
+                Mockito.eq(route),
+                Mockito.eq(null),
+                Mockito.<Timeout>any(),
+                Mockito.<FutureCallback<PoolEntry<HttpRoute, ManagedHttpClientConnection>>>eq(null));
+        Mockito.verify(pool, Mockito.never()).release(
+                Mockito.<PoolEntry<HttpRoute, ManagedHttpClientConnection>>any(), Mockito.anyBoolean());
+    }
+
+    @Test
+    public void testWarmUpAfterClose() throws Exception {
+        final HttpHost target = new HttpHost("localhost", 80);
+        final HttpRoute route = new HttpRoute(target);
+
+        mgr.close();
+        final Integer established = mgr.warmUp(route, 2, Timeout.ofSeconds(1)).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(Integer.valueOf(0), established);
+        Mockito.verify(pool, Mockito.never()).lease(
+                Mockito.<HttpRoute>any(),
+                Mockito.any(),
+                Mockito.<Timeout>any(),
+                Mockito.<FutureCallback<PoolEntry<HttpRoute, ManagedHttpClientConnection>>>any());
+    }
+
+    @Test
+    public void testWarmUpTunnelledRoute() throws Exception {
+        final HttpHost target = new HttpHost("https", "somehost", 443);
+        final HttpHost proxy = new HttpHost("someproxy", 8080);
+        final HttpRoute route = new HttpRoute(target, null, proxy, true);
+
+        final Integer established = mgr.warmUp(route, 2, Timeout.ofSeconds(1)).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(Integer.valueOf(0), established);
+
+        Mockito.verifyZeroInteractions(pool);
+    }
+
+    @Test
+    public void testBackgroundValidation() throws Exception {
+        final HttpHost target = new HttpHost("localhost", 80);
+        final HttpRoute route = new HttpRoute(target);
+
+        final PoolEntry<HttpRoute, ManagedHttpClientConnection> entry = new PoolEntry<>(route, TimeValue.NEG_ONE_MILLISECOND);
+        entry.assignConnection(conn);
+
+        Mockito.when(conn.isOpen()).thenReturn(true);
+        Mockito.when(conn.isConsistent()).thenReturn(true);
+        Mockito.when(conn.isStale()).thenReturn(false, false, true);
+        Mockito.when(future.isCancelled()).thenReturn(false);
+        Mockito.when(future.get(1, TimeUnit.SECONDS)).thenReturn(entry);
+        Mockito.when(pool.lease(
+                Mockito.eq(route),
+                Mockito.eq(null),
+                Mockito.<Timeout>any(),
+                Mockito.<FutureCallback<PoolEntry<HttpRoute, ManagedHttpClientConnection>>>eq(null)))
+                .thenReturn(future);
+        Mockito.doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                final Callback<PoolEntry<HttpRoute, ManagedHttpClientConnection>> callback = invocation.getArgument(0);
+                callback.execute(entry);
+                return null;
+            }
+
+        }).when(pool).enumAvailable(Mockito.<Callback<PoolEntry<HttpRoute, ManagedHttpClientConnection>>>any());
+
+        mgr.setValidateAfterInactivity(TimeValue.ZERO_MILLISECONDS);
+        mgr.setBackgroundValidation(TimeValue.ofHours(1));
+        try {
+            // The connection has not been seen by the background validation yet
+            final ConnectionEndpoint endpoint1 = mgr.lease("some-id", route, null).get(Timeout.ofSeconds(1));
+            Mockito.verify(conn, Mockito.times(1)).isStale();
+            mgr.release(endpoint1, null, TimeValue.NEG_ONE_MILLISECOND);
+
+            // Connections released while background validation is enabled are not checked at lease time
+            final ConnectionEndpoint endpoint2 = mgr.lease("some-id", route, null).get(Timeout.ofSeconds(1));
+            Mockito.verify(conn, Mockito.times(1)).isStale();
+            mgr.release(endpoint2, null, TimeValue.NEG_ONE_MILLISECOND);
+
+            mgr.validateIdle();
+            Mockito.verify(conn, Mockito.times(2)).isStale();
+            mgr.validateIdle();
+            Mockito.verify(conn, Mockito.times(3)).isStale();
+            Mockito.verify(conn).close(CloseMode.IMMEDIATE);
+            Assert.assertEquals(1, mgr.getStaleConnectionCount());
+
+            // Discarded connections are not validated again
+            mgr.validateIdle();
+            Mockito.verify(conn, Mockito.times(3)).isStale();
+        } finally {
+            mgr.close();
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        final HttpHost target = new HttpHost("somehost", 80);
+        final InetAddress remote = InetAddress.getByAddress(new byte[] {10, 0, 0, 1});
+        final HttpRoute route = new HttpRoute(target);
+
+        final PoolEntry<HttpRoute, ManagedHttpClientConnection> entry = new PoolEntry<>(route, TimeValue.NEG_ONE_MILLISECOND);
+        entry.assignConnection(conn);
+
+        Mockito.when(conn.isOpen()).thenReturn(false);
+        Mockito.when(future.isCancelled()).thenReturn(false);
+        Mockito.when(future.get(1, TimeUnit.SECONDS)).thenReturn(entry);
+        Mockito.when(pool.lease(
+                Mockito.eq(route),
+                Mockito.eq(null),
+                Mockito.<Timeout>any(),
+                Mockito.<FutureCallback<PoolEntry<HttpRoute, ManagedHttpClientConnection>>>eq(null)))
+                .thenReturn(future);
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[]{remote});
+        Mockito.when(schemePortResolver.resolve(target)).thenReturn(80);
+        Mockito.when(socketFactoryRegistry.lookup("http")).thenReturn(plainSocketFactory);
+        Mockito.when(plainSocketFactory.createSocket(Mockito.<HttpContext>any())).thenReturn(socket);
+        Mockito.when(plainSocketFactory.connectSocket(
+                Mockito.<TimeValue>any(),
+                Mockito.eq(socket),
+                Mockito.<HttpHost>any(),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<InetSocketAddress>any(),
+                Mockito.<HttpContext>any())).thenReturn(socket);
+
+        final ConnPoolMetrics metrics = new ConnPoolMetrics();
+        mgr.setMetrics(metrics);
+        Assert.assertSame(metrics, mgr.getMetrics());
+
+        final ConnectionEndpoint endpoint1 = mgr.lease("some-id", route, null).get(Timeout.ofSeconds(1));
+        mgr.connect(endpoint1, TimeValue.ofMilliseconds(123), HttpClientContext.create());
+
+        Assert.assertEquals(Collections.singleton(route), metrics.getRoutes());
+        final ConnPoolMetrics.Snapshot snapshot = metrics.getSnapshot(route);
+        Assert.assertEquals(1, snapshot.getLeaseWait().getCount());
+        Assert.assertEquals(1, snapshot.getIdle().getCount());
+        Assert.assertEquals(1, snapshot.getConnect().getCount());
+        Assert.assertEquals(0, snapshot.getHandshake().getCount());
+        Assert.assertEquals(1, metrics.getTotalSnapshot().getConnect().getCount());
+    }
+
 }
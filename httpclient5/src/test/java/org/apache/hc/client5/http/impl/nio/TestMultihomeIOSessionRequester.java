@@ -0,0 +1,290 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.nio;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.AsyncDnsResolver;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.HttpHostConnectException;
+import org.apache.hc.client5.http.impl.DefaultAsyncDnsResolver;
+import org.apache.hc.client5.http.impl.HappyEyeballsSupport;
+import org.apache.hc.core5.concurrent.BasicFuture;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.reactor.ConnectionInitiator;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestMultihomeIOSessionRequester {
+
+    private DnsResolver dnsResolver;
+    private ConnectionInitiator connectionInitiator;
+    private InetAddress ip1;
+    private InetAddress ip2;
+    private DefaultAsyncDnsResolver defaultAsyncDnsResolver;
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setup() throws Exception {
+        dnsResolver = Mockito.mock(DnsResolver.class);
+        connectionInitiator = Mockito.mock(ConnectionInitiator.class);
+        ip1 = InetAddress.getByAddress(new byte[] {10, 0, 0, 1});
+        ip2 = InetAddress.getByAddress(new byte[] {10, 0, 0, 2});
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[] { ip1, ip2 });
+        defaultAsyncDnsResolver = new DefaultAsyncDnsResolver(dnsResolver);
+        scheduler = HappyEyeballsSupport.createScheduler();
+    }
+
+    @After
+    public void cleanup() {
+        defaultAsyncDnsResolver.close(CloseMode.IMMEDIATE);
+        scheduler.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void whenConnecting(final InetAddress address, final Answer<Future<IOSession>> answer) {
+        Mockito.when(connectionInitiator.connect(
+                Mockito.<NamedEndpoint>any(),
+                Mockito.eq(new InetSocketAddress(address, 80)),
+                Mockito.<SocketAddress>any(),
+                Mockito.<Timeout>any(),
+                Mockito.any(),
+                Mockito.<FutureCallback<IOSession>>any())).thenAnswer(answer);
+    }
+
+    private static Answer<Future<IOSession>> pending() {
+        return new Answer<Future<IOSession>>() {
+
+            @Override
+            public Future<IOSession> answer(final InvocationOnMock invocation) {
+                @SuppressWarnings("unchecked")
+                final FutureCallback<IOSession> callback = (FutureCallback<IOSession>) invocation.getArguments()[5];
+                return new BasicFuture<>(callback);
+            }
+
+        };
+    }
+
+    private static Answer<Future<IOSession>> completes(final IOSession session) {
+        return new Answer<Future<IOSession>>() {
+
+            @Override
+            public Future<IOSession> answer(final InvocationOnMock invocation) {
+                @SuppressWarnings("unchecked")
+                final FutureCallback<IOSession> callback = (FutureCallback<IOSession>) invocation.getArguments()[5];
+                final BasicFuture<IOSession> future = new BasicFuture<>(callback);
+                future.completed(session);
+                return future;
+            }
+
+        };
+    }
+
+    private static Answer<Future<IOSession>> fails() {
+        return new Answer<Future<IOSession>>() {
+
+            @Override
+            public Future<IOSession> answer(final InvocationOnMock invocation) {
+                @SuppressWarnings("unchecked")
+                final FutureCallback<IOSession> callback = (FutureCallback<IOSession>) invocation.getArguments()[5];
+                final BasicFuture<IOSession> future = new BasicFuture<>(callback);
+                future.failed(new ConnectException("Connection refused"));
+                return future;
+            }
+
+        };
+    }
+
+    @Test
+    public void testConcurrentConnectSlowFirstAddress() throws Exception {
+        final IOSession session = Mockito.mock(IOSession.class);
+        whenConnecting(ip1, pending());
+        whenConnecting(ip2, completes(session));
+
+        final MultihomeIOSessionRequester sessionRequester = new MultihomeIOSessionRequester(
+                defaultAsyncDnsResolver, TimeValue.ofMilliseconds(50), scheduler);
+        final Future<IOSession> future = sessionRequester.connect(
+                connectionInitiator, new HttpHost("somehost", 80), null, Timeout.ofSeconds(30), null, null);
+        Assert.assertSame(session, future.get(5, TimeUnit.SECONDS));
+        Mockito.verify(session, Mockito.never()).close(Mockito.<CloseMode>any());
+    }
+
+    @Test
+    public void testConcurrentConnectFailover() throws Exception {
+        final IOSession session = Mockito.mock(IOSession.class);
+        whenConnecting(ip1, fails());
+        whenConnecting(ip2, completes(session));
+
+        final MultihomeIOSessionRequester sessionRequester = new MultihomeIOSessionRequester(
+                defaultAsyncDnsResolver, TimeValue.ofSeconds(30), scheduler);
+        final Future<IOSession> future = sessionRequester.connect(
+                connectionInitiator, new HttpHost("somehost", 80), null, Timeout.ofSeconds(30), null, null);
+        Assert.assertSame(session, future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcurrentConnectFailureSchedulesNextAttemptOnce() throws Exception {
+        final InetAddress ip3 = InetAddress.getByAddress(new byte[] {10, 0, 0, 3});
+        final InetAddress ip4 = InetAddress.getByAddress(new byte[] {10, 0, 0, 4});
+        Mockito.when(dnsResolver.resolve("somehost")).thenReturn(new InetAddress[] { ip1, ip2, ip3, ip4 });
+        whenConnecting(ip1, fails());
+        whenConnecting(ip2, pending());
+        whenConnecting(ip3, pending());
+        whenConnecting(ip4, pending());
+
+        final ScheduledExecutorService mockScheduler = Mockito.mock(ScheduledExecutorService.class);
+        Mockito.when(mockScheduler.schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any(TimeUnit.class)))
+                .thenReturn(Mockito.mock(ScheduledFuture.class));
+        final Executor directExecutor = new Executor() {
+
+            @Override
+            public void execute(final Runnable command) {
+                command.run();
+            }
+
+        };
+        final MultihomeIOSessionRequester sessionRequester = new MultihomeIOSessionRequester(
+                new DefaultAsyncDnsResolver(dnsResolver, directExecutor), TimeValue.ofMilliseconds(250), mockScheduler);
+        final Future<IOSession> future = sessionRequester.connect(
+                connectionInitiator, new HttpHost("somehost", 80), null, Timeout.ofSeconds(30), null, null);
+        Assert.assertFalse(future.isDone());
+
+        final ArgumentCaptor<Runnable> timerCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mockScheduler, Mockito.times(2)).schedule(
+                timerCaptor.capture(), Mockito.anyLong(), Mockito.any(TimeUnit.class));
+        // The second attempt has been started by the failure of the first one and
+        // has scheduled its own timer before the timer of the first attempt
+        final Runnable secondAttemptTimer = timerCaptor.getAllValues().get(0);
+        final Runnable firstAttemptTimer = timerCaptor.getAllValues().get(1);
+        firstAttemptTimer.run();
+        Mockito.verify(connectionInitiator, Mockito.times(1)).connect(
+                Mockito.<NamedEndpoint>any(),
+                Mockito.eq(new InetSocketAddress(ip2, 80)),
+                Mockito.<SocketAddress>any(),
+                Mockito.<Timeout>any(),
+                Mockito.any(),
+                Mockito.<FutureCallback<IOSession>>any());
+        Mockito.verify(connectionInitiator, Mockito.never()).connect(
+                Mockito.<NamedEndpoint>any(),
+                Mockito.eq(new InetSocketAddress(ip3, 80)),
+                Mockito.<SocketAddress>any(),
+                Mockito.<Timeout>any(),
+                Mockito.any(),
+                Mockito.<FutureCallback<IOSession>>any());
+        secondAttemptTimer.run();
+        secondAttemptTimer.run();
+        Mockito.verify(connectionInitiator, Mockito.times(1)).connect(
+                Mockito.<NamedEndpoint>any(),
+                Mockito.eq(new InetSocketAddress(ip3, 80)),
+                Mockito.<SocketAddress>any(),
+                Mockito.<Timeout>any(),
+                Mockito.any(),
+                Mockito.<FutureCallback<IOSession>>any());
+        Mockito.verify(connectionInitiator, Mockito.never()).connect(
+                Mockito.<NamedEndpoint>any(),
+                Mockito.eq(new InetSocketAddress(ip4, 80)),
+                Mockito.<SocketAddress>any(),
+                Mockito.<Timeout>any(),
+                Mockito.any(),
+                Mockito.<FutureCallback<IOSession>>any());
+        future.cancel(true);
+    }
+
+    @Test
+    public void testConcurrentConnectFailure() throws Exception {
+        whenConnecting(ip1, fails());
+        whenConnecting(ip2, fails());
+
+        final MultihomeIOSessionRequester sessionRequester = new MultihomeIOSessionRequester(
+                defaultAsyncDnsResolver, TimeValue.ofMilliseconds(50), scheduler);
+        final Future<IOSession> future = sessionRequester.connect(
+                connectionInitiator, new HttpHost("somehost", 80), null, Timeout.ofSeconds(30), null, null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("ExecutionException expected");
+        } catch (final ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof HttpHostConnectException);
+        }
+    }
+
+    @Test
+    public void testResolutionFailure() throws Exception {
+        Mockito.when(dnsResolver.resolve("otherhost")).thenThrow(new UnknownHostException("otherhost"));
+
+        final MultihomeIOSessionRequester sessionRequester = new MultihomeIOSessionRequester(defaultAsyncDnsResolver, null, null);
+        final Future<IOSession> future = sessionRequester.connect(
+                connectionInitiator, new HttpHost("otherhost", 80), null, Timeout.ofSeconds(30), null, null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("ExecutionException expected");
+        } catch (final ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof UnknownHostException);
+        }
+        Mockito.verifyZeroInteractions(connectionInitiator);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCancelPendingResolution() throws Exception {
+        final BasicFuture<InetAddress[]> resolveFuture = new BasicFuture<>(null);
+        final AsyncDnsResolver asyncDnsResolver = Mockito.mock(AsyncDnsResolver.class);
+        Mockito.when(asyncDnsResolver.resolve(Mockito.eq("somehost"), Mockito.<FutureCallback<InetAddress[]>>any()))
+                .thenReturn(resolveFuture);
+
+        final MultihomeIOSessionRequester sessionRequester = new MultihomeIOSessionRequester(asyncDnsResolver, null, null);
+        final Future<IOSession> future = sessionRequester.connect(
+                connectionInitiator, new HttpHost("somehost", 80), null, Timeout.ofSeconds(30), null, null);
+        Assert.assertFalse(future.isDone());
+        future.cancel(true);
+        Assert.assertTrue(resolveFuture.isCancelled());
+        Mockito.verifyZeroInteractions(connectionInitiator);
+    }
+
+}
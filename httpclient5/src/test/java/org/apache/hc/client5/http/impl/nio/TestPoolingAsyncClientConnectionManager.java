@@ -0,0 +1,160 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.hc.client5.http.impl.nio;
+
+import java.io.IOException;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionOperator;
+import org.apache.hc.client5.http.nio.ManagedAsyncClientConnection;
+import org.apache.hc.core5.function.Callback;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpVersion;
+import org.apache.hc.core5.http2.nio.AsyncPingHandler;
+import org.apache.hc.core5.http2.nio.command.PingCommand;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolEntry;
+import org.apache.hc.core5.pool.StrictConnPool;
+import org.apache.hc.core5.reactor.Command;
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestPoolingAsyncClientConnectionManager {
+
+    @Mock
+    private StrictConnPool<HttpRoute, ManagedAsyncClientConnection> pool;
+    @Mock
+    private AsyncClientConnectionOperator connectionOperator;
+    @Mock
+    private ManagedAsyncClientConnection connection;
+
+    private PoolEntry<HttpRoute, ManagedAsyncClientConnection> entry;
+    private PoolingAsyncClientConnectionManager mgr;
+
+    @Before
+    public void setup() {
+        entry = new PoolEntry<>(new HttpRoute(new HttpHost("somehost", 80)), TimeValue.NEG_ONE_MILLISECOND);
+        entry.assignConnection(connection);
+        Mockito.doAnswer(new Answer<Void>() {
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                final Callback<PoolEntry<HttpRoute, ManagedAsyncClientConnection>> callback =
+                        (Callback<PoolEntry<HttpRoute, ManagedAsyncClientConnection>>) invocation.getArguments()[0];
+                callback.execute(entry);
+                return null;
+            }
+
+        }).when(pool).enumAvailable(Mockito.<Callback<PoolEntry<HttpRoute, ManagedAsyncClientConnection>>>any());
+        mgr = new PoolingAsyncClientConnectionManager(pool, connectionOperator);
+        mgr.setValidateAfterInactivity(TimeValue.ZERO_MILLISECONDS);
+    }
+
+    private AsyncPingHandler validateAndCapturePing() {
+        mgr.validateIdle();
+        final ArgumentCaptor<Command> commandCaptor = ArgumentCaptor.forClass(Command.class);
+        Mockito.verify(connection).submitCommand(commandCaptor.capture(), Mockito.eq(Command.Priority.NORMAL));
+        final Command command = commandCaptor.getValue();
+        Assert.assertTrue(command instanceof PingCommand);
+        return ((PingCommand) command).getHandler();
+    }
+
+    @Test
+    public void testValidateIdleDiscardsConnectionClosedByPeer() throws Exception {
+        Mockito.when(connection.isOpen()).thenReturn(false);
+
+        mgr.validateIdle();
+
+        Assert.assertFalse(entry.hasConnection());
+        Assert.assertEquals(1, mgr.getStaleConnectionCount());
+        Mockito.verify(connection).close(CloseMode.IMMEDIATE);
+        Mockito.verify(connection, Mockito.never()).submitCommand(Mockito.<Command>any(), Mockito.<Command.Priority>any());
+    }
+
+    @Test
+    public void testValidateIdleDoesNotProbeHttp1Connection() throws Exception {
+        Mockito.when(connection.isOpen()).thenReturn(true);
+        Mockito.when(connection.getProtocolVersion()).thenReturn(HttpVersion.HTTP_1_1);
+
+        mgr.validateIdle();
+
+        Assert.assertTrue(entry.hasConnection());
+        Assert.assertEquals(0, mgr.getStaleConnectionCount());
+        Mockito.verify(connection, Mockito.never()).submitCommand(Mockito.<Command>any(), Mockito.<Command.Priority>any());
+    }
+
+    @Test
+    public void testValidateIdleKeepsHttp2ConnectionAnsweringPing() throws Exception {
+        Mockito.when(connection.isOpen()).thenReturn(true);
+        Mockito.when(connection.getProtocolVersion()).thenReturn(HttpVersion.HTTP_2);
+
+        final AsyncPingHandler pingHandler = validateAndCapturePing();
+        pingHandler.consumeResponse(pingHandler.getData());
+
+        Assert.assertTrue(entry.hasConnection());
+        Mockito.verify(connection, Mockito.never()).close(Mockito.<CloseMode>any());
+    }
+
+    @Test
+    public void testValidateIdleClosesHttp2ConnectionFailingPing() throws Exception {
+        Mockito.when(connection.isOpen()).thenReturn(true);
+        Mockito.when(connection.getProtocolVersion()).thenReturn(HttpVersion.HTTP_2);
+
+        final AsyncPingHandler pingHandler = validateAndCapturePing();
+        pingHandler.failed(new IOException("Oppsie"));
+        Mockito.verify(connection).close(CloseMode.IMMEDIATE);
+
+        // The closed connection gets discarded by the next run
+        Mockito.when(connection.isOpen()).thenReturn(false);
+        mgr.validateIdle();
+        Assert.assertFalse(entry.hasConnection());
+        Assert.assertEquals(1, mgr.getStaleConnectionCount());
+    }
+
+    @Test
+    public void testValidateIdleDoesNotProbeRecentlyUsedConnection() throws Exception {
+        Mockito.when(connection.isOpen()).thenReturn(true);
+        Mockito.when(connection.getProtocolVersion()).thenReturn(HttpVersion.HTTP_2);
+        mgr.setValidateAfterInactivity(TimeValue.ofMinutes(1));
+
+        mgr.validateIdle();
+
+        Mockito.verify(connection, Mockito.never()).submitCommand(Mockito.<Command>any(), Mockito.<Command.Priority>any());
+    }
+
+}
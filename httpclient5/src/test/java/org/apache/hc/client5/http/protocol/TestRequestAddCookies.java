@@ -34,10 +34,12 @@
 import org.apache.hc.client5.http.cookie.StandardCookieSpec;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.cookie.BasicCookieStore;
+import org.apache.hc.client5.http.cookie.Cookie;
 import org.apache.hc.client5.http.cookie.CookieOrigin;
 import org.apache.hc.client5.http.cookie.CookieSpec;
 import org.apache.hc.client5.http.cookie.CookieSpecFactory;
 import org.apache.hc.client5.http.cookie.CookieStore;
+import org.apache.hc.client5.http.cookie.DomainIndexedCookieStore;
 import org.apache.hc.client5.http.impl.cookie.BasicClientCookie;
 import org.apache.hc.client5.http.impl.cookie.IgnoreCookieSpecFactory;
 import org.apache.hc.client5.http.impl.cookie.RFC6265CookieSpecFactory;
@@ -125,6 +127,33 @@ public void testAddCookies() throws Exception {
         Assert.assertFalse(cookieOrigin.isSecure());
     }
 
+    @Test
+    public void testAddCookiesFromIndexedStore() throws Exception {
+        final DomainIndexedCookieStore indexedStore = new DomainIndexedCookieStore();
+        indexedStore.addCookies(this.cookieStore.getCookies().toArray(new Cookie[0]));
+        final BasicClientCookie cookie3 = new BasicClientCookie("name3", "value3");
+        cookie3.setDomain("otherhost.local");
+        cookie3.setPath("/");
+        indexedStore.addCookie(cookie3);
+
+        final HttpRequest request = new BasicHttpRequest("GET", "/");
+
+        final HttpRoute route = new HttpRoute(this.target, null, false);
+
+        final HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(HttpClientContext.HTTP_ROUTE, route);
+        context.setAttribute(HttpClientContext.COOKIE_STORE, indexedStore);
+        context.setAttribute(HttpClientContext.COOKIESPEC_REGISTRY, this.cookieSpecRegistry);
+
+        final HttpRequestInterceptor interceptor = new RequestAddCookies();
+        interceptor.process(request, null, context);
+
+        final Header[] headers = request.getHeaders("Cookie");
+        Assert.assertNotNull(headers);
+        Assert.assertEquals(1, headers.length);
+        Assert.assertEquals("name1=value1; name2=value2", headers[0].getValue());
+    }
+
     @Test
     public void testCookiesForConnectRequest() throws Exception {
         final HttpRequest request = new BasicHttpRequest("CONNECT", "www.somedomain.com");
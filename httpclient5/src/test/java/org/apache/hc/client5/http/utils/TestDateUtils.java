@@ -29,6 +29,7 @@
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Random;
 
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.message.BasicHeader;
@@ -156,4 +157,65 @@ public void testIsAfter() throws Exception {
         message1.setHeader(new BasicHeader(HttpHeaders.DATE, "Wednesday, 25-Dec-2017 00:00:00 GMT"));
         Assert.assertThat(DateUtils.isAfter(message1, message2, HttpHeaders.DATE), CoreMatchers.equalTo(false));
     }
+
+    @Test
+    public void testParseEpochMillis() throws Exception {
+        final long expected = createDate(1994, Calendar.NOVEMBER, 6).getTime() + ((8 * 60 + 49) * 60 + 37) * 1000L;
+        Assert.assertEquals(expected, DateUtils.parseEpochMillis("Sun, 06 Nov 1994 08:49:37 GMT"));
+        Assert.assertEquals(expected, DateUtils.parseEpochMillis("'Sun, 06 Nov 1994 08:49:37 GMT'"));
+        Assert.assertEquals(expected, DateUtils.parseEpochMillis("Sun Nov  6 08:49:37 1994"));
+        Assert.assertEquals(expected, DateUtils.parseEpochMillis(new StringBuilder("Sun Nov 6 08:49:37 1994")));
+        Assert.assertEquals(createDate(2094, Calendar.NOVEMBER, 6).getTime() + ((8 * 60 + 49) * 60 + 37) * 1000L,
+                DateUtils.parseEpochMillis("Sunday, 06-Nov-94 08:49:37 GMT"));
+        Assert.assertEquals(createDate(2017, Calendar.DECEMBER, 26).getTime(),
+                DateUtils.parseEpochMillis("Tuesday, 26-Dec-2017 00:00:00 GMT"));
+        Assert.assertEquals(Long.MIN_VALUE, DateUtils.parseEpochMillis("huh?"));
+        Assert.assertEquals(Long.MIN_VALUE, DateUtils.parseEpochMillis(""));
+        Assert.assertEquals(Long.MIN_VALUE, DateUtils.parseEpochMillis((HeaderGroup) null, HttpHeaders.DATE));
+
+        final HeaderGroup message = new HeaderGroup();
+        Assert.assertEquals(Long.MIN_VALUE, DateUtils.parseEpochMillis(message, HttpHeaders.DATE));
+        message.setHeader(new BasicHeader(HttpHeaders.DATE, "Sun, 06 Nov 1994 08:49:37 GMT"));
+        Assert.assertEquals(expected, DateUtils.parseEpochMillis(message, HttpHeaders.DATE));
+    }
+
+    @Test
+    public void testParseEpochMillisLenientFallback() throws Exception {
+        // out of range fields are rolled over the same way as SimpleDateFormat does
+        Assert.assertEquals(createDate(2005, Calendar.NOVEMBER, 1).getTime(),
+                DateUtils.parseEpochMillis("Fri, 32 Oct 2005 00:00:00 GMT"));
+        Assert.assertEquals(createDate(2005, Calendar.OCTOBER, 14).getTime(),
+                DateUtils.parseEpochMillis("Fri, 14 Oct 2005 00:00:00 GMT; trailing"));
+        Assert.assertEquals(createDate(2005, Calendar.OCTOBER, 14).getTime(),
+                DateUtils.parseEpochMillis("fri, 14 oct 2005 00:00:00 GMT"));
+        Assert.assertEquals(createDate(2005, Calendar.OCTOBER, 14).getTime() - 3600000L,
+                DateUtils.parseEpochMillis("Fri, 14 Oct 2005 00:00:00 CET"));
+    }
+
+    @Test
+    public void testParseFormatRoundTrip() throws Exception {
+        final Random random = new Random(1234);
+        final long min = createDate(1600, Calendar.JANUARY, 1).getTime();
+        final long max = createDate(9999, Calendar.DECEMBER, 31).getTime();
+        for (int i = 0; i < 10000; i++) {
+            final long seconds = (min + (long) (random.nextDouble() * (max - min))) / 1000;
+            final Date date = new Date(seconds * 1000);
+            final long millis = date.getTime() + random.nextInt(1000);
+            final String formatted = DateUtils.formatDate(date, DateUtils.PATTERN_RFC1123);
+            Assert.assertEquals(formatted, DateUtils.formatEpochMillis(millis));
+            Assert.assertEquals(formatted, DateUtils.formatDate(date));
+            Assert.assertEquals(date.getTime(), DateUtils.parseEpochMillis(formatted));
+            Assert.assertEquals(date, DateUtils.parseDate(formatted, new String[] { DateUtils.PATTERN_RFC1123 }));
+            final String asctime = DateUtils.formatDate(date, DateUtils.PATTERN_ASCTIME);
+            Assert.assertEquals(date.getTime(), DateUtils.parseEpochMillis(asctime));
+        }
+    }
+
+    @Test
+    public void testFormatOutOfRangeDate() throws Exception {
+        final Date date = createDate(1500, Calendar.MARCH, 1);
+        Assert.assertEquals(DateUtils.formatDate(date, DateUtils.PATTERN_RFC1123), DateUtils.formatDate(date));
+        Assert.assertEquals(date.getTime(), DateUtils.parseEpochMillis(DateUtils.formatDate(date)));
+    }
+
 }